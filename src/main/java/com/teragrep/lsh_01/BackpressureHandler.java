@@ -0,0 +1,72 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.teragrep.lsh_01.util.Backpressure;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+
+/**
+ * Reports the requests of a connection to Backpressure, from reading a request until its response is written.
+ */
+public class BackpressureHandler extends ChannelDuplexHandler {
+
+    private final Backpressure backpressure;
+
+    // requests of this connection without a response, accessed only from the event loop
+    private int pending;
+
+    public BackpressureHandler(Backpressure backpressure) {
+        this.backpressure = backpressure;
+        this.pending = 0;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof FullHttpRequest) {
+            pending++;
+            backpressure.acquire(ctx.channel());
+        }
+        super.channelRead(ctx, msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        // responses to errors raised before a request was read are not counted
+        if (msg instanceof HttpResponse && pending > 0) {
+            pending--;
+            backpressure.release();
+        }
+        super.write(ctx, msg, promise);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // requests of a closed connection are no longer waiting for a response
+        while (pending > 0) {
+            pending--;
+            backpressure.release();
+        }
+        super.channelInactive(ctx);
+    }
+}
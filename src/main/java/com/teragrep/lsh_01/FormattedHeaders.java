@@ -0,0 +1,83 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import io.netty.handler.codec.http.HttpRequest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Request headers in the form they are inserted into the structured data of the syslog message.
+ */
+public final class FormattedHeaders {
+
+    private final HttpRequest req;
+    private final HeaderFilter headerFilter;
+
+    public FormattedHeaders(HttpRequest req) {
+        this(req, new HeaderFilter());
+    }
+
+    public FormattedHeaders(HttpRequest req, HeaderFilter headerFilter) {
+        this.req = req;
+        this.headerFilter = headerFilter;
+    }
+
+    /**
+     * Headers left out by the header filter are not copied to the map.
+     */
+    public Map<String, String> asMap() {
+        final HashMap<String, String> formattedHeaders = new HashMap<>();
+        int filteredHeaders = 0;
+        int filteredBytes = 0;
+        for (Map.Entry<String, String> header : req.headers()) {
+            final String key = headerFilter.name(header.getKey());
+            if (headerFilter.allows(key)) {
+                formattedHeaders.put(key, header.getValue());
+            }
+            else {
+                filteredHeaders++;
+                // ' key="value"'
+                filteredBytes += key.length() + header.getValue().length() + 4;
+            }
+        }
+        renamed(formattedHeaders, "accept", "http_accept");
+        renamed(formattedHeaders, "host", "http_host");
+        renamed(formattedHeaders, "user_agent", "http_user_agent");
+        allowed(formattedHeaders, "request_method", req.method().name());
+        allowed(formattedHeaders, "request_path", req.uri());
+        allowed(formattedHeaders, "http_version", req.protocolVersion().text());
+        headerFilter.filtered(filteredHeaders, filteredBytes);
+        return formattedHeaders;
+    }
+
+    private void renamed(Map<String, String> formattedHeaders, String key, String renamedKey) {
+        if (headerFilter.allows(renamedKey)) {
+            formattedHeaders.put(renamedKey, formattedHeaders.remove(key));
+        }
+    }
+
+    private void allowed(Map<String, String> formattedHeaders, String key, String value) {
+        if (headerFilter.allows(key)) {
+            formattedHeaders.put(key, value);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.teragrep.lsh_01.config.HeadersConfig;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides which request headers are inserted into the structured data of the syslog messages. Names are compared in
+ * the form they are inserted in, e.g. {@code User-Agent} as {@code http_user_agent}. Header names are lower-cased and
+ * '-' replaced with '_' once, and the results are kept in a table shared by all connections.
+ */
+public final class HeaderFilter {
+
+    private final static int MAX_NAMES = 1024;
+
+    private final Set<String> allowed;
+    private final Set<String> denied;
+    private final Map<String, String> names;
+    private final Meter filteredHeaders;
+    private final Histogram filteredBytes;
+
+    /**
+     * Allows all headers.
+     */
+    public HeaderFilter() {
+        this(Collections.emptySet(), Collections.emptySet(), new MetricRegistry());
+    }
+
+    public HeaderFilter(HeadersConfig headersConfig, MetricRegistry metricRegistry) {
+        this(names(headersConfig.allow), names(headersConfig.deny), metricRegistry);
+    }
+
+    /**
+     * @param allowed names of the allowed headers, empty to allow all headers that are not denied
+     * @param denied  names of the denied headers
+     */
+    public HeaderFilter(Set<String> allowed, Set<String> denied, MetricRegistry metricRegistry) {
+        this.allowed = allowed;
+        this.denied = denied;
+        this.names = new ConcurrentHashMap<>();
+        this.filteredHeaders = metricRegistry.meter(MetricRegistry.name(HeaderFilter.class, "filteredHeaders"));
+        this.filteredBytes = metricRegistry
+                .histogram(MetricRegistry.name(HeaderFilter.class, "filteredBytesPerRecord"));
+    }
+
+    private static Set<String> names(String list) {
+        final Set<String> names = new HashSet<>();
+        for (String name : Arrays.asList(list.split(","))) {
+            if (!name.trim().isEmpty()) {
+                names.add(renamed(normalized(name.trim())));
+            }
+        }
+        return names;
+    }
+
+    private static String normalized(String header) {
+        return header.toLowerCase().replace('-', '_');
+    }
+
+    /**
+     * Accept, Host and User-Agent are inserted with a http_ prefix.
+     */
+    private static String renamed(String name) {
+        switch (name) {
+            case "accept":
+                return "http_accept";
+            case "host":
+                return "http_host";
+            case "user_agent":
+                return "http_user_agent";
+            default:
+                return name;
+        }
+    }
+
+    /**
+     * @param header name of the header as received
+     * @return name of the header lower-cased and '-' replaced with '_'
+     */
+    public String name(String header) {
+        final String name = names.get(header);
+        if (name != null) {
+            return name;
+        }
+        final String normalized = normalized(header);
+        // names are chosen by the clients, keep the table from growing without bounds
+        if (names.size() < MAX_NAMES) {
+            names.put(header, normalized);
+        }
+        return normalized;
+    }
+
+    /**
+     * @param name name of the header as returned by {@link #name(String)}
+     */
+    public boolean allows(String name) {
+        final String inserted = renamed(name);
+        return (allowed.isEmpty() || allowed.contains(inserted)) && !denied.contains(inserted);
+    }
+
+    /**
+     * Records the headers that were left out of a request.
+     *
+     * @param headers how many headers were left out
+     * @param bytes   how many bytes the headers would have taken in each record, assuming ASCII
+     */
+    public void filtered(int headers, int bytes) {
+        if (headers > 0) {
+            filteredHeaders.mark(headers);
+        }
+        filteredBytes.update(bytes);
+    }
+}
@@ -21,6 +21,7 @@ package com.teragrep.lsh_01;
 
 import com.teragrep.lsh_01.config.InternalEndpointUrlConfig;
 import com.teragrep.lsh_01.conversion.IMessageHandler;
+import com.teragrep.lsh_01.util.Backpressure;
 import com.teragrep.lsh_01.util.LoggingHttpObjectAggregator;
 import com.teragrep.lsh_01.util.SslHandlerProvider;
 import io.netty.channel.ChannelInitializer;
@@ -29,9 +30,10 @@ import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.http.HttpContentDecompressor;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpServerExpectContinueHandler;
 import io.netty.handler.ssl.SslHandler;
 
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.Executor;
 
 /**
  * Created by joaoduarte on 11/10/2017.
@@ -42,21 +44,33 @@ public class HttpInitializer extends ChannelInitializer<SocketChannel> {
     private SslHandlerProvider sslHandlerProvider;
     private final int maxContentLength;
     private final HttpResponseStatus responseStatus;
-    private final ThreadPoolExecutor executorGroup;
+    private final Executor executorGroup;
     private final InternalEndpointUrlConfig internalEndpointUrlConfig;
+    private final HeaderFilter headerFilter;
+    private final boolean streamingEnabled;
+    private final boolean backpressureEnabled;
+    private final Backpressure backpressure;
 
     public HttpInitializer(
             IMessageHandler messageHandler,
-            ThreadPoolExecutor executorGroup,
+            Executor executorGroup,
             int maxContentLength,
             HttpResponseStatus responseStatus,
-            InternalEndpointUrlConfig internalEndpointUrlConfig
+            InternalEndpointUrlConfig internalEndpointUrlConfig,
+            HeaderFilter headerFilter,
+            boolean streamingEnabled,
+            boolean backpressureEnabled,
+            Backpressure backpressure
     ) {
         this.messageHandler = messageHandler;
         this.executorGroup = executorGroup;
         this.maxContentLength = maxContentLength;
         this.responseStatus = responseStatus;
         this.internalEndpointUrlConfig = internalEndpointUrlConfig;
+        this.headerFilter = headerFilter;
+        this.streamingEnabled = streamingEnabled;
+        this.backpressureEnabled = backpressureEnabled;
+        this.backpressure = backpressure;
     }
 
     protected void initChannel(SocketChannel socketChannel) throws Exception {
@@ -68,16 +82,37 @@ public class HttpInitializer extends ChannelInitializer<SocketChannel> {
         }
         pipeline.addLast(new HttpServerCodec());
         pipeline.addLast(new HttpContentDecompressor());
-        pipeline.addLast(new LoggingHttpObjectAggregator(maxContentLength));
-        pipeline
-                .addLast(
-                        new HttpServerHandler(
-                                messageHandler.copy(),
-                                executorGroup,
-                                responseStatus,
-                                internalEndpointUrlConfig
-                        )
-                );
+        if (streamingEnabled) {
+            pipeline.addLast(new HttpServerExpectContinueHandler());
+            pipeline
+                    .addLast(
+                            new StreamingHttpServerHandler(
+                                    messageHandler.copy(),
+                                    executorGroup,
+                                    responseStatus,
+                                    internalEndpointUrlConfig,
+                                    headerFilter,
+                                    maxContentLength
+                            )
+                    );
+        }
+        else {
+            pipeline.addLast(new LoggingHttpObjectAggregator(maxContentLength));
+            if (backpressureEnabled) {
+                pipeline.addLast(new BackpressureHandler(backpressure));
+            }
+            pipeline
+                    .addLast(
+                            new HttpServerHandler(
+                                    messageHandler.copy(),
+                                    executorGroup,
+                                    responseStatus,
+                                    internalEndpointUrlConfig,
+                                    headerFilter
+                            )
+                    );
+        }
+        pipeline.addLast(new HttpExceptionHandler());
     }
 
     public void enableSSL(SslHandlerProvider sslHandlerProvider) {
@@ -21,21 +21,14 @@ package com.teragrep.lsh_01;
 
 import com.teragrep.lsh_01.config.InternalEndpointUrlConfig;
 import com.teragrep.lsh_01.conversion.IMessageHandler;
-import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
-import io.netty.handler.codec.compression.DecompressionException;
-import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.FullHttpRequest;
-import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpResponseStatus;
-import io.netty.handler.codec.http.HttpVersion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.ThreadPoolExecutor;
-
-import static io.netty.buffer.Unpooled.copiedBuffer;
+import java.util.concurrent.Executor;
 
 /**
  * Created by joaoduarte on 11/10/2017.
@@ -45,20 +38,32 @@ public class HttpServerHandler extends SimpleChannelInboundHandler<FullHttpReque
     private final static Logger LOGGER = LoggerFactory.getLogger(HttpServerHandler.class);
 
     private final IMessageHandler messageHandler;
-    private final ThreadPoolExecutor executorGroup;
+    private final Executor executorGroup;
     private final HttpResponseStatus responseStatus;
     private final InternalEndpointUrlConfig internalEndpointUrlConfig;
+    private final HeaderFilter headerFilter;
 
     public HttpServerHandler(
             IMessageHandler messageHandler,
-            ThreadPoolExecutor executorGroup,
+            Executor executorGroup,
             HttpResponseStatus responseStatus,
             InternalEndpointUrlConfig internalEndpointUrlConfig
+    ) {
+        this(messageHandler, executorGroup, responseStatus, internalEndpointUrlConfig, new HeaderFilter());
+    }
+
+    public HttpServerHandler(
+            IMessageHandler messageHandler,
+            Executor executorGroup,
+            HttpResponseStatus responseStatus,
+            InternalEndpointUrlConfig internalEndpointUrlConfig,
+            HeaderFilter headerFilter
     ) {
         this.messageHandler = messageHandler;
         this.executorGroup = executorGroup;
         this.responseStatus = responseStatus;
         this.internalEndpointUrlConfig = internalEndpointUrlConfig;
+        this.headerFilter = headerFilter;
     }
 
     @Override
@@ -69,29 +74,9 @@ public class HttpServerHandler extends SimpleChannelInboundHandler<FullHttpReque
                 msg,
                 messageHandler,
                 responseStatus,
-                internalEndpointUrlConfig
+                internalEndpointUrlConfig,
+                headerFilter
         );
         executorGroup.execute(messageProcessor);
     }
-
-    @Override
-    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
-        final ByteBuf content = copiedBuffer(cause.getMessage().getBytes());
-        final HttpResponseStatus responseStatus;
-
-        if (cause instanceof DecompressionException) {
-            responseStatus = HttpResponseStatus.BAD_REQUEST;
-        }
-        else {
-            responseStatus = HttpResponseStatus.INTERNAL_SERVER_ERROR;
-        }
-        final DefaultFullHttpResponse response = new DefaultFullHttpResponse(
-                HttpVersion.HTTP_1_1,
-                responseStatus,
-                content
-        );
-        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain");
-        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
-        ctx.writeAndFlush(response);
-    }
 }
@@ -20,20 +20,36 @@
 package com.teragrep.lsh_01;
 
 import com.codahale.metrics.MetricRegistry;
-import com.teragrep.lsh_01.authentication.BasicAuthentication;
-import com.teragrep.lsh_01.authentication.BasicAuthenticationFactory;
+import com.teragrep.lsh_01.authentication.*;
 import com.teragrep.lsh_01.config.*;
 import com.teragrep.lsh_01.metrics.HttpReport;
 import com.teragrep.lsh_01.metrics.JmxReport;
 import com.teragrep.lsh_01.metrics.Report;
 import com.teragrep.lsh_01.metrics.Slf4jReport;
 import com.teragrep.lsh_01.conversion.*;
+import com.teragrep.lsh_01.lookup.ReloadingLookupTable;
 import com.teragrep.lsh_01.pool.*;
+import com.teragrep.lsh_01.relp.NettyRelpOutput;
+import com.teragrep.lsh_01.spool.Spool;
+import com.teragrep.lsh_01.spool.SpoolingRelpOutput;
+import com.teragrep.lsh_01.transport.Transport;
+import com.teragrep.lsh_01.transport.TransportFactory;
+import com.teragrep.lsh_01.util.ExecutorFactory;
+import com.teragrep.lsh_01.util.FileWatcher;
+import com.teragrep.lsh_01.util.Reloadable;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.EventLoopGroup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.teragrep.lsh_01.util.DaemonThreadFactory.daemonThreadFactory;
 
 public class Main {
 
@@ -50,12 +66,24 @@ public class Main {
         }
 
         NettyConfig nettyConfig = new NettyConfig();
-        RelpConfig relpConfig = new RelpConfig();
+        SpoolConfig spoolConfig = new SpoolConfig();
+        RelpConfig relpConfig = new RelpConfig(spoolConfig);
         SecurityConfig securityConfig = new SecurityConfig();
-        BasicAuthentication basicAuthentication = new BasicAuthenticationFactory().create();
+        PasswordVerifier passwordVerifier;
+        if ("pbkdf2".equals(securityConfig.credentialsHash)) {
+            passwordVerifier = new Pbkdf2PasswordVerifier();
+        }
+        else {
+            passwordVerifier = new PlainPasswordVerifier();
+        }
+        ReloadingAuthentication reloadingAuthentication = new ReloadingAuthentication(
+                System.getProperty("credentials.file", "etc/credentials.json"),
+                new BasicAuthenticationFactory(passwordVerifier)
+        );
         InternalEndpointUrlConfig internalEndpointUrlConfig = new InternalEndpointUrlConfig();
         LookupConfig lookupConfig = new LookupConfig();
         MetricsConfig metricsConfig = new MetricsConfig();
+        HeadersConfig headersConfig = new HeadersConfig();
         try {
             nettyConfig.validate();
             relpConfig.validate();
@@ -63,6 +91,8 @@ public class Main {
             internalEndpointUrlConfig.validate();
             lookupConfig.validate();
             metricsConfig.validate();
+            spoolConfig.validate();
+            headersConfig.validate();
         }
         catch (IllegalArgumentException e) {
             LOGGER.error("Can't parse config properly: {}", e.getMessage());
@@ -72,7 +102,12 @@ public class Main {
         LOGGER.info("Got relp config: <[{}]>", relpConfig);
         LOGGER.info("Got internal endpoint config: <[{}]>", internalEndpointUrlConfig);
         LOGGER.info("Got lookup table config: <[{}]>", lookupConfig);
+        LOGGER.info("Got spool config: <[{}]>", spoolConfig);
+        LOGGER.info("Got headers config: <[{}]>", headersConfig);
         LOGGER.info("Authentication required: <[{}]>", securityConfig.authRequired);
+        if ("pbkdf2".equals(securityConfig.credentialsHash) && !securityConfig.authCacheEnabled) {
+            LOGGER.warn("Credentials are hashed but security.authCache.enabled is false, every request is hashed");
+        }
 
         // metrics
         MetricRegistry metricRegistry = new MetricRegistry();
@@ -81,17 +116,152 @@ public class Main {
                 metricRegistry
         );
 
-        RelpConnectionFactory relpConnectionFactory = new RelpConnectionFactory(relpConfig, metricRegistry);
-        Pool<IManagedRelpConnection> pool = new Pool<>(relpConnectionFactory, new ManagedRelpConnectionStub());
+        // event loops are shared by the HTTP server and the non-blocking RELP client
+        Transport transport = new TransportFactory(nettyConfig).transport();
+        EventLoopGroup eventLoopGroup = transport
+                .eventLoopGroup(nettyConfig.threads, daemonThreadFactory("http-input-processor"));
 
+        // a single blocking target uses a pool directly, several targets get pools of their own
+        List<RelpTarget> relpTargets = new RelpTargets(relpConfig).asList();
+        Pool<IManagedRelpConnection> pool = null;
+        NettyRelpOutput nettyRelpOutput = null;
+        BalancedRelpOutput balancedRelpOutput = null;
+        RelpOutput relpOutput;
+        if ("netty".equals(relpConfig.client)) {
+            nettyRelpOutput = new NettyRelpOutput(
+                    transport.configure(new Bootstrap()),
+                    eventLoopGroup.next(),
+                    relpTargets.get(0).host(),
+                    relpTargets.get(0).port(),
+                    relpConfig.relpReconnectInterval,
+                    relpConfig.nettyWindow,
+                    relpConfig.nettyMaxQueued,
+                    relpConfig.nettyAckTimeoutMillis,
+                    metricRegistry
+            );
+            relpOutput = nettyRelpOutput;
+        }
+        else if (relpTargets.size() > 1) {
+            balancedRelpOutput = new BalancedRelpOutputFactory(relpConfig, relpTargets, metricRegistry)
+                    .balancedRelpOutput();
+            relpOutput = balancedRelpOutput;
+        }
+        else {
+            pool = new Pool<>(
+                    new RelpConnectionFactory(relpConfig, relpTargets.get(0), metricRegistry),
+                    new ManagedRelpConnectionStub(),
+                    relpConfig.poolMaxSize,
+                    relpConfig.poolMinIdle,
+                    relpConfig.poolMaxWaitMillis,
+                    relpConfig.poolMaxIdleMillis,
+                    relpConfig.poolMaxAgeMillis,
+                    relpConfig.poolProbeIdleMillis,
+                    relpConfig.poolMaintenanceIntervalMillis,
+                    metricRegistry
+            );
+            pool.warmUp();
+            relpOutput = new PooledRelpOutput(pool);
+        }
+        if (relpConfig.groupCommitEnabled) {
+            relpOutput = new GroupCommitRelpOutput(
+                    relpOutput,
+                    relpConfig.groupCommitMaxRecords,
+                    relpConfig.groupCommitMaxBytes,
+                    relpConfig.groupCommitLingerMillis,
+                    metricRegistry
+            );
+        }
+        SpoolingRelpOutput spoolingRelpOutput = null;
+        if (spoolConfig.enabled) {
+            try {
+                spoolingRelpOutput = new SpoolingRelpOutput(
+                        relpOutput,
+                        new Spool(
+                                Paths.get(spoolConfig.directory),
+                                spoolConfig.segmentSize,
+                                spoolConfig.maxSegments,
+                                "always".equals(spoolConfig.fsync)
+                        ),
+                        spoolConfig.replayBatchSize,
+                        "interval".equals(spoolConfig.fsync) ? spoolConfig.fsyncInterval : 0,
+                        metricRegistry
+                );
+            }
+            catch (IOException e) {
+                throw new IllegalArgumentException("Can't open spool: " + e.getMessage());
+            }
+            relpOutput = spoolingRelpOutput;
+        }
+        // with affinity, each request goes straight to the target its key hashes to
+        RelpRouter relpRouter;
+        if (balancedRelpOutput != null && !"none".equals(relpConfig.affinity)) {
+            relpRouter = new ConsistentHashRelpRouter(
+                    balancedRelpOutput.targets(),
+                    relpConfig.affinityVirtualNodes,
+                    relpConfig.affinity,
+                    metricRegistry
+            );
+        }
+        else {
+            relpRouter = new FixedRelpRouter(relpOutput);
+        }
+
+        // credentials and lookup tables are shared by all connections and reloaded when their files change
+        Authentication basicAuthentication;
+        Reloadable credentials;
+        if (securityConfig.authCacheEnabled) {
+            CachingAuthentication cachingAuthentication = new CachingAuthentication(
+                    reloadingAuthentication,
+                    securityConfig.authCacheMaxEntries,
+                    securityConfig.authCacheMaxNegativeEntries,
+                    securityConfig.authCacheTtlMillis,
+                    securityConfig.authCacheNegativeTtlMillis,
+                    metricRegistry
+            );
+            basicAuthentication = cachingAuthentication;
+            credentials = cachingAuthentication;
+        }
+        else {
+            basicAuthentication = reloadingAuthentication;
+            credentials = reloadingAuthentication;
+        }
+        ReloadingLookupTable hostnameLookup = new ReloadingLookupTable(lookupConfig.hostnamePath);
+        ReloadingLookupTable appnameLookup = new ReloadingLookupTable(lookupConfig.appNamePath);
+        FileWatcher fileWatcher;
+        try {
+            fileWatcher = new FileWatcher(Arrays.asList(credentials, hostnameLookup, appnameLookup));
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("Can't watch credentials and lookup tables: " + e.getMessage());
+        }
+
+        ExecutorFactory executorFactory = new ExecutorFactory(nettyConfig, metricRegistry);
         IMessageHandler conversion = new MetricRelpConversion(
-                new ConversionFactory(propsMap, pool, securityConfig, basicAuthentication, lookupConfig).conversion(),
-                metricRegistry
+                new ConversionFactory(
+                        propsMap,
+                        relpRouter,
+                        securityConfig,
+                        basicAuthentication,
+                        hostnameLookup,
+                        appnameLookup
+                ).conversion(),
+                metricRegistry,
+                executorFactory.latencyObserver()
         );
 
         try (
                 HttpServer server = new MetricHttpServer(
-                        new NettyHttpServer(nettyConfig, conversion, null, 200, internalEndpointUrlConfig),
+                        new NettyHttpServer(
+                                nettyConfig,
+                                transport,
+                                eventLoopGroup,
+                                executorFactory.executor(),
+                                conversion,
+                                null,
+                                200,
+                                internalEndpointUrlConfig,
+                                new HeaderFilter(headersConfig, metricRegistry)
+                        ),
                         report
                 )
         ) {
@@ -101,7 +271,20 @@ public class Main {
             throw new IllegalArgumentException("Failed to close the server: " + e.getMessage());
         }
         finally {
-            pool.close();
+            fileWatcher.close();
+            if (spoolingRelpOutput != null) {
+                spoolingRelpOutput.close();
+            }
+            if (nettyRelpOutput != null) {
+                nettyRelpOutput.close();
+            }
+            if (balancedRelpOutput != null) {
+                balancedRelpOutput.close();
+            }
+            if (pool != null) {
+                pool.close();
+            }
+            eventLoopGroup.shutdownGracefully(0, 10, TimeUnit.SECONDS);
         }
     }
 }
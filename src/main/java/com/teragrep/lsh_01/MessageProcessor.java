@@ -21,36 +21,35 @@ package com.teragrep.lsh_01;
 
 import com.teragrep.lsh_01.authentication.*;
 import com.teragrep.lsh_01.config.InternalEndpointUrlConfig;
+import com.teragrep.lsh_01.conversion.DefaultPayload;
 import com.teragrep.lsh_01.conversion.IMessageHandler;
-import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import com.teragrep.lsh_01.conversion.SplitTimeoutException;
+import com.teragrep.lsh_01.conversion.Utf8Text;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.http.DefaultFullHttpResponse;
-import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
-import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.teragrep.lsh_01.util.AsyncRunnable;
 import com.teragrep.lsh_01.util.RejectableRunnable;
 
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
-public class MessageProcessor implements RejectableRunnable {
+public class MessageProcessor implements RejectableRunnable, AsyncRunnable {
 
     private final ChannelHandlerContext ctx;
     private final FullHttpRequest req;
     private final IMessageHandler messageHandler;
-    private final HttpResponseStatus responseStatus;
+    private final Responses responses;
     private final InternalEndpointUrlConfig internalEndpointUrlConfig;
+    private final HeaderFilter headerFilter;
+    private final CompletableFuture<Void> completion;
 
-    private static final Charset UTF8_CHARSET = StandardCharsets.UTF_8;
     private final static Logger LOGGER = LoggerFactory.getLogger(MessageProcessor.class);
 
     MessageProcessor(
@@ -58,18 +57,21 @@ public class MessageProcessor implements RejectableRunnable {
             FullHttpRequest req,
             IMessageHandler messageHandler,
             HttpResponseStatus responseStatus,
-            InternalEndpointUrlConfig internalEndpointUrlConfig
+            InternalEndpointUrlConfig internalEndpointUrlConfig,
+            HeaderFilter headerFilter
     ) {
         this.ctx = ctx;
         this.req = req;
         this.messageHandler = messageHandler;
-        this.responseStatus = responseStatus;
+        this.responses = new Responses(req.protocolVersion(), responseStatus);
         this.internalEndpointUrlConfig = internalEndpointUrlConfig;
+        this.headerFilter = headerFilter;
+        this.completion = new CompletableFuture<>();
     }
 
     public void onRejection() {
         try {
-            final FullHttpResponse response = generateFailedResponse(HttpResponseStatus.TOO_MANY_REQUESTS);
+            final FullHttpResponse response = responses.failed(HttpResponseStatus.TOO_MANY_REQUESTS);
             LOGGER.warn("Too many requests, returning code <{}>", response.status().code());
             ctx.writeAndFlush(response);
         }
@@ -78,18 +80,23 @@ public class MessageProcessor implements RejectableRunnable {
         }
     }
 
+    /**
+     * Writes the response once the message handler has completed. The executor thread is not kept waiting for the
+     * messages to be sent. The request is released on completion, the messages are views of its body until then.
+     */
     @Override
     public void run() {
+        completion.whenComplete((ignored, error) -> req.release());
         try {
-            final HttpResponse response;
+            final CompletionStage<HttpResponse> response;
             if (isInternalEndpoint()) {
                 LOGGER.debug("Healthcheck endpoint called");
-                response = generateResponse(messageHandler.responseHeaders());
+                response = CompletableFuture.completedFuture(responses.ok(messageHandler.responseHeaders()));
             }
             else {
                 if (messageHandler.requiresToken()) {
                     if (req.headers().contains(HttpHeaderNames.AUTHORIZATION)) {
-                        HttpResponse response1;
+                        CompletionStage<HttpResponse> response1;
                         try {
                             Subject subject = messageHandler
                                     .asSubject(req.headers().get(HttpHeaderNames.AUTHORIZATION));
@@ -97,7 +104,8 @@ public class MessageProcessor implements RejectableRunnable {
                             req.headers().remove(HttpHeaderNames.AUTHORIZATION);
                             if (subject.isStub()) {
                                 LOGGER.debug("Authentication failed; rejecting request.");
-                                response1 = generateFailedResponse(HttpResponseStatus.UNAUTHORIZED);
+                                response1 = CompletableFuture
+                                        .completedFuture(responses.failed(HttpResponseStatus.UNAUTHORIZED));
                             }
                             else {
                                 LOGGER.debug("Processing message");
@@ -106,13 +114,14 @@ public class MessageProcessor implements RejectableRunnable {
                         }
                         catch (Exception e) {
                             LOGGER.debug("Invalid authorization; rejecting request.");
-                            response1 = generateFailedResponse(HttpResponseStatus.BAD_REQUEST);
+                            response1 = CompletableFuture
+                                    .completedFuture(responses.failed(HttpResponseStatus.BAD_REQUEST));
                         }
                         response = response1;
                     }
                     else {
                         LOGGER.debug("Required authorization not provided; requesting authentication.");
-                        response = generateAuthenticationRequestResponse();
+                        response = CompletableFuture.completedFuture(responses.authenticationRequest());
                     }
                 }
                 else {
@@ -120,81 +129,54 @@ public class MessageProcessor implements RejectableRunnable {
                     response = processMessage(subject);
                 }
             }
-            ctx.writeAndFlush(response);
+            response.whenComplete((written, error) -> {
+                if (written != null) {
+                    ctx.writeAndFlush(written);
+                }
+                completion.complete(null);
+            });
         }
-        finally {
-            req.release();
+        catch (RuntimeException e) {
+            completion.complete(null);
+            throw e;
         }
     }
 
+    /**
+     * @return completes when the response has been written
+     */
+    @Override
+    public CompletionStage<Void> completion() {
+        return completion;
+    }
+
     private boolean isInternalEndpoint() {
         return internalEndpointUrlConfig.healthcheckEnabled
                 && internalEndpointUrlConfig.healthcheckUrl.equals(req.uri());
     }
 
-    private FullHttpResponse processMessage(Subject subject) {
-        final Map<String, String> formattedHeaders = formatHeaders(req.headers());
-        final String body = req.content().toString(UTF8_CHARSET);
-        if (messageHandler.onNewMessage(subject, formattedHeaders, body)) {
-            return generateResponse(messageHandler.responseHeaders());
+    private CompletionStage<HttpResponse> processMessage(Subject subject) {
+        final Map<String, String> formattedHeaders = new FormattedHeaders(req, headerFilter).asMap();
+        final CharSequence body = new Utf8Text(req.content()).view();
+        final CompletionStage<Boolean> sending;
+        try {
+            sending = messageHandler.onNewPayloadAsync(subject, formattedHeaders, new DefaultPayload(body));
+        }
+        catch (SplitTimeoutException e) {
+            final FullHttpResponse response = responses.failed(HttpResponseStatus.UNPROCESSABLE_ENTITY);
+            LOGGER.warn("{}, returning code <{}>", e.getMessage(), response.status().code());
+            return CompletableFuture.completedFuture(response);
         }
-        else {
-            FullHttpResponse response = generateFailedResponse(HttpResponseStatus.INTERNAL_SERVER_ERROR);
+        return sending.handle((sent, error) -> {
+            if (error != null) {
+                LOGGER.error("Unexpected error when processing a message: <{}>", error.getMessage(), error);
+            }
+            else if (sent) {
+                return responses.ok(messageHandler.responseHeaders());
+            }
+            FullHttpResponse response = responses.failed(HttpResponseStatus.INTERNAL_SERVER_ERROR);
             LOGGER.warn("Processing failed, returning code <{}>", response.status().code());
             return response;
-        }
-    }
-
-    private FullHttpResponse generateFailedResponse(HttpResponseStatus status) {
-        final FullHttpResponse response = new DefaultFullHttpResponse(req.protocolVersion(), status);
-        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
-        return response;
+        });
     }
-
-    private FullHttpResponse generateAuthenticationRequestResponse() {
-        final FullHttpResponse response = new DefaultFullHttpResponse(
-                req.protocolVersion(),
-                HttpResponseStatus.UNAUTHORIZED
-        );
-        response.headers().set(HttpHeaderNames.WWW_AUTHENTICATE, "Basic realm=\"Logstash HTTP Input\"");
-        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
-        return response;
-    }
-
-    private FullHttpResponse generateResponse(Map<String, String> stringHeaders) {
-
-        final FullHttpResponse response = new DefaultFullHttpResponse(req.protocolVersion(), responseStatus);
-        final DefaultHttpHeaders headers = new DefaultHttpHeaders();
-        for (String key : stringHeaders.keySet()) {
-            headers.set(key, stringHeaders.get(key));
-        }
-        response.headers().set(headers);
-
-        if (responseStatus != HttpResponseStatus.NO_CONTENT) {
-            final ByteBuf payload = Unpooled.wrappedBuffer("ok".getBytes(UTF8_CHARSET));
-            response.headers().set(HttpHeaderNames.CONTENT_LENGTH, payload.readableBytes());
-            response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain");
-            response.content().writeBytes(payload);
-        }
-
-        return response;
-    }
-
-    private Map<String, String> formatHeaders(HttpHeaders headers) {
-        final HashMap<String, String> formattedHeaders = new HashMap<>();
-        for (Map.Entry<String, String> header : headers) {
-            String key = header.getKey();
-            key = key.toLowerCase();
-            key = key.replace('-', '_');
-            formattedHeaders.put(key, header.getValue());
-        }
-        formattedHeaders.put("http_accept", formattedHeaders.remove("accept"));
-        formattedHeaders.put("http_host", formattedHeaders.remove("host"));
-        formattedHeaders.put("http_user_agent", formattedHeaders.remove("user_agent"));
-        formattedHeaders.put("request_method", req.method().name());
-        formattedHeaders.put("request_path", req.uri());
-        formattedHeaders.put("http_version", req.protocolVersion().text());
-        return formattedHeaders;
-    }
-
 }
@@ -19,21 +19,23 @@
 */
 package com.teragrep.lsh_01;
 
+import com.codahale.metrics.MetricRegistry;
 import com.teragrep.lsh_01.config.InternalEndpointUrlConfig;
 import com.teragrep.lsh_01.config.NettyConfig;
 import com.teragrep.lsh_01.conversion.IMessageHandler;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.codec.http.HttpResponseStatus;
-import com.teragrep.lsh_01.util.CustomRejectedExecutionHandler;
+import com.teragrep.lsh_01.transport.Transport;
+import com.teragrep.lsh_01.transport.TransportFactory;
+import com.teragrep.lsh_01.util.Backpressure;
+import com.teragrep.lsh_01.util.ExecutorFactory;
 import com.teragrep.lsh_01.util.SslHandlerProvider;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import static com.teragrep.lsh_01.util.DaemonThreadFactory.daemonThreadFactory;
@@ -49,7 +51,9 @@ public class NettyHttpServer implements HttpServer {
     private final int connectionBacklog = 128;
 
     private final EventLoopGroup processorGroup;
-    private final ThreadPoolExecutor executorGroup;
+    private final boolean sharedProcessorGroup;
+    private volatile Channel serverChannel;
+    private final ExecutorService executorGroup;
     private final HttpResponseStatus responseStatus;
     private final InternalEndpointUrlConfig internalEndpointUrlConfig;
 
@@ -59,38 +63,70 @@ public class NettyHttpServer implements HttpServer {
             SslHandlerProvider sslHandlerProvider,
             int responseCode,
             InternalEndpointUrlConfig internalEndpointUrlConfig
+    ) {
+        this(
+                nettyConfig,
+                new TransportFactory(nettyConfig).transport(),
+                null,
+                new ExecutorFactory(nettyConfig, new MetricRegistry()).executor(),
+                messageHandler,
+                sslHandlerProvider,
+                responseCode,
+                internalEndpointUrlConfig,
+                new HeaderFilter()
+        );
+    }
+
+    /**
+     * @param processorGroup event loop group shared with e.g. the RELP client, null to create one. A shared group is
+     *                       not shut down when the server is closed.
+     * @param executorGroup  executor that handles the requests, shut down when the server is closed
+     * @param headerFilter   headers inserted into the structured data
+     */
+    public NettyHttpServer(
+            NettyConfig nettyConfig,
+            Transport transport,
+            EventLoopGroup processorGroup,
+            ExecutorService executorGroup,
+            IMessageHandler messageHandler,
+            SslHandlerProvider sslHandlerProvider,
+            int responseCode,
+            InternalEndpointUrlConfig internalEndpointUrlConfig,
+            HeaderFilter headerFilter
     ) {
         this.host = nettyConfig.listenAddress;
         this.port = nettyConfig.listenPort;
         this.internalEndpointUrlConfig = internalEndpointUrlConfig;
         this.responseStatus = HttpResponseStatus.valueOf(responseCode);
-        processorGroup = new NioEventLoopGroup(nettyConfig.threads, daemonThreadFactory("http-input-processor"));
-
-        executorGroup = new ThreadPoolExecutor(
-                nettyConfig.threads,
-                nettyConfig.threads,
-                0,
-                TimeUnit.MILLISECONDS,
-                new ArrayBlockingQueue<>(nettyConfig.maxPendingRequests),
-                daemonThreadFactory("http-input-handler-executor"),
-                new CustomRejectedExecutionHandler()
-        );
+        this.sharedProcessorGroup = processorGroup != null;
+        if (sharedProcessorGroup) {
+            this.processorGroup = processorGroup;
+        }
+        else {
+            this.processorGroup = transport
+                    .eventLoopGroup(nettyConfig.threads, daemonThreadFactory("http-input-processor"));
+        }
+
+        this.executorGroup = executorGroup;
 
         final HttpInitializer httpInitializer = new HttpInitializer(
                 messageHandler,
                 executorGroup,
                 nettyConfig.maxContentLength,
                 responseStatus,
-                internalEndpointUrlConfig
+                internalEndpointUrlConfig,
+                headerFilter,
+                nettyConfig.streamingEnabled,
+                nettyConfig.backpressureEnabled,
+                new Backpressure(nettyConfig.backpressureHighWaterMark, nettyConfig.backpressureLowWaterMark)
         );
 
         if (sslHandlerProvider != null) {
             httpInitializer.enableSSL(sslHandlerProvider);
         }
 
-        serverBootstrap = new ServerBootstrap()
-                .group(processorGroup)
-                .channel(NioServerSocketChannel.class)
+        serverBootstrap = transport
+                .configure(new ServerBootstrap().group(this.processorGroup))
                 .option(ChannelOption.SO_BACKLOG, connectionBacklog)
                 .childOption(ChannelOption.SO_KEEPALIVE, true)
                 .childHandler(httpInitializer);
@@ -99,9 +135,9 @@ public class NettyHttpServer implements HttpServer {
     @Override
     public void run() {
         try {
-            executorGroup.prestartAllCoreThreads();
             final ChannelFuture channel = serverBootstrap.bind(host, port);
-            channel.sync().channel().closeFuture().sync();
+            serverChannel = channel.sync().channel();
+            serverChannel.closeFuture().sync();
         }
         catch (final InterruptedException ex) {
             throw new IllegalStateException(ex);
@@ -112,7 +148,14 @@ public class NettyHttpServer implements HttpServer {
     public void close() {
         try {
             // stop accepting new connections first
-            processorGroup.shutdownGracefully(0, 10, TimeUnit.SECONDS).sync();
+            if (sharedProcessorGroup) {
+                if (serverChannel != null) {
+                    serverChannel.close().sync();
+                }
+            }
+            else {
+                processorGroup.shutdownGracefully(0, 10, TimeUnit.SECONDS).sync();
+            }
             // then shutdown the message handler executor
             executorGroup.shutdown();
             try {
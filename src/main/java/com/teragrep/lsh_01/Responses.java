@@ -0,0 +1,80 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Responses to a request with the given protocol version.
+ */
+public final class Responses {
+
+    private final HttpVersion protocolVersion;
+    private final HttpResponseStatus responseStatus;
+
+    public Responses(HttpVersion protocolVersion, HttpResponseStatus responseStatus) {
+        this.protocolVersion = protocolVersion;
+        this.responseStatus = responseStatus;
+    }
+
+    public FullHttpResponse ok(Map<String, String> stringHeaders) {
+        final FullHttpResponse response = new DefaultFullHttpResponse(protocolVersion, responseStatus);
+        final DefaultHttpHeaders headers = new DefaultHttpHeaders();
+        for (String key : stringHeaders.keySet()) {
+            headers.set(key, stringHeaders.get(key));
+        }
+        response.headers().set(headers);
+
+        if (responseStatus != HttpResponseStatus.NO_CONTENT) {
+            final ByteBuf payload = Unpooled.wrappedBuffer("ok".getBytes(StandardCharsets.UTF_8));
+            response.headers().set(HttpHeaderNames.CONTENT_LENGTH, payload.readableBytes());
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain");
+            response.content().writeBytes(payload);
+        }
+
+        return response;
+    }
+
+    public FullHttpResponse failed(HttpResponseStatus status) {
+        final FullHttpResponse response = new DefaultFullHttpResponse(protocolVersion, status);
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+        return response;
+    }
+
+    public FullHttpResponse authenticationRequest() {
+        final FullHttpResponse response = new DefaultFullHttpResponse(
+                protocolVersion,
+                HttpResponseStatus.UNAUTHORIZED
+        );
+        response.headers().set(HttpHeaderNames.WWW_AUTHENTICATE, "Basic realm=\"Logstash HTTP Input\"");
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+        return response;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.teragrep.lsh_01.config.InternalEndpointUrlConfig;
+import com.teragrep.lsh_01.conversion.IMessageHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Handles requests without aggregating them. The body of each request is passed on part by part as it arrives.
+ */
+public class StreamingHttpServerHandler extends SimpleChannelInboundHandler<HttpObject> {
+
+    private final IMessageHandler messageHandler;
+    private final Executor executorGroup;
+    private final HttpResponseStatus responseStatus;
+    private final InternalEndpointUrlConfig internalEndpointUrlConfig;
+    private final HeaderFilter headerFilter;
+    private final int maxMessageLength;
+
+    // request currently being read from the channel
+    private StreamingMessageProcessor messageProcessor;
+
+    public StreamingHttpServerHandler(
+            IMessageHandler messageHandler,
+            Executor executorGroup,
+            HttpResponseStatus responseStatus,
+            InternalEndpointUrlConfig internalEndpointUrlConfig,
+            HeaderFilter headerFilter,
+            int maxMessageLength
+    ) {
+        this.messageHandler = messageHandler;
+        this.executorGroup = executorGroup;
+        this.responseStatus = responseStatus;
+        this.internalEndpointUrlConfig = internalEndpointUrlConfig;
+        this.headerFilter = headerFilter;
+        this.maxMessageLength = maxMessageLength;
+    }
+
+    @Override
+    public void channelRead0(ChannelHandlerContext ctx, HttpObject msg) {
+        if (msg instanceof HttpRequest) {
+            messageProcessor = new StreamingMessageProcessor(
+                    ctx,
+                    (HttpRequest) msg,
+                    messageHandler,
+                    executorGroup,
+                    responseStatus,
+                    internalEndpointUrlConfig,
+                    headerFilter,
+                    maxMessageLength
+            );
+        }
+        if (msg instanceof HttpContent) {
+            messageProcessor.offer((HttpContent) msg);
+        }
+    }
+}
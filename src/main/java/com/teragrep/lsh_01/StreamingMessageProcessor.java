@@ -0,0 +1,319 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.teragrep.lsh_01.authentication.Subject;
+import com.teragrep.lsh_01.authentication.SubjectAnonymous;
+import com.teragrep.lsh_01.config.InternalEndpointUrlConfig;
+import com.teragrep.lsh_01.conversion.IMessageHandler;
+import com.teragrep.lsh_01.conversion.MessageStream;
+import com.teragrep.lsh_01.conversion.SplitTimeoutException;
+import com.teragrep.lsh_01.util.RejectableRunnable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.LastHttpContent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Processes a request whose body arrives in parts. The parts are queued by the event loop and fed to a MessageStream
+ * one at a time by the executor, so sending split messages never blocks the event loop. Reading from the channel is
+ * paused while more than maxMessageLength bytes are waiting in the queue. Once a response has been written, the rest
+ * of the body is discarded.
+ */
+public class StreamingMessageProcessor implements RejectableRunnable {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(StreamingMessageProcessor.class);
+
+    private final ChannelHandlerContext ctx;
+    private final HttpRequest req;
+    private final IMessageHandler messageHandler;
+    private final Executor executorGroup;
+    private final Responses responses;
+    private final InternalEndpointUrlConfig internalEndpointUrlConfig;
+    private final HeaderFilter headerFilter;
+    private final int maxMessageLength;
+
+    private final Queue<HttpContent> contents;
+    private final AtomicBoolean scheduled;
+    private final AtomicLong pendingBytes;
+    private volatile boolean responded;
+
+    // accessed by the executor thread that is draining the contents, or by the thread that failed to schedule a drain
+    private boolean opened;
+    private MessageStream messageStream;
+    private FullHttpResponse response;
+
+    StreamingMessageProcessor(
+            ChannelHandlerContext ctx,
+            HttpRequest req,
+            IMessageHandler messageHandler,
+            Executor executorGroup,
+            HttpResponseStatus responseStatus,
+            InternalEndpointUrlConfig internalEndpointUrlConfig,
+            HeaderFilter headerFilter,
+            int maxMessageLength
+    ) {
+        this.ctx = ctx;
+        this.req = req;
+        this.messageHandler = messageHandler;
+        this.executorGroup = executorGroup;
+        this.responses = new Responses(req.protocolVersion(), responseStatus);
+        this.internalEndpointUrlConfig = internalEndpointUrlConfig;
+        this.headerFilter = headerFilter;
+        this.maxMessageLength = maxMessageLength;
+        this.contents = new ConcurrentLinkedQueue<>();
+        this.scheduled = new AtomicBoolean();
+        this.pendingBytes = new AtomicLong();
+        this.responded = false;
+        this.opened = false;
+    }
+
+    /**
+     * Queues the next part of the body. Called from the event loop.
+     *
+     * @param content part of the body, retained until it has been processed
+     */
+    public void offer(HttpContent content) {
+        if (responded) {
+            // discard the rest of the body
+            return;
+        }
+        contents.add(content.retain());
+        if (responded) {
+            // responded while the part was queued
+            discard();
+            return;
+        }
+        if (pendingBytes.addAndGet(content.content().readableBytes()) > maxMessageLength) {
+            ctx.channel().config().setAutoRead(false);
+        }
+        if (scheduled.compareAndSet(false, true)) {
+            executorGroup.execute(this);
+        }
+    }
+
+    /**
+     * Called when the executor refuses to drain the queued parts. No drain is running then, the previous one has
+     * cleared the scheduled flag before this part was offered.
+     */
+    @Override
+    public void onRejection() {
+        final FullHttpResponse response;
+        if (opened) {
+            // messages of the earlier parts may have been sent already, retrying the whole request would duplicate them
+            response = responses.failed(HttpResponseStatus.INTERNAL_SERVER_ERROR);
+            LOGGER
+                    .warn(
+                            "Too many requests after part of the body was processed, returning code <{}>",
+                            response.status().code()
+                    );
+        }
+        else {
+            response = responses.failed(HttpResponseStatus.TOO_MANY_REQUESTS);
+            LOGGER.warn("Too many requests, returning code <{}>", response.status().code());
+        }
+        fail(response);
+    }
+
+    @Override
+    public void run() {
+        do {
+            try {
+                drain();
+            }
+            catch (RuntimeException e) {
+                LOGGER.error("Unexpected error when processing a message: <{}>", e.getMessage(), e);
+                fail(responses.failed(HttpResponseStatus.INTERNAL_SERVER_ERROR));
+            }
+            finally {
+                scheduled.set(false);
+            }
+        }
+        while (!responded && !contents.isEmpty() && scheduled.compareAndSet(false, true));
+    }
+
+    private void drain() {
+        HttpContent content;
+        while (!responded && (content = contents.poll()) != null) {
+            final int bytes = content.content().readableBytes();
+            try {
+                process(content);
+            }
+            finally {
+                content.release();
+            }
+            if (pendingBytes.addAndGet(-bytes) <= maxMessageLength / 2 && !ctx.channel().config().isAutoRead()) {
+                ctx.channel().config().setAutoRead(true);
+            }
+        }
+    }
+
+    /**
+     * Responds with the failure unless a response was written already, and discards the rest of the body.
+     */
+    private void fail(FullHttpResponse failure) {
+        if (messageStream != null) {
+            final MessageStream aborted = messageStream;
+            messageStream = null;
+            aborted.abort();
+        }
+        if (responded) {
+            failure.release();
+        }
+        else {
+            responded = true;
+            ctx.writeAndFlush(failure);
+        }
+        discard();
+    }
+
+    private void discard() {
+        HttpContent content;
+        while ((content = contents.poll()) != null) {
+            pendingBytes.addAndGet(-content.content().readableBytes());
+            content.release();
+        }
+        ctx.channel().config().setAutoRead(true);
+    }
+
+    private void process(HttpContent content) {
+        if (!opened) {
+            open();
+            opened = true;
+        }
+        if (response == null) {
+            try {
+                messageStream.write(content.content());
+            }
+            catch (TooLongFrameException e) {
+                LOGGER.warn("Oversized message received, exceeds maxContentLength <{}>", maxMessageLength);
+                response = responses.failed(HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE);
+            }
+            catch (SplitTimeoutException e) {
+                response = splitTimeout(e);
+            }
+            catch (RuntimeException e) {
+                LOGGER.error("Unexpected error when processing a message: <{}>", e.getMessage(), e);
+                response = responses.failed(HttpResponseStatus.INTERNAL_SERVER_ERROR);
+            }
+            if (response != null) {
+                // the rest of the body is not processed
+                messageStream.abort();
+                messageStream = null;
+            }
+        }
+        if (content instanceof LastHttpContent) {
+            if (response == null) {
+                response = close();
+            }
+            responded = true;
+            ctx.writeAndFlush(response);
+        }
+    }
+
+    /**
+     * Authenticates the request and opens the stream for its body. Sets the response instead if the body is not going
+     * to be processed.
+     */
+    private void open() {
+        if (isInternalEndpoint()) {
+            LOGGER.debug("Healthcheck endpoint called");
+            response = responses.ok(messageHandler.responseHeaders());
+            return;
+        }
+        final Subject subject;
+        if (messageHandler.requiresToken()) {
+            if (!req.headers().contains(HttpHeaderNames.AUTHORIZATION)) {
+                LOGGER.debug("Required authorization not provided; requesting authentication.");
+                response = responses.authenticationRequest();
+                return;
+            }
+            try {
+                subject = messageHandler.asSubject(req.headers().get(HttpHeaderNames.AUTHORIZATION));
+            }
+            catch (Exception e) {
+                LOGGER.debug("Invalid authorization; rejecting request.");
+                response = responses.failed(HttpResponseStatus.BAD_REQUEST);
+                return;
+            }
+            // Headers are inserted to structured data so remove it to prevent credentials leaking
+            req.headers().remove(HttpHeaderNames.AUTHORIZATION);
+            if (subject.isStub()) {
+                LOGGER.debug("Authentication failed; rejecting request.");
+                response = responses.failed(HttpResponseStatus.UNAUTHORIZED);
+                return;
+            }
+        }
+        else {
+            subject = new SubjectAnonymous();
+        }
+        LOGGER.debug("Processing message stream");
+        messageStream = messageHandler
+                .stream(subject, new FormattedHeaders(req, headerFilter).asMap(), maxMessageLength);
+    }
+
+    private FullHttpResponse close() {
+        final MessageStream closed = messageStream;
+        messageStream = null;
+        boolean sent;
+        try {
+            sent = closed.close();
+        }
+        catch (SplitTimeoutException e) {
+            return splitTimeout(e);
+        }
+        catch (RuntimeException e) {
+            LOGGER.error("Unexpected error when processing a message: <{}>", e.getMessage(), e);
+            sent = false;
+        }
+        if (sent) {
+            return responses.ok(messageHandler.responseHeaders());
+        }
+        final FullHttpResponse response = responses.failed(HttpResponseStatus.INTERNAL_SERVER_ERROR);
+        LOGGER.warn("Processing failed, returning code <{}>", response.status().code());
+        return response;
+    }
+
+    /**
+     * Messages split before the timeout have already been sent.
+     */
+    private FullHttpResponse splitTimeout(SplitTimeoutException e) {
+        final FullHttpResponse response = responses.failed(HttpResponseStatus.UNPROCESSABLE_ENTITY);
+        LOGGER.warn("{}, returning code <{}>", e.getMessage(), response.status().code());
+        return response;
+    }
+
+    private boolean isInternalEndpoint() {
+        return internalEndpointUrlConfig.healthcheckEnabled
+                && internalEndpointUrlConfig.healthcheckUrl.equals(req.uri());
+    }
+}
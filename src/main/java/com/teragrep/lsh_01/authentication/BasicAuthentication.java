@@ -26,23 +26,39 @@ import org.slf4j.LoggerFactory;
 import java.util.Base64;
 import java.util.Objects;
 
-public class BasicAuthentication {
+public class BasicAuthentication implements Authentication {
 
     private final Base64.Decoder decoder;
     private final CredentialLookup credentialLookup;
     private final Subject subjectStub;
+    private final PasswordVerifier passwordVerifier;
     private final static Logger LOGGER = LoggerFactory.getLogger(BasicAuthentication.class);
 
     public BasicAuthentication(CredentialLookup credentialLookup) {
-        this(Base64.getDecoder(), new SubjectStub(), credentialLookup);
+        this(credentialLookup, new PlainPasswordVerifier());
+    }
+
+    public BasicAuthentication(CredentialLookup credentialLookup, PasswordVerifier passwordVerifier) {
+        this(Base64.getDecoder(), new SubjectStub(), credentialLookup, passwordVerifier);
     }
 
     public BasicAuthentication(Base64.Decoder decoder, SubjectStub subjectStub, CredentialLookup credentialLookup) {
+        this(decoder, subjectStub, credentialLookup, new PlainPasswordVerifier());
+    }
+
+    public BasicAuthentication(
+            Base64.Decoder decoder,
+            SubjectStub subjectStub,
+            CredentialLookup credentialLookup,
+            PasswordVerifier passwordVerifier
+    ) {
         this.decoder = decoder;
         this.credentialLookup = credentialLookup;
         this.subjectStub = subjectStub;
+        this.passwordVerifier = passwordVerifier;
     }
 
+    @Override
     public Subject asSubject(String token) {
         if (token == null || token.isEmpty()) {
             throw new IllegalArgumentException("Got null or empty token");
@@ -60,7 +76,8 @@ public class BasicAuthentication {
         if ("".equals(username) || "".equals(password)) {
             throw new IllegalArgumentException("Got invalid token, username or password is not present");
         }
-        if (password.equals(credentialLookup.getCredential(username))) {
+        String credential = credentialLookup.getCredential(username);
+        if (credential != null && passwordVerifier.verify(password, credential)) {
             LOGGER.debug("Authentication ok");
             return new SubjectImpl(username);
         }
@@ -76,11 +93,12 @@ public class BasicAuthentication {
         if (o == null || getClass() != o.getClass())
             return false;
         final BasicAuthentication cast = (BasicAuthentication) o;
-        return decoder.equals(cast.decoder) && credentialLookup.equals(cast.credentialLookup);
+        return decoder.equals(cast.decoder) && credentialLookup.equals(cast.credentialLookup)
+                && passwordVerifier.equals(cast.passwordVerifier);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(decoder, credentialLookup);
+        return Objects.hash(decoder, credentialLookup, passwordVerifier);
     }
 }
@@ -24,12 +24,26 @@ import com.teragrep.jai_02.CredentialLookup;
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.IOException;
 
 public class BasicAuthenticationFactory {
 
+    private final PasswordVerifier passwordVerifier;
+
+    public BasicAuthenticationFactory() {
+        this(new PlainPasswordVerifier());
+    }
+
+    public BasicAuthenticationFactory(PasswordVerifier passwordVerifier) {
+        this.passwordVerifier = passwordVerifier;
+    }
+
     public BasicAuthentication create() {
+        return create(System.getProperty("credentials.file", "etc/credentials.json"));
+    }
+
+    public BasicAuthentication create(String credentialsFile) {
         BufferedReader br;
-        String credentialsFile = System.getProperty("credentials.file", "etc/credentials.json");
         try {
             br = new BufferedReader(new FileReader(credentialsFile));
         }
@@ -39,6 +53,14 @@ public class BasicAuthenticationFactory {
                     e
             );
         }
-        return new BasicAuthentication(new CredentialLookup(br));
+        try (BufferedReader reader = br) {
+            return new BasicAuthentication(new CredentialLookup(reader), passwordVerifier);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException(
+                    "Can't read credentials.json from path <[" + credentialsFile + "]>: ",
+                    e
+            );
+        }
     }
 }
@@ -0,0 +1,230 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.authentication;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.teragrep.lsh_01.util.Reloadable;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Caches the Subjects of recently seen Authorization headers so that repeated requests with the same credentials
+ * skip decoding and credential lookups. Failed credentials are cached for a shorter time so that bursts of bad
+ * credentials stay cheap. Failed credentials have a bound of their own so that they can't evict the Subjects of valid
+ * credentials. Headers are kept only as HMAC-SHA256 digests under a random key that is never stored, and
+ * the cache is emptied when the credentials are reloaded.
+ */
+public final class CachingAuthentication implements Authentication, Reloadable {
+
+    private final ReloadingAuthentication origin;
+    private final int maxEntries;
+    private final int maxNegativeEntries;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final SecretKeySpec digestKey;
+    private final Map<Key, CachedSubject> entries;
+    private final Map<Key, CachedSubject> negativeEntries; // guarded by entries
+    private final Meter hits;
+    private final Meter misses;
+    private long generation;
+
+    public CachingAuthentication(
+            ReloadingAuthentication origin,
+            int maxEntries,
+            int maxNegativeEntries,
+            int ttlMillis,
+            int negativeTtlMillis,
+            MetricRegistry metricRegistry
+    ) {
+        this.origin = origin;
+        this.maxEntries = maxEntries;
+        this.maxNegativeEntries = maxNegativeEntries;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.negativeTtlNanos = negativeTtlMillis * 1_000_000L;
+        final byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        this.digestKey = new SecretKeySpec(keyBytes, "HmacSHA256");
+        this.entries = new LinkedHashMap<Key, CachedSubject>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedSubject> eldest) {
+                return size() > CachingAuthentication.this.maxEntries;
+            }
+        };
+        this.negativeEntries = new LinkedHashMap<Key, CachedSubject>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedSubject> eldest) {
+                return size() > CachingAuthentication.this.maxNegativeEntries;
+            }
+        };
+        this.hits = metricRegistry.meter(name(CachingAuthentication.class, "hits"));
+        this.misses = metricRegistry.meter(name(CachingAuthentication.class, "misses"));
+        this.generation = 0;
+        metricRegistry.gauge(name(CachingAuthentication.class, "size"), () -> (Gauge<Integer>) this::size);
+    }
+
+    @Override
+    public Subject asSubject(String token) {
+        if (token == null || token.isEmpty()) {
+            return origin.asSubject(token);
+        }
+        final Key key = new Key(digest(token));
+        final long now = System.nanoTime();
+        final long currentGeneration;
+        synchronized (entries) {
+            CachedSubject cached = entries.get(key);
+            if (cached == null) {
+                cached = negativeEntries.get(key);
+            }
+            if (cached != null && now - cached.created < cached.ttlNanos) {
+                hits.mark();
+                return cached.subject;
+            }
+            currentGeneration = generation;
+        }
+        misses.mark();
+        // malformed tokens throw and are not cached
+        final Subject subject = origin.asSubject(token);
+        final long ttl = subject.isStub() ? negativeTtlNanos : ttlNanos;
+        if (ttl > 0) {
+            synchronized (entries) {
+                // credentials reloaded during the lookup, the result may be stale
+                if (currentGeneration == generation) {
+                    if (subject.isStub()) {
+                        negativeEntries.put(key, new CachedSubject(subject, now, ttl));
+                    }
+                    else {
+                        entries.put(key, new CachedSubject(subject, now, ttl));
+                    }
+                }
+            }
+        }
+        return subject;
+    }
+
+    /**
+     * Reloads the credentials and empties the cache.
+     */
+    @Override
+    public void reload() {
+        origin.reload();
+        synchronized (entries) {
+            generation++;
+            entries.clear();
+            negativeEntries.clear();
+        }
+    }
+
+    @Override
+    public String path() {
+        return origin.path();
+    }
+
+    private byte[] digest(String token) {
+        try {
+            final Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(digestKey);
+            return mac.doFinal(token.getBytes(StandardCharsets.UTF_8));
+        }
+        catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Can't digest Authorization header: ", e);
+        }
+    }
+
+    private int size() {
+        synchronized (entries) {
+            return entries.size() + negativeEntries.size();
+        }
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        if (this == object)
+            return true;
+        if (object == null)
+            return false;
+        if (object.getClass() != this.getClass())
+            return false;
+        final CachingAuthentication cast = (CachingAuthentication) object;
+        return origin.equals(cast.origin) && maxEntries == cast.maxEntries
+                && maxNegativeEntries == cast.maxNegativeEntries && ttlNanos == cast.ttlNanos
+                && negativeTtlNanos == cast.negativeTtlNanos;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(origin, maxEntries, maxNegativeEntries, ttlNanos, negativeTtlNanos);
+    }
+
+    private static final class Key {
+
+        private final byte[] digest;
+        private final int hash;
+
+        private Key(byte[] digest) {
+            this.digest = digest;
+            this.hash = Arrays.hashCode(digest);
+        }
+
+        @Override
+        public boolean equals(final Object object) {
+            if (this == object)
+                return true;
+            if (object == null)
+                return false;
+            if (object.getClass() != this.getClass())
+                return false;
+            final Key cast = (Key) object;
+            return MessageDigest.isEqual(digest, cast.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class CachedSubject {
+
+        private final Subject subject;
+        private final long created;
+        private final long ttlNanos;
+
+        private CachedSubject(Subject subject, long created, long ttlNanos) {
+            this.subject = subject;
+            this.created = created;
+            this.ttlNanos = ttlNanos;
+        }
+    }
+}
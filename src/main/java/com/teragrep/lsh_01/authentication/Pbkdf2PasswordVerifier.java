@@ -0,0 +1,113 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.authentication;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Credentials are stored as PBKDF2-HMAC-SHA256 hashes in the form
+ * {@code $pbkdf2-sha256$<iterations>$<base64 salt>$<base64 hash>}. Every verification derives the hash again, which
+ * is slow on purpose; use the authentication cache to verify a credential only once per its time to live.
+ */
+public final class Pbkdf2PasswordVerifier implements PasswordVerifier {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(Pbkdf2PasswordVerifier.class);
+    private final static String PREFIX = "$pbkdf2-sha256$";
+
+    @Override
+    public boolean verify(String password, String credential) {
+        if (!credential.startsWith(PREFIX)) {
+            LOGGER.warn("Got credential that is not a PBKDF2 hash, ignoring it");
+            return false;
+        }
+        final String[] parts = credential.substring(PREFIX.length()).split("\\$");
+        if (parts.length != 3) {
+            LOGGER.warn("Got PBKDF2 hash with <{}> parts instead of 3, ignoring it", parts.length);
+            return false;
+        }
+        final int iterations;
+        final byte[] salt;
+        final byte[] expected;
+        try {
+            iterations = Integer.parseInt(parts[0]);
+            salt = Base64.getDecoder().decode(parts[1]);
+            expected = Base64.getDecoder().decode(parts[2]);
+        }
+        catch (IllegalArgumentException e) {
+            LOGGER.warn("Can't parse PBKDF2 hash, ignoring it: <{}>", e.getMessage());
+            return false;
+        }
+        if (iterations <= 0 || expected.length == 0) {
+            LOGGER.warn("Got PBKDF2 hash with invalid iterations or length, ignoring it");
+            return false;
+        }
+        return MessageDigest.isEqual(expected, derive(password, salt, iterations, expected.length));
+    }
+
+    /**
+     * Hashes a password for storing it in credentials.json.
+     *
+     * @param password   password to hash
+     * @param iterations how many iterations of HMAC-SHA256 to use
+     * @return hash in the form {@code $pbkdf2-sha256$<iterations>$<base64 salt>$<base64 hash>}
+     */
+    public String hash(String password, int iterations) {
+        final byte[] salt = new byte[16];
+        new SecureRandom().nextBytes(salt);
+        final Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + "$" + encoder.encodeToString(salt) + "$"
+                + encoder.encodeToString(derive(password, salt, iterations, 32));
+    }
+
+    private byte[] derive(String password, byte[] salt, int iterations, int length) {
+        final PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, length * 8);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        }
+        catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Can't derive PBKDF2 hash: ", e);
+        }
+        finally {
+            spec.clearPassword();
+        }
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        if (this == object)
+            return true;
+        if (object == null)
+            return false;
+        return object.getClass() == this.getClass();
+    }
+
+    @Override
+    public int hashCode() {
+        return Pbkdf2PasswordVerifier.class.hashCode();
+    }
+}
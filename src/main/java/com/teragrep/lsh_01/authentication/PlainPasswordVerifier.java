@@ -0,0 +1,50 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.authentication;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Credentials are stored as plaintext passwords. Compared in constant time so the response time doesn't reveal how
+ * much of the password matched.
+ */
+public final class PlainPasswordVerifier implements PasswordVerifier {
+
+    @Override
+    public boolean verify(String password, String credential) {
+        return MessageDigest
+                .isEqual(password.getBytes(StandardCharsets.UTF_8), credential.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        if (this == object)
+            return true;
+        if (object == null)
+            return false;
+        return object.getClass() == this.getClass();
+    }
+
+    @Override
+    public int hashCode() {
+        return PlainPasswordVerifier.class.hashCode();
+    }
+}
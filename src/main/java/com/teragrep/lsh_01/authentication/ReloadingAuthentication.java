@@ -0,0 +1,95 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.authentication;
+
+import com.teragrep.lsh_01.util.Reloadable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Authentication against a credentials file that can be read again when the file changes. Requests keep using the
+ * previous credentials until the new ones have been read in full.
+ */
+public final class ReloadingAuthentication implements Authentication, Reloadable {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ReloadingAuthentication.class);
+
+    private final String path;
+    private final BasicAuthenticationFactory basicAuthenticationFactory;
+    private final AtomicReference<BasicAuthentication> authentication;
+
+    public ReloadingAuthentication(String path) {
+        this(path, new BasicAuthenticationFactory());
+    }
+
+    public ReloadingAuthentication(String path, BasicAuthenticationFactory basicAuthenticationFactory) {
+        this.path = path;
+        this.basicAuthenticationFactory = basicAuthenticationFactory;
+        this.authentication = new AtomicReference<>(basicAuthenticationFactory.create(path));
+    }
+
+    @Override
+    public Subject asSubject(String token) {
+        return authentication.get().asSubject(token);
+    }
+
+    /**
+     * Reads the credentials again. The previous credentials are kept if the file can't be read.
+     */
+    @Override
+    public void reload() {
+        try {
+            authentication.set(basicAuthenticationFactory.create(path));
+            LOGGER.info("Reloaded credentials from path <[{}]>", path);
+        }
+        catch (RuntimeException e) {
+            LOGGER
+                    .warn(
+                            "Can't reload credentials from path <[{}]>, keeping the previous ones: <{}>", path,
+                            e.getMessage()
+                    );
+        }
+    }
+
+    @Override
+    public String path() {
+        return path;
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        if (this == object)
+            return true;
+        if (object == null)
+            return false;
+        if (object.getClass() != this.getClass())
+            return false;
+        final ReloadingAuthentication cast = (ReloadingAuthentication) object;
+        return path.equals(cast.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(path);
+    }
+}
@@ -19,13 +19,25 @@
 */
 package com.teragrep.lsh_01.config;
 
-import com.teragrep.lsh_01.authentication.BasicAuthentication;
+import com.teragrep.lsh_01.authentication.Authentication;
+import com.teragrep.lsh_01.conversion.DelimiterConversion;
 import com.teragrep.lsh_01.conversion.IMessageHandler;
 import com.teragrep.lsh_01.conversion.JsonConversion;
+import com.teragrep.lsh_01.conversion.LinearPattern;
+import com.teragrep.lsh_01.conversion.LinearRegexConversion;
+import com.teragrep.lsh_01.conversion.LiteralPattern;
+import com.teragrep.lsh_01.conversion.RawJsonConversion;
 import com.teragrep.lsh_01.conversion.RegexConversion;
 import com.teragrep.lsh_01.conversion.RelpConversion;
+import com.teragrep.lsh_01.lookup.LookupTable;
+import com.teragrep.lsh_01.lookup.ReloadingLookupTable;
+import com.teragrep.lsh_01.pool.FixedRelpRouter;
 import com.teragrep.lsh_01.pool.IManagedRelpConnection;
 import com.teragrep.lsh_01.pool.Pool;
+import com.teragrep.lsh_01.pool.PooledRelpOutput;
+import com.teragrep.lsh_01.pool.RelpOutput;
+import com.teragrep.lsh_01.pool.RelpRouter;
+import com.teragrep.lsh_01.syslog.Rfc5424Serializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,26 +52,71 @@ public final class ConversionFactory {
 
     private final String splitType;
     private final String regexPattern;
-    private final Pool<IManagedRelpConnection> pool;
+    private final String regexEngine;
+    private final int regexTimeoutMillis;
+    private final RelpRouter relpRouter;
     private final SecurityConfig securityConfig;
-    private final BasicAuthentication basicAuthentication;
-    private final LookupConfig lookupConfig;
+    private final Authentication basicAuthentication;
+    private final LookupTable hostnameLookup;
+    private final LookupTable appnameLookup;
 
     public ConversionFactory(
             Map<String, String> configuration,
             Pool<IManagedRelpConnection> pool,
             SecurityConfig securityConfig,
-            BasicAuthentication basicAuthentication,
+            Authentication basicAuthentication,
             LookupConfig lookupConfig
     ) {
         // if system property is not specified, defaults to config file (the Map)
         this(
                 configuration.get("payload.splitType"),
                 configuration.get("payload.splitType.regex.pattern"),
-                pool,
+                configuration.getOrDefault("payload.splitType.regex.engine", "java"),
+                Integer.parseInt(configuration.getOrDefault("payload.splitType.regex.timeoutMillis", "1000")),
+                new PooledRelpOutput(pool),
                 securityConfig,
                 basicAuthentication,
-                lookupConfig
+                new ReloadingLookupTable(lookupConfig.hostnamePath),
+                new ReloadingLookupTable(lookupConfig.appNamePath)
+        );
+    }
+
+    public ConversionFactory(
+            Map<String, String> configuration,
+            RelpOutput relpOutput,
+            SecurityConfig securityConfig,
+            Authentication basicAuthentication,
+            LookupTable hostnameLookup,
+            LookupTable appnameLookup
+    ) {
+        this(
+                configuration,
+                new FixedRelpRouter(relpOutput),
+                securityConfig,
+                basicAuthentication,
+                hostnameLookup,
+                appnameLookup
+        );
+    }
+
+    public ConversionFactory(
+            Map<String, String> configuration,
+            RelpRouter relpRouter,
+            SecurityConfig securityConfig,
+            Authentication basicAuthentication,
+            LookupTable hostnameLookup,
+            LookupTable appnameLookup
+    ) {
+        this(
+                configuration.get("payload.splitType"),
+                configuration.get("payload.splitType.regex.pattern"),
+                configuration.getOrDefault("payload.splitType.regex.engine", "java"),
+                Integer.parseInt(configuration.getOrDefault("payload.splitType.regex.timeoutMillis", "1000")),
+                relpRouter,
+                securityConfig,
+                basicAuthentication,
+                hostnameLookup,
+                appnameLookup
         );
     }
 
@@ -68,36 +125,139 @@ public final class ConversionFactory {
             String regexPattern,
             Pool<IManagedRelpConnection> pool,
             SecurityConfig securityConfig,
-            BasicAuthentication basicAuthentication,
+            Authentication basicAuthentication,
             LookupConfig lookupConfig
+    ) {
+        this(
+                splitType,
+                regexPattern,
+                new PooledRelpOutput(pool),
+                securityConfig,
+                basicAuthentication,
+                new ReloadingLookupTable(lookupConfig.hostnamePath),
+                new ReloadingLookupTable(lookupConfig.appNamePath)
+        );
+    }
+
+    public ConversionFactory(
+            String splitType,
+            String regexPattern,
+            RelpOutput relpOutput,
+            SecurityConfig securityConfig,
+            Authentication basicAuthentication,
+            LookupTable hostnameLookup,
+            LookupTable appnameLookup
+    ) {
+        this(
+                splitType,
+                regexPattern,
+                "java",
+                0,
+                relpOutput,
+                securityConfig,
+                basicAuthentication,
+                hostnameLookup,
+                appnameLookup
+        );
+    }
+
+    /**
+     * @param regexEngine        'java' for java.util.regex or 'linear' for LinearPattern
+     * @param regexTimeoutMillis how long splitting a request with a regex may take, 0 for no limit
+     */
+    public ConversionFactory(
+            String splitType,
+            String regexPattern,
+            String regexEngine,
+            int regexTimeoutMillis,
+            RelpOutput relpOutput,
+            SecurityConfig securityConfig,
+            Authentication basicAuthentication,
+            LookupTable hostnameLookup,
+            LookupTable appnameLookup
+    ) {
+        this(
+                splitType,
+                regexPattern,
+                regexEngine,
+                regexTimeoutMillis,
+                new FixedRelpRouter(relpOutput),
+                securityConfig,
+                basicAuthentication,
+                hostnameLookup,
+                appnameLookup
+        );
+    }
+
+    /**
+     * @param relpRouter chooses the RelpOutput of each request
+     */
+    public ConversionFactory(
+            String splitType,
+            String regexPattern,
+            String regexEngine,
+            int regexTimeoutMillis,
+            RelpRouter relpRouter,
+            SecurityConfig securityConfig,
+            Authentication basicAuthentication,
+            LookupTable hostnameLookup,
+            LookupTable appnameLookup
     ) {
         this.splitType = splitType;
         this.regexPattern = regexPattern;
-        this.pool = pool;
+        this.regexEngine = regexEngine;
+        this.regexTimeoutMillis = regexTimeoutMillis;
+        this.relpRouter = relpRouter;
         this.securityConfig = securityConfig;
         this.basicAuthentication = basicAuthentication;
-        this.lookupConfig = lookupConfig;
+        this.hostnameLookup = hostnameLookup;
+        this.appnameLookup = appnameLookup;
     }
 
     public IMessageHandler conversion() {
         LOGGER
                 .info(
-                        "Creating IMessageHandler with given configuration: payload.splitType=<[{}]>, payload.splitType.regex.pattern=<[{}]>",
-                        splitType, regexPattern
+                        "Creating IMessageHandler with given configuration: payload.splitType=<[{}]>, payload.splitType.regex.pattern=<[{}]>, payload.splitType.regex.engine=<[{}]>, payload.splitType.regex.timeoutMillis=<[{}]>",
+                        splitType, regexPattern, regexEngine, regexTimeoutMillis
                 );
 
         validateConfiguration();
 
-        IMessageHandler conversion = new RelpConversion(pool, securityConfig, basicAuthentication, lookupConfig);
+        IMessageHandler conversion = new RelpConversion(
+                relpRouter,
+                securityConfig,
+                basicAuthentication,
+                hostnameLookup,
+                appnameLookup,
+                new Rfc5424Serializer()
+        );
 
         // apply splitting if configured. "none" value is skipped
         switch (splitType) {
             case "regex":
-                conversion = new RegexConversion(conversion, regexPattern);
+                final LiteralPattern literalPattern = new LiteralPattern(regexPattern);
+                if (literalPattern.isLiteral()) {
+                    // no regex engine needed for a fixed delimiter such as a newline
+                    LOGGER.info("Splitting messages at a fixed delimiter");
+                    conversion = new DelimiterConversion(conversion, literalPattern.literal());
+                }
+                else if ("linear".equals(regexEngine)) {
+                    conversion = new LinearRegexConversion(
+                            conversion,
+                            new LinearPattern(regexPattern),
+                            regexTimeoutMillis
+                    );
+                }
+                else {
+                    conversion = new RegexConversion(conversion, Pattern.compile(regexPattern), regexTimeoutMillis);
+                }
                 break;
             case "json_array":
                 conversion = new JsonConversion(conversion);
                 break;
+            case "json_array_raw":
+                conversion = new RawJsonConversion(conversion);
+                break;
         }
 
         return conversion;
@@ -114,14 +274,30 @@ public final class ConversionFactory {
                             "Configuration has an invalid regex (payload.splitType.regex.pattern): " + regexPattern
                     );
                 }
+                if ("linear".equals(regexEngine)) {
+                    // throws if the regex needs backtracking
+                    new LinearPattern(regexPattern);
+                }
+                else if (!"java".equals(regexEngine)) {
+                    throw new IllegalArgumentException(
+                            "Configuration has an invalid regex engine (payload.splitType.regex.engine): " + regexEngine
+                                    + ". Has to be 'java' or 'linear'."
+                    );
+                }
+                if (regexTimeoutMillis < 0) {
+                    throw new IllegalArgumentException(
+                            "Configuration has a negative payload.splitType.regex.timeoutMillis: " + regexTimeoutMillis
+                    );
+                }
                 break;
             case "json_array":
+            case "json_array_raw":
             case "none":
                 break;
             default:
                 throw new IllegalArgumentException(
                         "Configuration has an invalid splitType: " + splitType
-                                + ". Has to be 'regex', 'json_array' or 'none'."
+                                + ". Has to be 'regex', 'json_array', 'json_array_raw' or 'none'."
                 );
         }
     }
@@ -133,13 +309,19 @@ public final class ConversionFactory {
         if (o == null || getClass() != o.getClass())
             return false;
         final ConversionFactory cast = (ConversionFactory) o;
-        return splitType.equals(cast.splitType) && regexPattern.equals(cast.regexPattern) && pool
-                .equals(cast.pool) && securityConfig.equals(cast.securityConfig)
-                && basicAuthentication.equals(cast.basicAuthentication) && lookupConfig.equals(cast.lookupConfig);
+        return splitType.equals(cast.splitType) && regexPattern.equals(cast.regexPattern)
+                && regexEngine.equals(cast.regexEngine) && regexTimeoutMillis == cast.regexTimeoutMillis && relpRouter
+                .equals(cast.relpRouter) && securityConfig.equals(cast.securityConfig)
+                && basicAuthentication.equals(cast.basicAuthentication) && hostnameLookup.equals(cast.hostnameLookup)
+                && appnameLookup.equals(cast.appnameLookup);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(splitType, regexPattern, pool, securityConfig, basicAuthentication, lookupConfig);
+        return Objects
+                .hash(
+                        splitType, regexPattern, regexEngine, regexTimeoutMillis, relpRouter, securityConfig,
+                        basicAuthentication, hostnameLookup, appnameLookup
+                );
     }
 }
@@ -0,0 +1,60 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.config;
+
+import java.util.Objects;
+
+public class HeadersConfig implements Validateable {
+
+    public final String allow;
+    public final String deny;
+
+    public HeadersConfig() {
+        PropertiesReaderUtilityClass propertiesReader = new PropertiesReaderUtilityClass(
+                System.getProperty("properties.file", "etc/config.properties")
+        );
+        allow = propertiesReader.getStringProperty("headers.allow", "");
+        deny = propertiesReader.getStringProperty("headers.deny", "");
+    }
+
+    @Override
+    public void validate() {
+    }
+
+    @Override
+    public String toString() {
+        return "HeadersConfig{" + "allow='" + allow + '\'' + ", deny='" + deny + '\'' + '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        final HeadersConfig cast = (HeadersConfig) o;
+        return allow.equals(cast.allow) && deny.equals(cast.deny);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(allow, deny);
+    }
+}
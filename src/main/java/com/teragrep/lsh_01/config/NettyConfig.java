@@ -26,6 +26,16 @@ public class NettyConfig implements Validateable {
     public final int threads;
     public final int maxPendingRequests;
     public final int maxContentLength;
+    public final String transport;
+    public final int tcpFastOpenBacklog;
+    public final boolean streamingEnabled;
+    public final String executor;
+    public final String admission;
+    public final int admissionMinLimit;
+    public final int admissionLatencyThresholdMillis;
+    public final boolean backpressureEnabled;
+    public final int backpressureHighWaterMark;
+    public final int backpressureLowWaterMark;
 
     public NettyConfig() {
         PropertiesReaderUtilityClass propertiesReader = new PropertiesReaderUtilityClass(
@@ -36,17 +46,64 @@ public class NettyConfig implements Validateable {
         threads = propertiesReader.getIntProperty("server.threads");
         maxPendingRequests = propertiesReader.getIntProperty("server.maxPendingRequests");
         maxContentLength = propertiesReader.getIntProperty("server.maxContentLength");
+        transport = propertiesReader.getStringProperty("server.transport", "nio");
+        tcpFastOpenBacklog = propertiesReader.getIntProperty("server.tcpFastOpenBacklog", 0);
+        streamingEnabled = propertiesReader.getBooleanProperty("server.streamingEnabled", false);
+        executor = propertiesReader.getStringProperty("server.executor", "platform");
+        admission = propertiesReader.getStringProperty("server.admission", "fixed");
+        admissionMinLimit = propertiesReader.getIntProperty("server.admission.minLimit", 1);
+        admissionLatencyThresholdMillis = propertiesReader
+                .getIntProperty("server.admission.latencyThresholdMillis", 1000);
+        backpressureEnabled = propertiesReader.getBooleanProperty("server.backpressure.enabled", false);
+        backpressureHighWaterMark = propertiesReader.getIntProperty("server.backpressure.highWaterMark", 100);
+        backpressureLowWaterMark = propertiesReader.getIntProperty("server.backpressure.lowWaterMark", 50);
     }
 
     @Override
     public void validate() {
-
+        if (!"auto".equals(transport) && !"epoll".equals(transport) && !"nio".equals(transport)) {
+            throw new IllegalArgumentException(
+                    "server.transport has to be 'auto', 'epoll' or 'nio', got: " + transport
+            );
+        }
+        if (tcpFastOpenBacklog < 0) {
+            throw new IllegalArgumentException("server.tcpFastOpenBacklog can't be a negative number");
+        }
+        if (!"platform".equals(executor) && !"virtual".equals(executor)) {
+            throw new IllegalArgumentException("server.executor has to be 'platform' or 'virtual', got: " + executor);
+        }
+        if (!"fixed".equals(admission) && !"adaptive".equals(admission)) {
+            throw new IllegalArgumentException("server.admission has to be 'fixed' or 'adaptive', got: " + admission);
+        }
+        if (admissionMinLimit < 1 || admissionMinLimit > maxPendingRequests) {
+            throw new IllegalArgumentException(
+                    "server.admission.minLimit has to be between 1 and server.maxPendingRequests"
+            );
+        }
+        if (admissionLatencyThresholdMillis < 1) {
+            throw new IllegalArgumentException("server.admission.latencyThresholdMillis has to be a positive number");
+        }
+        if (backpressureEnabled) {
+            if (backpressureLowWaterMark < 0) {
+                throw new IllegalArgumentException("server.backpressure.lowWaterMark can't be a negative number");
+            }
+            if (backpressureHighWaterMark <= backpressureLowWaterMark) {
+                throw new IllegalArgumentException(
+                        "server.backpressure.highWaterMark has to be larger than server.backpressure.lowWaterMark"
+                );
+            }
+        }
     }
 
     @Override
     public String toString() {
         return "NettyConfig{" + "listenAddress='" + listenAddress + '\'' + ", listenPort=" + listenPort + ", threads="
                 + threads + ", maxPendingRequests=" + maxPendingRequests + ", maxContentLength=" + maxContentLength
-                + '}';
+                + ", transport='" + transport + '\'' + ", tcpFastOpenBacklog=" + tcpFastOpenBacklog
+                + ", streamingEnabled=" + streamingEnabled + ", executor='" + executor + '\'' + ", admission='"
+                + admission + '\'' + ", admissionMinLimit=" + admissionMinLimit + ", admissionLatencyThresholdMillis="
+                + admissionLatencyThresholdMillis + ", backpressureEnabled=" + backpressureEnabled
+                + ", backpressureHighWaterMark=" + backpressureHighWaterMark + ", backpressureLowWaterMark="
+                + backpressureLowWaterMark + '}';
     }
 }
@@ -52,4 +52,23 @@ public class PropertiesReaderUtilityClass {
     public boolean getBooleanProperty(String key) {
         return Boolean.parseBoolean(getStringProperty(key));
     }
+
+    /**
+     * Reads an optional property, so that configuration files written before the property existed keep working.
+     *
+     * @param key          property name
+     * @param defaultValue value used when the property is not set
+     * @return property value or defaultValue
+     */
+    public String getStringProperty(String key, String defaultValue) {
+        return System.getProperty(key, properties.getProperty(key, defaultValue));
+    }
+
+    public int getIntProperty(String key, int defaultValue) {
+        return Integer.parseInt(getStringProperty(key, String.valueOf(defaultValue)));
+    }
+
+    public boolean getBooleanProperty(String key, boolean defaultValue) {
+        return Boolean.parseBoolean(getStringProperty(key, String.valueOf(defaultValue)));
+    }
 }
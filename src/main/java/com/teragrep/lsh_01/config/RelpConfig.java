@@ -19,6 +19,8 @@
 */
 package com.teragrep.lsh_01.config;
 
+import com.teragrep.lsh_01.pool.RelpTargets;
+
 public class RelpConfig implements Validateable {
 
     public final String relpTarget;
@@ -26,8 +28,39 @@ public class RelpConfig implements Validateable {
     public final int relpReconnectInterval;
     public final int rebindRequestAmount;
     public final boolean rebindEnabled;
+    public final String client;
+    public final int nettyWindow;
+    public final int nettyMaxQueued;
+    public final int nettyAckTimeoutMillis;
+    public final boolean groupCommitEnabled;
+    public final int groupCommitMaxRecords;
+    public final int groupCommitMaxBytes;
+    public final int groupCommitLingerMillis;
+    public final int poolMaxSize;
+    public final int poolMinIdle;
+    public final int poolMaxWaitMillis;
+    public final int poolMaxIdleMillis;
+    public final int poolMaxAgeMillis;
+    public final int poolProbeIdleMillis;
+    public final int poolMaintenanceIntervalMillis;
+    public final String relpTargets;
+    public final String balancing;
+    public final int ejectionLatencyThresholdMillis;
+    public final int ejectionDurationMillis;
+    public final int sendTimeoutMillis;
+    public final String affinity;
+    public final int affinityVirtualNodes;
+    private final boolean spoolEnabled;
 
     public RelpConfig() {
+        this(new SpoolConfig());
+    }
+
+    /**
+     * @param spoolConfig spool settings, RELP settings that can't be combined with the spool are rejected in validate()
+     */
+    public RelpConfig(SpoolConfig spoolConfig) {
+        spoolEnabled = spoolConfig.enabled;
         PropertiesReaderUtilityClass propertiesReader = new PropertiesReaderUtilityClass(
                 System.getProperty("properties.file", "etc/config.properties")
         );
@@ -36,6 +69,28 @@ public class RelpConfig implements Validateable {
         relpReconnectInterval = propertiesReader.getIntProperty("relp.reconnectInterval");
         rebindRequestAmount = propertiesReader.getIntProperty("relp.rebindRequestAmount");
         rebindEnabled = propertiesReader.getBooleanProperty("relp.rebindEnabled");
+        client = propertiesReader.getStringProperty("relp.client", "blocking");
+        nettyWindow = propertiesReader.getIntProperty("relp.netty.window", 128);
+        nettyMaxQueued = propertiesReader.getIntProperty("relp.netty.maxQueued", 10000);
+        nettyAckTimeoutMillis = propertiesReader.getIntProperty("relp.netty.ackTimeoutMillis", 30000);
+        groupCommitEnabled = propertiesReader.getBooleanProperty("relp.groupCommit.enabled", false);
+        groupCommitMaxRecords = propertiesReader.getIntProperty("relp.groupCommit.maxRecords", 512);
+        groupCommitMaxBytes = propertiesReader.getIntProperty("relp.groupCommit.maxBytes", 1048576);
+        groupCommitLingerMillis = propertiesReader.getIntProperty("relp.groupCommit.lingerMillis", 5);
+        poolMaxSize = propertiesReader.getIntProperty("relp.pool.maxSize", 0);
+        poolMinIdle = propertiesReader.getIntProperty("relp.pool.minIdle", 0);
+        poolMaxWaitMillis = propertiesReader.getIntProperty("relp.pool.maxWaitMillis", 5000);
+        poolMaxIdleMillis = propertiesReader.getIntProperty("relp.pool.maxIdleMillis", 0);
+        poolMaxAgeMillis = propertiesReader.getIntProperty("relp.pool.maxAgeMillis", 0);
+        poolProbeIdleMillis = propertiesReader.getIntProperty("relp.pool.probeIdleMillis", 60000);
+        poolMaintenanceIntervalMillis = propertiesReader.getIntProperty("relp.pool.maintenanceIntervalMillis", 0);
+        relpTargets = propertiesReader.getStringProperty("relp.targets", "");
+        balancing = propertiesReader.getStringProperty("relp.balancing", "leastOutstanding");
+        ejectionLatencyThresholdMillis = propertiesReader.getIntProperty("relp.ejection.latencyThresholdMillis", 5000);
+        ejectionDurationMillis = propertiesReader.getIntProperty("relp.ejection.durationMillis", 10000);
+        sendTimeoutMillis = propertiesReader.getIntProperty("relp.sendTimeoutMillis", 30000);
+        affinity = propertiesReader.getStringProperty("relp.affinity", "none");
+        affinityVirtualNodes = propertiesReader.getIntProperty("relp.affinity.virtualNodes", 100);
     }
 
     @Override
@@ -43,12 +98,104 @@ public class RelpConfig implements Validateable {
         if (rebindEnabled && rebindRequestAmount < 1) {
             throw new IllegalArgumentException("relp.rebindRequestAmount has to be a positive number");
         }
+        if (!"blocking".equals(client) && !"netty".equals(client)) {
+            throw new IllegalArgumentException("relp.client has to be 'blocking' or 'netty', got: " + client);
+        }
+        if (nettyWindow < 1) {
+            throw new IllegalArgumentException("relp.netty.window has to be a positive number");
+        }
+        if (nettyMaxQueued < nettyWindow) {
+            throw new IllegalArgumentException("relp.netty.maxQueued can't be smaller than relp.netty.window");
+        }
+        if (nettyAckTimeoutMillis < 0) {
+            throw new IllegalArgumentException("relp.netty.ackTimeoutMillis can't be a negative number");
+        }
+        if (groupCommitEnabled) {
+            if (groupCommitMaxRecords < 1) {
+                throw new IllegalArgumentException("relp.groupCommit.maxRecords has to be a positive number");
+            }
+            if (groupCommitMaxBytes < 1) {
+                throw new IllegalArgumentException("relp.groupCommit.maxBytes has to be a positive number");
+            }
+            if (groupCommitLingerMillis < 0) {
+                throw new IllegalArgumentException("relp.groupCommit.lingerMillis can't be a negative number");
+            }
+        }
+        if (poolMaxSize < 0) {
+            throw new IllegalArgumentException("relp.pool.maxSize can't be a negative number");
+        }
+        if (poolMinIdle < 0) {
+            throw new IllegalArgumentException("relp.pool.minIdle can't be a negative number");
+        }
+        if (poolMaxSize > 0 && poolMinIdle > poolMaxSize) {
+            throw new IllegalArgumentException("relp.pool.minIdle can't be larger than relp.pool.maxSize");
+        }
+        if (poolMaxWaitMillis < 0) {
+            throw new IllegalArgumentException("relp.pool.maxWaitMillis can't be a negative number");
+        }
+        if (poolMaxIdleMillis < 0) {
+            throw new IllegalArgumentException("relp.pool.maxIdleMillis can't be a negative number");
+        }
+        if (poolMaxAgeMillis < 0) {
+            throw new IllegalArgumentException("relp.pool.maxAgeMillis can't be a negative number");
+        }
+        if (poolProbeIdleMillis < 0) {
+            throw new IllegalArgumentException("relp.pool.probeIdleMillis can't be a negative number");
+        }
+        if (poolMaintenanceIntervalMillis < 0) {
+            throw new IllegalArgumentException("relp.pool.maintenanceIntervalMillis can't be a negative number");
+        }
+        if (new RelpTargets(this).asList().size() > 1 && !"blocking".equals(client)) {
+            throw new IllegalArgumentException("relp.targets with more than one target requires relp.client=blocking");
+        }
+        if (
+            !"roundRobin".equals(balancing) && !"leastOutstanding".equals(balancing)
+                    && !"leastLatency".equals(balancing)
+        ) {
+            throw new IllegalArgumentException(
+                    "relp.balancing has to be 'roundRobin', 'leastOutstanding' or 'leastLatency', got: " + balancing
+            );
+        }
+        if (ejectionLatencyThresholdMillis < 1) {
+            throw new IllegalArgumentException("relp.ejection.latencyThresholdMillis has to be a positive number");
+        }
+        if (ejectionDurationMillis < 1) {
+            throw new IllegalArgumentException("relp.ejection.durationMillis has to be a positive number");
+        }
+        if (sendTimeoutMillis < 0) {
+            throw new IllegalArgumentException("relp.sendTimeoutMillis can't be a negative number");
+        }
+        if (!"none".equals(affinity) && !"subject".equals(affinity) && !"hostname".equals(affinity)) {
+            throw new IllegalArgumentException(
+                    "relp.affinity has to be 'none', 'subject' or 'hostname', got: " + affinity
+            );
+        }
+        if (affinityVirtualNodes < 1) {
+            throw new IllegalArgumentException("relp.affinity.virtualNodes has to be a positive number");
+        }
+        if (!"none".equals(affinity) && groupCommitEnabled) {
+            throw new IllegalArgumentException("relp.affinity can't be used with relp.groupCommit.enabled=true");
+        }
+        if (!"none".equals(affinity) && spoolEnabled) {
+            throw new IllegalArgumentException("relp.affinity can't be used with spool.enabled=true");
+        }
     }
 
     @Override
     public String toString() {
         return "RelpConfig{" + "relpTarget='" + relpTarget + '\'' + ", relpPort=" + relpPort
                 + ", relpReconnectInterval=" + relpReconnectInterval + ", rebindRequestAmount=" + rebindRequestAmount
-                + ", rebindEnabled=" + rebindEnabled + '}';
+                + ", rebindEnabled=" + rebindEnabled + ", client='" + client + '\'' + ", nettyWindow=" + nettyWindow
+                + ", nettyMaxQueued=" + nettyMaxQueued + ", nettyAckTimeoutMillis=" + nettyAckTimeoutMillis
+                + ", groupCommitEnabled=" + groupCommitEnabled + ", groupCommitMaxRecords=" + groupCommitMaxRecords
+                + ", groupCommitMaxBytes=" + groupCommitMaxBytes + ", groupCommitLingerMillis="
+                + groupCommitLingerMillis + ", poolMaxSize=" + poolMaxSize + ", poolMinIdle=" + poolMinIdle
+                + ", poolMaxWaitMillis=" + poolMaxWaitMillis + ", poolMaxIdleMillis=" + poolMaxIdleMillis
+                + ", poolMaxAgeMillis=" + poolMaxAgeMillis + ", poolProbeIdleMillis=" + poolProbeIdleMillis
+                + ", poolMaintenanceIntervalMillis=" + poolMaintenanceIntervalMillis + ", relpTargets='" + relpTargets
+                + '\'' + ", balancing='" + balancing + '\'' + ", ejectionLatencyThresholdMillis="
+                + ejectionLatencyThresholdMillis + ", ejectionDurationMillis=" + ejectionDurationMillis
+                + ", sendTimeoutMillis=" + sendTimeoutMillis + ", affinity='" + affinity + '\''
+                + ", affinityVirtualNodes=" + affinityVirtualNodes + '}';
     }
 }
@@ -24,17 +24,47 @@ import java.util.Objects;
 public class SecurityConfig implements Validateable {
 
     public final boolean authRequired;
+    public final boolean authCacheEnabled;
+    public final int authCacheMaxEntries;
+    public final int authCacheMaxNegativeEntries;
+    public final int authCacheTtlMillis;
+    public final int authCacheNegativeTtlMillis;
+    public final String credentialsHash;
 
     public SecurityConfig() {
         PropertiesReaderUtilityClass propertiesReader = new PropertiesReaderUtilityClass(
                 System.getProperty("properties.file", "etc/config.properties")
         );
         authRequired = propertiesReader.getBooleanProperty("security.authRequired");
+        authCacheEnabled = propertiesReader.getBooleanProperty("security.authCache.enabled", false);
+        authCacheMaxEntries = propertiesReader.getIntProperty("security.authCache.maxEntries", 10000);
+        authCacheMaxNegativeEntries = propertiesReader.getIntProperty("security.authCache.maxNegativeEntries", 1000);
+        authCacheTtlMillis = propertiesReader.getIntProperty("security.authCache.ttlMillis", 300000);
+        authCacheNegativeTtlMillis = propertiesReader.getIntProperty("security.authCache.negativeTtlMillis", 5000);
+        credentialsHash = propertiesReader.getStringProperty("credentials.hash", "plain");
     }
 
     @Override
     public void validate() {
-
+        if (!"plain".equals(credentialsHash) && !"pbkdf2".equals(credentialsHash)) {
+            throw new IllegalArgumentException(
+                    "Invalid credentials.hash <[" + credentialsHash + "]>, expected 'plain' or 'pbkdf2'"
+            );
+        }
+        if (authCacheEnabled) {
+            if (authCacheMaxEntries <= 0) {
+                throw new IllegalArgumentException("security.authCache.maxEntries has to be a positive number");
+            }
+            if (authCacheMaxNegativeEntries <= 0) {
+                throw new IllegalArgumentException("security.authCache.maxNegativeEntries has to be a positive number");
+            }
+            if (authCacheTtlMillis <= 0) {
+                throw new IllegalArgumentException("security.authCache.ttlMillis has to be a positive number");
+            }
+            if (authCacheNegativeTtlMillis < 0) {
+                throw new IllegalArgumentException("security.authCache.negativeTtlMillis can't be a negative number");
+            }
+        }
     }
 
     @Override
@@ -44,11 +74,20 @@ public class SecurityConfig implements Validateable {
         if (o == null || getClass() != o.getClass())
             return false;
         final SecurityConfig cast = (SecurityConfig) o;
-        return authRequired == cast.authRequired;
+        return authRequired == cast.authRequired && authCacheEnabled == cast.authCacheEnabled
+                && authCacheMaxEntries == cast.authCacheMaxEntries
+                && authCacheMaxNegativeEntries == cast.authCacheMaxNegativeEntries
+                && authCacheTtlMillis == cast.authCacheTtlMillis
+                && authCacheNegativeTtlMillis == cast.authCacheNegativeTtlMillis
+                && credentialsHash.equals(cast.credentialsHash);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(authRequired);
+        return Objects
+                .hash(
+                        authRequired, authCacheEnabled, authCacheMaxEntries, authCacheMaxNegativeEntries,
+                        authCacheTtlMillis, authCacheNegativeTtlMillis, credentialsHash
+                );
     }
 }
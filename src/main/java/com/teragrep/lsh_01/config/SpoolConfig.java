@@ -0,0 +1,73 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.config;
+
+public class SpoolConfig implements Validateable {
+
+    public final boolean enabled;
+    public final String directory;
+    public final int segmentSize;
+    public final int maxSegments;
+    public final String fsync;
+    public final int fsyncInterval;
+    public final int replayBatchSize;
+
+    public SpoolConfig() {
+        PropertiesReaderUtilityClass propertiesReader = new PropertiesReaderUtilityClass(
+                System.getProperty("properties.file", "etc/config.properties")
+        );
+        enabled = propertiesReader.getBooleanProperty("spool.enabled", false);
+        directory = propertiesReader.getStringProperty("spool.directory", "var/spool");
+        segmentSize = propertiesReader.getIntProperty("spool.segmentSize", 67108864);
+        maxSegments = propertiesReader.getIntProperty("spool.maxSegments", 16);
+        fsync = propertiesReader.getStringProperty("spool.fsync", "interval");
+        fsyncInterval = propertiesReader.getIntProperty("spool.fsyncInterval", 1000);
+        replayBatchSize = propertiesReader.getIntProperty("spool.replayBatchSize", 512);
+    }
+
+    @Override
+    public void validate() {
+        if (!enabled) {
+            return;
+        }
+        if (segmentSize < 1024) {
+            throw new IllegalArgumentException("spool.segmentSize has to be at least 1024 bytes");
+        }
+        if (maxSegments < 1) {
+            throw new IllegalArgumentException("spool.maxSegments has to be a positive number");
+        }
+        if (!"always".equals(fsync) && !"interval".equals(fsync) && !"none".equals(fsync)) {
+            throw new IllegalArgumentException("spool.fsync has to be 'always', 'interval' or 'none', got: " + fsync);
+        }
+        if ("interval".equals(fsync) && fsyncInterval < 1) {
+            throw new IllegalArgumentException("spool.fsyncInterval has to be a positive number");
+        }
+        if (replayBatchSize < 1) {
+            throw new IllegalArgumentException("spool.replayBatchSize has to be a positive number");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SpoolConfig{" + "enabled=" + enabled + ", directory='" + directory + '\'' + ", segmentSize="
+                + segmentSize + ", maxSegments=" + maxSegments + ", fsync='" + fsync + '\'' + ", fsyncInterval="
+                + fsyncInterval + ", replayBatchSize=" + replayBatchSize + '}';
+    }
+}
@@ -0,0 +1,70 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.conversion;
+
+import com.teragrep.lsh_01.authentication.Subject;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.TooLongFrameException;
+
+import java.util.Map;
+
+/**
+ * MessageStream that collects the whole body as bytes and passes it to the message handler once the body is complete.
+ */
+public final class BufferedMessageStream implements MessageStream {
+
+    private final IMessageHandler conversion;
+    private final Subject subject;
+    private final Map<String, String> headers;
+    private final int maxMessageLength;
+    private final ByteBuf body;
+
+    public BufferedMessageStream(
+            IMessageHandler conversion,
+            Subject subject,
+            Map<String, String> headers,
+            int maxMessageLength
+    ) {
+        this.conversion = conversion;
+        this.subject = subject;
+        this.headers = headers;
+        this.maxMessageLength = maxMessageLength;
+        this.body = Unpooled.buffer();
+    }
+
+    @Override
+    public void write(ByteBuf content) {
+        if (body.readableBytes() + content.readableBytes() > maxMessageLength) {
+            throw new TooLongFrameException("Message exceeds maxContentLength <" + maxMessageLength + ">");
+        }
+        body.writeBytes(content, content.readerIndex(), content.readableBytes());
+    }
+
+    @Override
+    public boolean close() {
+        return conversion.onNewPayload(subject, headers, new DefaultPayload(new Utf8Text(body).view()));
+    }
+
+    @Override
+    public void abort() {
+        body.clear();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.conversion;
+
+import io.netty.util.AsciiString;
+
+/**
+ * CharSequence that throws SplitTimeoutException when it is read after a deadline. A regex engine reads its input
+ * char by char, so this stops a match that takes too long without a separate thread.
+ */
+final class DeadlineCharSequence implements CharSequence {
+
+    // how many chars are read between looking at the clock
+    private final static int CHECK_INTERVAL = 4096;
+
+    private final CharSequence origin;
+    private final long deadline;
+    private final int timeoutMillis;
+    private int countdown;
+
+    /**
+     * @param deadline System.nanoTime() after which reading fails
+     */
+    DeadlineCharSequence(CharSequence origin, long deadline, int timeoutMillis) {
+        this.origin = origin;
+        this.deadline = deadline;
+        this.timeoutMillis = timeoutMillis;
+        this.countdown = CHECK_INTERVAL;
+    }
+
+    @Override
+    public int length() {
+        return origin.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (--countdown == 0) {
+            countdown = CHECK_INTERVAL;
+            if (System.nanoTime() - deadline > 0) {
+                throw new SplitTimeoutException(timeoutMillis);
+            }
+        }
+        return origin.charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (origin instanceof AsciiString) {
+            return ((AsciiString) origin).subSequence(start, end, false);
+        }
+        return origin.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return origin.toString();
+    }
+}
@@ -20,19 +20,18 @@
 package com.teragrep.lsh_01.conversion;
 
 import java.util.Collections;
-import java.util.List;
 import java.util.Objects;
 
 public final class DefaultPayload implements Payload {
 
-    private final String message;
+    private final CharSequence message;
 
-    public DefaultPayload(String message) {
+    public DefaultPayload(CharSequence message) {
         this.message = message;
     }
 
     @Override
-    public List<String> messages() {
+    public Iterable<CharSequence> messages() {
         return Collections.singletonList(message);
     }
 
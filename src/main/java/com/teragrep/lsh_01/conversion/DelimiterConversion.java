@@ -0,0 +1,87 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.conversion;
+
+import com.teragrep.lsh_01.authentication.Subject;
+
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Decorator for IMessageHandler that splits messages at a fixed delimiter. Used instead of RegexConversion when the
+ * split regex matches only a fixed string.
+ */
+public final class DelimiterConversion implements IMessageHandler {
+
+    private final IMessageHandler conversion;
+    private final String delimiter;
+    private final LiteralDelimiter literalDelimiter;
+
+    public DelimiterConversion(IMessageHandler conversion, String delimiter) {
+        this(conversion, delimiter, new LiteralDelimiter(delimiter));
+    }
+
+    private DelimiterConversion(IMessageHandler conversion, String delimiter, LiteralDelimiter literalDelimiter) {
+        this.conversion = conversion;
+        this.delimiter = delimiter;
+        this.literalDelimiter = literalDelimiter;
+    }
+
+    @Override
+    public boolean onNewMessage(Subject subject, Map<String, String> headers, String body) {
+        return onNewPayload(subject, headers, new DefaultPayload(body));
+    }
+
+    @Override
+    public boolean onNewPayload(Subject subject, Map<String, String> headers, Payload payload) {
+        // split messages are passed on together so they are sent in one batch
+        return conversion.onNewPayload(subject, headers, new DelimiterPayload(payload, delimiter));
+    }
+
+    @Override
+    public CompletionStage<Boolean> onNewPayloadAsync(Subject subject, Map<String, String> headers, Payload payload) {
+        return conversion.onNewPayloadAsync(subject, headers, new DelimiterPayload(payload, delimiter));
+    }
+
+    @Override
+    public MessageStream stream(Subject subject, Map<String, String> headers, int maxMessageLength) {
+        return new DelimiterMessageStream(conversion, literalDelimiter, subject, headers, maxMessageLength);
+    }
+
+    @Override
+    public Subject asSubject(String token) {
+        return conversion.asSubject(token);
+    }
+
+    @Override
+    public boolean requiresToken() {
+        return conversion.requiresToken();
+    }
+
+    @Override
+    public IMessageHandler copy() {
+        return new DelimiterConversion(conversion.copy(), delimiter, literalDelimiter);
+    }
+
+    @Override
+    public Map<String, String> responseHeaders() {
+        return conversion.responseHeaders();
+    }
+}
@@ -0,0 +1,171 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.conversion;
+
+import com.teragrep.lsh_01.authentication.Subject;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.TooLongFrameException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MessageStream that splits the body at a fixed delimiter while it arrives. Produces the same messages as
+ * Pattern.split() does for the complete body. Messages that are complete within a part are decoded directly from it,
+ * only the message that continues in the next part is copied.
+ */
+public final class DelimiterMessageStream implements MessageStream {
+
+    private final IMessageHandler conversion;
+    private final LiteralDelimiter delimiter;
+    private final Subject subject;
+    private final Map<String, String> headers;
+    private final int maxMessageLength;
+    // beginning of a message that continues in the next part
+    private final ByteBuf pending;
+
+    // state of splitting, see Pattern.split(CharSequence)
+    private boolean matched;
+    private int emptyMessages;
+    private boolean sent;
+
+    public DelimiterMessageStream(
+            IMessageHandler conversion,
+            LiteralDelimiter delimiter,
+            Subject subject,
+            Map<String, String> headers,
+            int maxMessageLength
+    ) {
+        this.conversion = conversion;
+        this.delimiter = delimiter;
+        this.subject = subject;
+        this.headers = headers;
+        this.maxMessageLength = maxMessageLength;
+        this.pending = Unpooled.buffer();
+        this.matched = false;
+        this.emptyMessages = 0;
+        this.sent = true;
+    }
+
+    @Override
+    public void write(ByteBuf content) {
+        final List<CharSequence> messages = new ArrayList<>();
+        final int end = content.writerIndex();
+        int from = content.readerIndex();
+        if (pending.isReadable()) {
+            // a delimiter may have started at the end of the previous part
+            final int tail = Math.max(pending.readerIndex(), pending.writerIndex() - delimiter.length() + 1);
+            for (int index = tail; index < pending.writerIndex(); index++) {
+                final int match = delimiter.matchesAcross(pending, index, content);
+                if (match == -1) {
+                    // the part is shorter than the delimiter, it can't have a delimiter of its own either
+                    pending.writeBytes(content, from, end - from);
+                    checkLength(pending.readableBytes());
+                    return;
+                }
+                if (match == 1) {
+                    final int length = index - pending.readerIndex();
+                    add(messages, new Utf8Text(pending.slice(pending.readerIndex(), length)).text());
+                    from += delimiter.length() - (pending.writerIndex() - index);
+                    pending.clear();
+                    break;
+                }
+            }
+        }
+        int start = from;
+        int found;
+        while ((found = delimiter.indexOf(content, from, end)) != -1) {
+            if (pending.isReadable()) {
+                pending.writeBytes(content, start, found - start);
+                checkLength(pending.readableBytes());
+                add(messages, new Utf8Text(pending).text());
+                pending.clear();
+            }
+            else {
+                checkLength(found - start);
+                add(messages, new Utf8Text(content.slice(start, found - start)).text());
+            }
+            from = found + delimiter.length();
+            start = from;
+        }
+        pending.writeBytes(content, start, end - start);
+        checkLength(pending.readableBytes());
+        send(messages);
+    }
+
+    @Override
+    public boolean close() {
+        final List<CharSequence> messages = new ArrayList<>();
+        if (pending.isReadable()) {
+            releaseEmptyMessages(messages);
+            messages.add(new Utf8Text(pending).text());
+        }
+        else if (!matched) {
+            // Pattern.split() returns the input as is when there is no match
+            messages.add("");
+        }
+        // empty messages still held back at this point are trailing ones, which Pattern.split() removes
+        emptyMessages = 0;
+        pending.clear();
+        send(messages);
+        return sent;
+    }
+
+    @Override
+    public void abort() {
+        pending.clear();
+    }
+
+    private void checkLength(int length) {
+        if (length > maxMessageLength) {
+            throw new TooLongFrameException("Message exceeds maxContentLength <" + maxMessageLength + ">");
+        }
+    }
+
+    /**
+     * Empty messages are held back until it is known that they are not trailing ones.
+     */
+    private void add(List<CharSequence> messages, CharSequence message) {
+        matched = true;
+        if (message.length() == 0) {
+            emptyMessages++;
+        }
+        else {
+            releaseEmptyMessages(messages);
+            messages.add(message);
+        }
+    }
+
+    private void releaseEmptyMessages(List<CharSequence> messages) {
+        while (emptyMessages > 0) {
+            messages.add("");
+            emptyMessages--;
+        }
+    }
+
+    private void send(List<CharSequence> messages) {
+        // messages completed by the same part are sent together
+        if (!messages.isEmpty() && !conversion.onNewPayload(subject, headers, new ListPayload(messages))) {
+            sent = false;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.conversion;
+
+import java.util.Objects;
+
+/**
+ * Payload splittable at a fixed delimiter. Gives the same messages as RegexPayload with a regex that matches only the
+ * delimiter.
+ */
+public final class DelimiterPayload implements Payload {
+
+    private final Payload payload;
+    private final String delimiter;
+
+    public DelimiterPayload(Payload payload, String delimiter) {
+        if (delimiter.isEmpty()) {
+            throw new IllegalArgumentException("Delimiter can't be empty");
+        }
+        this.payload = payload;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Splits the payload like Pattern.split() does, trailing empty messages are removed.
+     *
+     * @return messages, split while they are iterated
+     */
+    @Override
+    public Iterable<CharSequence> messages() {
+        return () -> new FlatIterator(
+                payload.messages().iterator(),
+                message -> new SplitIterator(message, new IndexOfDelimiters(message, delimiter))
+        );
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        if (this == object)
+            return true;
+        if (object == null)
+            return false;
+        if (object.getClass() != this.getClass())
+            return false;
+        final DelimiterPayload cast = (DelimiterPayload) object;
+        return payload.equals(cast.payload) && delimiter.equals(cast.delimiter);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(payload, delimiter);
+    }
+}
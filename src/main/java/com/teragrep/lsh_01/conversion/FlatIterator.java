@@ -0,0 +1,58 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.conversion;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Messages of a decorated payload: each message of the origin is split into messages only when the previous ones have
+ * been taken.
+ */
+final class FlatIterator implements Iterator<CharSequence> {
+
+    private final Iterator<CharSequence> origin;
+    private final Function<CharSequence, Iterator<CharSequence>> split;
+    private Iterator<CharSequence> current;
+
+    FlatIterator(Iterator<CharSequence> origin, Function<CharSequence, Iterator<CharSequence>> split) {
+        this.origin = origin;
+        this.split = split;
+        this.current = Collections.emptyIterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext() && origin.hasNext()) {
+            current = split.apply(origin.next());
+        }
+        return current.hasNext();
+    }
+
+    @Override
+    public CharSequence next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+}
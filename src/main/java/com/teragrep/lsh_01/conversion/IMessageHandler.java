@@ -22,6 +22,7 @@ package com.teragrep.lsh_01.conversion;
 import com.teragrep.lsh_01.authentication.Subject;
 
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Created by joaoduarte on 16/10/2017.
@@ -36,6 +37,38 @@ public interface IMessageHandler {
      */
     boolean onNewMessage(Subject subject, Map<String, String> headers, String body);
 
+    /**
+     * Handles all messages of the payload as one unit, so that they are sent together.
+     *
+     * @param subject authenticated subject of the request
+     * @param headers formatted headers of the request
+     * @param payload messages of the request
+     * @return true if all messages were sent
+     * @throws SplitTimeoutException if splitting the payload took too long, nothing was sent then
+     */
+    boolean onNewPayload(Subject subject, Map<String, String> headers, Payload payload);
+
+    /**
+     * Handles all messages of the payload as one unit without waiting for them to be sent.
+     *
+     * @param subject authenticated subject of the request
+     * @param headers formatted headers of the request
+     * @param payload messages of the request
+     * @return completes with true once all messages were sent, or with false if any of them failed
+     * @throws SplitTimeoutException if splitting the payload took too long, nothing was sent then
+     */
+    CompletionStage<Boolean> onNewPayloadAsync(Subject subject, Map<String, String> headers, Payload payload);
+
+    /**
+     * Opens a stream for a body that arrives in parts. Messages are handled as soon as they are complete.
+     *
+     * @param subject          authenticated subject of the request
+     * @param headers          formatted headers of the request
+     * @param maxMessageLength maximum length of a single message
+     * @return stream for the body of the request
+     */
+    MessageStream stream(Subject subject, Map<String, String> headers, int maxMessageLength);
+
     /**
      * @param token
      * @return
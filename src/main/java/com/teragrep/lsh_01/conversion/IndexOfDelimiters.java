@@ -0,0 +1,85 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.conversion;
+
+import io.netty.util.AsciiString;
+
+/**
+ * Occurrences of a fixed delimiter, found with indexOf() of String or AsciiString which is faster than a regex.
+ * Utf8Bytes is searched char by char so that it is not decoded into a String.
+ */
+final class IndexOfDelimiters implements Delimiters {
+
+    private final CharSequence input;
+    private final String delimiter;
+    private int start;
+    private int end;
+
+    IndexOfDelimiters(CharSequence input, String delimiter) {
+        this.input = input instanceof AsciiString || input instanceof Utf8Bytes ? input : input.toString();
+        this.delimiter = delimiter;
+        this.start = -1;
+        this.end = 0;
+    }
+
+    @Override
+    public boolean find() {
+        final int found;
+        if (input instanceof AsciiString) {
+            found = ((AsciiString) input).indexOf(delimiter, end);
+        }
+        else if (input instanceof Utf8Bytes) {
+            found = indexOf(end);
+        }
+        else {
+            found = ((String) input).indexOf(delimiter, end);
+        }
+        if (found == -1) {
+            return false;
+        }
+        start = found;
+        end = found + delimiter.length();
+        return true;
+    }
+
+    @Override
+    public int start() {
+        return start;
+    }
+
+    @Override
+    public int end() {
+        return end;
+    }
+
+    private int indexOf(int from) {
+        final int last = input.length() - delimiter.length();
+        for (int index = from; index <= last; index++) {
+            int matched = 0;
+            while (matched < delimiter.length() && input.charAt(index + matched) == delimiter.charAt(matched)) {
+                matched++;
+            }
+            if (matched == delimiter.length()) {
+                return index;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.conversion;
+
+import com.teragrep.lsh_01.authentication.Subject;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.TooLongFrameException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MessageStream that splits a JSON array into its objects while the body arrives. Objects that are complete within a
+ * part are decoded directly from it, only an object that continues in the next part is copied. The objects found
+ * before a malformed part of the array have already been sent when the error is noticed.
+ */
+public final class JsonArrayMessageStream implements MessageStream {
+
+    private final IMessageHandler conversion;
+    private final Subject subject;
+    private final Map<String, String> headers;
+    private final int maxMessageLength;
+    private final JsonArraySplitter splitter;
+    // beginning of an object that continues in the next part
+    private final ByteBuf pending;
+
+    private boolean sent;
+
+    public JsonArrayMessageStream(
+            IMessageHandler conversion,
+            Subject subject,
+            Map<String, String> headers,
+            int maxMessageLength
+    ) {
+        this.conversion = conversion;
+        this.subject = subject;
+        this.headers = headers;
+        this.maxMessageLength = maxMessageLength;
+        this.splitter = new JsonArraySplitter();
+        this.pending = Unpooled.buffer();
+        this.sent = true;
+    }
+
+    @Override
+    public void write(ByteBuf content) {
+        final List<CharSequence> messages = new ArrayList<>();
+        final int end = content.writerIndex();
+        // start of the current object within this part, if it started in this part
+        int start = content.readerIndex();
+        int index = content.readerIndex();
+        while (index < end) {
+            final int found = content.forEachByte(index, end - index, splitter);
+            if (found == -1) {
+                break;
+            }
+            if (splitter.inObject()) {
+                start = found;
+            }
+            else if (pending.isReadable()) {
+                pending.writeBytes(content, start, found + 1 - start);
+                checkLength(pending.readableBytes());
+                messages.add(new Utf8Text(pending).text());
+                pending.clear();
+            }
+            else {
+                checkLength(found + 1 - start);
+                messages.add(new Utf8Text(content.slice(start, found + 1 - start)).text());
+            }
+            index = found + 1;
+        }
+        if (splitter.inObject()) {
+            pending.writeBytes(content, start, end - start);
+            checkLength(pending.readableBytes());
+        }
+        send(messages);
+    }
+
+    private void checkLength(int length) {
+        if (length > maxMessageLength) {
+            throw new TooLongFrameException("Message exceeds maxContentLength <" + maxMessageLength + ">");
+        }
+    }
+
+    @Override
+    public boolean close() {
+        splitter.finish();
+        return sent;
+    }
+
+    @Override
+    public void abort() {
+        pending.clear();
+    }
+
+    private void send(List<CharSequence> messages) {
+        // messages completed by the same part are sent together
+        if (!messages.isEmpty() && !conversion.onNewPayload(subject, headers, new ListPayload(messages))) {
+            sent = false;
+        }
+    }
+}
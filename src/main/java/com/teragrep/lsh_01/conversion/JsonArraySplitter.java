@@ -0,0 +1,202 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.conversion;
+
+import io.netty.util.ByteProcessor;
+
+import java.util.Arrays;
+
+/**
+ * Finds the objects of a JSON array in UTF-8 bytes that arrive in parts. Only the nesting of brackets and the state of
+ * strings and escapes are tracked, the objects themselves are not parsed. A malformed array is rejected with an
+ * IllegalArgumentException.
+ * <p>
+ * Each byte is fed to {@link #process(byte)}, which returns false at the first byte of an object and at the last byte
+ * of it. {@link #inObject()} tells which one of them was found. Bytes of multibyte characters never equal the ASCII
+ * characters that matter here, so the same can be done to the chars of a String by feeding non-ASCII chars as
+ * {@link #NON_ASCII}.
+ */
+public final class JsonArraySplitter implements ByteProcessor {
+
+    public final static byte NON_ASCII = (byte) 0x80;
+
+    private final static int BEFORE_ARRAY = 0;
+    private final static int BEFORE_FIRST_OBJECT = 1;
+    private final static int BEFORE_OBJECT = 2;
+    private final static int IN_OBJECT = 3;
+    private final static int AFTER_OBJECT = 4;
+    private final static int AFTER_ARRAY = 5;
+
+    private int state;
+    private long position;
+    private boolean inString;
+    private boolean escaped;
+    private int depth;
+    // true for an object and false for an array at each depth of the current object
+    private boolean[] objects;
+
+    public JsonArraySplitter() {
+        this.state = BEFORE_ARRAY;
+        this.position = 0;
+        this.inString = false;
+        this.escaped = false;
+        this.depth = 0;
+        this.objects = new boolean[16];
+    }
+
+    /**
+     * @param value next byte of the array
+     * @return false if value starts or ends an object
+     */
+    @Override
+    public boolean process(byte value) {
+        position++;
+        switch (state) {
+            case IN_OBJECT:
+                return inObject(value);
+            case BEFORE_ARRAY:
+                if (value == '[') {
+                    state = BEFORE_FIRST_OBJECT;
+                }
+                else if (!whitespace(value)) {
+                    throw malformed("expected '['");
+                }
+                return true;
+            case BEFORE_FIRST_OBJECT:
+                if (value == ']') {
+                    state = AFTER_ARRAY;
+                    return true;
+                }
+                return beforeObject(value);
+            case BEFORE_OBJECT:
+                return beforeObject(value);
+            case AFTER_OBJECT:
+                if (value == ',') {
+                    state = BEFORE_OBJECT;
+                }
+                else if (value == ']') {
+                    state = AFTER_ARRAY;
+                }
+                else if (!whitespace(value)) {
+                    throw malformed("expected ',' or ']'");
+                }
+                return true;
+            default:
+                if (!whitespace(value)) {
+                    throw malformed("unexpected content after the array");
+                }
+                return true;
+        }
+    }
+
+    private boolean beforeObject(byte value) {
+        if (value == '{') {
+            state = IN_OBJECT;
+            push(true);
+            return false;
+        }
+        if (!whitespace(value)) {
+            throw malformed("expected '{'");
+        }
+        return true;
+    }
+
+    private boolean inObject(byte value) {
+        if (inString) {
+            if (escaped) {
+                escaped = false;
+            }
+            else if (value == '\\') {
+                escaped = true;
+            }
+            else if (value == '"') {
+                inString = false;
+            }
+            else if (value >= 0 && value < 0x20) {
+                throw malformed("control character in a string");
+            }
+            return true;
+        }
+        switch (value) {
+            case '"':
+                inString = true;
+                return true;
+            case '{':
+                push(true);
+                return true;
+            case '[':
+                push(false);
+                return true;
+            case '}':
+                return pop(true);
+            case ']':
+                return pop(false);
+            default:
+                return true;
+        }
+    }
+
+    private void push(boolean object) {
+        if (depth == objects.length) {
+            objects = Arrays.copyOf(objects, depth * 2);
+        }
+        objects[depth] = object;
+        depth++;
+    }
+
+    /**
+     * @return false if the outermost object was closed
+     */
+    private boolean pop(boolean object) {
+        depth--;
+        if (objects[depth] != object) {
+            throw malformed("mismatched '" + (object ? '}' : ']') + "'");
+        }
+        if (depth == 0) {
+            state = AFTER_OBJECT;
+            return false;
+        }
+        return true;
+    }
+
+    private boolean whitespace(byte value) {
+        return value == ' ' || value == '\n' || value == '\r' || value == '\t';
+    }
+
+    private IllegalArgumentException malformed(String reason) {
+        return new IllegalArgumentException("Malformed JSON array at byte <" + position + ">: " + reason);
+    }
+
+    /**
+     * @return true if the last byte processed was part of an object
+     */
+    public boolean inObject() {
+        return state == IN_OBJECT;
+    }
+
+    /**
+     * Checks that the array was complete.
+     */
+    public void finish() {
+        if (state != AFTER_ARRAY) {
+            throw new IllegalArgumentException("Malformed JSON array: unexpected end after <" + position + "> bytes");
+        }
+    }
+}
@@ -22,6 +22,7 @@ package com.teragrep.lsh_01.conversion;
 import com.teragrep.lsh_01.authentication.Subject;
 
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Decorator for IMessageHandler that splits messages arriving as an array of JSON objects.
@@ -36,16 +37,26 @@ public final class JsonConversion implements IMessageHandler {
 
     @Override
     public boolean onNewMessage(Subject subject, Map<String, String> headers, String body) {
-        JsonPayload originalPayload = new JsonPayload(new DefaultPayload(body));
+        return onNewPayload(subject, headers, new DefaultPayload(body));
+    }
 
-        boolean msgSent = true;
-        for (String message : originalPayload.messages()) { // each object individually as a String
-            if (!conversion.onNewMessage(subject, headers, message)) {
-                msgSent = false;
-            }
-        }
+    @Override
+    public boolean onNewPayload(Subject subject, Map<String, String> headers, Payload payload) {
+        // split messages are passed on together so they are sent in one batch
+        return conversion.onNewPayload(subject, headers, new JsonPayload(payload));
+    }
 
-        return msgSent;
+    @Override
+    public CompletionStage<Boolean> onNewPayloadAsync(Subject subject, Map<String, String> headers, Payload payload) {
+        return conversion.onNewPayloadAsync(subject, headers, new JsonPayload(payload));
+    }
+
+    /**
+     * The JSON array is split once the whole body has arrived.
+     */
+    @Override
+    public MessageStream stream(Subject subject, Map<String, String> headers, int maxMessageLength) {
+        return new BufferedMessageStream(this, subject, headers, maxMessageLength);
     }
 
     @Override
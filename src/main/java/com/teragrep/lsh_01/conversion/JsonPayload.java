@@ -19,11 +19,6 @@
 */
 package com.teragrep.lsh_01.conversion;
 
-import jakarta.json.*;
-
-import java.io.StringReader;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
 
 /**
@@ -41,20 +36,11 @@ public final class JsonPayload implements Payload {
      * Splits the array of JSON objects into payloads with one object each. Has a side effect of removing whitespace
      * from the payloads because of jsonObject.toString().
      *
-     * @return list of messages
+     * @return messages, parsed while they are iterated
      */
     @Override
-    public List<String> messages() {
-        List<String> allMessages = new ArrayList<>();
-        for (String message : payload.messages()) {
-            JsonReader reader = Json.createReader(new StringReader(message));
-            JsonArray payloadMessages = reader.readArray();
-
-            // transform all json objects into DefaultPayloads and return the list
-            allMessages.addAll(payloadMessages.getValuesAs(JsonObject::toString));
-        }
-
-        return allMessages;
+    public Iterable<CharSequence> messages() {
+        return () -> new FlatIterator(payload.messages().iterator(), ParsedJsonIterator::new);
     }
 
     @Override
@@ -0,0 +1,657 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.conversion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Regex that is matched in time linear to the length of the input. The regex is compiled to a program that is run on
+ * all the possible paths at once (a Pike VM) instead of backtracking, so a badly written regex can't take exponential
+ * time. Matches are the same as with java.util.regex: leftmost, and of the alternatives the one java.util.regex would
+ * try first.
+ * <p>
+ * Supports literals, escapes {@code \n \r \t \f \a \e \xhh} and &#92;uhhhh and escaped punctuation, {@code .},
+ * character classes with ranges and {@code \d \D \w \W \s \S}, groups {@code (...)} and {@code (?:...)},
+ * alternation and the greedy and lazy quantifiers {@code * + ? {n} {n,} {n,m}}. Constructs that need backtracking,
+ * such as back references and lookaround, as well as anchors, boundaries and flags, are rejected with an
+ * IllegalArgumentException.
+ */
+public final class LinearPattern {
+
+    private final static int MAX_INSTRUCTIONS = 10000;
+
+    private final static int CHAR = 0;
+    private final static int CLASS = 1;
+    private final static int SPLIT = 2;
+    private final static int JUMP = 3;
+    private final static int MATCH = 4;
+
+    private final String regex;
+    private final int[] ops;
+    // code point of CHAR, index of the class of CLASS
+    private final int[] args;
+    // next instructions of SPLIT (x is preferred) and JUMP
+    private final int[] xs;
+    private final int[] ys;
+    private final List<CharClass> classes;
+
+    public LinearPattern(String regex) {
+        this(regex, new ArrayList<>());
+    }
+
+    private LinearPattern(String regex, List<CharClass> classes) {
+        this(regex, new Parser(regex, classes).program(), classes);
+    }
+
+    private LinearPattern(String regex, List<Instruction> program, List<CharClass> classes) {
+        this.regex = regex;
+        this.ops = new int[program.size()];
+        this.args = new int[program.size()];
+        this.xs = new int[program.size()];
+        this.ys = new int[program.size()];
+        for (int i = 0; i < program.size(); i++) {
+            final Instruction instruction = program.get(i);
+            ops[i] = instruction.op;
+            args[i] = instruction.arg;
+            xs[i] = i + instruction.x;
+            ys[i] = i + instruction.y;
+        }
+        this.classes = classes;
+    }
+
+    /**
+     * Splits the input like Pattern.split(input) does.
+     */
+    public String[] split(CharSequence input) {
+        final List<String> messages = new ArrayList<>();
+        new SplitIterator(input, delimiters(input)).forEachRemaining(message -> messages.add(message.toString()));
+        return messages.toArray(new String[0]);
+    }
+
+    /**
+     * Finds the matches of the regex in the input like Matcher.find() does.
+     */
+    Delimiters delimiters(CharSequence input) {
+        return new Execution(input);
+    }
+
+    @Override
+    public String toString() {
+        return regex;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        final LinearPattern cast = (LinearPattern) o;
+        return regex.equals(cast.regex);
+    }
+
+    @Override
+    public int hashCode() {
+        return regex.hashCode();
+    }
+
+    /**
+     * State of matching a single input. The threads of the VM are kept as lists of instructions ordered by priority,
+     * one list for the current position of the input and one for the next.
+     */
+    private final class Execution implements Delimiters {
+
+        private final CharSequence input;
+        private int[] current;
+        private int[] currentStarts;
+        private int currentSize;
+        private int[] next;
+        private int[] nextStarts;
+        private int nextSize;
+        // instructions already added at the current generation
+        private final int[] added;
+        private int generation;
+        private final int[] stack;
+
+        private int start;
+        private int end;
+        private int from;
+
+        private Execution(CharSequence input) {
+            this.input = input;
+            this.current = new int[ops.length];
+            this.currentStarts = new int[ops.length];
+            this.next = new int[ops.length];
+            this.nextStarts = new int[ops.length];
+            this.added = new int[ops.length];
+            this.generation = 0;
+            this.stack = new int[2 * ops.length + 1];
+            this.start = -1;
+            this.end = -1;
+            this.from = 0;
+        }
+
+        @Override
+        public boolean find() {
+            if (from > input.length() || !search(from)) {
+                return false;
+            }
+            // an empty match is not found again at the same position
+            from = end == start ? end + 1 : end;
+            return true;
+        }
+
+        @Override
+        public int start() {
+            return start;
+        }
+
+        @Override
+        public int end() {
+            return end;
+        }
+
+        private boolean search(int begin) {
+            start = -1;
+            end = -1;
+            currentSize = 0;
+            generation++;
+            int position = begin;
+            while (true) {
+                if (start == -1) {
+                    // a match starting here has lower priority than the ones that started earlier
+                    currentSize = addThread(current, currentStarts, currentSize, 0, position);
+                }
+                if (currentSize == 0) {
+                    return start != -1;
+                }
+                final int codePoint = position < input.length() ? Character.codePointAt(input, position) : -1;
+                final int nextPosition = codePoint == -1 ? position : position + Character.charCount(codePoint);
+                generation++;
+                nextSize = 0;
+                for (int i = 0; i < currentSize; i++) {
+                    final int pc = current[i];
+                    if (ops[pc] == MATCH) {
+                        start = currentStarts[i];
+                        end = position;
+                        // the threads after this one have lower priority
+                        break;
+                    }
+                    if (codePoint != -1 && matches(pc, codePoint)) {
+                        nextSize = addThread(next, nextStarts, nextSize, pc + 1, currentStarts[i]);
+                    }
+                }
+                swap();
+                if (codePoint == -1) {
+                    return start != -1;
+                }
+                position = nextPosition;
+            }
+        }
+
+        private boolean matches(int pc, int codePoint) {
+            if (ops[pc] == CHAR) {
+                return args[pc] == codePoint;
+            }
+            return classes.get(args[pc]).matches(codePoint);
+        }
+
+        /**
+         * Adds the instructions reachable from pc without consuming input, in the order java.util.regex would try
+         * them.
+         *
+         * @return new size of the list of threads
+         */
+        private int addThread(int[] threads, int[] starts, int size, int pc, int threadStart) {
+            int threadsAdded = size;
+            int top = 0;
+            stack[top++] = pc;
+            while (top > 0) {
+                final int instruction = stack[--top];
+                if (added[instruction] == generation) {
+                    continue;
+                }
+                added[instruction] = generation;
+                switch (ops[instruction]) {
+                    case SPLIT:
+                        stack[top++] = ys[instruction];
+                        stack[top++] = xs[instruction];
+                        break;
+                    case JUMP:
+                        stack[top++] = xs[instruction];
+                        break;
+                    default:
+                        threads[threadsAdded] = instruction;
+                        starts[threadsAdded] = threadStart;
+                        threadsAdded++;
+                }
+            }
+            return threadsAdded;
+        }
+
+        private void swap() {
+            final int[] threads = current;
+            final int[] starts = currentStarts;
+            current = next;
+            currentStarts = nextStarts;
+            currentSize = nextSize;
+            next = threads;
+            nextStarts = starts;
+        }
+    }
+
+    private final static class Instruction {
+
+        private final int op;
+        private final int arg;
+        // relative to the instruction so that fragments can be copied and concatenated as is
+        private final int x;
+        private final int y;
+
+        private Instruction(int op, int arg, int x, int y) {
+            this.op = op;
+            this.arg = arg;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    /**
+     * Set of code points, given as ranges and predefined classes.
+     */
+    private final static class CharClass {
+
+        private final boolean negated;
+        // pairs of first and last code point
+        private final List<Integer> ranges;
+        private final List<CharClass> predefined;
+
+        private CharClass(boolean negated, int... ranges) {
+            this.negated = negated;
+            this.ranges = new ArrayList<>();
+            for (int range : ranges) {
+                this.ranges.add(range);
+            }
+            this.predefined = new ArrayList<>();
+        }
+
+        private boolean matches(int codePoint) {
+            boolean found = false;
+            for (int i = 0; i < ranges.size() && !found; i += 2) {
+                found = codePoint >= ranges.get(i) && codePoint <= ranges.get(i + 1);
+            }
+            for (int i = 0; i < predefined.size() && !found; i++) {
+                found = predefined.get(i).matches(codePoint);
+            }
+            return found != negated;
+        }
+    }
+
+    /**
+     * Compiles the regex with recursive descent. Each method returns a fragment of the program.
+     */
+    private final static class Parser {
+
+        private final String regex;
+        private final List<CharClass> classes;
+        private int position;
+
+        private Parser(String regex, List<CharClass> classes) {
+            this.regex = regex;
+            this.classes = classes;
+            this.position = 0;
+        }
+
+        private List<Instruction> program() {
+            final List<Instruction> program = alternation();
+            if (position < regex.length()) {
+                throw error("Unmatched closing ')'");
+            }
+            program.add(new Instruction(MATCH, 0, 0, 0));
+            return program;
+        }
+
+        private List<Instruction> alternation() {
+            final List<Instruction> first = concatenation();
+            if (position == regex.length() || regex.charAt(position) != '|') {
+                return first;
+            }
+            position++;
+            final List<Instruction> rest = alternation();
+            final List<Instruction> fragment = new ArrayList<>();
+            fragment.add(new Instruction(SPLIT, 0, 1, first.size() + 2));
+            fragment.addAll(first);
+            fragment.add(new Instruction(JUMP, 0, rest.size() + 1, 0));
+            fragment.addAll(rest);
+            return limited(fragment);
+        }
+
+        private List<Instruction> concatenation() {
+            final List<Instruction> fragment = new ArrayList<>();
+            while (position < regex.length() && regex.charAt(position) != '|' && regex.charAt(position) != ')') {
+                fragment.addAll(repetition());
+                limited(fragment);
+            }
+            return fragment;
+        }
+
+        private List<Instruction> repetition() {
+            final List<Instruction> atom = atom();
+            if (position == regex.length()) {
+                return atom;
+            }
+            final int min;
+            final int max;
+            switch (regex.charAt(position)) {
+                case '*':
+                    min = 0;
+                    max = -1;
+                    position++;
+                    break;
+                case '+':
+                    min = 1;
+                    max = -1;
+                    position++;
+                    break;
+                case '?':
+                    min = 0;
+                    max = 1;
+                    position++;
+                    break;
+                case '{':
+                    position++;
+                    min = number();
+                    if (next() == ',') {
+                        max = peek() == '}' ? -1 : number();
+                        if (max != -1 && max < min) {
+                            throw error("Illegal repetition range");
+                        }
+                        expect('}');
+                    }
+                    else {
+                        position--;
+                        expect('}');
+                        max = min;
+                    }
+                    break;
+                default:
+                    return atom;
+            }
+            boolean greedy = true;
+            if (position < regex.length() && regex.charAt(position) == '?') {
+                greedy = false;
+                position++;
+            }
+            else if (position < regex.length() && regex.charAt(position) == '+') {
+                throw error("Possessive quantifiers are not supported");
+            }
+            return repeated(atom, min, max, greedy);
+        }
+
+        private List<Instruction> repeated(List<Instruction> atom, int min, int max, boolean greedy) {
+            final List<Instruction> fragment = new ArrayList<>();
+            for (int i = 0; i < min; i++) {
+                fragment.addAll(atom);
+                limited(fragment);
+            }
+            final int size = atom.size();
+            if (max == -1) {
+                // loop back to a split that either runs the atom again or continues
+                fragment.add(new Instruction(SPLIT, 0, greedy ? 1 : size + 2, greedy ? size + 2 : 1));
+                fragment.addAll(atom);
+                fragment.add(new Instruction(JUMP, 0, -(size + 1), 0));
+            }
+            for (int i = min; i < max; i++) {
+                fragment.add(new Instruction(SPLIT, 0, greedy ? 1 : size + 1, greedy ? size + 1 : 1));
+                fragment.addAll(atom);
+                limited(fragment);
+            }
+            return limited(fragment);
+        }
+
+        private List<Instruction> atom() {
+            final char c = next();
+            switch (c) {
+                case '(':
+                    if (peek() == '?') {
+                        position++;
+                        if (next() != ':') {
+                            throw error("Only non-capturing groups (?:...) are supported");
+                        }
+                    }
+                    final List<Instruction> group = alternation();
+                    expect(')');
+                    return group;
+                case '[':
+                    return single(CLASS, characterClass());
+                case '.':
+                    // any character but a line terminator
+                    final CharClass any = new CharClass(true, '\n', '\n', '\r', '\r', 0x85, 0x85, 0x2028, 0x2029);
+                    return single(CLASS, classIndex(any));
+                case '\\':
+                    return escape();
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                    throw error("Dangling meta character '" + c + "'");
+                case '^':
+                case '$':
+                    throw error("Anchors are not supported");
+                case ')':
+                    throw error("Unmatched closing ')'");
+                default:
+                    position--;
+                    final int codePoint = regex.codePointAt(position);
+                    position += Character.charCount(codePoint);
+                    return single(CHAR, codePoint);
+            }
+        }
+
+        private List<Instruction> escape() {
+            final CharClass predefined = predefined(peek());
+            if (predefined != null) {
+                position++;
+                return single(CLASS, classIndex(predefined));
+            }
+            return single(CHAR, escapedCodePoint());
+        }
+
+        private int characterClass() {
+            final boolean negated = peek() == '^';
+            if (negated) {
+                position++;
+            }
+            final CharClass characterClass = new CharClass(negated);
+            boolean first = true;
+            while (peek() != ']' || first) {
+                first = false;
+                final char c = next();
+                if (c == '[' || (c == '&' && peek() == '&')) {
+                    throw error("Nested character classes and intersections are not supported");
+                }
+                if (c == ']') {
+                    throw error("Empty character class");
+                }
+                final int low;
+                if (c == '\\') {
+                    final CharClass predefined = predefined(peek());
+                    if (predefined != null) {
+                        position++;
+                        characterClass.predefined.add(predefined);
+                        continue;
+                    }
+                    low = escapedCodePoint();
+                }
+                else {
+                    position--;
+                    low = regex.codePointAt(position);
+                    position += Character.charCount(low);
+                }
+                int high = low;
+                if (peek() == '-' && position + 1 < regex.length() && regex.charAt(position + 1) != ']') {
+                    position++;
+                    final char h = next();
+                    if (h == '\\') {
+                        high = escapedCodePoint();
+                    }
+                    else if (h == '[') {
+                        throw error("Nested character classes and intersections are not supported");
+                    }
+                    else {
+                        position--;
+                        high = regex.codePointAt(position);
+                        position += Character.charCount(high);
+                    }
+                    if (high < low) {
+                        throw error("Illegal character range");
+                    }
+                }
+                characterClass.ranges.add(low);
+                characterClass.ranges.add(high);
+            }
+            position++;
+            return classIndex(characterClass);
+        }
+
+        private CharClass predefined(char c) {
+            switch (c) {
+                case 'd':
+                    return new CharClass(false, '0', '9');
+                case 'D':
+                    return new CharClass(true, '0', '9');
+                case 'w':
+                    return new CharClass(false, 'a', 'z', 'A', 'Z', '_', '_', '0', '9');
+                case 'W':
+                    return new CharClass(true, 'a', 'z', 'A', 'Z', '_', '_', '0', '9');
+                case 's':
+                    return new CharClass(false, ' ', ' ', '\t', '\r');
+                case 'S':
+                    return new CharClass(true, ' ', ' ', '\t', '\r');
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * Escape after the backslash that stands for a single character.
+         */
+        private int escapedCodePoint() {
+            final char c = next();
+            switch (c) {
+                case 'n':
+                    return '\n';
+                case 'r':
+                    return '\r';
+                case 't':
+                    return '\t';
+                case 'f':
+                    return '\f';
+                case 'a':
+                    return '\u0007';
+                case 'e':
+                    return '\u001B';
+                case 'x':
+                    return hex(2);
+                case 'u':
+                    return hex(4);
+                default:
+                    if (c < 0x80 && Character.isLetterOrDigit(c)) {
+                        throw error("Escape \\" + c + " is not supported");
+                    }
+                    return c;
+            }
+        }
+
+        private int hex(int digits) {
+            if (position + digits > regex.length()) {
+                throw error("Illegal hexadecimal escape sequence");
+            }
+            try {
+                final int value = Integer.parseInt(regex.substring(position, position + digits), 16);
+                position += digits;
+                return value;
+            }
+            catch (NumberFormatException e) {
+                throw error("Illegal hexadecimal escape sequence");
+            }
+        }
+
+        private int number() {
+            final int begin = position;
+            while (position < regex.length() && Character.isDigit(regex.charAt(position))) {
+                position++;
+            }
+            if (begin == position) {
+                throw error("Illegal repetition");
+            }
+            try {
+                return Integer.parseInt(regex.substring(begin, position));
+            }
+            catch (NumberFormatException e) {
+                throw error("Illegal repetition");
+            }
+        }
+
+        private List<Instruction> single(int op, int arg) {
+            return new ArrayList<>(Arrays.asList(new Instruction(op, arg, 0, 0)));
+        }
+
+        private int classIndex(CharClass characterClass) {
+            classes.add(characterClass);
+            return classes.size() - 1;
+        }
+
+        private List<Instruction> limited(List<Instruction> fragment) {
+            if (fragment.size() > MAX_INSTRUCTIONS) {
+                throw error("Regex is too large");
+            }
+            return fragment;
+        }
+
+        private char peek() {
+            if (position >= regex.length()) {
+                throw error("Unexpected end of the regex");
+            }
+            return regex.charAt(position);
+        }
+
+        private char next() {
+            final char c = peek();
+            position++;
+            return c;
+        }
+
+        private void expect(char c) {
+            if (position >= regex.length() || regex.charAt(position) != c) {
+                throw error("Expected '" + c + "'");
+            }
+            position++;
+        }
+
+        private IllegalArgumentException error(String reason) {
+            return new IllegalArgumentException(
+                    reason + " near index " + position + " of regex <" + regex + "> for the linear regex engine"
+            );
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.conversion;
+
+import com.teragrep.lsh_01.authentication.Subject;
+
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Decorator for IMessageHandler that splits messages with a regex matched in linear time, see LinearPattern.
+ */
+public final class LinearRegexConversion implements IMessageHandler {
+
+    private final IMessageHandler conversion;
+    private final LinearPattern pattern;
+    private final int timeoutMillis;
+
+    /**
+     * @param timeoutMillis how long splitting a request may take, 0 for no limit
+     */
+    public LinearRegexConversion(IMessageHandler conversion, LinearPattern pattern, int timeoutMillis) {
+        this.conversion = conversion;
+        this.pattern = pattern;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public boolean onNewMessage(Subject subject, Map<String, String> headers, String body) {
+        return onNewPayload(subject, headers, new DefaultPayload(body));
+    }
+
+    @Override
+    public boolean onNewPayload(Subject subject, Map<String, String> headers, Payload payload) {
+        // split messages are passed on together so they are sent in one batch
+        return conversion.onNewPayload(subject, headers, new LinearRegexPayload(payload, pattern, timeoutMillis));
+    }
+
+    @Override
+    public CompletionStage<Boolean> onNewPayloadAsync(Subject subject, Map<String, String> headers, Payload payload) {
+        return conversion.onNewPayloadAsync(subject, headers, new LinearRegexPayload(payload, pattern, timeoutMillis));
+    }
+
+    /**
+     * The body is split once it has arrived completely.
+     */
+    @Override
+    public MessageStream stream(Subject subject, Map<String, String> headers, int maxMessageLength) {
+        return new BufferedMessageStream(this, subject, headers, maxMessageLength);
+    }
+
+    @Override
+    public Subject asSubject(String token) {
+        return conversion.asSubject(token);
+    }
+
+    @Override
+    public boolean requiresToken() {
+        return conversion.requiresToken();
+    }
+
+    @Override
+    public IMessageHandler copy() {
+        return new LinearRegexConversion(conversion.copy(), pattern, timeoutMillis);
+    }
+
+    @Override
+    public Map<String, String> responseHeaders() {
+        return conversion.responseHeaders();
+    }
+}
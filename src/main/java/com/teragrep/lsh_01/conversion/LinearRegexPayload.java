@@ -0,0 +1,84 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.conversion;
+
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * Payload splittable with a regex that is matched in linear time.
+ */
+public final class LinearRegexPayload implements Payload {
+
+    private final Payload payload;
+    private final LinearPattern splitPattern;
+    private final int timeoutMillis;
+
+    /**
+     * @param timeoutMillis how long splitting a message may take, 0 for no limit
+     */
+    public LinearRegexPayload(Payload payload, LinearPattern splitPattern, int timeoutMillis) {
+        this.payload = payload;
+        this.splitPattern = splitPattern;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Splits the payload like Pattern.split() does. The time limit of a message runs from taking its first split
+     * message until taking its last one.
+     *
+     * @return messages, split while they are iterated
+     * @throws SplitTimeoutException from the iterator if splitting a message takes longer than timeoutMillis
+     */
+    @Override
+    public Iterable<CharSequence> messages() {
+        return () -> new FlatIterator(payload.messages().iterator(), this::split);
+    }
+
+    private Iterator<CharSequence> split(CharSequence message) {
+        final CharSequence input;
+        if (timeoutMillis > 0) {
+            final long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+            input = new DeadlineCharSequence(message, deadline, timeoutMillis);
+        }
+        else {
+            input = message;
+        }
+        return new SplitIterator(input, splitPattern.delimiters(input));
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        if (this == object)
+            return true;
+        if (object == null)
+            return false;
+        if (object.getClass() != this.getClass())
+            return false;
+        final LinearRegexPayload cast = (LinearRegexPayload) object;
+        return payload.equals(cast.payload) && splitPattern.equals(cast.splitPattern)
+                && timeoutMillis == cast.timeoutMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(payload, splitPattern, timeoutMillis);
+    }
+}
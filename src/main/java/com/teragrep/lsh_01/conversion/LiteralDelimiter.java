@@ -0,0 +1,125 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.conversion;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Finds a fixed delimiter in UTF-8 bytes. The first byte of the delimiter is searched eight bytes at a time, the rest
+ * of it is compared only where the first byte was found. Bytes of a valid UTF-8 delimiter can only be found at
+ * character boundaries of valid UTF-8 input, so splitting the bytes gives the same messages as splitting the decoded
+ * text.
+ */
+public final class LiteralDelimiter {
+
+    private final static long ONES = 0x0101010101010101L;
+    private final static long HIGH_BITS = 0x8080808080808080L;
+
+    private final byte[] bytes;
+    // first byte of the delimiter in every byte of a long
+    private final long firstBytes;
+
+    public LiteralDelimiter(String delimiter) {
+        this(delimiter.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LiteralDelimiter(byte[] bytes) {
+        if (bytes.length == 0) {
+            throw new IllegalArgumentException("Delimiter can't be empty");
+        }
+        this.bytes = bytes;
+        this.firstBytes = (bytes[0] & 0xFFL) * ONES;
+    }
+
+    public int length() {
+        return bytes.length;
+    }
+
+    /**
+     * @return index of the first delimiter that is completely within the range, -1 if there is none
+     */
+    public int indexOf(ByteBuf buf, int from, int to) {
+        int index = from;
+        while (true) {
+            index = firstByte(buf, index, to);
+            if (index == -1 || index + bytes.length > to) {
+                return -1;
+            }
+            if (matches(buf, index)) {
+                return index;
+            }
+            index++;
+        }
+    }
+
+    private int firstByte(ByteBuf buf, int from, int to) {
+        int index = from;
+        for (; index + Long.BYTES <= to; index += Long.BYTES) {
+            // bytes equal to the first byte become zero. Read as little-endian so that the lowest flagged byte is a
+            // real match, a borrow can only flag bytes above it.
+            final long word = buf.getLongLE(index) ^ firstBytes;
+            final long zeros = (word - ONES) & ~word & HIGH_BITS;
+            if (zeros != 0) {
+                return index + (Long.numberOfTrailingZeros(zeros) >>> 3);
+            }
+        }
+        for (; index < to; index++) {
+            if (buf.getByte(index) == bytes[0]) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private boolean matches(ByteBuf buf, int index) {
+        for (int i = 1; i < bytes.length; i++) {
+            if (buf.getByte(index + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares a delimiter that starts in the first buffer and continues in the second one.
+     *
+     * @param index where the delimiter starts in the first buffer, its bytes from there to the writerIndex are compared
+     * @return 1 if the delimiter is there, 0 if it is not and -1 if the second buffer is too short to tell
+     */
+    public int matchesAcross(ByteBuf first, int index, ByteBuf second) {
+        final int inFirst = first.writerIndex() - index;
+        for (int i = 0; i < inFirst; i++) {
+            if (first.getByte(index + i) != bytes[i]) {
+                return 0;
+            }
+        }
+        for (int i = inFirst; i < bytes.length; i++) {
+            if (second.readerIndex() + i - inFirst >= second.writerIndex()) {
+                return -1;
+            }
+            if (second.getByte(second.readerIndex() + i - inFirst) != bytes[i]) {
+                return 0;
+            }
+        }
+        return 1;
+    }
+}
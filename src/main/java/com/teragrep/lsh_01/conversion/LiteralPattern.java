@@ -0,0 +1,102 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.conversion;
+
+/**
+ * A regex that matches only a fixed string, e.g. {@code \n} or {@code \r\n} or {@code \|}. Such a regex can be split
+ * without a regex engine.
+ */
+public final class LiteralPattern {
+
+    private final static String METACHARACTERS = "\\^$.|?*+()[]{}";
+
+    private final String regex;
+
+    public LiteralPattern(String regex) {
+        this.regex = regex;
+    }
+
+    /**
+     * @return true if the regex matches only a fixed, non-empty string
+     */
+    public boolean isLiteral() {
+        return !literal().isEmpty();
+    }
+
+    /**
+     * @return the string the regex matches, empty if the regex is not a literal one
+     */
+    public String literal() {
+        final StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < regex.length()) {
+            final char c = regex.charAt(i);
+            if (c != '\\') {
+                if (METACHARACTERS.indexOf(c) >= 0) {
+                    return "";
+                }
+                literal.append(c);
+                i++;
+                continue;
+            }
+            if (i + 1 == regex.length()) {
+                return "";
+            }
+            final char escaped = regex.charAt(i + 1);
+            i += 2;
+            switch (escaped) {
+                case 'n':
+                    literal.append('\n');
+                    break;
+                case 'r':
+                    literal.append('\r');
+                    break;
+                case 't':
+                    literal.append('\t');
+                    break;
+                case 'f':
+                    literal.append('\f');
+                    break;
+                case 'a':
+                    literal.append('\u0007');
+                    break;
+                case 'e':
+                    literal.append('\u001B');
+                    break;
+                case 'Q':
+                    // quoted until \E or the end of the regex
+                    int end = regex.indexOf("\\E", i);
+                    if (end == -1) {
+                        end = regex.length();
+                    }
+                    literal.append(regex, i, end);
+                    i = Math.min(end + 2, regex.length());
+                    break;
+                default:
+                    // other escaped letters and digits are character classes, back references and such
+                    if (escaped >= 0x80 || Character.isLetterOrDigit(escaped)) {
+                        return "";
+                    }
+                    literal.append(escaped);
+            }
+        }
+        return literal.toString();
+    }
+}
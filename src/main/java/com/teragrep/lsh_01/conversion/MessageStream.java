@@ -0,0 +1,50 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.conversion;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Body of a single request that is received in parts. Messages that are complete are sent while the rest of the body
+ * is still arriving.
+ */
+public interface MessageStream {
+
+    /**
+     * Feeds the next part of the body.
+     *
+     * @param content part of the body, not retained
+     * @throws io.netty.handler.codec.TooLongFrameException if a single message grows larger than allowed
+     */
+    void write(ByteBuf content);
+
+    /**
+     * Sends what is left of the body after the last part has been written.
+     *
+     * @return true if all the messages of the body were sent
+     */
+    boolean close();
+
+    /**
+     * Discards what is left of the body without sending it. Called instead of close() when the request fails before
+     * its last part.
+     */
+    void abort();
+}
@@ -23,39 +23,90 @@ import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.SlidingWindowReservoir;
 import com.codahale.metrics.Timer;
 import com.teragrep.lsh_01.authentication.Subject;
+import com.teragrep.lsh_01.util.LatencyObserver;
 
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
 
 import static com.codahale.metrics.MetricRegistry.name;
 
 /**
- * Decorator for IMessageHandler. Responsible for reporting metrics.
+ * Decorator for IMessageHandler. Responsible for reporting metrics. The send latency is also given to a
+ * LatencyObserver, e.g. the adaptive admission.
  */
 public class MetricRelpConversion implements IMessageHandler {
 
     private final IMessageHandler relpConversion;
     private final MetricRegistry metricRegistry;
     private final Timer sendLatency;
+    private final LatencyObserver latencyObserver;
 
     public MetricRelpConversion(IMessageHandler relpConversion, MetricRegistry metricRegistry) {
+        this(relpConversion, metricRegistry, latencyNanos -> {
+        });
+    }
+
+    public MetricRelpConversion(
+            IMessageHandler relpConversion,
+            MetricRegistry metricRegistry,
+            LatencyObserver latencyObserver
+    ) {
         this.relpConversion = relpConversion;
         this.metricRegistry = metricRegistry;
+        this.latencyObserver = latencyObserver;
         this.sendLatency = metricRegistry
                 .timer(name(MetricRelpConversion.class, "sendLatency"), () -> new Timer(new SlidingWindowReservoir(10000)));
     }
 
     @Override
     public boolean onNewMessage(Subject subject, Map<String, String> headers, String body) {
-        boolean sent;
-        try (Timer.Context ctx = sendLatency.time()) {
-            sent = relpConversion.onNewMessage(subject, headers, body);
+        final Timer.Context ctx = sendLatency.time();
+        try {
+            return relpConversion.onNewMessage(subject, headers, body);
+        }
+        finally {
+            latencyObserver.onLatency(ctx.stop());
+        }
+    }
+
+    @Override
+    public boolean onNewPayload(Subject subject, Map<String, String> headers, Payload payload) {
+        final Timer.Context ctx = sendLatency.time();
+        try {
+            return relpConversion.onNewPayload(subject, headers, payload);
+        }
+        finally {
+            latencyObserver.onLatency(ctx.stop());
         }
-        return sent;
+    }
+
+    @Override
+    public CompletionStage<Boolean> onNewPayloadAsync(Subject subject, Map<String, String> headers, Payload payload) {
+        final Timer.Context ctx = sendLatency.time();
+        final CompletionStage<Boolean> sent;
+        try {
+            sent = relpConversion.onNewPayloadAsync(subject, headers, payload);
+        }
+        catch (RuntimeException e) {
+            // e.g. a split timeout, nothing is left to complete
+            latencyObserver.onLatency(ctx.stop());
+            throw e;
+        }
+        return sent.whenComplete((result, error) -> latencyObserver.onLatency(ctx.stop()));
+    }
+
+    @Override
+    public MessageStream stream(Subject subject, Map<String, String> headers, int maxMessageLength) {
+        return new TimedMessageStream(
+                relpConversion.stream(subject, headers, maxMessageLength),
+                sendLatency.time(),
+                latencyObserver
+        );
     }
 
     @Override
     public IMessageHandler copy() {
-        return new MetricRelpConversion(relpConversion.copy(), metricRegistry);
+        return new MetricRelpConversion(relpConversion.copy(), metricRegistry, latencyObserver);
     }
 
     @Override
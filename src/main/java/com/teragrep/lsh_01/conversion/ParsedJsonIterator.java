@@ -0,0 +1,85 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.conversion;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.stream.JsonParser;
+import jakarta.json.stream.JsonParsingException;
+
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Objects of a JSON array, parsed one at a time and written without whitespace.
+ */
+final class ParsedJsonIterator implements Iterator<CharSequence> {
+
+    private final JsonParser parser;
+    private boolean started;
+    private boolean finished;
+    private String next;
+
+    ParsedJsonIterator(CharSequence message) {
+        this.parser = Json.createParser(new StringReader(message.toString()));
+        this.started = false;
+        this.finished = false;
+        this.next = null;
+    }
+
+    /**
+     * @throws jakarta.json.JsonException if the message is not valid JSON or not an array
+     * @throws ClassCastException if the array has an element that is not an object
+     */
+    @Override
+    public boolean hasNext() {
+        if (next != null || finished) {
+            return next != null;
+        }
+        if (!started) {
+            started = true;
+            if (parser.next() != JsonParser.Event.START_ARRAY) {
+                throw new JsonParsingException("Cannot read JSON array", parser.getLocation());
+            }
+        }
+        if (parser.next() == JsonParser.Event.END_ARRAY) {
+            finished = true;
+            // checks that nothing follows the array
+            if (parser.hasNext()) {
+                throw new JsonParsingException("Unexpected content after JSON array", parser.getLocation());
+            }
+            parser.close();
+            return false;
+        }
+        next = ((JsonObject) parser.getValue()).toString();
+        return true;
+    }
+
+    @Override
+    public CharSequence next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final String object = next;
+        next = null;
+        return object;
+    }
+}
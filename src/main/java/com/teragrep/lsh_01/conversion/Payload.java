@@ -19,17 +19,17 @@
 */
 package com.teragrep.lsh_01.conversion;
 
-import java.util.List;
-
 /**
  * A message from a log source
  */
 public interface Payload {
 
     /**
-     * Takes the message(s) from the payload.
+     * Takes the message(s) from the payload. Messages are split from the payload only as they are iterated, so all of
+     * them don't have to be held in memory at once. Text that arrived as valid UTF-8 is an AsciiString or Utf8Bytes
+     * over its bytes, see Utf8Text.
      *
-     * @return list of messages
+     * @return messages, in order
      */
-    List<String> messages();
+    Iterable<CharSequence> messages();
 }
@@ -0,0 +1,87 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.conversion;
+
+import io.netty.util.AsciiString;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Objects of a JSON array exactly as they appear in the array, taken one at a time.
+ */
+final class RawJsonIterator implements Iterator<CharSequence> {
+
+    private final CharSequence message;
+    private final JsonArraySplitter splitter;
+    private int index;
+    private int start;
+    private CharSequence next;
+
+    RawJsonIterator(CharSequence message) {
+        this.message = message;
+        this.splitter = new JsonArraySplitter();
+        this.index = 0;
+        this.start = 0;
+        this.next = null;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the message is not an array of objects
+     */
+    @Override
+    public boolean hasNext() {
+        while (next == null && index < message.length()) {
+            final char c = message.charAt(index);
+            if (!splitter.process(c < 0x80 ? (byte) c : JsonArraySplitter.NON_ASCII)) {
+                if (splitter.inObject()) {
+                    start = index;
+                }
+                else {
+                    next = subSequence(start, index + 1);
+                }
+            }
+            index++;
+        }
+        if (next == null) {
+            // the whole message has been read
+            splitter.finish();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public CharSequence next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final CharSequence object = next;
+        next = null;
+        return object;
+    }
+
+    private CharSequence subSequence(int start, int end) {
+        if (message instanceof AsciiString) {
+            return ((AsciiString) message).subSequence(start, end, false);
+        }
+        return message.subSequence(start, end);
+    }
+}
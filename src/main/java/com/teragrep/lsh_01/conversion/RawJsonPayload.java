@@ -0,0 +1,62 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.conversion;
+
+import java.util.Objects;
+
+/**
+ * A JSON array payload splittable into individual JSON objects. Unlike JsonPayload the objects are not parsed, they
+ * are passed on exactly as they appear in the array.
+ */
+public final class RawJsonPayload implements Payload {
+
+    private final Payload payload;
+
+    public RawJsonPayload(Payload payload) {
+        this.payload = payload;
+    }
+
+    /**
+     * Splits the array of JSON objects into messages with one object each.
+     *
+     * @return messages, split while they are iterated
+     */
+    @Override
+    public Iterable<CharSequence> messages() {
+        return () -> new FlatIterator(payload.messages().iterator(), RawJsonIterator::new);
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        if (this == object)
+            return true;
+        if (object == null)
+            return false;
+        if (object.getClass() != this.getClass())
+            return false;
+        final RawJsonPayload cast = (RawJsonPayload) object;
+        return payload.equals(cast.payload);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(payload);
+    }
+}
@@ -22,6 +22,7 @@ package com.teragrep.lsh_01.conversion;
 import com.teragrep.lsh_01.authentication.Subject;
 
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
 import java.util.regex.Pattern;
 
 /**
@@ -31,28 +32,44 @@ public final class RegexConversion implements IMessageHandler {
 
     private final IMessageHandler conversion;
     private final Pattern pattern;
+    private final int timeoutMillis;
 
     public RegexConversion(IMessageHandler conversion, String regex) {
         this(conversion, Pattern.compile(regex));
     }
 
     public RegexConversion(IMessageHandler conversion, Pattern pattern) {
+        this(conversion, pattern, 0);
+    }
+
+    /**
+     * @param timeoutMillis how long splitting a request may take, 0 for no limit
+     */
+    public RegexConversion(IMessageHandler conversion, Pattern pattern, int timeoutMillis) {
         this.conversion = conversion;
         this.pattern = pattern;
+        this.timeoutMillis = timeoutMillis;
     }
 
     @Override
     public boolean onNewMessage(Subject subject, Map<String, String> headers, String body) {
-        RegexPayload originalPayload = new RegexPayload(new DefaultPayload(body), pattern);
+        return onNewPayload(subject, headers, new DefaultPayload(body));
+    }
 
-        boolean msgSent = true;
-        for (String message : originalPayload.messages()) { // process each split message individually
-            if (!conversion.onNewMessage(subject, headers, message)) {
-                msgSent = false;
-            }
-        }
+    @Override
+    public boolean onNewPayload(Subject subject, Map<String, String> headers, Payload payload) {
+        // split messages are passed on together so they are sent in one batch
+        return conversion.onNewPayload(subject, headers, new RegexPayload(payload, pattern, timeoutMillis));
+    }
 
-        return msgSent;
+    @Override
+    public CompletionStage<Boolean> onNewPayloadAsync(Subject subject, Map<String, String> headers, Payload payload) {
+        return conversion.onNewPayloadAsync(subject, headers, new RegexPayload(payload, pattern, timeoutMillis));
+    }
+
+    @Override
+    public MessageStream stream(Subject subject, Map<String, String> headers, int maxMessageLength) {
+        return new RegexMessageStream(conversion, pattern, subject, headers, maxMessageLength, timeoutMillis);
     }
 
     @Override
@@ -67,7 +84,7 @@ public final class RegexConversion implements IMessageHandler {
 
     @Override
     public IMessageHandler copy() {
-        return new RegexConversion(conversion.copy(), pattern);
+        return new RegexConversion(conversion.copy(), pattern, timeoutMillis);
     }
 
     @Override
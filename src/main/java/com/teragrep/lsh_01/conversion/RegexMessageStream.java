@@ -0,0 +1,193 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.conversion;
+
+import com.teragrep.lsh_01.authentication.Subject;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.TooLongFrameException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * MessageStream that splits the body with a regex while it arrives. Produces the same messages as Pattern.split() does
+ * for the complete body. Only the part of the body that has not been split yet is kept in memory. The time spent in
+ * the regex for the whole body can be limited, time spent waiting for the parts doesn't count.
+ */
+public final class RegexMessageStream implements MessageStream {
+
+    private final IMessageHandler conversion;
+    private final Pattern pattern;
+    private final Subject subject;
+    private final Map<String, String> headers;
+    private final int maxMessageLength;
+    private final int timeoutMillis;
+    private final StreamDecoder decoder;
+    private final StringBuilder pending;
+    private long splitNanos;
+
+    // state of splitting, see Pattern.split(CharSequence)
+    private boolean matched;
+    private boolean skipEmptyMatch;
+    private int emptyMessages;
+    private boolean sent;
+
+    public RegexMessageStream(
+            IMessageHandler conversion,
+            Pattern pattern,
+            Subject subject,
+            Map<String, String> headers,
+            int maxMessageLength
+    ) {
+        this(conversion, pattern, subject, headers, maxMessageLength, 0);
+    }
+
+    /**
+     * @param timeoutMillis how long splitting the body may take in total, 0 for no limit
+     */
+    public RegexMessageStream(
+            IMessageHandler conversion,
+            Pattern pattern,
+            Subject subject,
+            Map<String, String> headers,
+            int maxMessageLength,
+            int timeoutMillis
+    ) {
+        this.conversion = conversion;
+        this.pattern = pattern;
+        this.subject = subject;
+        this.headers = headers;
+        this.maxMessageLength = maxMessageLength;
+        this.timeoutMillis = timeoutMillis;
+        this.decoder = new StreamDecoder();
+        this.pending = new StringBuilder();
+        this.splitNanos = 0;
+        this.matched = false;
+        this.skipEmptyMatch = true; // no leading empty message for a zero-width match at the beginning
+        this.emptyMessages = 0;
+        this.sent = true;
+    }
+
+    @Override
+    public void write(ByteBuf content) {
+        decoder.decode(content, pending);
+        send(split(false));
+        if (pending.length() > maxMessageLength) {
+            throw new TooLongFrameException("Message exceeds maxContentLength <" + maxMessageLength + ">");
+        }
+    }
+
+    @Override
+    public boolean close() {
+        decoder.finish(pending);
+        final List<String> messages = split(true);
+        if (pending.length() > 0) {
+            releaseEmptyMessages(messages);
+            messages.add(pending.toString());
+        }
+        else if (!matched) {
+            // Pattern.split() returns the input as is when there is no match
+            messages.add("");
+        }
+        // empty messages still held back at this point are trailing ones, which Pattern.split() removes
+        emptyMessages = 0;
+        pending.setLength(0);
+        send(messages);
+        return sent;
+    }
+
+    @Override
+    public void abort() {
+        pending.setLength(0);
+    }
+
+    /**
+     * Takes the messages that are complete from the pending body. A match that reached the end of the pending body is
+     * left for the next part, because more input could still change it.
+     *
+     * @param endOfInput true if no more parts will arrive
+     * @return split messages, empty messages are held back until it is known that they are not trailing ones
+     * @throws SplitTimeoutException if the time spent splitting the body exceeds timeoutMillis
+     */
+    private List<String> split(boolean endOfInput) {
+        if (timeoutMillis <= 0) {
+            return split(pending, endOfInput);
+        }
+        final long start = System.nanoTime();
+        final long deadline = start + timeoutMillis * 1_000_000L - splitNanos;
+        try {
+            return split(new DeadlineCharSequence(pending, deadline, timeoutMillis), endOfInput);
+        }
+        finally {
+            splitNanos += System.nanoTime() - start;
+        }
+    }
+
+    private List<String> split(CharSequence input, boolean endOfInput) {
+        final List<String> messages = new ArrayList<>();
+        final Matcher matcher = pattern.matcher(input);
+        boolean accepted = false;
+        boolean lastMatchEmpty = false;
+        int index = 0;
+        while (matcher.find()) {
+            if (!endOfInput && matcher.hitEnd()) {
+                break;
+            }
+            final boolean emptyMatch = matcher.start() == matcher.end();
+            if (skipEmptyMatch && emptyMatch && matcher.start() == 0) {
+                continue;
+            }
+            if (matcher.start() == index) {
+                emptyMessages++;
+            }
+            else {
+                releaseEmptyMessages(messages);
+                messages.add(pending.substring(index, matcher.start()));
+            }
+            index = matcher.end();
+            accepted = true;
+            lastMatchEmpty = emptyMatch;
+        }
+        if (accepted) {
+            matched = true;
+            pending.delete(0, index);
+            // a zero-width match can't occur again where the previous one ended, see Matcher.find()
+            skipEmptyMatch = lastMatchEmpty;
+        }
+        return messages;
+    }
+
+    private void releaseEmptyMessages(List<String> messages) {
+        while (emptyMessages > 0) {
+            messages.add("");
+            emptyMessages--;
+        }
+    }
+
+    private void send(List<String> messages) {
+        // messages completed by the same part are sent together
+        if (!messages.isEmpty() && !conversion.onNewPayload(subject, headers, new ListPayload(messages))) {
+            sent = false;
+        }
+    }
+}
@@ -19,8 +19,7 @@
 */
 package com.teragrep.lsh_01.conversion;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Iterator;
 import java.util.Objects;
 import java.util.regex.Pattern;
 
@@ -31,27 +30,43 @@ final public class RegexPayload implements Payload {
 
     private final Payload payload;
     private final Pattern splitPattern;
+    private final int timeoutMillis;
 
     public RegexPayload(Payload payload, Pattern splitPattern) {
+        this(payload, splitPattern, 0);
+    }
+
+    /**
+     * @param timeoutMillis how long splitting a message may take, 0 for no limit
+     */
+    public RegexPayload(Payload payload, Pattern splitPattern, int timeoutMillis) {
         this.payload = payload;
         this.splitPattern = splitPattern;
+        this.timeoutMillis = timeoutMillis;
     }
 
     /**
-     * Splits the payload into multiple payloads if there is a defined split regex in the body.
+     * Splits the payload into multiple payloads if there is a defined split regex in the body. The time limit of a
+     * message runs from taking its first split message until taking its last one.
      *
-     * @return list of Payloads
+     * @return messages, split while they are iterated
+     * @throws SplitTimeoutException from the iterator if splitting a message takes longer than timeoutMillis
      */
     @Override
-    public List<String> messages() {
-        ArrayList<String> allMessages = new ArrayList<>();
+    public Iterable<CharSequence> messages() {
+        return () -> new FlatIterator(payload.messages().iterator(), this::split);
+    }
 
-        for (String message : payload.messages()) {
-            String[] payloadMessages = splitPattern.split(message);
-            allMessages.addAll(List.of(payloadMessages));
+    private Iterator<CharSequence> split(CharSequence message) {
+        final CharSequence input;
+        if (timeoutMillis > 0) {
+            final long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+            input = new DeadlineCharSequence(message, deadline, timeoutMillis);
         }
-
-        return allMessages;
+        else {
+            input = message;
+        }
+        return new SplitIterator(input, new PatternDelimiters(splitPattern.matcher(input)));
     }
 
     @Override
@@ -63,11 +78,12 @@ final public class RegexPayload implements Payload {
         if (object.getClass() != this.getClass())
             return false;
         final RegexPayload cast = (RegexPayload) object;
-        return payload.equals(cast.payload) && splitPattern.equals(cast.splitPattern);
+        return payload.equals(cast.payload) && splitPattern.equals(cast.splitPattern)
+                && timeoutMillis == cast.timeoutMillis;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(payload, splitPattern);
+        return Objects.hash(payload, splitPattern, timeoutMillis);
     }
 }
@@ -19,57 +19,193 @@
 */
 package com.teragrep.lsh_01.conversion;
 
-import com.teragrep.jlt_01.StringLookupTable;
-import com.teragrep.lsh_01.authentication.BasicAuthentication;
+import com.teragrep.lsh_01.authentication.Authentication;
 import com.teragrep.lsh_01.authentication.Subject;
 import com.teragrep.lsh_01.config.LookupConfig;
 import com.teragrep.lsh_01.config.SecurityConfig;
-import com.teragrep.lsh_01.lookup.LookupTableFactory;
+import com.teragrep.lsh_01.lookup.LookupTable;
+import com.teragrep.lsh_01.lookup.ReloadingLookupTable;
 import com.teragrep.lsh_01.pool.*;
-import com.teragrep.rlo_14.*;
+import com.teragrep.lsh_01.syslog.Rfc5424Serializer;
+import com.teragrep.lsh_01.syslog.Rfc5424Template;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.charset.StandardCharsets;
-import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class RelpConversion implements IMessageHandler {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(RelpConversion.class);
-    private final Pool<IManagedRelpConnection> relpConnectionPool;
+    private static final int CHUNK_RECORDS = 512;
+    private final RelpRouter relpRouter;
     private final SecurityConfig securityConfig;
-    private final BasicAuthentication basicAuthentication;
-    private final LookupConfig lookupConfig;
-    private final StringLookupTable hostnameLookup;
-    private final StringLookupTable appnameLookup;
+    private final Authentication basicAuthentication;
+    private final LookupTable hostnameLookup;
+    private final LookupTable appnameLookup;
+    private final Rfc5424Serializer serializer;
+    private final AtomicReference<Rfc5424Template> lastTemplate;
 
     public RelpConversion(
             Pool<IManagedRelpConnection> relpConnectionPool,
             SecurityConfig securityConfig,
-            BasicAuthentication basicAuthentication,
+            Authentication basicAuthentication,
             LookupConfig lookupConfig
     ) {
-        this.relpConnectionPool = relpConnectionPool;
+        this(new PooledRelpOutput(relpConnectionPool), securityConfig, basicAuthentication, lookupConfig);
+    }
+
+    public RelpConversion(
+            RelpOutput relpOutput,
+            SecurityConfig securityConfig,
+            Authentication basicAuthentication,
+            LookupConfig lookupConfig
+    ) {
+        this(
+                relpOutput,
+                securityConfig,
+                basicAuthentication,
+                new ReloadingLookupTable(lookupConfig.hostnamePath),
+                new ReloadingLookupTable(lookupConfig.appNamePath)
+        );
+    }
+
+    /**
+     * @param hostnameLookup table shared by all copies of the conversion
+     * @param appnameLookup  table shared by all copies of the conversion
+     */
+    public RelpConversion(
+            RelpOutput relpOutput,
+            SecurityConfig securityConfig,
+            Authentication basicAuthentication,
+            LookupTable hostnameLookup,
+            LookupTable appnameLookup
+    ) {
+        this(
+                relpOutput,
+                securityConfig,
+                basicAuthentication,
+                hostnameLookup,
+                appnameLookup,
+                new Rfc5424Serializer()
+        );
+    }
+
+    public RelpConversion(
+            RelpOutput relpOutput,
+            SecurityConfig securityConfig,
+            Authentication basicAuthentication,
+            LookupTable hostnameLookup,
+            LookupTable appnameLookup,
+            Rfc5424Serializer serializer
+    ) {
+        this(
+                new FixedRelpRouter(relpOutput),
+                securityConfig,
+                basicAuthentication,
+                hostnameLookup,
+                appnameLookup,
+                serializer
+        );
+    }
+
+    /**
+     * @param relpRouter chooses the output by the subject and the hostname looked up for it
+     */
+    public RelpConversion(
+            RelpRouter relpRouter,
+            SecurityConfig securityConfig,
+            Authentication basicAuthentication,
+            LookupTable hostnameLookup,
+            LookupTable appnameLookup,
+            Rfc5424Serializer serializer
+    ) {
+        this.relpRouter = relpRouter;
         this.securityConfig = securityConfig;
         this.basicAuthentication = basicAuthentication;
-        this.lookupConfig = lookupConfig;
-        this.hostnameLookup = new LookupTableFactory().create(lookupConfig.hostnamePath);
-        this.appnameLookup = new LookupTableFactory().create(lookupConfig.appNamePath);
+        this.hostnameLookup = hostnameLookup;
+        this.appnameLookup = appnameLookup;
+        this.serializer = serializer;
+        this.lastTemplate = new AtomicReference<>();
     }
 
     public boolean onNewMessage(Subject subject, Map<String, String> headers, String body) {
+        return onNewPayload(subject, headers, new DefaultPayload(body));
+    }
+
+    public boolean onNewPayload(Subject subject, Map<String, String> headers, Payload payload) {
+        return onNewPayloadAsync(subject, headers, payload).toCompletableFuture().join();
+    }
+
+    /**
+     * The whole payload is split and serialized before anything is sent, so a request that can't be split is rejected
+     * as a whole and the split time limit doesn't include waiting for acks. The records are then sent in chunks of
+     * CHUNK_RECORDS, each chained to the acknowledgement of the previous one without blocking the caller.
+     */
+    public CompletionStage<Boolean> onNewPayloadAsync(Subject subject, Map<String, String> headers, Payload payload) {
+        boolean allSerialized = true;
+        final List<List<byte[]>> chunks = new ArrayList<>();
+        final RelpOutput relpOutput;
         try {
-            sendMessage(
-                    body, headers, subject.subject(), hostnameLookup.lookup(subject.subject()), appnameLookup.lookup(subject.subject())
-            );
+            final String hostname = hostnameLookup.lookup(subject.subject());
+            final String appName = appnameLookup.lookup(subject.subject());
+            List<byte[]> records = new ArrayList<>();
+            Rfc5424Template template = null;
+            for (CharSequence message : payload.messages()) {
+                if (records.size() == CHUNK_RECORDS) {
+                    chunks.add(records);
+                    records = new ArrayList<>();
+                }
+                // a message that can't be serialized fails the request but doesn't prevent sending the others
+                try {
+                    if (template == null) {
+                        template = template(headers, subject.subject(), hostname, appName);
+                    }
+                    records.add(syslogMessage(message, template));
+                }
+                catch (Exception e) {
+                    LOGGER.error("Unexpected error when serializing a message: <{}>", e.getMessage(), e);
+                    allSerialized = false;
+                }
+            }
+            if (!records.isEmpty()) {
+                chunks.add(records);
+            }
+            if (chunks.isEmpty()) {
+                return CompletableFuture.completedFuture(allSerialized);
+            }
+            relpOutput = relpRouter.output(subject.subject(), hostname);
+        }
+        catch (SplitTimeoutException e) {
+            // nothing has been sent, the request is rejected as a whole
+            throw e;
         }
         catch (Exception e) {
             LOGGER.error("Unexpected error when sending a message: <{}>", e.getMessage(), e);
-            return false;
+            return CompletableFuture.completedFuture(false);
+        }
+        CompletableFuture<Void> sent = CompletableFuture.completedFuture(null);
+        for (List<byte[]> chunk : chunks) {
+            // the previous chunk is acknowledged first, which also keeps the records in order
+            sent = sent.thenCompose(ignored -> relpOutput.sendAsync(chunk));
         }
-        return true;
+        final boolean result = allSerialized;
+        return sent.handle((ignored, error) -> {
+            if (error != null) {
+                LOGGER.error("Unexpected error when sending a message: <{}>", error.getMessage(), error);
+                return false;
+            }
+            return result;
+        });
+    }
+
+    public MessageStream stream(Subject subject, Map<String, String> headers, int maxMessageLength) {
+        return new BufferedMessageStream(this, subject, headers, maxMessageLength);
     }
 
     public Subject asSubject(String token) {
@@ -82,46 +218,35 @@ public class RelpConversion implements IMessageHandler {
 
     public RelpConversion copy() {
         LOGGER.debug("RelpConversion.copy called");
-        return new RelpConversion(relpConnectionPool, securityConfig, basicAuthentication, lookupConfig);
+        return new RelpConversion(
+                relpRouter,
+                securityConfig,
+                basicAuthentication,
+                hostnameLookup,
+                appnameLookup,
+                serializer
+        );
     }
 
     public Map<String, String> responseHeaders() {
         return new HashMap<String, String>();
     }
 
-    private void sendMessage(
-            String message,
-            Map<String, String> headers,
-            String subject,
-            String hostname,
-            String appName
-    ) {
-        Instant time = Instant.now();
+    /**
+     * Headers and structured data are rendered once per request. The last rendering is kept for the following payloads
+     * of the same request, such as the batches of a streamed request.
+     */
+    private Rfc5424Template template(Map<String, String> headers, String subject, String hostname, String appName) {
+        Rfc5424Template template = lastTemplate.get();
+        if (template == null || !template.isRenderedFrom(hostname, appName, headers, subject)) {
+            template = serializer.template(hostname, appName, headers, subject);
+            lastTemplate.set(template);
+        }
+        return template;
+    }
 
+    private byte[] syslogMessage(CharSequence message, Rfc5424Template template) {
         // FIXME add origin sd-element: String realHostname = java.net.InetAddress.getLocalHost().getHostName();
-
-        SDElement headerSDElement = new SDElement("lsh_01_headers@48577");
-        for (Map.Entry<String, String> header : headers.entrySet()) {
-            String headerValue = header.getValue();
-            if (headerValue == null) {
-                headerValue = "";
-            }
-            headerSDElement.addSDParam(new SDParam(header.getKey(), headerValue));
-        }
-        SDElement sdElement = new SDElement("lsh_01@48577");
-        sdElement.addSDParam("subject", subject);
-        SyslogMessage syslogMessage = new SyslogMessage()
-                .withTimestamp(time.toEpochMilli())
-                .withAppName(appName)
-                .withHostname(hostname)
-                .withFacility(Facility.USER)
-                .withSeverity(Severity.INFORMATIONAL)
-                .withMsg(message)
-                .withSDElement(headerSDElement)
-                .withSDElement(sdElement);
-
-        IManagedRelpConnection relpConnection = relpConnectionPool.get();
-        relpConnection.ensureSent(syslogMessage.toRfc5424SyslogMessage().getBytes(StandardCharsets.UTF_8));
-        relpConnectionPool.offer(relpConnection);
+        return serializer.serialize(System.currentTimeMillis(), template, message);
     }
 }
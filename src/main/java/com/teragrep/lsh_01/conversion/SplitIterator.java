@@ -0,0 +1,108 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.conversion;
+
+import io.netty.util.AsciiString;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Messages of an input split at its delimiters, taken one at a time. Gives the same messages as Pattern.split(input):
+ * a zero-width delimiter at the beginning gives no leading empty message, trailing empty messages are left out and an
+ * input without delimiters is a single message. The input is only read as far as needed for the next message.
+ */
+final class SplitIterator implements Iterator<CharSequence> {
+
+    private final CharSequence input;
+    private final Delimiters delimiters;
+    private int index;
+    private boolean matched;
+    private boolean finished;
+    // held back until it is known that they are not trailing ones
+    private int emptyMessages;
+    private CharSequence next;
+
+    SplitIterator(CharSequence input, Delimiters delimiters) {
+        this.input = input;
+        this.delimiters = delimiters;
+        this.index = 0;
+        this.matched = false;
+        this.finished = false;
+        this.emptyMessages = 0;
+        this.next = null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && !finished) {
+            if (!delimiters.find()) {
+                finished = true;
+                if (!matched) {
+                    next = input;
+                }
+                else if (index < input.length()) {
+                    next = subSequence(index, input.length());
+                }
+                else {
+                    emptyMessages = 0;
+                }
+            }
+            else if (index != 0 || delimiters.start() != 0 || delimiters.end() != 0) {
+                matched = true;
+                if (delimiters.start() == index) {
+                    emptyMessages++;
+                }
+                else {
+                    next = subSequence(index, delimiters.start());
+                }
+                index = delimiters.end();
+            }
+        }
+        return next != null;
+    }
+
+    /**
+     * @throws SplitTimeoutException if the input is a DeadlineCharSequence and its deadline passes
+     */
+    @Override
+    public CharSequence next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        if (emptyMessages > 0) {
+            emptyMessages--;
+            return "";
+        }
+        final CharSequence message = next;
+        next = null;
+        return message;
+    }
+
+    /**
+     * @return a view of the input for an AsciiString, which would copy its bytes by default
+     */
+    private CharSequence subSequence(int start, int end) {
+        if (input instanceof AsciiString) {
+            return ((AsciiString) input).subSequence(start, end, false);
+        }
+        return input.subSequence(start, end);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.conversion;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes UTF-8 that arrives in parts. Multibyte characters split between two parts are carried over to the next one.
+ * Malformed input is replaced like in ByteBuf.toString(UTF_8).
+ */
+final class StreamDecoder {
+
+    private final CharsetDecoder decoder;
+    private ByteBuffer leftover;
+
+    StreamDecoder() {
+        this.decoder = StandardCharsets.UTF_8
+                .newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.leftover = ByteBuffer.allocate(0);
+    }
+
+    void decode(ByteBuf content, StringBuilder out) {
+        final ByteBuffer in;
+        if (leftover.hasRemaining()) {
+            in = ByteBuffer.allocate(leftover.remaining() + content.readableBytes());
+            in.put(leftover);
+            content.getBytes(content.readerIndex(), in);
+            in.flip();
+        }
+        else {
+            in = content.nioBuffer();
+        }
+        final CharBuffer chars = CharBuffer.allocate(in.remaining() + 1);
+        decoder.decode(in, chars, false);
+        out.append(chars.flip());
+        // incomplete character at the end of the part, at most three bytes
+        leftover = ByteBuffer.allocate(in.remaining()).put(in).flip();
+    }
+
+    void finish(StringBuilder out) {
+        final CharBuffer chars = CharBuffer.allocate(leftover.remaining() + 1);
+        decoder.decode(leftover, chars, true);
+        decoder.flush(chars);
+        out.append(chars.flip());
+        decoder.reset();
+        leftover = ByteBuffer.allocate(0);
+    }
+}
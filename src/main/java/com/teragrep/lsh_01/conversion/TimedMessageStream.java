@@ -0,0 +1,66 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.conversion;
+
+import com.codahale.metrics.Timer;
+import com.teragrep.lsh_01.util.LatencyObserver;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Decorator for MessageStream that stops the given timer once the body is complete or aborted, and gives the latency
+ * to the LatencyObserver.
+ */
+public final class TimedMessageStream implements MessageStream {
+
+    private final MessageStream messageStream;
+    private final Timer.Context context;
+    private final LatencyObserver latencyObserver;
+
+    public TimedMessageStream(MessageStream messageStream, Timer.Context context, LatencyObserver latencyObserver) {
+        this.messageStream = messageStream;
+        this.context = context;
+        this.latencyObserver = latencyObserver;
+    }
+
+    @Override
+    public void write(ByteBuf content) {
+        messageStream.write(content);
+    }
+
+    @Override
+    public boolean close() {
+        try {
+            return messageStream.close();
+        }
+        finally {
+            latencyObserver.onLatency(context.stop());
+        }
+    }
+
+    @Override
+    public void abort() {
+        try {
+            messageStream.abort();
+        }
+        finally {
+            latencyObserver.onLatency(context.stop());
+        }
+    }
+}
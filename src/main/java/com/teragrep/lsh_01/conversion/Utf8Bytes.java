@@ -0,0 +1,199 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.conversion;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Text that is a view of valid UTF-8 bytes in a ByteBuf. The bytes are not decoded into a String, chars are decoded
+ * one at a time when they are read and a sub-sequence is a slice of the same bytes. Rfc5424Serializer copies the bytes
+ * into the syslog record as they are. Valid only as long as the ByteBuf is.
+ */
+public final class Utf8Bytes implements CharSequence {
+
+    private final ByteBuf bytes;
+    private final int length;
+    // code point at which the last char was read, reading is mostly sequential so it is found near it
+    private int cursorChar;
+    private int cursorByte;
+
+    /**
+     * @param bytes  valid UTF-8, the readable bytes are the text
+     * @param length of the text in chars
+     */
+    Utf8Bytes(ByteBuf bytes, int length) {
+        this.bytes = bytes.slice();
+        this.length = length;
+        this.cursorChar = 0;
+        this.cursorByte = 0;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index <" + index + "> out of length <" + length + ">");
+        }
+        if (isAscii()) {
+            return (char) bytes.getByte(index);
+        }
+        seek(index);
+        final int lead = bytes.getUnsignedByte(cursorByte);
+        if (lead < 0x80) {
+            return (char) lead;
+        }
+        if (lead < 0xE0) {
+            return (char) ((lead & 0x1F) << 6 | continuation(1));
+        }
+        if (lead < 0xF0) {
+            return (char) ((lead & 0x0F) << 12 | continuation(1) << 6 | continuation(2));
+        }
+        final int codePoint = (lead & 0x07) << 18 | continuation(1) << 12 | continuation(2) << 6 | continuation(3);
+        if (index == cursorChar) {
+            return Character.highSurrogate(codePoint);
+        }
+        return Character.lowSurrogate(codePoint);
+    }
+
+    /**
+     * @return a slice of the same bytes, or a String if start or end is between the chars of a surrogate pair
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("Range <" + start + ">-<" + end + "> out of length <" + length + ">");
+        }
+        final int startByte = byteIndex(start);
+        final int endByte = byteIndex(end);
+        if (startByte == -1 || endByte == -1) {
+            return toString().substring(start, end);
+        }
+        return new Utf8Bytes(bytes.slice(startByte, endByte - startByte), end - start);
+    }
+
+    /**
+     * @return length of the text in UTF-8
+     */
+    public int byteLength() {
+        return bytes.readableBytes();
+    }
+
+    /**
+     * Copies the bytes of the text.
+     *
+     * @return position after the bytes
+     */
+    public int write(byte[] destination, int position) {
+        bytes.getBytes(0, destination, position, bytes.readableBytes());
+        return position + bytes.readableBytes();
+    }
+
+    @Override
+    public String toString() {
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        if (this == object)
+            return true;
+        if (object == null)
+            return false;
+        if (object.getClass() != this.getClass())
+            return false;
+        final Utf8Bytes cast = (Utf8Bytes) object;
+        return ByteBufUtil.equals(bytes, cast.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return ByteBufUtil.hashCode(bytes);
+    }
+
+    private boolean isAscii() {
+        return length == bytes.readableBytes();
+    }
+
+    /**
+     * @return index of the first byte of the char, -1 if it is the second char of a surrogate pair
+     */
+    private int byteIndex(int index) {
+        if (isAscii()) {
+            return index;
+        }
+        if (index == length) {
+            return bytes.readableBytes();
+        }
+        seek(index);
+        if (index != cursorChar) {
+            return -1;
+        }
+        return cursorByte;
+    }
+
+    /**
+     * Moves the cursor to the code point that has the char at the index.
+     */
+    private void seek(int index) {
+        while (cursorChar + chars(cursorByte) <= index) {
+            cursorChar += chars(cursorByte);
+            cursorByte += bytes(cursorByte);
+        }
+        while (cursorChar > index) {
+            do {
+                cursorByte--;
+            }
+            while ((bytes.getByte(cursorByte) & 0xC0) == 0x80);
+            cursorChar -= chars(cursorByte);
+        }
+    }
+
+    private int continuation(int offset) {
+        return bytes.getByte(cursorByte + offset) & 0x3F;
+    }
+
+    private int chars(int byteIndex) {
+        if (bytes.getUnsignedByte(byteIndex) >= 0xF0) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private int bytes(int byteIndex) {
+        final int lead = bytes.getUnsignedByte(byteIndex);
+        if (lead < 0x80) {
+            return 1;
+        }
+        if (lead < 0xE0) {
+            return 2;
+        }
+        if (lead < 0xF0) {
+            return 3;
+        }
+        return 4;
+    }
+}
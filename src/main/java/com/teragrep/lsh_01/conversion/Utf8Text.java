@@ -0,0 +1,133 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.conversion;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.util.AsciiString;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Text of a request body or a part of it. Valid UTF-8 is kept as bytes, it is not decoded into a String and
+ * Rfc5424Serializer copies the bytes into the syslog record as they are. ASCII in a heap buffer is an AsciiString and
+ * anything else valid is Utf8Bytes. Malformed input is decoded and replaced like in ByteBuf.toString(UTF_8).
+ */
+public final class Utf8Text {
+
+    private final ByteBuf content;
+
+    public Utf8Text(ByteBuf content) {
+        this.content = content;
+    }
+
+    /**
+     * @return text of the readable bytes, which is not a view of the content
+     */
+    public CharSequence text() {
+        return new Utf8Text(Unpooled.wrappedBuffer(ByteBufUtil.getBytes(content))).view();
+    }
+
+    /**
+     * @return text of the readable bytes, a view of the content that is valid only as long as the content is
+     */
+    public CharSequence view() {
+        final int length = length();
+        if (length == -1) {
+            return content.toString(StandardCharsets.UTF_8);
+        }
+        if (length == content.readableBytes() && content.hasArray()) {
+            return new AsciiString(
+                    content.array(),
+                    content.arrayOffset() + content.readerIndex(),
+                    content.readableBytes(),
+                    false
+            );
+        }
+        return new Utf8Bytes(content, length);
+    }
+
+    /**
+     * Validates the readable bytes as UTF-8 without decoding them. Overlong forms, surrogates and code points above
+     * U+10FFFF are malformed like in the UTF-8 decoder of the JDK.
+     *
+     * @return length in chars, -1 if the bytes are not valid UTF-8
+     */
+    private int length() {
+        final int end = content.writerIndex();
+        int index = content.readerIndex();
+        int length = 0;
+        while (index < end) {
+            // eight bytes at a time, any of them with the high bit set is not ASCII
+            if (index + Long.BYTES <= end && (content.getLong(index) & 0x8080808080808080L) == 0) {
+                index += Long.BYTES;
+                length += Long.BYTES;
+                continue;
+            }
+            final int lead = content.getUnsignedByte(index);
+            final int bytes;
+            int min = 0x80;
+            int max = 0xBF;
+            if (lead < 0x80) {
+                bytes = 1;
+            }
+            else if (lead >= 0xC2 && lead <= 0xDF) {
+                bytes = 2;
+            }
+            else if (lead >= 0xE0 && lead <= 0xEF) {
+                bytes = 3;
+                if (lead == 0xE0) {
+                    min = 0xA0;
+                }
+                else if (lead == 0xED) {
+                    max = 0x9F;
+                }
+            }
+            else if (lead >= 0xF0 && lead <= 0xF4) {
+                bytes = 4;
+                if (lead == 0xF0) {
+                    min = 0x90;
+                }
+                else if (lead == 0xF4) {
+                    max = 0x8F;
+                }
+            }
+            else {
+                return -1;
+            }
+            if (index + bytes > end) {
+                return -1;
+            }
+            for (int i = 1; i < bytes; i++) {
+                final int continuation = content.getUnsignedByte(index + i);
+                if (continuation < min || continuation > max) {
+                    return -1;
+                }
+                // only the second byte has a narrower range
+                min = 0x80;
+                max = 0xBF;
+            }
+            index += bytes;
+            length += bytes == 4 ? 2 : 1;
+        }
+        return length;
+    }
+}
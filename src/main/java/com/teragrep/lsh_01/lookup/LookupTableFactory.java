@@ -24,6 +24,7 @@ import com.teragrep.jlt_01.StringLookupTable;
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.IOException;
 
 public class LookupTableFactory {
 
@@ -35,6 +36,11 @@ public class LookupTableFactory {
         catch (FileNotFoundException e) {
             throw new IllegalArgumentException("Can't find lookup table from path <[" + path + "]>: ", e);
         }
-        return new StringLookupTable(bufferedReader);
+        try (BufferedReader reader = bufferedReader) {
+            return new StringLookupTable(reader);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("Can't read lookup table from path <[" + path + "]>: ", e);
+        }
     }
 }
@@ -0,0 +1,96 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.lookup;
+
+import com.teragrep.jlt_01.StringLookupTable;
+import com.teragrep.lsh_01.util.Reloadable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lookup table that is read from a file once and shared by all connections. The table can be read again when the
+ * file changes; lookups keep using the previous table until the new one has been read in full.
+ */
+public final class ReloadingLookupTable implements LookupTable, Reloadable {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ReloadingLookupTable.class);
+
+    private final String path;
+    private final LookupTableFactory lookupTableFactory;
+    private final AtomicReference<StringLookupTable> table;
+
+    public ReloadingLookupTable(String path) {
+        this(path, new LookupTableFactory());
+    }
+
+    public ReloadingLookupTable(String path, LookupTableFactory lookupTableFactory) {
+        this.path = path;
+        this.lookupTableFactory = lookupTableFactory;
+        this.table = new AtomicReference<>(lookupTableFactory.create(path));
+    }
+
+    @Override
+    public String lookup(String key) {
+        return table.get().lookup(key);
+    }
+
+    /**
+     * Reads the file again and replaces the table. The previous table is kept if the file can't be read.
+     */
+    @Override
+    public void reload() {
+        try {
+            table.set(lookupTableFactory.create(path));
+            LOGGER.info("Reloaded lookup table from path <[{}]>", path);
+        }
+        catch (RuntimeException e) {
+            LOGGER
+                    .warn(
+                            "Can't reload lookup table from path <[{}]>, keeping the previous one: <{}>", path,
+                            e.getMessage()
+                    );
+        }
+    }
+
+    @Override
+    public String path() {
+        return path;
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        if (this == object)
+            return true;
+        if (object == null)
+            return false;
+        if (object.getClass() != this.getClass())
+            return false;
+        final ReloadingLookupTable cast = (ReloadingLookupTable) object;
+        return path.equals(cast.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(path);
+    }
+}
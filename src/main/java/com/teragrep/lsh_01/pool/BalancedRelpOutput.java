@@ -0,0 +1,175 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.pool;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Spreads the sends over several RELP targets. Ejected targets are left out of the selection, a check thread probes
+ * them every ejectionMillis and brings them back. When every target is ejected, all of them are selected from so that
+ * sending is still attempted. A batch that fails on a target, which ejects it, is sent again on another target until
+ * every target has failed it. Delivery is at least once: a target that timed out may still have received the batch,
+ * in which case the resent records are duplicated.
+ */
+public final class BalancedRelpOutput implements RelpOutput, AutoCloseable {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(BalancedRelpOutput.class);
+
+    private final List<TargetedRelpOutput> targets;
+    private final Balancer balancer;
+    private final ScheduledExecutorService checkExecutor;
+
+    // metrics
+    private final Counter allEjected;
+    private final Counter resends;
+
+    public BalancedRelpOutput(
+            List<TargetedRelpOutput> targets,
+            Balancer balancer,
+            int ejectionMillis,
+            MetricRegistry metricRegistry
+    ) {
+        this.targets = targets;
+        this.balancer = balancer;
+        this.allEjected = metricRegistry.counter(name(BalancedRelpOutput.class, "allEjected"));
+        this.resends = metricRegistry.counter(name(BalancedRelpOutput.class, "resends"));
+
+        this.checkExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "relp-target-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.checkExecutor.scheduleWithFixedDelay(this::check, ejectionMillis, ejectionMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void check() {
+        for (TargetedRelpOutput target : targets) {
+            try {
+                target.check();
+            }
+            catch (RuntimeException e) {
+                LOGGER.warn("Exception <{}> while checking relp target <[{}]>", e.getMessage(), target.target());
+            }
+        }
+    }
+
+    /**
+     * @return the targets that are checked by this output, for routing to them directly
+     */
+    public List<TargetedRelpOutput> targets() {
+        return targets;
+    }
+
+    @Override
+    public void send(List<byte[]> records) {
+        final List<TargetedRelpOutput> failed = new ArrayList<>(targets.size());
+        RuntimeException failure = null;
+        while (failed.size() < targets.size()) {
+            final TargetedRelpOutput target = select(failed);
+            try {
+                target.send(records);
+                return;
+            }
+            catch (RuntimeException e) {
+                failed.add(target);
+                failure = e;
+                if (failed.size() < targets.size()) {
+                    resends.inc();
+                    LOGGER
+                            .warn(
+                                    "Sending to relp target <[{}]> failed, sending to another target: <{}>",
+                                    target.target(), e.getMessage()
+                            );
+                }
+            }
+        }
+        throw failure;
+    }
+
+    private TargetedRelpOutput select(List<TargetedRelpOutput> failed) {
+        final long now = System.nanoTime();
+        final List<TargetedRelpOutput> candidates = new ArrayList<>(targets.size());
+        final List<TargetedRelpOutput> available = new ArrayList<>(targets.size());
+        for (TargetedRelpOutput target : targets) {
+            if (!failed.contains(target)) {
+                candidates.add(target);
+                if (target.available(now)) {
+                    available.add(target);
+                }
+            }
+        }
+        if (available.isEmpty()) {
+            allEjected.inc();
+            LOGGER.debug("All relp targets left to try are ejected, selecting from all of them");
+            return balancer.select(candidates);
+        }
+        return balancer.select(available);
+    }
+
+    /**
+     * Blocking connections are used, so the records have already been acknowledged when this returns.
+     */
+    @Override
+    public CompletableFuture<Void> sendAsync(List<byte[]> records) {
+        try {
+            send(records);
+        }
+        catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void close() {
+        checkExecutor.shutdown();
+        for (TargetedRelpOutput target : targets) {
+            target.close();
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        final BalancedRelpOutput cast = (BalancedRelpOutput) o;
+        return targets.equals(cast.targets) && balancer.equals(cast.balancer);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(targets, balancer);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.pool;
+
+import com.codahale.metrics.MetricRegistry;
+import com.teragrep.lsh_01.config.RelpConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Builds a BalancedRelpOutput with a pool of blocking connections for each target. The metrics of each target are
+ * kept in a registry of their own, registered under relp.target.&lt;host&gt;_&lt;port&gt;.
+ */
+public final class BalancedRelpOutputFactory {
+
+    private final RelpConfig relpConfig;
+    private final List<RelpTarget> relpTargets;
+    private final MetricRegistry metricRegistry;
+
+    public BalancedRelpOutputFactory(
+            RelpConfig relpConfig,
+            List<RelpTarget> relpTargets,
+            MetricRegistry metricRegistry
+    ) {
+        this.relpConfig = relpConfig;
+        this.relpTargets = relpTargets;
+        this.metricRegistry = metricRegistry;
+    }
+
+    public BalancedRelpOutput balancedRelpOutput() {
+        final List<TargetedRelpOutput> targets = new ArrayList<>(relpTargets.size());
+        for (RelpTarget relpTarget : relpTargets) {
+            final MetricRegistry targetRegistry = new MetricRegistry();
+            metricRegistry.register(name("relp.target", relpTarget.host() + "_" + relpTarget.port()), targetRegistry);
+            final Pool<IManagedRelpConnection> pool = new Pool<>(
+                    // a target that doesn't acknowledge in time fails the send and the batch is sent to another one
+                    new RelpConnectionFactory(relpConfig, relpTarget, relpConfig.sendTimeoutMillis, targetRegistry),
+                    new ManagedRelpConnectionStub(),
+                    relpConfig.poolMaxSize,
+                    relpConfig.poolMinIdle,
+                    relpConfig.poolMaxWaitMillis,
+                    relpConfig.poolMaxIdleMillis,
+                    relpConfig.poolMaxAgeMillis,
+                    relpConfig.poolProbeIdleMillis,
+                    relpConfig.poolMaintenanceIntervalMillis,
+                    targetRegistry
+            );
+            pool.warmUp();
+            targets
+                    .add(
+                            new TargetedRelpOutput(
+                                    relpTarget,
+                                    pool,
+                                    relpConfig.ejectionLatencyThresholdMillis,
+                                    relpConfig.ejectionDurationMillis,
+                                    targetRegistry
+                            )
+                    );
+        }
+        return new BalancedRelpOutput(targets, balancer(), relpConfig.ejectionDurationMillis, metricRegistry);
+    }
+
+    private Balancer balancer() {
+        final Balancer balancer;
+        if ("leastOutstanding".equals(relpConfig.balancing)) {
+            balancer = new LeastOutstandingBalancer();
+        }
+        else if ("leastLatency".equals(relpConfig.balancing)) {
+            balancer = new LeastLatencyBalancer();
+        }
+        else {
+            balancer = new RoundRobinBalancer();
+        }
+        return balancer;
+    }
+}
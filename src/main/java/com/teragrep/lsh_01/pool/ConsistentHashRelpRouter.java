@@ -0,0 +1,140 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.pool;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Sends the records of a subject, or of the hostname looked up for it, consistently to the same RELP target. Each
+ * target is placed on a hash ring at virtualNodes points and a key goes to the first target after its hash. An ejected
+ * target is passed over to the next available one on the ring, so only the keys of the ejected target move and they
+ * are spread over the remaining targets. The keys move back once the target is reinstated.
+ */
+public final class ConsistentHashRelpRouter implements RelpRouter {
+
+    private final List<TargetedRelpOutput> targets;
+    private final boolean bySubject;
+    // hashes of the points on the ring in ascending order and the targets they belong to
+    private final long[] points;
+    private final TargetedRelpOutput[] owners;
+
+    // metrics
+    private final Counter remapped;
+
+    /**
+     * @param affinity 'subject' to route by the subject or 'hostname' to route by the hostname looked up for it
+     */
+    public ConsistentHashRelpRouter(
+            List<TargetedRelpOutput> targets,
+            int virtualNodes,
+            String affinity,
+            MetricRegistry metricRegistry
+    ) {
+        this.targets = targets;
+        this.bySubject = "subject".equals(affinity);
+        final TreeMap<Long, TargetedRelpOutput> ring = new TreeMap<>();
+        for (TargetedRelpOutput target : targets) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(target.target() + "#" + i), target);
+            }
+        }
+        this.points = new long[ring.size()];
+        this.owners = new TargetedRelpOutput[ring.size()];
+        int index = 0;
+        for (Map.Entry<Long, TargetedRelpOutput> point : ring.entrySet()) {
+            points[index] = point.getKey();
+            owners[index] = point.getValue();
+            index++;
+        }
+        this.remapped = metricRegistry.counter(name(ConsistentHashRelpRouter.class, "remapped"));
+    }
+
+    @Override
+    public RelpOutput output(String subject, String hostname) {
+        final int first = first(hash(bySubject ? subject : hostname));
+        final long now = System.nanoTime();
+        for (int i = 0; i < owners.length; i++) {
+            final TargetedRelpOutput target = owners[(first + i) % owners.length];
+            if (target.available(now)) {
+                if (target != owners[first]) {
+                    remapped.inc();
+                }
+                return target;
+            }
+        }
+        // every target is ejected, sending is still attempted
+        return owners[first];
+    }
+
+    // index of the first point at or after the hash, wrapping around the ring
+    private int first(long hash) {
+        int low = 0;
+        int high = points.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (points[middle] < hash) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low == points.length ? 0 : low;
+    }
+
+    // FNV-1a spread with the MurmurHash3 finalizer, String.hashCode() clusters similar keys
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        final ConsistentHashRelpRouter cast = (ConsistentHashRelpRouter) o;
+        return bySubject == cast.bySubject && owners.length == cast.owners.length && targets.equals(cast.targets);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(targets, bySubject, owners.length);
+    }
+}
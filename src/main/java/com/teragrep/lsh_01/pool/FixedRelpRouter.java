@@ -0,0 +1,54 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.pool;
+
+import java.util.Objects;
+
+/**
+ * Sends the records of every request to the same RelpOutput.
+ */
+public final class FixedRelpRouter implements RelpRouter {
+
+    private final RelpOutput relpOutput;
+
+    public FixedRelpRouter(RelpOutput relpOutput) {
+        this.relpOutput = relpOutput;
+    }
+
+    @Override
+    public RelpOutput output(String subject, String hostname) {
+        return relpOutput;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        final FixedRelpRouter cast = (FixedRelpRouter) o;
+        return relpOutput.equals(cast.relpOutput);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(relpOutput);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.pool;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SlidingWindowReservoir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Decorator for RelpOutput. Collects records from concurrent callers into one group and sends the group as a single
+ * RELP batch. The first caller to join a group sends it once the group reaches maxRecords or maxBytes, or when
+ * lingerMillis has passed. The group is acknowledged as a whole.
+ */
+public final class GroupCommitRelpOutput implements RelpOutput {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(GroupCommitRelpOutput.class);
+
+    private final RelpOutput relpOutput;
+    private final int maxRecords;
+    private final long maxBytes;
+    private final long lingerNanos;
+
+    private final Lock lock;
+    private final Condition sealed;
+    private Group open; // group that is still accepting records, guarded by lock
+
+    // metrics
+    private final Histogram groupRecords;
+
+    public GroupCommitRelpOutput(
+            RelpOutput relpOutput,
+            int maxRecords,
+            long maxBytes,
+            long lingerMillis,
+            MetricRegistry metricRegistry
+    ) {
+        this.relpOutput = relpOutput;
+        this.maxRecords = maxRecords;
+        this.maxBytes = maxBytes;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.lock = new ReentrantLock();
+        this.sealed = lock.newCondition();
+        this.open = null;
+        this.groupRecords = metricRegistry
+                .histogram(name(GroupCommitRelpOutput.class, "groupRecords"), () -> new Histogram(new SlidingWindowReservoir(10000)));
+    }
+
+    @Override
+    public void send(List<byte[]> records) {
+        sendAsync(records).join();
+    }
+
+    /**
+     * Returns once the records are in a group. The first caller of a group waits for the group to fill up, the others
+     * return right away.
+     */
+    @Override
+    public CompletableFuture<Void> sendAsync(List<byte[]> records) {
+        final Group group;
+        final boolean leader;
+        lock.lock();
+        try {
+            if (open != null && !open.fits(records)) {
+                // seal the current group so its leader sends it now, these records start the next group
+                seal(open);
+            }
+            leader = open == null;
+            if (leader) {
+                open = new Group();
+            }
+            group = open;
+            group.add(records);
+            if (group.records.size() >= maxRecords || group.bytes >= maxBytes) {
+                seal(group);
+            }
+            if (leader) {
+                linger(group);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+
+        if (leader) {
+            group.send();
+        }
+        return group.done;
+    }
+
+    /**
+     * Waits until the group is sealed by another caller or lingerMillis has passed. Called while holding the lock.
+     */
+    private void linger(Group group) {
+        long remaining = lingerNanos;
+        while (open == group && remaining > 0) {
+            try {
+                remaining = sealed.awaitNanos(remaining);
+            }
+            catch (InterruptedException e) {
+                LOGGER.warn("Interrupted while waiting for records, sending <{}> records now", group.records.size());
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (open == group) {
+            open = null;
+        }
+    }
+
+    private void seal(Group group) {
+        if (open == group) {
+            open = null;
+        }
+        sealed.signalAll();
+    }
+
+    private final class Group {
+
+        private final List<byte[]> records;
+        private long bytes;
+        private final CompletableFuture<Void> done;
+
+        private Group() {
+            this.records = new ArrayList<>();
+            this.bytes = 0;
+            this.done = new CompletableFuture<>();
+        }
+
+        private boolean fits(List<byte[]> more) {
+            long moreBytes = 0;
+            for (byte[] record : more) {
+                moreBytes += record.length;
+            }
+            return records.size() + more.size() <= maxRecords && bytes + moreBytes <= maxBytes;
+        }
+
+        private void add(List<byte[]> more) {
+            for (byte[] record : more) {
+                records.add(record);
+                bytes += record.length;
+            }
+        }
+
+        private void send() {
+            groupRecords.update(records.size());
+            try {
+                relpOutput.sendAsync(records).whenComplete((ignored, error) -> {
+                    if (error == null) {
+                        done.complete(null);
+                    }
+                    else {
+                        done.completeExceptionally(error);
+                    }
+                });
+            }
+            catch (RuntimeException e) {
+                done.completeExceptionally(e);
+            }
+        }
+    }
+}
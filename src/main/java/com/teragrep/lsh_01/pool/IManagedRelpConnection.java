@@ -19,7 +19,21 @@
 */
 package com.teragrep.lsh_01.pool;
 
+import java.util.List;
+
 public interface IManagedRelpConnection extends Poolable {
 
+    /**
+     * Connects before the first send. A single attempt is made, if it fails the connection is made when sending.
+     */
+    void preConnect();
+
     void ensureSent(byte[] bytes);
+
+    /**
+     * Sends all records in a single RELP batch and blocks until every one of them has been acknowledged.
+     *
+     * @param records serialized syslog messages
+     */
+    void ensureSent(List<byte[]> records);
 }
@@ -0,0 +1,57 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.pool;
+
+/**
+ * An object resting in the pool, the time it was offered back and the time it was last known to work, by being used or
+ * probed.
+ */
+final class IdleObject<T> {
+
+    private final T object;
+    private final long idleSince;
+    private final long checkedAt;
+
+    IdleObject(T object, long idleSince) {
+        this(object, idleSince, idleSince);
+    }
+
+    IdleObject(T object, long idleSince, long checkedAt) {
+        this.object = object;
+        this.idleSince = idleSince;
+        this.checkedAt = checkedAt;
+    }
+
+    T object() {
+        return object;
+    }
+
+    long idleSince() {
+        return idleSince;
+    }
+
+    long checkedAt() {
+        return checkedAt;
+    }
+
+    IdleObject<T> probed(long now) {
+        return new IdleObject<>(object, idleSince, now);
+    }
+}
@@ -0,0 +1,52 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.pool;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chooses the target with the lowest average ack latency, weighted by the sends it already has waiting so that the
+ * fastest target is not sent everything. A target without a latency yet is chosen first. Ties are taken in turns.
+ */
+public final class LeastLatencyBalancer implements Balancer {
+
+    private final AtomicInteger start;
+
+    public LeastLatencyBalancer() {
+        this.start = new AtomicInteger();
+    }
+
+    @Override
+    public TargetedRelpOutput select(List<TargetedRelpOutput> targets) {
+        final int offset = Math.floorMod(start.getAndIncrement(), targets.size());
+        TargetedRelpOutput selected = null;
+        double least = Double.MAX_VALUE;
+        for (int i = 0; i < targets.size(); i++) {
+            final TargetedRelpOutput target = targets.get((offset + i) % targets.size());
+            final double cost = target.latency() * (target.outstanding() + 1);
+            if (cost < least) {
+                selected = target;
+                least = cost;
+            }
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.pool;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chooses the target with the fewest sends waiting for an acknowledgement. Ties are taken in turns, so that idle
+ * targets share the load.
+ */
+public final class LeastOutstandingBalancer implements Balancer {
+
+    private final AtomicInteger start;
+
+    public LeastOutstandingBalancer() {
+        this.start = new AtomicInteger();
+    }
+
+    @Override
+    public TargetedRelpOutput select(List<TargetedRelpOutput> targets) {
+        final int offset = Math.floorMod(start.getAndIncrement(), targets.size());
+        TargetedRelpOutput selected = targets.get(offset);
+        int least = selected.outstanding();
+        for (int i = 1; i < targets.size() && least > 0; i++) {
+            final TargetedRelpOutput target = targets.get((offset + i) % targets.size());
+            final int outstanding = target.outstanding();
+            if (outstanding < least) {
+                selected = target;
+                least = outstanding;
+            }
+        }
+        return selected;
+    }
+}
@@ -26,6 +26,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import static com.codahale.metrics.MetricRegistry.name;
@@ -34,6 +37,8 @@ public class ManagedRelpConnection implements IManagedRelpConnection {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ManagedRelpConnection.class);
     private final IRelpConnection relpConnection;
+    private final RelpTarget target;
+    private final long sendTimeoutNanos;
     private boolean hasConnected;
 
     // metrics
@@ -43,7 +48,29 @@ public class ManagedRelpConnection implements IManagedRelpConnection {
     private final Counter retriedConnects;
 
     public ManagedRelpConnection(IRelpConnection relpConnection, MetricRegistry metricRegistry) {
+        this(
+                relpConnection,
+                new RelpTarget(relpConnection.relpConfig().relpTarget, relpConnection.relpConfig().relpPort),
+                metricRegistry
+        );
+    }
+
+    public ManagedRelpConnection(IRelpConnection relpConnection, RelpTarget target, MetricRegistry metricRegistry) {
+        this(relpConnection, target, 0, metricRegistry);
+    }
+
+    /**
+     * @param sendTimeoutMillis how long a batch is retried before ensureSent throws, 0 to retry until it is sent
+     */
+    public ManagedRelpConnection(
+            IRelpConnection relpConnection,
+            RelpTarget target,
+            int sendTimeoutMillis,
+            MetricRegistry metricRegistry
+    ) {
         this.relpConnection = relpConnection;
+        this.target = target;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
         this.hasConnected = false;
 
         this.records = metricRegistry.counter(name(ManagedRelpConnection.class, "records"));
@@ -57,14 +84,12 @@ public class ManagedRelpConnection implements IManagedRelpConnection {
         while (!connected) {
             try {
                 this.hasConnected = true;
-                connected = relpConnection
-                        .connect(relpConnection.relpConfig().relpTarget, relpConnection.relpConfig().relpPort);
+                connected = relpConnection.connect(target.host(), target.port());
             }
             catch (Exception e) {
                 LOGGER
                         .error(
-                                "Failed to connect to relp server <[{}]>:<[{}]>: {}",
-                                relpConnection.relpConfig().relpTarget, relpConnection.relpConfig().relpPort,
+                                "Failed to connect to relp server <[{}]>:<[{}]>: {}", target.host(), target.port(),
                                 e.getMessage()
                         );
 
@@ -79,6 +104,54 @@ public class ManagedRelpConnection implements IManagedRelpConnection {
         }
     }
 
+    // like connect(), but gives up at the deadline
+    private void connectBefore(long deadlineNanos) {
+        while (!connectOnce()) {
+            final long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+            if (remainingMillis <= 0) {
+                throw notAcknowledged();
+            }
+            try {
+                retriedConnects.inc();
+                Thread.sleep(Math.min(relpConnection.relpConfig().relpReconnectInterval, remainingMillis));
+            }
+            catch (InterruptedException exception) {
+                LOGGER.error("Reconnection timer interrupted, reconnecting now");
+            }
+        }
+    }
+
+    private IllegalStateException notAcknowledged() {
+        return new IllegalStateException(
+                "Relp server <[" + target.host() + "]>:<[" + target.port() + "]> did not acknowledge a batch in <"
+                        + TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos) + "> ms"
+        );
+    }
+
+    @Override
+    public void preConnect() {
+        if (!connectOnce()) {
+            LOGGER.warn("Could not connect in advance, connecting when sending");
+        }
+    }
+
+    // a single attempt, the failure is left for the caller to handle
+    private boolean connectOnce() {
+        boolean connected = false;
+        try {
+            this.hasConnected = true;
+            connected = relpConnection.connect(target.host(), target.port());
+        }
+        catch (Exception e) {
+            LOGGER
+                    .warn(
+                            "Failed to connect to relp server <[{}]>:<[{}]>: {}", target.host(), target.port(),
+                            e.getMessage()
+                    );
+        }
+        return connected;
+    }
+
     private void tearDown() {
         /*
          TODO remove: wouldn't need a check hasConnected but there is a bug in RLP-01 tearDown()
@@ -91,8 +164,22 @@ public class ManagedRelpConnection implements IManagedRelpConnection {
 
     @Override
     public void ensureSent(byte[] bytes) {
+        ensureSent(Collections.singletonList(bytes));
+    }
+
+    /**
+     * Retries the batch until it is acknowledged. With a send timeout, throws IllegalStateException once the batch has
+     * not been acknowledged in that time, so that a server that stopped answering doesn't hold the caller forever.
+     */
+    @Override
+    public void ensureSent(List<byte[]> records) {
         final RelpBatch relpBatch = new RelpBatch();
-        relpBatch.insert(bytes);
+        long batchBytes = 0;
+        for (byte[] record : records) {
+            relpBatch.insert(record);
+            batchBytes += record.length;
+        }
+        final long deadlineNanos = System.nanoTime() + sendTimeoutNanos;
         boolean notSent = true;
         while (notSent) {
             try {
@@ -104,15 +191,42 @@ public class ManagedRelpConnection implements IManagedRelpConnection {
             if (!relpBatch.verifyTransactionAll()) {
                 relpBatch.retryAllFailed();
                 this.tearDown();
-                this.connect();
+                if (sendTimeoutNanos > 0) {
+                    if (System.nanoTime() - deadlineNanos >= 0) {
+                        throw notAcknowledged();
+                    }
+                    this.connectBefore(deadlineNanos);
+                }
+                else {
+                    this.connect();
+                }
                 resends.inc();
             }
             else {
                 notSent = false;
             }
         }
-        records.inc();
-        this.bytes.inc(bytes.length);
+        this.records.inc(records.size());
+        this.bytes.inc(batchBytes);
+    }
+
+    /**
+     * RELP has no command that only asks for a response, so the session is closed and opened again. Both need a
+     * response from the server, a connection that was silently dropped is replaced here instead of when sending.
+     */
+    @Override
+    public boolean probe() {
+        try {
+            relpConnection.disconnect();
+        }
+        catch (IllegalStateException | IOException | TimeoutException e) {
+            LOGGER.debug("Exception <{}> while closing the session of a probe", e.getMessage());
+        }
+        finally {
+            tearDown();
+        }
+
+        return connectOnce();
     }
 
     @Override
@@ -19,13 +19,30 @@
 */
 package com.teragrep.lsh_01.pool;
 
+import java.util.List;
+
 public class ManagedRelpConnectionStub implements IManagedRelpConnection {
 
+    @Override
+    public void preConnect() {
+        throw new IllegalStateException("ManagedRelpConnectionStub does not support this");
+    }
+
     @Override
     public void ensureSent(byte[] bytes) {
         throw new IllegalStateException("ManagedRelpConnectionStub does not support this");
     }
 
+    @Override
+    public void ensureSent(List<byte[]> records) {
+        throw new IllegalStateException("ManagedRelpConnectionStub does not support this");
+    }
+
+    @Override
+    public boolean probe() {
+        throw new IllegalStateException("ManagedRelpConnectionStub does not support this");
+    }
+
     @Override
     public boolean isStub() {
         return true;
@@ -19,22 +19,48 @@
 */
 package com.teragrep.lsh_01.pool;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SlidingWindowReservoir;
+import com.codahale.metrics.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
 
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Hands out pooled objects, creating new ones when none are idle. At most maxSize objects are borrowed at a time, a
+ * caller that would exceed it waits up to maxWaitMillis for one to be offered back. A maxSize of zero means no limit.
+ * <p>
+ * When maintenanceIntervalMillis is set, a maintenance thread closes the idle objects that have been idle longer than
+ * maxIdleMillis or were created longer than maxAgeMillis ago, probes the ones that have not been used or probed for
+ * probeIdleMillis and creates new ones up to minIdle. The most recently offered object is handed out first, so the
+ * ones left over after a burst stay idle and age out.
+ */
 public class Pool<T extends Poolable> implements AutoCloseable, Supplier<T> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(com.teragrep.lsh_01.pool.Pool.class);
 
     private final Supplier<T> supplier;
 
-    private final ConcurrentLinkedQueue<T> queue;
+    private final ConcurrentLinkedDeque<IdleObject<T>> queue;
 
     private final T stub;
 
@@ -42,11 +68,206 @@ public class Pool<T extends Poolable> implements AutoCloseable, Supplier<T> {
 
     private final AtomicBoolean close;
 
+    private final int maxSize;
+
+    private final int minIdle;
+
+    private final int maxWaitMillis;
+
+    private final long maxIdleNanos;
+
+    private final long maxAgeNanos;
+
+    private final long probeIdleNanos;
+
+    // one permit for each object that can be borrowed, idle objects don't hold one. Unused when there is no limit.
+    private final Semaphore permits;
+
+    private final AtomicInteger idle;
+
+    private final AtomicInteger active;
+
+    // creation time of each object, idle or borrowed
+    private final Map<T, Long> createdNanos;
+
+    private final ScheduledExecutorService maintenanceExecutor;
+
+    // metrics
+    private final Counter created;
+    private final Counter evicted;
+    private final Counter failedProbes;
+    private final Timer waitLatency;
+
     public Pool(final Supplier<T> supplier, T stub) {
+        this(supplier, stub, 0, 0, 0, new MetricRegistry());
+    }
+
+    public Pool(
+            final Supplier<T> supplier,
+            T stub,
+            int maxSize,
+            int minIdle,
+            int maxWaitMillis,
+            MetricRegistry metricRegistry
+    ) {
+        this(supplier, stub, maxSize, minIdle, maxWaitMillis, 0, 0, 0, metricRegistry);
+    }
+
+    public Pool(
+            final Supplier<T> supplier,
+            T stub,
+            int maxSize,
+            int minIdle,
+            int maxWaitMillis,
+            int maxIdleMillis,
+            int maxAgeMillis,
+            int maintenanceIntervalMillis,
+            MetricRegistry metricRegistry
+    ) {
+        this(
+                supplier,
+                stub,
+                maxSize,
+                minIdle,
+                maxWaitMillis,
+                maxIdleMillis,
+                maxAgeMillis,
+                0,
+                maintenanceIntervalMillis,
+                metricRegistry
+        );
+    }
+
+    /**
+     * @param maxIdleMillis             how long an object can be idle before it is closed, 0 for no limit
+     * @param maxAgeMillis              how long after creation an idle object is closed, 0 for no limit
+     * @param probeIdleMillis           how long an idle object is not probed after it was used or probed, 0 to probe
+     *                                  on every maintenance
+     * @param maintenanceIntervalMillis how often idle objects are evicted and probed, 0 for never
+     */
+    public Pool(
+            final Supplier<T> supplier,
+            T stub,
+            int maxSize,
+            int minIdle,
+            int maxWaitMillis,
+            int maxIdleMillis,
+            int maxAgeMillis,
+            int probeIdleMillis,
+            int maintenanceIntervalMillis,
+            MetricRegistry metricRegistry
+    ) {
         this.supplier = supplier;
-        this.queue = new ConcurrentLinkedQueue<>();
+        this.queue = new ConcurrentLinkedDeque<>();
         this.stub = stub;
         this.close = new AtomicBoolean();
+        this.maxSize = maxSize;
+        this.minIdle = minIdle;
+        this.maxWaitMillis = maxWaitMillis;
+        this.maxIdleNanos = TimeUnit.MILLISECONDS.toNanos(maxIdleMillis);
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+        this.probeIdleNanos = TimeUnit.MILLISECONDS.toNanos(probeIdleMillis);
+        this.permits = new Semaphore(maxSize);
+        this.idle = new AtomicInteger();
+        this.active = new AtomicInteger();
+        this.createdNanos = Collections.synchronizedMap(new IdentityHashMap<>());
+
+        this.created = metricRegistry.counter(name(Pool.class, "created"));
+        this.evicted = metricRegistry.counter(name(Pool.class, "evicted"));
+        this.failedProbes = metricRegistry.counter(name(Pool.class, "failedProbes"));
+        this.waitLatency = metricRegistry
+                .timer(name(Pool.class, "waitLatency"), () -> new Timer(new SlidingWindowReservoir(10000)));
+        metricRegistry.gauge(name(Pool.class, "idle"), () -> (Gauge<Integer>) idle::get);
+        metricRegistry.gauge(name(Pool.class, "active"), () -> (Gauge<Integer>) active::get);
+
+        if (maintenanceIntervalMillis > 0) {
+            this.maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "pool-maintenance");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.maintenanceExecutor
+                    .scheduleWithFixedDelay(
+                            this::maintain, maintenanceIntervalMillis, maintenanceIntervalMillis, TimeUnit.MILLISECONDS
+                    );
+        }
+        else {
+            this.maintenanceExecutor = null;
+        }
+    }
+
+    /**
+     * Creates objects until minIdle of them are idle, so that the first callers don't pay for creating them.
+     */
+    public void warmUp() {
+        while (!close.get() && idle.get() < minIdle && (maxSize == 0 || permits.tryAcquire())) {
+            offer(create());
+        }
+        LOGGER.debug("Pool warmed up with <{}> idle objects", idle.get());
+    }
+
+    /**
+     * Closes the idle objects that are too old or fail their probe, probing only the ones that have not been used or
+     * probed recently, and creates new ones up to minIdle. Objects are taken out of the pool like callers take them,
+     * so the ones that are in use are never touched.
+     */
+    public void maintain() {
+        try {
+            final long now = System.nanoTime();
+            final Deque<IdleObject<T>> kept = new ArrayDeque<>();
+            // the oldest idle objects are at the head, callers take from the tail
+            for (int i = idle.get(); i > 0 && !close.get() && (maxSize == 0 || permits.tryAcquire()); i--) {
+                final IdleObject<T> idleObject = queue.pollFirst();
+                if (idleObject == null) {
+                    release();
+                    break;
+                }
+                idle.decrementAndGet();
+                final T object = idleObject.object();
+                if (expired(idleObject, now)) {
+                    LOGGER.debug("Evicting expired poolable <{}>", object);
+                    evicted.inc();
+                    destroy(object);
+                    release();
+                }
+                else if (now - idleObject.checkedAt() < probeIdleNanos) {
+                    // used or probed recently, a probe would only reopen a working session
+                    kept.addFirst(idleObject);
+                }
+                else if (!object.probe()) {
+                    LOGGER.warn("Evicting poolable <{}> that failed its probe", object);
+                    failedProbes.inc();
+                    evicted.inc();
+                    destroy(object);
+                    release();
+                }
+                else {
+                    kept.addFirst(idleObject.probed(now));
+                }
+            }
+            // back to the head in their original order, keeping the time they became idle
+            for (IdleObject<T> idleObject : kept) {
+                idle.incrementAndGet();
+                queue.addFirst(idleObject);
+                release();
+            }
+            if (close.get()) {
+                // close() may have drained the pool while the objects were out
+                offer(stub);
+            }
+            else {
+                warmUp();
+            }
+        }
+        catch (RuntimeException e) {
+            LOGGER.warn("Exception <{}> while maintaining pool", e.getMessage());
+        }
+    }
+
+    private boolean expired(IdleObject<T> idleObject, long now) {
+        final Long createdAt = createdNanos.get(idleObject.object());
+        return (maxIdleNanos > 0 && now - idleObject.idleSince() > maxIdleNanos)
+                || (maxAgeNanos > 0 && createdAt != null && now - createdAt > maxAgeNanos);
     }
 
     public T get() {
@@ -55,42 +276,98 @@ public class Pool<T extends Poolable> implements AutoCloseable, Supplier<T> {
             object = stub;
         }
         else {
-            // get or create
-            object = queue.poll();
-            if (object == null) {
-                object = supplier.get();
+            acquire();
+            // get or create, the most recently offered first
+            final IdleObject<T> idleObject = queue.pollLast();
+            if (idleObject == null) {
+                object = create();
+            }
+            else {
+                idle.decrementAndGet();
+                active.incrementAndGet();
+                object = idleObject.object();
             }
         }
 
         return object;
     }
 
+    private void acquire() {
+        if (maxSize == 0) {
+            return;
+        }
+        final boolean acquired;
+        final Timer.Context context = waitLatency.time();
+        try {
+            acquired = permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a pooled object");
+        }
+        finally {
+            context.stop();
+        }
+        if (!acquired) {
+            throw new IllegalStateException(
+                    "No pooled object became available in " + maxWaitMillis + " ms, all " + maxSize + " are in use"
+            );
+        }
+    }
+
+    // the caller holds a permit, it is given back if the object can't be created
+    private T create() {
+        final T object;
+        try {
+            object = supplier.get();
+        }
+        catch (RuntimeException e) {
+            release();
+            throw e;
+        }
+        createdNanos.put(object, System.nanoTime());
+        created.inc();
+        active.incrementAndGet();
+        return object;
+    }
+
+    private void release() {
+        if (maxSize > 0) {
+            permits.release();
+        }
+    }
+
+    private void destroy(T object) {
+        createdNanos.remove(object);
+        try {
+            LOGGER.debug("Closing poolable <{}>", object);
+            object.close();
+            LOGGER.debug("Closed poolable <{}>", object);
+        }
+        catch (Exception exception) {
+            LOGGER.warn("Exception <{}> while closing poolable <{}>", exception.getMessage(), object);
+        }
+    }
+
     public void offer(T object) {
         if (!object.isStub()) {
-            queue.add(object);
+            active.decrementAndGet();
+            idle.incrementAndGet();
+            queue.addLast(new IdleObject<>(object, System.nanoTime()));
+            release();
         }
 
         if (close.get()) {
             while (queue.peek() != null) {
                 if (lock.tryLock()) {
                     while (true) {
-                        T pooled = queue.poll();
+                        IdleObject<T> pooled = queue.poll();
                         if (pooled == null) {
                             break;
                         }
                         else {
-                            try {
-                                LOGGER.debug("Closing poolable <{}>", pooled);
-                                pooled.close();
-                                LOGGER.debug("Closed poolable <{}>", pooled);
-                            }
-                            catch (Exception exception) {
-                                LOGGER
-                                        .warn(
-                                                "Exception <{}> while closing poolable <{}>", exception.getMessage(),
-                                                pooled
-                                        );
-                            }
+                            idle.decrementAndGet();
+                            destroy(pooled.object());
                         }
                     }
                     lock.unlock();
@@ -104,6 +381,9 @@ public class Pool<T extends Poolable> implements AutoCloseable, Supplier<T> {
 
     public void close() {
         close.set(true);
+        if (maintenanceExecutor != null) {
+            maintenanceExecutor.shutdown();
+        }
 
         // close all that are in the pool right now
         offer(stub);
@@ -23,4 +23,10 @@ import java.io.Closeable;
 
 public interface Poolable extends Stubable, Closeable {
 
+    /**
+     * Checks that an idle object still works. Called by the pool maintenance, never while the object is in use.
+     *
+     * @return false if the object has to be closed and left out of the pool
+     */
+    boolean probe();
 }
@@ -0,0 +1,77 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.pool;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends each call with a connection borrowed from the pool for the duration of the call.
+ */
+public final class PooledRelpOutput implements RelpOutput {
+
+    private final Pool<IManagedRelpConnection> relpConnectionPool;
+
+    public PooledRelpOutput(Pool<IManagedRelpConnection> relpConnectionPool) {
+        this.relpConnectionPool = relpConnectionPool;
+    }
+
+    @Override
+    public void send(List<byte[]> records) {
+        IManagedRelpConnection relpConnection = relpConnectionPool.get();
+        try {
+            relpConnection.ensureSent(records);
+        }
+        finally {
+            // returned even when sending fails, the pool is bounded and a lost connection would never be replaced
+            relpConnectionPool.offer(relpConnection);
+        }
+    }
+
+    /**
+     * Blocking connections are used, so the records have already been acknowledged when this returns.
+     */
+    @Override
+    public CompletableFuture<Void> sendAsync(List<byte[]> records) {
+        try {
+            send(records);
+        }
+        catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        final PooledRelpOutput cast = (PooledRelpOutput) o;
+        return relpConnectionPool.equals(cast.relpConnectionPool);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(relpConnectionPool);
+    }
+}
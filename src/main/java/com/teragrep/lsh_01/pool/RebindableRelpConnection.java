@@ -23,6 +23,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 
 public class RebindableRelpConnection implements IManagedRelpConnection {
 
@@ -38,8 +40,18 @@ public class RebindableRelpConnection implements IManagedRelpConnection {
         this.rebindRequestAmount = rebindRequestAmount;
     }
 
+    @Override
+    public void preConnect() {
+        managedRelpConnection.preConnect();
+    }
+
     @Override
     public void ensureSent(byte[] bytes) {
+        ensureSent(Collections.singletonList(bytes));
+    }
+
+    @Override
+    public void ensureSent(List<byte[]> records) {
         if (recordsSent >= rebindRequestAmount) {
             LOGGER.debug("Rebinding ManagedRelpConnection <{}>", managedRelpConnection);
             try {
@@ -54,8 +66,13 @@ public class RebindableRelpConnection implements IManagedRelpConnection {
             }
             recordsSent = 0;
         }
-        managedRelpConnection.ensureSent(bytes);
-        recordsSent++;
+        managedRelpConnection.ensureSent(records);
+        recordsSent += records.size();
+    }
+
+    @Override
+    public boolean probe() {
+        return managedRelpConnection.probe();
     }
 
     @Override
@@ -28,6 +28,8 @@ import java.util.function.Supplier;
 public class RelpConnectionFactory implements Supplier<IManagedRelpConnection> {
 
     private final RelpConfig relpConfig;
+    private final RelpTarget target;
+    private final int sendTimeoutMillis;
     private final MetricRegistry metricRegistry;
 
     public RelpConnectionFactory(RelpConfig relpConfig) { // for testing, new metric registry can be used
@@ -35,7 +37,25 @@ public class RelpConnectionFactory implements Supplier<IManagedRelpConnection> {
     }
 
     public RelpConnectionFactory(RelpConfig relpConfig, MetricRegistry metricRegistry) {
+        this(relpConfig, new RelpTarget(relpConfig.relpTarget, relpConfig.relpPort), metricRegistry);
+    }
+
+    public RelpConnectionFactory(RelpConfig relpConfig, RelpTarget target, MetricRegistry metricRegistry) {
+        this(relpConfig, target, 0, metricRegistry);
+    }
+
+    /**
+     * @param sendTimeoutMillis how long a batch is retried before sending it fails, 0 to retry until it is sent
+     */
+    public RelpConnectionFactory(
+            RelpConfig relpConfig,
+            RelpTarget target,
+            int sendTimeoutMillis,
+            MetricRegistry metricRegistry
+    ) {
         this.relpConfig = relpConfig;
+        this.target = target;
+        this.sendTimeoutMillis = sendTimeoutMillis;
         this.metricRegistry = metricRegistry;
     }
 
@@ -46,12 +66,20 @@ public class RelpConnectionFactory implements Supplier<IManagedRelpConnection> {
                 metricRegistry
         );
 
-        IManagedRelpConnection managedRelpConnection = new ManagedRelpConnection(relpConnection, metricRegistry);
+        IManagedRelpConnection managedRelpConnection = new ManagedRelpConnection(
+                relpConnection,
+                target,
+                sendTimeoutMillis,
+                metricRegistry
+        );
 
         if (relpConfig.rebindEnabled) {
             managedRelpConnection = new RebindableRelpConnection(managedRelpConnection, relpConfig.rebindRequestAmount);
         }
 
+        // connecting now saves the first send from failing its commit on a connection that was never opened
+        managedRelpConnection.preConnect();
+
         return managedRelpConnection;
     }
 
@@ -0,0 +1,72 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.pool;
+
+import com.teragrep.lsh_01.config.RelpConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The RELP servers to send to: the comma separated host:port pairs of relp.targets, or relp.target and relp.port
+ * when relp.targets is empty.
+ */
+public final class RelpTargets {
+
+    private final RelpConfig relpConfig;
+
+    public RelpTargets(RelpConfig relpConfig) {
+        this.relpConfig = relpConfig;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a target is not a host:port pair or a target is listed twice
+     */
+    public List<RelpTarget> asList() {
+        if (relpConfig.relpTargets.trim().isEmpty()) {
+            return Collections.singletonList(new RelpTarget(relpConfig.relpTarget, relpConfig.relpPort));
+        }
+        final List<RelpTarget> targets = new ArrayList<>();
+        for (String pair : relpConfig.relpTargets.split(",")) {
+            final String trimmed = pair.trim();
+            final int colon = trimmed.lastIndexOf(':');
+            if (colon < 1 || colon == trimmed.length() - 1) {
+                throw new IllegalArgumentException("relp.targets has to be a list of host:port, got: " + trimmed);
+            }
+            final int port;
+            try {
+                port = Integer.parseInt(trimmed.substring(colon + 1));
+            }
+            catch (NumberFormatException e) {
+                throw new IllegalArgumentException("relp.targets has an invalid port in: " + trimmed);
+            }
+            if (port < 1 || port > 65535) {
+                throw new IllegalArgumentException("relp.targets has an invalid port in: " + trimmed);
+            }
+            final RelpTarget target = new RelpTarget(trimmed.substring(0, colon), port);
+            if (targets.contains(target)) {
+                throw new IllegalArgumentException("relp.targets lists " + target + " more than once");
+            }
+            targets.add(target);
+        }
+        return targets;
+    }
+}
@@ -0,0 +1,248 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.pool;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SlidingWindowReservoir;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Sends to a single RELP target with connections from its own pool, and keeps track of how the target is doing. The
+ * target is ejected when a send fails, when its average ack latency exceeds the threshold or when a send has been
+ * waiting for longer than the threshold. An ejected target is reinstated by {@link #check()} once a probe of one of its
+ * connections succeeds.
+ */
+public final class TargetedRelpOutput implements RelpOutput, AutoCloseable {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(TargetedRelpOutput.class);
+
+    // weight of the latest ack latency in the average
+    private final static double ALPHA = 0.2;
+
+    private final RelpTarget target;
+    private final Pool<IManagedRelpConnection> pool;
+    private final RelpOutput relpOutput;
+    private final long latencyThresholdNanos;
+    private final long ejectionNanos;
+    private final AtomicInteger outstanding;
+    private final AtomicLong lastProgressNanos;
+    private final AtomicBoolean ejected;
+    private final AtomicLong ejectedAtNanos;
+    private double averageLatencyNanos;
+
+    // metrics
+    private final Timer latency;
+    private final Counter failures;
+    private final Counter ejections;
+
+    /**
+     * @param latencyThresholdMillis average ack latency above which the target is ejected
+     * @param ejectionMillis         how long the target is ejected before it is probed
+     */
+    public TargetedRelpOutput(
+            RelpTarget target,
+            Pool<IManagedRelpConnection> pool,
+            int latencyThresholdMillis,
+            int ejectionMillis,
+            MetricRegistry metricRegistry
+    ) {
+        this.target = target;
+        this.pool = pool;
+        this.relpOutput = new PooledRelpOutput(pool);
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+        this.ejectionNanos = TimeUnit.MILLISECONDS.toNanos(ejectionMillis);
+        this.outstanding = new AtomicInteger();
+        this.lastProgressNanos = new AtomicLong(System.nanoTime());
+        this.ejected = new AtomicBoolean();
+        this.ejectedAtNanos = new AtomicLong();
+        this.averageLatencyNanos = 0;
+
+        this.latency = metricRegistry
+                .timer(name(TargetedRelpOutput.class, "latency"), () -> new Timer(new SlidingWindowReservoir(10000)));
+        this.failures = metricRegistry.counter(name(TargetedRelpOutput.class, "failures"));
+        this.ejections = metricRegistry.counter(name(TargetedRelpOutput.class, "ejections"));
+        metricRegistry.gauge(name(TargetedRelpOutput.class, "outstanding"), () -> (Gauge<Integer>) outstanding::get);
+        metricRegistry
+                .gauge(name(TargetedRelpOutput.class, "ejected"), () -> (Gauge<Integer>) () -> ejected.get() ? 1 : 0);
+    }
+
+    public RelpTarget target() {
+        return target;
+    }
+
+    /**
+     * @return sends that have not been acknowledged yet
+     */
+    public int outstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * @return average ack latency in nanoseconds, 0 before the first send
+     */
+    public synchronized double latency() {
+        return averageLatencyNanos;
+    }
+
+    /**
+     * @return false if the target is ejected. A target with a send that has made no progress for longer than the
+     *         latency threshold is ejected here.
+     */
+    public boolean available(long nowNanos) {
+        if (ejected.get()) {
+            return false;
+        }
+        if (outstanding.get() > 0 && nowNanos - lastProgressNanos.get() > latencyThresholdNanos) {
+            eject("a send has been waiting for longer than the latency threshold");
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void send(List<byte[]> records) {
+        final long start = System.nanoTime();
+        if (outstanding.getAndIncrement() == 0) {
+            lastProgressNanos.set(start);
+        }
+        try {
+            relpOutput.send(records);
+        }
+        catch (RuntimeException e) {
+            failures.inc();
+            eject("sending failed: " + e.getMessage());
+            throw e;
+        }
+        finally {
+            outstanding.decrementAndGet();
+        }
+        final long end = System.nanoTime();
+        lastProgressNanos.set(end);
+        latency.update(end - start, TimeUnit.NANOSECONDS);
+        if (average(end - start) > latencyThresholdNanos) {
+            eject("the average ack latency is above the threshold");
+        }
+    }
+
+    /**
+     * Blocking connections are used, so the records have already been acknowledged when this returns.
+     */
+    @Override
+    public CompletableFuture<Void> sendAsync(List<byte[]> records) {
+        try {
+            send(records);
+        }
+        catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private synchronized double average(long latencyNanos) {
+        if (averageLatencyNanos == 0) {
+            averageLatencyNanos = latencyNanos;
+        }
+        else {
+            averageLatencyNanos = ALPHA * latencyNanos + (1 - ALPHA) * averageLatencyNanos;
+        }
+        return averageLatencyNanos;
+    }
+
+    private void eject(String reason) {
+        if (ejected.compareAndSet(false, true)) {
+            ejectedAtNanos.set(System.nanoTime());
+            ejections.inc();
+            LOGGER.warn("Ejecting relp target <[{}]>, {}", target, reason);
+        }
+    }
+
+    /**
+     * Probes a connection of an ejected target once it has been ejected long enough, and reinstates the target if the
+     * probe succeeds with the probe latency as its average ack latency. Otherwise the target stays ejected for another
+     * period.
+     */
+    public void check() {
+        if (!ejected.get() || System.nanoTime() - ejectedAtNanos.get() < ejectionNanos) {
+            return;
+        }
+        boolean probed;
+        final long start = System.nanoTime();
+        try {
+            final IManagedRelpConnection connection = pool.get();
+            try {
+                probed = connection.probe();
+            }
+            finally {
+                pool.offer(connection);
+            }
+        }
+        catch (RuntimeException e) {
+            LOGGER.debug("Exception <{}> while probing relp target <[{}]>", e.getMessage(), target);
+            probed = false;
+        }
+        if (probed) {
+            // the latency before the ejection is stale, start from the probe so the target is not treated as free
+            synchronized (this) {
+                averageLatencyNanos = Math.max(1, System.nanoTime() - start);
+            }
+            lastProgressNanos.set(System.nanoTime());
+            ejected.set(false);
+            LOGGER.info("Reinstated relp target <[{}]>", target);
+        }
+        else {
+            ejectedAtNanos.set(System.nanoTime());
+            LOGGER.warn("Probe of relp target <[{}]> failed, keeping it ejected", target);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        final TargetedRelpOutput cast = (TargetedRelpOutput) o;
+        return target.equals(cast.target) && pool.equals(cast.pool);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(target, pool);
+    }
+}
@@ -0,0 +1,444 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.relp;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.teragrep.lsh_01.pool.RelpOutput;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * RelpOutput on a non-blocking RELP connection. Records are pipelined on a single connection without waiting for
+ * the previous acks, and the future of a record completes when the server acknowledges it. Records that are not
+ * acknowledged when the connection is lost are sent again after reconnecting, the same way ManagedRelpConnection
+ * retries a batch. A record the server rejects is sent again after the reconnect interval. At most a window of records
+ * is sent before waiting for their acks, and records that would take the records waiting for an ack over maxQueued
+ * fail at once instead of queueing up. A connection on which the server has not answered for ackTimeoutMillis while
+ * records are waiting for their acks is closed, so that the records are sent again on a new connection. All connection
+ * state is confined to one event loop.
+ */
+public final class NettyRelpOutput implements RelpOutput, AutoCloseable {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(NettyRelpOutput.class);
+    private static final byte[] OFFERS = "relp_version=0\nrelp_software=lsh_01\ncommands=syslog"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_TXNR = 999999999;
+
+    private final Bootstrap bootstrap;
+    private final EventLoop eventLoop;
+    private final String host;
+    private final int port;
+    private final int reconnectInterval;
+    private final int window;
+    private final int maxQueued;
+    private final long ackTimeoutNanos;
+    private final AtomicInteger queued;
+
+    // accessed only from the event loop
+    private Channel channel;
+    private boolean open;
+    private boolean reconnectScheduled;
+    private boolean resendScheduled;
+    private boolean closed;
+    private int txnr;
+    private int openTxnr;
+    private long lastProgressNanos; // last connect or ack while records are waiting for acks
+    private final Map<Integer, Pending> inFlight; // in the order they were sent
+    private final Deque<Pending> waiting;
+    private volatile int inFlightCount; // for the gauge
+
+    // metrics
+    private final Counter records;
+    private final Counter bytes;
+    private final Counter resends;
+    private final Counter retriedConnects;
+    private final Counter ackTimeouts;
+
+    /**
+     * @param bootstrap         bootstrap with the channel class of the transport set
+     * @param eventLoop         event loop of the connection, can be shared with the HTTP server
+     * @param reconnectInterval milliseconds to wait before reconnecting or resending a rejected record
+     * @param window            how many records are sent before waiting for their acks
+     * @param maxQueued         how many records can wait for an ack before sendAsync fails
+     * @param ackTimeoutMillis  how long the server can leave records without an ack before the connection is closed,
+     *                          0 waits forever
+     */
+    public NettyRelpOutput(
+            Bootstrap bootstrap,
+            EventLoop eventLoop,
+            String host,
+            int port,
+            int reconnectInterval,
+            int window,
+            int maxQueued,
+            int ackTimeoutMillis,
+            MetricRegistry metricRegistry
+    ) {
+        this.eventLoop = eventLoop;
+        this.host = host;
+        this.port = port;
+        this.reconnectInterval = reconnectInterval;
+        this.window = window;
+        this.maxQueued = maxQueued;
+        this.ackTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(ackTimeoutMillis);
+        this.queued = new AtomicInteger();
+        this.bootstrap = bootstrap
+                .group(eventLoop)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .handler(new ChannelInitializer<Channel>() {
+
+                    @Override
+                    protected void initChannel(Channel channel) {
+                        if (ackTimeoutMillis > 0) {
+                            channel
+                                    .pipeline()
+                                    .addLast(new IdleStateHandler(ackTimeoutMillis, 0, 0, TimeUnit.MILLISECONDS));
+                        }
+                        channel
+                                .pipeline()
+                                .addLast(new RelpFrameDecoder(), new RelpFrameEncoder(), new ResponseHandler());
+                    }
+                });
+        this.channel = null;
+        this.open = false;
+        this.reconnectScheduled = false;
+        this.resendScheduled = false;
+        this.closed = false;
+        this.txnr = 0;
+        this.openTxnr = -1;
+        this.lastProgressNanos = 0;
+        this.inFlight = new LinkedHashMap<>();
+        this.waiting = new ArrayDeque<>();
+        this.inFlightCount = 0;
+
+        this.records = metricRegistry.counter(name(NettyRelpOutput.class, "records"));
+        this.bytes = metricRegistry.counter(name(NettyRelpOutput.class, "bytes"));
+        this.resends = metricRegistry.counter(name(NettyRelpOutput.class, "resends"));
+        this.retriedConnects = metricRegistry.counter(name(NettyRelpOutput.class, "retriedConnects"));
+        this.ackTimeouts = metricRegistry.counter(name(NettyRelpOutput.class, "ackTimeouts"));
+        metricRegistry.gauge(name(NettyRelpOutput.class, "inFlight"), () -> (Gauge<Integer>) () -> inFlightCount);
+    }
+
+    @Override
+    public void send(List<byte[]> records) {
+        sendAsync(records).join();
+    }
+
+    @Override
+    public CompletableFuture<Void> sendAsync(List<byte[]> records) {
+        if (!reserve(records.size())) {
+            final CompletableFuture<Void> rejected = new CompletableFuture<>();
+            rejected
+                    .completeExceptionally(
+                            new IllegalStateException(
+                                    "Too many records are waiting for relp server <[" + host + "]>:<[" + port + "]>"
+                            )
+                    );
+            return rejected;
+        }
+        final List<Pending> pendings = new ArrayList<>(records.size());
+        final CompletableFuture<?>[] acks = new CompletableFuture<?>[records.size()];
+        for (int i = 0; i < records.size(); i++) {
+            final Pending pending = new Pending(records.get(i));
+            pendings.add(pending);
+            acks[i] = pending.ack;
+        }
+        eventLoop.execute(() -> {
+            if (closed) {
+                for (Pending pending : pendings) {
+                    pending.ack.completeExceptionally(new IllegalStateException("RELP output is closed"));
+                }
+                return;
+            }
+            waiting.addAll(pendings);
+            flush();
+        });
+        final CompletableFuture<Void> sent = CompletableFuture.allOf(acks);
+        sent.whenComplete((ignored, error) -> queued.addAndGet(-records.size()));
+        return sent;
+    }
+
+    /**
+     * A batch larger than maxQueued is let through when nothing else is queued, otherwise it could never be sent.
+     */
+    private boolean reserve(int count) {
+        int current;
+        do {
+            current = queued.get();
+            if (current > 0 && current + count > maxQueued) {
+                return false;
+            }
+        }
+        while (!queued.compareAndSet(current, current + count));
+        return true;
+    }
+
+    private void flush() {
+        if (!open) {
+            connect();
+            return;
+        }
+        if (resendScheduled) {
+            return;
+        }
+        if (inFlight.isEmpty()) {
+            lastProgressNanos = System.nanoTime();
+        }
+        Pending pending;
+        while (inFlight.size() < window && (pending = waiting.poll()) != null) {
+            final int sent = nextTxnr();
+            inFlight.put(sent, pending);
+            channel.write(new RelpFrame(sent, "syslog", pending.record));
+        }
+        inFlightCount = inFlight.size();
+        channel.flush();
+    }
+
+    private void connect() {
+        if (closed || channel != null || reconnectScheduled) {
+            return;
+        }
+        final ChannelFuture connectFuture = bootstrap.connect(host, port);
+        channel = connectFuture.channel();
+        connectFuture.addListener(future -> {
+            if (future.isSuccess()) {
+                lastProgressNanos = System.nanoTime();
+                txnr = 0;
+                openTxnr = nextTxnr();
+                channel.writeAndFlush(new RelpFrame(openTxnr, "open", OFFERS));
+            }
+            else {
+                LOGGER
+                        .error(
+                                "Failed to connect to relp server <[{}]>:<[{}]>: {}", host, port,
+                                future.cause().getMessage()
+                        );
+                // closeFuture of the channel schedules the reconnect
+            }
+        });
+        channel.closeFuture().addListener(future -> onClose(connectFuture.channel()));
+    }
+
+    private void onResponse(Channel from, RelpFrame frame) {
+        if (from != channel) {
+            return;
+        }
+        if ("serverclose".equals(frame.command())) {
+            LOGGER.debug("Relp server <[{}]>:<[{}]> is closing the connection", host, port);
+            channel.close();
+            return;
+        }
+        if (frame.txnr() == openTxnr && !open) {
+            if (frame.isOk()) {
+                open = true;
+                flush();
+            }
+            else {
+                LOGGER.error("Relp server <[{}]>:<[{}]> refused open: <{}>", host, port, frame);
+                channel.close();
+            }
+            return;
+        }
+        final Pending pending = inFlight.remove(frame.txnr());
+        inFlightCount = inFlight.size();
+        if (pending == null) {
+            LOGGER.warn("Received a response to unknown txnr <{}>", frame.txnr());
+            return;
+        }
+        lastProgressNanos = System.nanoTime();
+        if (frame.isOk()) {
+            records.inc();
+            bytes.inc(pending.record.length);
+            pending.ack.complete(null);
+            if (!waiting.isEmpty()) {
+                flush();
+            }
+        }
+        else {
+            LOGGER.error("Relp server rejected a record: <{}>. Will retry in <{}> ms", frame, reconnectInterval);
+            resends.inc();
+            waiting.addFirst(pending);
+            if (!resendScheduled) {
+                resendScheduled = true;
+                eventLoop.schedule(() -> {
+                    resendScheduled = false;
+                    flush();
+                }, reconnectInterval, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Called when nothing has been read from the connection for ackTimeoutMillis. An idle connection is left open, one
+     * with records waiting for acks or an open waiting for its response is closed so that onClose requeues them.
+     */
+    private void onIdle(Channel from) {
+        if (from != channel) {
+            return;
+        }
+        final boolean awaiting = !open || !inFlight.isEmpty();
+        if (awaiting && System.nanoTime() - lastProgressNanos >= ackTimeoutNanos) {
+            LOGGER
+                    .warn(
+                            "Relp server <[{}]>:<[{}]> has not answered in <{}> ms, reconnecting", host, port,
+                            TimeUnit.NANOSECONDS.toMillis(ackTimeoutNanos)
+                    );
+            ackTimeouts.inc();
+            channel.close();
+        }
+    }
+
+    private void onClose(Channel closedChannel) {
+        if (closedChannel != channel) {
+            return;
+        }
+        channel = null;
+        open = false;
+        // records that were not acknowledged are sent first after reconnecting, in their original order
+        final List<Pending> unacknowledged = new ArrayList<>(inFlight.values());
+        inFlight.clear();
+        inFlightCount = 0;
+        for (int i = unacknowledged.size() - 1; i >= 0; i--) {
+            waiting.addFirst(unacknowledged.get(i));
+        }
+        resends.inc(unacknowledged.size());
+        if (closed) {
+            for (Pending pending : waiting) {
+                pending.ack.completeExceptionally(new IllegalStateException("RELP output is closed"));
+            }
+            waiting.clear();
+        }
+        else if (!waiting.isEmpty()) {
+            retriedConnects.inc();
+            reconnectScheduled = true;
+            eventLoop.schedule(() -> {
+                reconnectScheduled = false;
+                flush();
+            }, reconnectInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private int nextTxnr() {
+        txnr = txnr >= MAX_TXNR ? 1 : txnr + 1;
+        return txnr;
+    }
+
+    /**
+     * Waits for the acks of the records already sent, then closes the connection.
+     */
+    @Override
+    public void close() {
+        final CompletableFuture<Void> closeFuture = new CompletableFuture<>();
+        eventLoop.execute(() -> {
+            closed = true;
+            final List<CompletableFuture<Void>> acks = new ArrayList<>();
+            for (Pending pending : inFlight.values()) {
+                acks.add(pending.ack);
+            }
+            for (Pending pending : waiting) {
+                acks.add(pending.ack);
+            }
+            CompletableFuture.allOf(acks.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, error) -> {
+                if (channel != null) {
+                    if (open) {
+                        channel.writeAndFlush(new RelpFrame(nextTxnr(), "close", new byte[0]));
+                    }
+                    channel.close();
+                }
+                closeFuture.complete(null);
+            });
+            if (!open && channel == null) {
+                // nothing can be delivered without a connection
+                onClose(null);
+            }
+        });
+        try {
+            closeFuture.get(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException | TimeoutException e) {
+            LOGGER.warn("Forcefully closing relp connection: <{}>", e.getMessage());
+        }
+    }
+
+    private static final class Pending {
+
+        private final byte[] record;
+        private final CompletableFuture<Void> ack;
+
+        private Pending(byte[] record) {
+            this.record = record;
+            this.ack = new CompletableFuture<>();
+        }
+    }
+
+    private final class ResponseHandler extends SimpleChannelInboundHandler<RelpFrame> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, RelpFrame frame) {
+            onResponse(ctx.channel(), frame);
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object event) {
+            if (event instanceof IdleStateEvent) {
+                onIdle(ctx.channel());
+            }
+            else {
+                ctx.fireUserEventTriggered(event);
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            LOGGER.error("Relp connection to <[{}]>:<[{}]> failed: <{}>", host, port, cause.getMessage());
+            ctx.close();
+        }
+    }
+}
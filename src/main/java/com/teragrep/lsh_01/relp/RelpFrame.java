@@ -0,0 +1,80 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.relp;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * RELP frame: TXNR SP COMMAND SP DATALEN [SP DATA] LF
+ */
+public final class RelpFrame {
+
+    private final int txnr;
+    private final String command;
+    private final byte[] data;
+
+    public RelpFrame(int txnr, String command, byte[] data) {
+        this.txnr = txnr;
+        this.command = command;
+        this.data = data;
+    }
+
+    public int txnr() {
+        return txnr;
+    }
+
+    public String command() {
+        return command;
+    }
+
+    public byte[] data() {
+        return data;
+    }
+
+    /**
+     * @return true if this is a response with status code 200
+     */
+    public boolean isOk() {
+        return "rsp".equals(command) && data.length >= 3 && data[0] == '2' && data[1] == '0' && data[2] == '0';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        final RelpFrame cast = (RelpFrame) o;
+        return txnr == cast.txnr && command.equals(cast.command) && Arrays.equals(data, cast.data);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(txnr, command, Arrays.hashCode(data));
+    }
+
+    @Override
+    public String toString() {
+        return "RelpFrame{" + "txnr=" + txnr + ", command='" + command + '\'' + ", data='"
+                + new String(data, StandardCharsets.UTF_8) + '\'' + '}';
+    }
+}
@@ -0,0 +1,113 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.relp;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CorruptedFrameException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Decodes RELP frames. Nothing is consumed until a whole frame has been received.
+ */
+public final class RelpFrameDecoder extends ByteToMessageDecoder {
+
+    // txnr and datalen have at most 9 digits, commands are short
+    private static final int MAX_HEADER_LENGTH = 64;
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+        while (in.isReadable()) {
+            final RelpFrame frame = decodeFrame(in);
+            if (frame == null) {
+                return;
+            }
+            out.add(frame);
+        }
+    }
+
+    private RelpFrame decodeFrame(ByteBuf in) {
+        final int start = in.readerIndex();
+        final int txnrEnd = in.indexOf(start, Math.min(in.writerIndex(), start + MAX_HEADER_LENGTH), (byte) ' ');
+        if (txnrEnd < 0) {
+            checkHeaderLength(in, start);
+            return null;
+        }
+        final int commandEnd = in
+                .indexOf(txnrEnd + 1, Math.min(in.writerIndex(), start + MAX_HEADER_LENGTH), (byte) ' ');
+        if (commandEnd < 0) {
+            checkHeaderLength(in, start);
+            return null;
+        }
+        // datalen is followed by SP and data, or by LF when there is no data
+        int dataLengthEnd = -1;
+        for (int i = commandEnd + 1; i < Math.min(in.writerIndex(), start + MAX_HEADER_LENGTH); i++) {
+            final byte b = in.getByte(i);
+            if (b == ' ' || b == '\n') {
+                dataLengthEnd = i;
+                break;
+            }
+        }
+        if (dataLengthEnd < 0) {
+            checkHeaderLength(in, start);
+            return null;
+        }
+        final int txnr = number(in, start, txnrEnd);
+        final String command = in.toString(txnrEnd + 1, commandEnd - txnrEnd - 1, StandardCharsets.US_ASCII);
+        final int dataLength = number(in, commandEnd + 1, dataLengthEnd);
+
+        final int dataStart = dataLength > 0 ? dataLengthEnd + 1 : dataLengthEnd;
+        final int trailer = dataStart + dataLength;
+        if (trailer >= in.writerIndex()) {
+            return null;
+        }
+        if (in.getByte(trailer) != '\n') {
+            throw new CorruptedFrameException("RELP frame <" + txnr + "> is not terminated by LF");
+        }
+        final byte[] data = new byte[dataLength];
+        in.getBytes(dataStart, data);
+        in.readerIndex(trailer + 1);
+        return new RelpFrame(txnr, command, data);
+    }
+
+    private int number(ByteBuf in, int from, int to) {
+        if (to == from || to - from > 9) {
+            throw new CorruptedFrameException("Invalid number in RELP frame header");
+        }
+        int number = 0;
+        for (int i = from; i < to; i++) {
+            final byte b = in.getByte(i);
+            if (b < '0' || b > '9') {
+                throw new CorruptedFrameException("Invalid number in RELP frame header");
+            }
+            number = number * 10 + (b - '0');
+        }
+        return number;
+    }
+
+    private void checkHeaderLength(ByteBuf in, int start) {
+        if (in.writerIndex() - start >= MAX_HEADER_LENGTH) {
+            throw new CorruptedFrameException("RELP frame header exceeds <" + MAX_HEADER_LENGTH + "> bytes");
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.relp;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToByteEncoder;
+
+import java.nio.charset.StandardCharsets;
+
+public final class RelpFrameEncoder extends MessageToByteEncoder<RelpFrame> {
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, RelpFrame frame, ByteBuf out) {
+        out.writeCharSequence(Integer.toString(frame.txnr()), StandardCharsets.US_ASCII);
+        out.writeByte(' ');
+        out.writeCharSequence(frame.command(), StandardCharsets.US_ASCII);
+        out.writeByte(' ');
+        out.writeCharSequence(Integer.toString(frame.data().length), StandardCharsets.US_ASCII);
+        if (frame.data().length > 0) {
+            out.writeByte(' ');
+            out.writeBytes(frame.data());
+        }
+        out.writeByte('\n');
+    }
+}
@@ -0,0 +1,62 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.spool;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-mapped file holding the position of the next record to replay: the segment id and the offset within it.
+ */
+final class Checkpoint {
+
+    private static final int SIZE = Long.BYTES + Integer.BYTES;
+
+    private final MappedByteBuffer buffer;
+
+    Checkpoint(Path path) throws IOException {
+        try (
+                FileChannel channel = FileChannel
+                        .open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+        ) {
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, SIZE);
+        }
+    }
+
+    long segment() {
+        return buffer.getLong(0);
+    }
+
+    int position() {
+        return buffer.getInt(Long.BYTES);
+    }
+
+    void update(long segment, int position) {
+        buffer.putLong(0, segment);
+        buffer.putInt(Long.BYTES, position);
+    }
+
+    void force() {
+        buffer.force();
+    }
+}
@@ -0,0 +1,161 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.spool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of records that is memory-mapped as a whole. A record is stored as its length + 1 and the CRC32 of
+ * its bytes, followed by the bytes. The file is zero-filled when created, so a stored length of 0 marks the end of the
+ * written records. A record whose bytes do not match its CRC was torn by a crash; it and everything after it in the
+ * segment are discarded when the segment is opened.
+ */
+final class Segment {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(Segment.class);
+
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    private final long id;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private int writePosition;
+
+    Segment(long id, Path path, int size) throws IOException {
+        this.id = id;
+        this.path = path;
+        final boolean existed = Files.exists(path);
+        try (
+                FileChannel channel = FileChannel
+                        .open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+        ) {
+            // mapping stays valid after the channel is closed
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        this.writePosition = existed ? recoverWritePosition() : 0;
+    }
+
+    long id() {
+        return id;
+    }
+
+    int remaining() {
+        return buffer.capacity() - writePosition;
+    }
+
+    /**
+     * @return bytes taken by a record of the given length
+     */
+    static int storedSize(int length) {
+        return HEADER_BYTES + length;
+    }
+
+    /**
+     * @return false if the record does not fit in the remaining space
+     */
+    boolean append(byte[] record) {
+        if (writePosition + storedSize(record.length) > buffer.capacity()) {
+            return false;
+        }
+        // bytes and CRC are written before the length, a record is visible only once it is complete
+        final ByteBuffer view = buffer.duplicate();
+        view.position(writePosition + HEADER_BYTES);
+        view.put(record);
+        buffer.putInt(writePosition + Integer.BYTES, crc(record));
+        buffer.putInt(writePosition, record.length + 1);
+        writePosition += storedSize(record.length);
+        return true;
+    }
+
+    /**
+     * @return the record at the position or null if no complete record has been written there
+     */
+    byte[] read(int position) {
+        if (position + HEADER_BYTES > buffer.capacity()) {
+            return null;
+        }
+        final int stored = buffer.getInt(position);
+        if (stored <= 0 || position + storedSize(stored - 1) > buffer.capacity()) {
+            return null;
+        }
+        final byte[] record = new byte[stored - 1];
+        final ByteBuffer view = buffer.duplicate();
+        view.position(position + HEADER_BYTES);
+        view.get(record);
+        if (crc(record) != buffer.getInt(position + Integer.BYTES)) {
+            return null;
+        }
+        return record;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Deletes the file. The mapping can't be released explicitly on Java 11, it is released once the segment is
+     * garbage collected and the disk space of the file is freed then. The segment must not be used afterwards.
+     */
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Finds the end of the complete records and zero-fills the rest if anything was written there, so that the parts
+     * of torn records are not mistaken for records once appending continues.
+     */
+    private int recoverWritePosition() {
+        int position = 0;
+        byte[] record;
+        while ((record = read(position)) != null) {
+            position += storedSize(record.length);
+        }
+        for (int i = position; i < buffer.capacity(); i++) {
+            if (buffer.get(i) != 0) {
+                LOGGER
+                        .warn(
+                                "Discarding torn records from offset <{}> of spool segment <[{}]>, they were not written completely",
+                                position, path
+                        );
+                for (int j = position; j < buffer.capacity(); j++) {
+                    buffer.put(j, (byte) 0);
+                }
+                break;
+            }
+        }
+        return position;
+    }
+
+    private static int crc(byte[] record) {
+        final CRC32 crc = new CRC32();
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+}
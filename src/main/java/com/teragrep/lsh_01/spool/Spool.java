@@ -0,0 +1,267 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.spool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Write-ahead spool of records in a directory of segments. Records are appended to the newest segment and read back
+ * in the same order from the checkpoint. Segments whose records have all been committed are deleted.
+ */
+public final class Spool implements AutoCloseable {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(Spool.class);
+    private static final Pattern SEGMENT_NAME = Pattern.compile("(\\d{20})\\.segment");
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final boolean forceOnAppend;
+    private final Checkpoint checkpoint;
+    private final List<Segment> segments; // oldest first, the last one is appended to
+    private int readPosition; // in the oldest segment
+    private long pendingRecords;
+
+    public Spool(Path directory, int segmentSize, int maxSegments, boolean forceOnAppend) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.forceOnAppend = forceOnAppend;
+        Files.createDirectories(directory);
+        this.checkpoint = new Checkpoint(directory.resolve("checkpoint"));
+        this.segments = new ArrayList<>();
+        recover();
+    }
+
+    /**
+     * Appends the records. Returns once they are in the spool, and on disk too if forceOnAppend is set.
+     *
+     * @throws IllegalStateException if the spool is full
+     */
+    public synchronized void append(List<byte[]> records) {
+        // check that all records fit before appending any, so that a failed request leaves nothing behind
+        int remaining = segments.get(segments.size() - 1).remaining();
+        int newSegments = 0;
+        for (byte[] record : records) {
+            if (Segment.storedSize(record.length) > segmentSize) {
+                throw new IllegalArgumentException(
+                        "Record of <" + record.length + "> bytes does not fit in a segment of <" + segmentSize
+                                + "> bytes"
+                );
+            }
+            if (Segment.storedSize(record.length) > remaining) {
+                newSegments++;
+                remaining = segmentSize;
+            }
+            remaining -= Segment.storedSize(record.length);
+        }
+        if (segments.size() + newSegments > maxSegments) {
+            throw new IllegalStateException("Spool is full, all <" + maxSegments + "> segments are in use");
+        }
+
+        for (byte[] record : records) {
+            Segment segment = segments.get(segments.size() - 1);
+            if (!segment.append(record)) {
+                if (forceOnAppend) {
+                    segment.force();
+                }
+                segment = openSegment(segment.id() + 1);
+                segments.add(segment);
+                segment.append(record);
+            }
+            pendingRecords++;
+        }
+        if (forceOnAppend) {
+            segments.get(segments.size() - 1).force();
+        }
+        notifyAll();
+    }
+
+    /**
+     * Reads records from the checkpoint onwards without removing them.
+     *
+     * @param maxRecords maximum amount of records to read
+     * @return records in the order they were appended, empty if there are none
+     */
+    public synchronized List<byte[]> peek(int maxRecords) {
+        final List<byte[]> records = new ArrayList<>();
+        int segmentIndex = 0;
+        int position = readPosition;
+        while (records.size() < maxRecords) {
+            final byte[] record = segments.get(segmentIndex).read(position);
+            if (record == null) {
+                if (segmentIndex == segments.size() - 1) {
+                    break;
+                }
+                segmentIndex++;
+                position = 0;
+            }
+            else {
+                records.add(record);
+                position += Segment.storedSize(record.length);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Moves the checkpoint past records that have been delivered. Segments left behind are deleted.
+     *
+     * @param count amount of records delivered, at most the amount returned by the previous peek
+     */
+    public synchronized void commit(int count) {
+        int remaining = count;
+        while (remaining > 0) {
+            final byte[] record = segments.get(0).read(readPosition);
+            if (record == null) {
+                if (segments.size() == 1) {
+                    throw new IllegalStateException("Committed more records than there are in the spool");
+                }
+                deleteOldestSegment();
+            }
+            else {
+                readPosition += Segment.storedSize(record.length);
+                pendingRecords--;
+                remaining--;
+            }
+        }
+        // a segment that has been read to the end is not needed anymore
+        while (segments.size() > 1 && segments.get(0).read(readPosition) == null) {
+            deleteOldestSegment();
+        }
+        checkpoint.update(segments.get(0).id(), readPosition);
+        if (forceOnAppend) {
+            checkpoint.force();
+        }
+    }
+
+    /**
+     * Waits until there are records to read or the timeout passes.
+     */
+    public synchronized void awaitRecords(long timeout, TimeUnit unit) throws InterruptedException {
+        if (pendingRecords == 0) {
+            unit.timedWait(this, timeout);
+        }
+    }
+
+    public synchronized long pendingRecords() {
+        return pendingRecords;
+    }
+
+    public synchronized int segments() {
+        return segments.size();
+    }
+
+    /**
+     * Writes the records and the checkpoint to disk.
+     */
+    public synchronized void force() {
+        for (Segment segment : segments) {
+            segment.force();
+        }
+        checkpoint.force();
+    }
+
+    @Override
+    public synchronized void close() {
+        force();
+        notifyAll();
+    }
+
+    private void recover() throws IOException {
+        final List<Long> ids = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.segment")) {
+            for (Path file : files) {
+                final Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    ids.add(Long.parseLong(matcher.group(1)));
+                }
+            }
+        }
+        ids.sort(Long::compare);
+
+        final long checkpointSegment = checkpoint.segment();
+        for (long id : ids) {
+            if (id < checkpointSegment) {
+                // already replayed, deletion was interrupted
+                Files.deleteIfExists(segmentPath(id));
+            }
+            else {
+                segments.add(openSegment(id));
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.add(openSegment(checkpointSegment));
+        }
+        readPosition = segments.get(0).id() == checkpointSegment ? checkpoint.position() : 0;
+
+        pendingRecords = 0;
+        int position = readPosition;
+        for (Segment segment : segments) {
+            byte[] record;
+            while ((record = segment.read(position)) != null) {
+                pendingRecords++;
+                position += Segment.storedSize(record.length);
+            }
+            position = 0;
+        }
+        LOGGER
+                .info(
+                        "Recovered spool <[{}]> with <{}> segments and <{}> records to replay", directory,
+                        segments.size(), pendingRecords
+                );
+    }
+
+    private Segment openSegment(long id) {
+        try {
+            return new Segment(id, segmentPath(id), segmentSize);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Can't open spool segment " + segmentPath(id), e);
+        }
+    }
+
+    private void deleteOldestSegment() {
+        final Segment segment = segments.remove(0);
+        readPosition = 0;
+        try {
+            segment.delete();
+        }
+        catch (IOException e) {
+            LOGGER.warn("Can't delete replayed spool segment <{}>: <{}>", segment.id(), e.getMessage());
+        }
+    }
+
+    private Path segmentPath(long id) {
+        return directory.resolve(String.format("%020d.segment", id));
+    }
+}
@@ -0,0 +1,170 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.spool;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SlidingWindowReservoir;
+import com.codahale.metrics.Timer;
+import com.teragrep.lsh_01.pool.RelpOutput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Decorator for RelpOutput. Records are appended to the spool and the caller returns right away, a replay thread
+ * sends them to the decorated RelpOutput in the order they were appended. When the RELP server is unavailable the
+ * records wait in the spool instead of blocking the callers. Records are delivered at least once: the ones sent just
+ * before a crash are sent again after a restart.
+ */
+public final class SpoolingRelpOutput implements RelpOutput, AutoCloseable {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(SpoolingRelpOutput.class);
+
+    private final RelpOutput relpOutput;
+    private final Spool spool;
+    private final int replayBatchSize;
+    private final Thread replayThread;
+    private final ScheduledExecutorService forceExecutor;
+    private volatile boolean running;
+
+    // metrics
+    private final Meter appended;
+    private final Meter replayed;
+    private final Timer replayLatency;
+
+    /**
+     * @param fsyncIntervalMillis how often the spool is written to disk, 0 to leave it to the operating system
+     */
+    public SpoolingRelpOutput(
+            RelpOutput relpOutput,
+            Spool spool,
+            int replayBatchSize,
+            long fsyncIntervalMillis,
+            MetricRegistry metricRegistry
+    ) {
+        this.relpOutput = relpOutput;
+        this.spool = spool;
+        this.replayBatchSize = replayBatchSize;
+        this.running = true;
+
+        this.appended = metricRegistry.meter(name(SpoolingRelpOutput.class, "appended"));
+        this.replayed = metricRegistry.meter(name(SpoolingRelpOutput.class, "replayed"));
+        this.replayLatency = metricRegistry
+                .timer(name(SpoolingRelpOutput.class, "replayLatency"), () -> new Timer(new SlidingWindowReservoir(10000)));
+        metricRegistry
+                .gauge(name(SpoolingRelpOutput.class, "pendingRecords"), () -> (Gauge<Long>) spool::pendingRecords);
+        metricRegistry.gauge(name(SpoolingRelpOutput.class, "segments"), () -> (Gauge<Integer>) spool::segments);
+
+        this.replayThread = new Thread(this::replay, "spool-replay");
+        this.replayThread.setDaemon(true);
+        this.replayThread.start();
+        if (fsyncIntervalMillis > 0) {
+            this.forceExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "spool-fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.forceExecutor
+                    .scheduleWithFixedDelay(
+                            spool::force, fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS
+                    );
+        }
+        else {
+            this.forceExecutor = null;
+        }
+    }
+
+    @Override
+    public void send(List<byte[]> records) {
+        spool.append(records);
+        appended.mark(records.size());
+    }
+
+    /**
+     * Records are acknowledged once they are in the spool, so the returned future is already complete.
+     */
+    @Override
+    public CompletableFuture<Void> sendAsync(List<byte[]> records) {
+        try {
+            send(records);
+        }
+        catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private void replay() {
+        while (running) {
+            try {
+                final List<byte[]> records = spool.peek(replayBatchSize);
+                if (records.isEmpty()) {
+                    spool.awaitRecords(1, TimeUnit.SECONDS);
+                    continue;
+                }
+                final Timer.Context context = replayLatency.time();
+                relpOutput.send(records);
+                context.close();
+                spool.commit(records.size());
+                replayed.mark(records.size());
+            }
+            catch (InterruptedException e) {
+                LOGGER.debug("Spool replay interrupted");
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (RuntimeException e) {
+                LOGGER.error("Failed to replay records from spool, will retry: <{}>", e.getMessage(), e);
+                try {
+                    Thread.sleep(1000);
+                }
+                catch (InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        replayThread.interrupt();
+        try {
+            replayThread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (forceExecutor != null) {
+            forceExecutor.shutdown();
+        }
+        spool.close();
+    }
+}
@@ -0,0 +1,263 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.syslog;
+
+import com.teragrep.rlo_14.Facility;
+import com.teragrep.rlo_14.Severity;
+import com.teragrep.lsh_01.conversion.Utf8Bytes;
+import io.netty.util.AsciiString;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Serializes the syslog messages of lsh_01 straight into UTF-8 bytes. The output is identical to building a
+ * {@code com.teragrep.rlo_14.SyslogMessage} with the lsh_01_headers@48577 and lsh_01@48577 elements and encoding
+ * {@code toRfc5424SyslogMessage()} as UTF-8, but the length of the record is computed first and the record is written
+ * into an array of that size without intermediate Strings. The fields that are shared by the messages of a request are
+ * rendered once into a {@link Rfc5424Template}.
+ */
+public final class Rfc5424Serializer {
+
+    private final static byte[] NIL_PROCID_MSGID = " - - ".getBytes(StandardCharsets.US_ASCII);
+    private final static byte[] HEADERS_SD_ID = "[lsh_01_headers@48577".getBytes(StandardCharsets.US_ASCII);
+    private final static byte[] SUBJECT_SD_PARAM = "][lsh_01@48577 subject=\"".getBytes(StandardCharsets.US_ASCII);
+    private final static byte[] SD_END = "\"]".getBytes(StandardCharsets.US_ASCII);
+
+    private final byte[] priorityAndVersion;
+    private final Rfc5424Timestamp timestamp;
+
+    public Rfc5424Serializer() {
+        this(Facility.USER, Severity.INFORMATIONAL, new Rfc5424Timestamp());
+    }
+
+    public Rfc5424Serializer(Facility facility, Severity severity, Rfc5424Timestamp timestamp) {
+        final int priority = facility.numericalCode() * 8 + severity.numericalCode();
+        this.priorityAndVersion = ("<" + priority + ">1 ").getBytes(StandardCharsets.US_ASCII);
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Serializes a single message.
+     *
+     * @param headers are written as SD-PARAMs of lsh_01_headers@48577, null values as empty strings
+     * @param message MSG part, left out if null
+     * @throws IllegalArgumentException if a header name is not a valid SD-PARAM name
+     */
+    public byte[] serialize(
+            long epochMillis,
+            String hostname,
+            String appName,
+            Map<String, String> headers,
+            String subject,
+            CharSequence message
+    ) {
+        return serialize(epochMillis, template(hostname, appName, headers, subject), message);
+    }
+
+    /**
+     * Renders the fields that are shared by the messages of a request.
+     *
+     * @param headers are written as SD-PARAMs of lsh_01_headers@48577, null values as empty strings
+     * @throws IllegalArgumentException if a header name is not a valid SD-PARAM name
+     */
+    public Rfc5424Template template(String hostname, String appName, Map<String, String> headers, String subject) {
+        final String host = String.valueOf(hostname);
+        final String app = String.valueOf(appName);
+
+        int length = 1 + utf8Length(host, false) + 1 + utf8Length(app, false) + NIL_PROCID_MSGID.length
+                + HEADERS_SD_ID.length;
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            validateParamName(header.getKey());
+            // ' name="value"'
+            length += 1 + utf8Length(header.getKey(), false) + 2 + utf8Length(valueOf(header), true) + 1;
+        }
+        length += SUBJECT_SD_PARAM.length + utf8Length(subject, true) + SD_END.length;
+
+        final byte[] bytes = new byte[length];
+        int position = 0;
+        bytes[position++] = ' ';
+        position = writeUtf8(host, false, bytes, position);
+        bytes[position++] = ' ';
+        position = writeUtf8(app, false, bytes, position);
+        position = write(NIL_PROCID_MSGID, bytes, position);
+        position = write(HEADERS_SD_ID, bytes, position);
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            bytes[position++] = ' ';
+            position = writeUtf8(header.getKey(), false, bytes, position);
+            bytes[position++] = '=';
+            bytes[position++] = '"';
+            position = writeUtf8(valueOf(header), true, bytes, position);
+            bytes[position++] = '"';
+        }
+        position = write(SUBJECT_SD_PARAM, bytes, position);
+        position = writeUtf8(subject, true, bytes, position);
+        position = write(SD_END, bytes, position);
+        if (position != length) {
+            throw new IllegalStateException("Rendered <" + position + "> bytes instead of <" + length + ">");
+        }
+        return new Rfc5424Template(hostname, appName, headers, subject, bytes);
+    }
+
+    /**
+     * Serializes a message of a request using the fields rendered for the request.
+     *
+     * @param message MSG part, left out if null. The bytes of an AsciiString or Utf8Bytes are copied as they are.
+     */
+    public byte[] serialize(long epochMillis, Rfc5424Template template, CharSequence message) {
+        int length = priorityAndVersion.length + timestamp.length(epochMillis) + template.length();
+        if (message instanceof AsciiString) {
+            length += 1 + message.length();
+        }
+        else if (message instanceof Utf8Bytes) {
+            length += 1 + ((Utf8Bytes) message).byteLength();
+        }
+        else if (message != null) {
+            length += 1 + utf8Length(message, false);
+        }
+
+        final byte[] record = new byte[length];
+        int position = write(priorityAndVersion, record, 0);
+        position = timestamp.write(epochMillis, record, position);
+        position = template.write(record, position);
+        if (message instanceof AsciiString) {
+            final AsciiString ascii = (AsciiString) message;
+            record[position++] = ' ';
+            System.arraycopy(ascii.array(), ascii.arrayOffset(), record, position, ascii.length());
+            position += ascii.length();
+        }
+        else if (message instanceof Utf8Bytes) {
+            record[position++] = ' ';
+            position = ((Utf8Bytes) message).write(record, position);
+        }
+        else if (message != null) {
+            record[position++] = ' ';
+            position = writeUtf8(message, false, record, position);
+        }
+        if (position != length) {
+            throw new IllegalStateException("Serialized <" + position + "> bytes instead of <" + length + ">");
+        }
+        return record;
+    }
+
+    private String valueOf(Map.Entry<String, String> header) {
+        final String value = header.getValue();
+        if (value == null) {
+            return "";
+        }
+        return value;
+    }
+
+    /**
+     * Same rules as rlo_14 SDParam.
+     */
+    private void validateParamName(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("PARAM-NAME cannot be null");
+        }
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("PARAM-NAME cannot be empty");
+        }
+        if (name.length() > 32) {
+            throw new IllegalArgumentException("PARAM-NAME must be less than 32 characters: " + name);
+        }
+        if (name.contains("=")) {
+            throw new IllegalArgumentException("PARAM-NAME cannot contain '='");
+        }
+        if (name.contains(" ")) {
+            throw new IllegalArgumentException("PARAM-NAME cannot contain ' '");
+        }
+        if (name.contains("]")) {
+            throw new IllegalArgumentException("PARAM-NAME cannot contain ']'");
+        }
+        if (name.contains("\"")) {
+            throw new IllegalArgumentException("PARAM-NAME cannot contain '\"'");
+        }
+    }
+
+    private int write(byte[] bytes, byte[] destination, int offset) {
+        System.arraycopy(bytes, 0, destination, offset, bytes.length);
+        return offset + bytes.length;
+    }
+
+    /**
+     * Length of the string in UTF-8. Unpaired surrogates are replaced with '?' like {@link String#getBytes} does.
+     *
+     * @param escaped whether '"', '\' and ']' are escaped with '\' as in PARAM-VALUE
+     */
+    private int utf8Length(CharSequence string, boolean escaped) {
+        int length = 0;
+        final int chars = string.length();
+        for (int i = 0; i < chars; i++) {
+            final char c = string.charAt(i);
+            if (c < 0x80) {
+                length += escaped && (c == '"' || c == '\\' || c == ']') ? 2 : 1;
+            }
+            else if (c < 0x800) {
+                length += 2;
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(string.charAt(i + 1))) {
+                length += 4;
+                i++;
+            }
+            else if (Character.isSurrogate(c)) {
+                length += 1;
+            }
+            else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private int writeUtf8(CharSequence string, boolean escaped, byte[] destination, int offset) {
+        int position = offset;
+        final int chars = string.length();
+        for (int i = 0; i < chars; i++) {
+            final char c = string.charAt(i);
+            if (c < 0x80) {
+                if (escaped && (c == '"' || c == '\\' || c == ']')) {
+                    destination[position++] = '\\';
+                }
+                destination[position++] = (byte) c;
+            }
+            else if (c < 0x800) {
+                destination[position++] = (byte) (0xC0 | c >> 6);
+                destination[position++] = (byte) (0x80 | c & 0x3F);
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(string.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, string.charAt(++i));
+                destination[position++] = (byte) (0xF0 | codePoint >> 18);
+                destination[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                destination[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                destination[position++] = (byte) (0x80 | codePoint & 0x3F);
+            }
+            else if (Character.isSurrogate(c)) {
+                destination[position++] = '?';
+            }
+            else {
+                destination[position++] = (byte) (0xE0 | c >> 12);
+                destination[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                destination[position++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return position;
+    }
+}
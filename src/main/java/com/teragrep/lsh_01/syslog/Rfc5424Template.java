@@ -0,0 +1,63 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.syslog;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The part of a syslog record that is the same for every message of a request: HOSTNAME, APP-NAME, the NIL PROCID
+ * and MSGID, and the structured data with the request headers and the subject. Rendered once and copied into every
+ * record.
+ */
+public final class Rfc5424Template {
+
+    private final String hostname;
+    private final String appName;
+    private final Map<String, String> headers;
+    private final String subject;
+    private final byte[] bytes;
+
+    Rfc5424Template(String hostname, String appName, Map<String, String> headers, String subject, byte[] bytes) {
+        this.hostname = hostname;
+        this.appName = appName;
+        this.headers = headers;
+        this.subject = subject;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Headers are compared by identity: the header maps are created once per request and not modified afterwards, so
+     * the same map means the same request.
+     */
+    public boolean isRenderedFrom(String hostname, String appName, Map<String, String> headers, String subject) {
+        return this.headers == headers && Objects.equals(this.hostname, hostname)
+                && Objects.equals(this.appName, appName) && Objects.equals(this.subject, subject);
+    }
+
+    int length() {
+        return bytes.length;
+    }
+
+    int write(byte[] destination, int offset) {
+        System.arraycopy(bytes, 0, destination, offset, bytes.length);
+        return offset + bytes.length;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.syslog;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes timestamps the way {@link Instant#toString()} formats millisecond precision instants. The date and time up to
+ * the second are formatted once per second and reused for the messages of that second.
+ */
+public final class Rfc5424Timestamp {
+
+    private final AtomicReference<Second> cached;
+
+    public Rfc5424Timestamp() {
+        this.cached = new AtomicReference<>(new Second(0));
+    }
+
+    public int length(long epochMillis) {
+        final int fraction = fraction(epochMillis);
+        return second(epochMillis).prefix.length + (fraction == 0 ? 1 : 5);
+    }
+
+    /**
+     * @return offset after the timestamp
+     */
+    public int write(long epochMillis, byte[] destination, int offset) {
+        final byte[] prefix = second(epochMillis).prefix;
+        System.arraycopy(prefix, 0, destination, offset, prefix.length);
+        int position = offset + prefix.length;
+        final int fraction = fraction(epochMillis);
+        if (fraction != 0) {
+            destination[position++] = '.';
+            destination[position++] = (byte) ('0' + fraction / 100);
+            destination[position++] = (byte) ('0' + fraction / 10 % 10);
+            destination[position++] = (byte) ('0' + fraction % 10);
+        }
+        destination[position++] = 'Z';
+        return position;
+    }
+
+    private int fraction(long epochMillis) {
+        return (int) Math.floorMod(epochMillis, 1000L);
+    }
+
+    private Second second(long epochMillis) {
+        final long epochSecond = Math.floorDiv(epochMillis, 1000L);
+        Second second = cached.get();
+        if (second.epochSecond != epochSecond) {
+            second = new Second(epochSecond);
+            cached.set(second);
+        }
+        return second;
+    }
+
+    private static final class Second {
+
+        private final long epochSecond;
+        private final byte[] prefix;
+
+        private Second(long epochSecond) {
+            this.epochSecond = epochSecond;
+            final String formatted = Instant.ofEpochSecond(epochSecond).toString();
+            // without the trailing Z, fractions of a second are written before it
+            this.prefix = formatted.substring(0, formatted.length() - 1).getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+}
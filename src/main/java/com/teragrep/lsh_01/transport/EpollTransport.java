@@ -0,0 +1,68 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.transport;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Linux native epoll transport. Uses edge-triggered mode and enables TCP_QUICKACK on accepted connections, TCP_FASTOPEN
+ * is enabled when a positive backlog is given.
+ */
+public final class EpollTransport implements Transport {
+
+    private final int tcpFastOpenBacklog;
+
+    public EpollTransport(int tcpFastOpenBacklog) {
+        this.tcpFastOpenBacklog = tcpFastOpenBacklog;
+    }
+
+    @Override
+    public EventLoopGroup eventLoopGroup(int threads, ThreadFactory threadFactory) {
+        return new EpollEventLoopGroup(threads, threadFactory);
+    }
+
+    @Override
+    public ServerBootstrap configure(ServerBootstrap serverBootstrap) {
+        serverBootstrap.channel(EpollServerSocketChannel.class).childOption(EpollChannelOption.TCP_QUICKACK, true);
+        if (tcpFastOpenBacklog > 0) {
+            serverBootstrap.option(ChannelOption.TCP_FASTOPEN, tcpFastOpenBacklog);
+        }
+        return serverBootstrap;
+    }
+
+    @Override
+    public Bootstrap configure(Bootstrap bootstrap) {
+        return bootstrap.channel(EpollSocketChannel.class);
+    }
+
+    @Override
+    public String toString() {
+        return "EpollTransport{" + "tcpFastOpenBacklog=" + tcpFastOpenBacklog + '}';
+    }
+}
@@ -0,0 +1,55 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.transport;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * JDK selector based transport, available on all platforms.
+ */
+public final class NioTransport implements Transport {
+
+    @Override
+    public EventLoopGroup eventLoopGroup(int threads, ThreadFactory threadFactory) {
+        return new NioEventLoopGroup(threads, threadFactory);
+    }
+
+    @Override
+    public ServerBootstrap configure(ServerBootstrap serverBootstrap) {
+        return serverBootstrap.channel(NioServerSocketChannel.class);
+    }
+
+    @Override
+    public Bootstrap configure(Bootstrap bootstrap) {
+        return bootstrap.channel(NioSocketChannel.class);
+    }
+
+    @Override
+    public String toString() {
+        return "NioTransport{}";
+    }
+}
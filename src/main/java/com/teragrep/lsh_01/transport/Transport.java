@@ -0,0 +1,55 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.transport;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.EventLoopGroup;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Netty transport used by the HTTP server and the RELP client, e.g. NIO or native epoll.
+ */
+public interface Transport {
+
+    /**
+     * @param threads       amount of event loop threads
+     * @param threadFactory factory for the event loop threads
+     * @return event loop group matching the transport
+     */
+    EventLoopGroup eventLoopGroup(int threads, ThreadFactory threadFactory);
+
+    /**
+     * Sets the server channel class and the transport specific options.
+     *
+     * @param serverBootstrap bootstrap to configure
+     * @return the configured bootstrap
+     */
+    ServerBootstrap configure(ServerBootstrap serverBootstrap);
+
+    /**
+     * Sets the client channel class and the transport specific options.
+     *
+     * @param bootstrap bootstrap to configure
+     * @return the configured bootstrap
+     */
+    Bootstrap configure(Bootstrap bootstrap);
+}
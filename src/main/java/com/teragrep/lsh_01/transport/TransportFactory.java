@@ -0,0 +1,85 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.transport;
+
+import com.teragrep.lsh_01.config.NettyConfig;
+import io.netty.channel.epoll.Epoll;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public final class TransportFactory {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(TransportFactory.class);
+
+    private final String transport;
+    private final int tcpFastOpenBacklog;
+
+    public TransportFactory(NettyConfig nettyConfig) {
+        this(nettyConfig.transport, nettyConfig.tcpFastOpenBacklog);
+    }
+
+    public TransportFactory(String transport, int tcpFastOpenBacklog) {
+        this.transport = transport;
+        this.tcpFastOpenBacklog = tcpFastOpenBacklog;
+    }
+
+    /**
+     * Selects the transport based on server.transport. With 'auto' native epoll is used when it is available and NIO
+     * otherwise.
+     *
+     * @return selected transport
+     */
+    public Transport transport() {
+        final Transport selected;
+        switch (transport) {
+            case "nio":
+                selected = new NioTransport();
+                break;
+            case "epoll":
+                if (!Epoll.isAvailable()) {
+                    throw new IllegalStateException(
+                            "Epoll transport was requested but it is not available",
+                            Epoll.unavailabilityCause()
+                    );
+                }
+                selected = new EpollTransport(tcpFastOpenBacklog);
+                break;
+            case "auto":
+                if (Epoll.isAvailable()) {
+                    selected = new EpollTransport(tcpFastOpenBacklog);
+                }
+                else {
+                    LOGGER
+                            .info(
+                                    "Epoll transport is not available, falling back to NIO: <{}>",
+                                    Epoll.unavailabilityCause().getMessage()
+                            );
+                    selected = new NioTransport();
+                }
+                break;
+            default:
+                throw new IllegalArgumentException(
+                        "Configuration has an invalid transport: " + transport + ". Has to be 'auto', 'epoll' or 'nio'."
+                );
+        }
+        LOGGER.info("Using transport <[{}]>", selected);
+        return selected;
+    }
+}
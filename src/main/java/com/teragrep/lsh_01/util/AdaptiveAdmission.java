@@ -0,0 +1,105 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.util;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Admits a varying number of requests at a time. The limit follows the RELP send latency with additive increase and
+ * multiplicative decrease: it grows by one for each request sent within latencyThresholdMillis while the limit is at
+ * least half used, and shrinks by a tenth when a request takes longer. The slow sends of the requests that were already
+ * admitted all report the same congestion, so the limit shrinks at most once per latencyThresholdMillis. The limit
+ * stays between minLimit and maxLimit.
+ */
+public final class AdaptiveAdmission implements Admission, LatencyObserver {
+
+    private final static double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+
+    // guarded by this
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseNanos;
+
+    // metrics
+    private final Meter rejections;
+
+    public AdaptiveAdmission(int minLimit, int maxLimit, long latencyThresholdMillis, MetricRegistry metricRegistry) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+        // starts from the fixed limit and backs off once latency grows
+        this.limit = maxLimit;
+        this.inFlight = 0;
+        this.lastDecreaseNanos = System.nanoTime() - latencyThresholdNanos;
+        this.rejections = metricRegistry.meter(name(AdaptiveAdmission.class, "rejections"));
+        metricRegistry.gauge(name(AdaptiveAdmission.class, "limit"), () -> (Gauge<Integer>) this::limit);
+        metricRegistry.gauge(name(AdaptiveAdmission.class, "inFlight"), () -> (Gauge<Integer>) this::inFlight);
+    }
+
+    @Override
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            rejections.mark();
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    @Override
+    public synchronized void release() {
+        inFlight--;
+    }
+
+    @Override
+    public void onLatency(long latencyNanos) {
+        onLatency(latencyNanos, System.nanoTime());
+    }
+
+    public synchronized void onLatency(long latencyNanos, long nowNanos) {
+        if (latencyNanos > latencyThresholdNanos) {
+            if (nowNanos - lastDecreaseNanos >= latencyThresholdNanos) {
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                lastDecreaseNanos = nowNanos;
+            }
+        }
+        else if (inFlight * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+}
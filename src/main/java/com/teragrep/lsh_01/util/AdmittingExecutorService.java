@@ -0,0 +1,107 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.util;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decorator for ExecutorService that limits how many tasks run at once. Tasks that are not admitted are rejected the
+ * same way CustomRejectedExecutionHandler rejects them for a full ThreadPoolExecutor. An AsyncRunnable keeps its permit
+ * until its completion, so a request that waits for the RELP acks after run() returns is still counted.
+ */
+public final class AdmittingExecutorService extends AbstractExecutorService {
+
+    private final ExecutorService executorService;
+    private final Admission admission;
+
+    public AdmittingExecutorService(ExecutorService executorService, Admission admission) {
+        this.executorService = executorService;
+        this.admission = admission;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (!admission.tryAcquire()) {
+            reject(command);
+            return;
+        }
+        try {
+            executorService.execute(() -> {
+                try {
+                    command.run();
+                }
+                finally {
+                    completion(command).whenComplete((ignored, error) -> admission.release());
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            admission.release();
+            reject(command);
+        }
+    }
+
+    private CompletionStage<Void> completion(Runnable command) {
+        if (command instanceof AsyncRunnable) {
+            return ((AsyncRunnable) command).completion();
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private void reject(Runnable command) {
+        if (command instanceof RejectableRunnable) {
+            ((RejectableRunnable) command).onRejection();
+        }
+        else {
+            throw new RejectedExecutionException("Task was not admitted");
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return executorService.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return executorService.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return executorService.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executorService.awaitTermination(timeout, unit);
+    }
+}
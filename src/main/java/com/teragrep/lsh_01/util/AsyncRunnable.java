@@ -0,0 +1,34 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.util;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Runnable whose work can go on after run() returns, such as a request that is answered once the RELP server has
+ * acknowledged its records.
+ */
+public abstract interface AsyncRunnable extends Runnable {
+
+    /**
+     * @return completes once the work started by run() is done, also when run() throws
+     */
+    public abstract CompletionStage<Void> completion();
+}
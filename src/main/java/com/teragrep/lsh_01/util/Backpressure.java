@@ -0,0 +1,93 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.util;
+
+import io.netty.channel.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the requests that have been read but not yet responded to across all connections. A connection that sends a
+ * request while highWaterMark requests are outstanding stops being read from, so TCP flow control slows down the
+ * client. Reading from the paused connections continues once the outstanding requests drop to lowWaterMark.
+ */
+public final class Backpressure {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(Backpressure.class);
+
+    private final int highWaterMark;
+    private final int lowWaterMark;
+    private final AtomicInteger outstanding;
+    private final Set<Channel> paused;
+
+    public Backpressure(int highWaterMark, int lowWaterMark) {
+        this.highWaterMark = highWaterMark;
+        this.lowWaterMark = lowWaterMark;
+        this.outstanding = new AtomicInteger();
+        this.paused = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Called when a request has been read from the channel.
+     */
+    public void acquire(Channel channel) {
+        if (outstanding.incrementAndGet() >= highWaterMark) {
+            channel.config().setAutoRead(false);
+            paused.add(channel);
+            LOGGER.debug("Paused reading from <{}>", channel);
+            // the outstanding requests may have been responded to before the channel was added
+            if (outstanding.get() <= lowWaterMark) {
+                resume();
+            }
+        }
+    }
+
+    /**
+     * Called when a response has been written for a request.
+     */
+    public void release() {
+        if (outstanding.decrementAndGet() <= lowWaterMark && !paused.isEmpty()) {
+            resume();
+        }
+    }
+
+    public int outstanding() {
+        return outstanding.get();
+    }
+
+    public int paused() {
+        return paused.size();
+    }
+
+    private void resume() {
+        final Iterator<Channel> iterator = paused.iterator();
+        while (iterator.hasNext()) {
+            final Channel channel = iterator.next();
+            iterator.remove();
+            channel.config().setAutoRead(true);
+            LOGGER.debug("Resumed reading from <{}>", channel);
+        }
+    }
+}
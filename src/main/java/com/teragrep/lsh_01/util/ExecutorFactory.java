@@ -0,0 +1,164 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.util;
+
+import com.codahale.metrics.MetricRegistry;
+import com.teragrep.lsh_01.config.NettyConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.teragrep.lsh_01.util.DaemonThreadFactory.daemonThreadFactory;
+
+public final class ExecutorFactory {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ExecutorFactory.class);
+
+    private final String executor;
+    private final int threads;
+    private final int maxPendingRequests;
+    private final String admission;
+    // null unless server.admission is adaptive
+    private final AdaptiveAdmission adaptiveAdmission;
+
+    public ExecutorFactory(NettyConfig nettyConfig, MetricRegistry metricRegistry) {
+        this(
+                nettyConfig.executor,
+                nettyConfig.threads,
+                nettyConfig.maxPendingRequests,
+                nettyConfig.admission,
+                nettyConfig.admissionMinLimit,
+                nettyConfig.admissionLatencyThresholdMillis,
+                metricRegistry
+        );
+    }
+
+    public ExecutorFactory(
+            String executor,
+            int threads,
+            int maxPendingRequests,
+            String admission,
+            int admissionMinLimit,
+            long admissionLatencyThresholdMillis,
+            MetricRegistry metricRegistry
+    ) {
+        this.executor = executor;
+        this.threads = threads;
+        this.maxPendingRequests = maxPendingRequests;
+        this.admission = admission;
+        if ("adaptive".equals(admission)) {
+            this.adaptiveAdmission = new AdaptiveAdmission(
+                    admissionMinLimit,
+                    maxPendingRequests,
+                    admissionLatencyThresholdMillis,
+                    metricRegistry
+            );
+        }
+        else {
+            this.adaptiveAdmission = null;
+        }
+    }
+
+    /**
+     * Creates the executor for handling requests based on server.executor and server.admission. 'platform' runs the
+     * requests on a fixed number of threads and queues up to maxPendingRequests more. 'virtual' starts a virtual thread
+     * for each request and admits up to maxPendingRequests requests at once. With 'adaptive' admission the number of
+     * requests admitted at once follows the latency given to {@link #latencyObserver()}, up to maxPendingRequests.
+     *
+     * @return executor that rejects requests that are not admitted
+     */
+    public ExecutorService executor() {
+        final ExecutorService selected;
+        switch (executor) {
+            case "platform":
+                final ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
+                        threads,
+                        threads,
+                        0,
+                        TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(maxPendingRequests),
+                        daemonThreadFactory("http-input-handler-executor"),
+                        new CustomRejectedExecutionHandler()
+                );
+                threadPoolExecutor.prestartAllCoreThreads();
+                if ("adaptive".equals(admission)) {
+                    selected = new AdmittingExecutorService(threadPoolExecutor, adaptiveAdmission);
+                }
+                else {
+                    selected = threadPoolExecutor;
+                }
+                break;
+            case "virtual":
+                if ("adaptive".equals(admission)) {
+                    selected = new AdmittingExecutorService(virtualThreadPerTaskExecutor(), adaptiveAdmission);
+                }
+                else {
+                    selected = new AdmittingExecutorService(
+                            virtualThreadPerTaskExecutor(),
+                            new SemaphoreAdmission(maxPendingRequests)
+                    );
+                }
+                break;
+            default:
+                throw new IllegalArgumentException(
+                        "Configuration has an invalid executor: " + executor + ". Has to be 'platform' or 'virtual'."
+                );
+        }
+        LOGGER.info("Using executor <[{}]> with <[{}]> admission", executor, admission);
+        return selected;
+    }
+
+    /**
+     * @return observer of the RELP send latency that the adaptive admission follows, does nothing with other admissions
+     */
+    public LatencyObserver latencyObserver() {
+        final LatencyObserver latencyObserver;
+        if (adaptiveAdmission == null) {
+            latencyObserver = latencyNanos -> {
+            };
+        }
+        else {
+            latencyObserver = adaptiveAdmission;
+        }
+        return latencyObserver;
+    }
+
+    /**
+     * Virtual threads are available from Java 21 on. They are looked up at runtime so that the project still builds
+     * and runs on Java 11.
+     */
+    private ExecutorService virtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Virtual thread executor was requested but it requires Java 21", e);
+        }
+        catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Could not create a virtual thread executor", e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.teragrep.lsh_01.util.DaemonThreadFactory.daemonThreadFactory;
+
+/**
+ * Reloads files such as lookup tables and credentials when they are changed or replaced. The directories of the files
+ * are watched on a daemon thread.
+ */
+public final class FileWatcher implements AutoCloseable {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(FileWatcher.class);
+
+    private final WatchService watchService;
+    private final Map<Path, List<Reloadable>> reloadables;
+    private final Thread thread;
+
+    public FileWatcher(List<? extends Reloadable> watched) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.reloadables = new HashMap<>();
+        for (Reloadable reloadable : watched) {
+            final Path file = Paths.get(reloadable.path()).toAbsolutePath().normalize();
+            if (!reloadables.containsKey(file)) {
+                final Path directory = file.getParent();
+                directory
+                        .register(
+                                watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY
+                        );
+                reloadables.put(file, new ArrayList<>());
+            }
+            reloadables.get(file).add(reloadable);
+        }
+        this.thread = daemonThreadFactory("file-watcher").newThread(this::watch);
+        thread.start();
+    }
+
+    private void watch() {
+        while (true) {
+            final WatchKey key;
+            try {
+                key = watchService.take();
+            }
+            catch (ClosedWatchServiceException | InterruptedException e) {
+                return;
+            }
+            final Path directory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    LOGGER.warn("Lost events of watched directory <[{}]>, reloading its files", directory);
+                    reloadAll(directory);
+                    continue;
+                }
+                final Path file = directory.resolve((Path) event.context());
+                for (Reloadable reloadable : reloadables.getOrDefault(file, new ArrayList<>())) {
+                    reloadable.reload();
+                }
+            }
+            key.reset();
+        }
+    }
+
+    private void reloadAll(Path directory) {
+        for (Map.Entry<Path, List<Reloadable>> entry : reloadables.entrySet()) {
+            if (entry.getKey().getParent().equals(directory)) {
+                for (Reloadable reloadable : entry.getValue()) {
+                    reloadable.reload();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        }
+        catch (IOException e) {
+            LOGGER.warn("Can't close file watcher: <{}>", e.getMessage());
+        }
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,164 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.codahale.metrics.MetricRegistry;
+import com.teragrep.lsh_01.config.NettyConfig;
+import com.teragrep.lsh_01.util.AdaptiveAdmission;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class AdmissionTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(1000);
+    // latency threshold of the admissions under test
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @AfterEach
+    void reset() {
+        System.clearProperty("server.admission");
+        System.clearProperty("server.admission.minLimit");
+        System.clearProperty("server.admission.latencyThresholdMillis");
+    }
+
+    @Test
+    public void testStartsFromMaxLimit() {
+        AdaptiveAdmission admission = new AdaptiveAdmission(1, 4, 100, new MetricRegistry());
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertTrue(admission.tryAcquire());
+        }
+        Assertions.assertFalse(admission.tryAcquire());
+        Assertions.assertEquals(4, admission.inFlight());
+    }
+
+    @Test
+    public void testSlowRequestsDecreaseLimit() {
+        AdaptiveAdmission admission = new AdaptiveAdmission(1, 100, 100, new MetricRegistry());
+        slow(admission, 10);
+        // 100 * 0.9^10
+        Assertions.assertEquals(34, admission.limit());
+    }
+
+    @Test
+    public void testLimitDecreasesOncePerInterval() {
+        AdaptiveAdmission admission = new AdaptiveAdmission(1, 100, 100, new MetricRegistry());
+        long now = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertTrue(admission.tryAcquire());
+        }
+        // the requests admitted together are slow because of the same congestion
+        for (int i = 0; i < 10; i++) {
+            admission.onLatency(SLOW, now + i);
+            admission.release();
+        }
+        Assertions.assertEquals(90, admission.limit());
+
+        Assertions.assertTrue(admission.tryAcquire());
+        admission.onLatency(SLOW, now + INTERVAL);
+        admission.release();
+        Assertions.assertEquals(81, admission.limit());
+    }
+
+    @Test
+    public void testLimitStaysAboveMinLimit() {
+        AdaptiveAdmission admission = new AdaptiveAdmission(5, 100, 100, new MetricRegistry());
+        slow(admission, 100);
+        Assertions.assertEquals(5, admission.limit());
+    }
+
+    @Test
+    public void testFastRequestsIncreaseLimit() {
+        AdaptiveAdmission admission = new AdaptiveAdmission(1, 10, 100, new MetricRegistry());
+        slow(admission, 100);
+        Assertions.assertEquals(1, admission.limit());
+
+        // each time the limit is fully used a fast request raises it by one, up to the maximum
+        for (int i = 0; i < 20; i++) {
+            int limit = admission.limit();
+            for (int j = 0; j < limit; j++) {
+                Assertions.assertTrue(admission.tryAcquire());
+            }
+            for (int j = 0; j < limit; j++) {
+                admission.onLatency(FAST);
+                admission.release();
+            }
+        }
+        Assertions.assertEquals(10, admission.limit());
+    }
+
+    @Test
+    public void testUnusedLimitDoesNotGrow() {
+        AdaptiveAdmission admission = new AdaptiveAdmission(1, 100, 100, new MetricRegistry());
+        slow(admission, 10);
+        int limit = admission.limit();
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertTrue(admission.tryAcquire());
+            admission.onLatency(FAST);
+            admission.release();
+        }
+        Assertions.assertEquals(limit, admission.limit());
+    }
+
+    @Test
+    public void testMetrics() {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        AdaptiveAdmission admission = new AdaptiveAdmission(1, 2, 100, metricRegistry);
+        Assertions.assertTrue(admission.tryAcquire());
+        Assertions.assertTrue(admission.tryAcquire());
+        Assertions.assertFalse(admission.tryAcquire());
+
+        String prefix = "com.teragrep.lsh_01.util.AdaptiveAdmission.";
+        Assertions.assertEquals(1, metricRegistry.meter(prefix + "rejections").getCount());
+        Assertions.assertEquals(2, metricRegistry.getGauges().get(prefix + "limit").getValue());
+        Assertions.assertEquals(2, metricRegistry.getGauges().get(prefix + "inFlight").getValue());
+    }
+
+    @Test
+    public void testInvalidAdmission() {
+        System.setProperty("server.admission", "invalid");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new NettyConfig().validate());
+    }
+
+    @Test
+    public void testInvalidMinLimit() {
+        System.setProperty("server.admission.minLimit", "0");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new NettyConfig().validate());
+    }
+
+    @Test
+    public void testInvalidLatencyThreshold() {
+        System.setProperty("server.admission.latencyThresholdMillis", "0");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new NettyConfig().validate());
+    }
+
+    // slow requests one interval apart, each of them decreases the limit
+    private void slow(AdaptiveAdmission admission, int requests) {
+        long now = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            Assertions.assertTrue(admission.tryAcquire());
+            admission.onLatency(SLOW, now + i * INTERVAL);
+            admission.release();
+        }
+    }
+}
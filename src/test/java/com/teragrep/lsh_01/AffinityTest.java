@@ -0,0 +1,342 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.codahale.metrics.MetricRegistry;
+import com.teragrep.lsh_01.authentication.BasicAuthenticationFactory;
+import com.teragrep.lsh_01.authentication.SubjectImpl;
+import com.teragrep.lsh_01.config.RelpConfig;
+import com.teragrep.lsh_01.config.SecurityConfig;
+import com.teragrep.lsh_01.config.SpoolConfig;
+import com.teragrep.lsh_01.conversion.DefaultPayload;
+import com.teragrep.lsh_01.conversion.RelpConversion;
+import com.teragrep.lsh_01.fakes.RelpConnectionFactoryFake;
+import com.teragrep.lsh_01.pool.ConsistentHashRelpRouter;
+import com.teragrep.lsh_01.pool.IManagedRelpConnection;
+import com.teragrep.lsh_01.pool.ManagedRelpConnectionStub;
+import com.teragrep.lsh_01.pool.Pool;
+import com.teragrep.lsh_01.pool.RelpOutput;
+import com.teragrep.lsh_01.pool.RelpRouter;
+import com.teragrep.lsh_01.pool.RelpTarget;
+import com.teragrep.lsh_01.pool.TargetedRelpOutput;
+import com.teragrep.lsh_01.syslog.Rfc5424Serializer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+public class AffinityTest {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(AffinityTest.class);
+
+    private final List<byte[]> records = Collections.singletonList("test".getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    public void testNoAffinityByDefault() {
+        RelpConfig relpConfig = new RelpConfig();
+        Assertions.assertDoesNotThrow(relpConfig::validate);
+        Assertions.assertEquals("none", relpConfig.affinity);
+        Assertions.assertEquals(100, relpConfig.affinityVirtualNodes);
+    }
+
+    @Test
+    public void testInvalidAffinity() {
+        System.setProperty("relp.affinity", "appname");
+        try {
+            RelpConfig relpConfig = new RelpConfig();
+            IllegalArgumentException exception = Assertions
+                    .assertThrows(IllegalArgumentException.class, relpConfig::validate);
+            Assertions
+                    .assertEquals(
+                            "relp.affinity has to be 'none', 'subject' or 'hostname', got: appname",
+                            exception.getMessage()
+                    );
+        }
+        finally {
+            System.clearProperty("relp.affinity");
+        }
+    }
+
+    @Test
+    public void testInvalidVirtualNodes() {
+        System.setProperty("relp.affinity", "subject");
+        System.setProperty("relp.affinity.virtualNodes", "0");
+        try {
+            RelpConfig relpConfig = new RelpConfig();
+            Assertions.assertThrows(IllegalArgumentException.class, relpConfig::validate);
+        }
+        finally {
+            System.clearProperty("relp.affinity");
+            System.clearProperty("relp.affinity.virtualNodes");
+        }
+    }
+
+    @Test
+    public void testAffinityRejectsGroupCommit() {
+        System.setProperty("relp.affinity", "subject");
+        System.setProperty("relp.groupCommit.enabled", "true");
+        try {
+            RelpConfig relpConfig = new RelpConfig();
+            IllegalArgumentException exception = Assertions
+                    .assertThrows(IllegalArgumentException.class, relpConfig::validate);
+            Assertions
+                    .assertEquals(
+                            "relp.affinity can't be used with relp.groupCommit.enabled=true", exception.getMessage()
+                    );
+        }
+        finally {
+            System.clearProperty("relp.affinity");
+            System.clearProperty("relp.groupCommit.enabled");
+        }
+    }
+
+    @Test
+    public void testAffinityRejectsSpool() {
+        System.setProperty("relp.affinity", "hostname");
+        System.setProperty("spool.enabled", "true");
+        try {
+            RelpConfig relpConfig = new RelpConfig(new SpoolConfig());
+            IllegalArgumentException exception = Assertions
+                    .assertThrows(IllegalArgumentException.class, relpConfig::validate);
+            Assertions.assertEquals("relp.affinity can't be used with spool.enabled=true", exception.getMessage());
+        }
+        finally {
+            System.clearProperty("relp.affinity");
+            System.clearProperty("spool.enabled");
+        }
+    }
+
+    @Test
+    public void testKeysStayOnTarget() {
+        List<TargetedRelpOutput> targets = targets(3);
+        RelpRouter router = new ConsistentHashRelpRouter(targets, 100, "subject", new MetricRegistry());
+        RelpRouter sameRing = new ConsistentHashRelpRouter(targets, 100, "subject", new MetricRegistry());
+
+        for (int i = 0; i < 1000; i++) {
+            RelpOutput output = router.output("user-" + i, "host");
+            Assertions.assertSame(output, router.output("user-" + i, "other-host"));
+            Assertions.assertSame(output, sameRing.output("user-" + i, "host"));
+        }
+        close(targets);
+    }
+
+    @Test
+    public void testHostnameAffinity() {
+        List<TargetedRelpOutput> targets = targets(3);
+        RelpRouter router = new ConsistentHashRelpRouter(targets, 100, "hostname", new MetricRegistry());
+
+        for (int i = 0; i < 100; i++) {
+            RelpOutput output = router.output("user-0", "host-" + i);
+            for (int j = 1; j < 10; j++) {
+                Assertions.assertSame(output, router.output("user-" + j, "host-" + i));
+            }
+        }
+        close(targets);
+    }
+
+    @Test
+    public void testKeysSpreadEvenly() {
+        List<TargetedRelpOutput> targets = targets(3);
+        RelpRouter router = new ConsistentHashRelpRouter(targets, 100, "subject", new MetricRegistry());
+
+        Map<RelpOutput, Integer> counts = count(router, 3000);
+        Assertions.assertEquals(3, counts.size());
+        for (int count : counts.values()) {
+            Assertions.assertTrue(count > 700 && count < 1300, "count " + count);
+        }
+        close(targets);
+    }
+
+    @Test
+    public void testOnlyEjectedKeysMove() {
+        List<MetricRegistry> registries = new ArrayList<>();
+        List<TargetedRelpOutput> targets = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            registries.add(new MetricRegistry());
+            // the first target acknowledges slower than the threshold and is ejected after its first send
+            targets.add(target(i, i == 0 ? 30 : 0, registries.get(i)));
+        }
+        MetricRegistry registry = new MetricRegistry();
+        RelpRouter router = new ConsistentHashRelpRouter(targets, 100, "subject", registry);
+
+        List<RelpOutput> before = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            before.add(router.output("user-" + i, "host"));
+        }
+        targets.get(0).send(records);
+        Assertions.assertEquals(1, registries.get(0).counter(name(TargetedRelpOutput.class, "ejections")).getCount());
+
+        int moved = 0;
+        Map<RelpOutput, Integer> movedTo = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            RelpOutput after = router.output("user-" + i, "host");
+            if (before.get(i) == targets.get(0)) {
+                Assertions.assertNotSame(targets.get(0), after);
+                moved++;
+                movedTo.merge(after, 1, Integer::sum);
+            }
+            else {
+                Assertions.assertSame(before.get(i), after);
+            }
+        }
+        Assertions.assertEquals(moved, registry.counter(name(ConsistentHashRelpRouter.class, "remapped")).getCount());
+        // the keys of the ejected target are shared by the remaining ones
+        Assertions.assertEquals(2, movedTo.size());
+        close(targets);
+    }
+
+    @Test
+    public void testAllEjectedStillRoutes() {
+        MetricRegistry targetRegistry = new MetricRegistry();
+        TargetedRelpOutput target = target(0, 30, targetRegistry);
+        RelpRouter router = new ConsistentHashRelpRouter(
+                Collections.singletonList(target),
+                100,
+                "subject",
+                new MetricRegistry()
+        );
+
+        target.send(records);
+        Assertions.assertEquals(1, targetRegistry.counter(name(TargetedRelpOutput.class, "ejections")).getCount());
+        Assertions.assertSame(target, router.output("user-0", "host"));
+        target.close();
+    }
+
+    @Test
+    public void testConversionRoutesBySubject() {
+        List<MetricRegistry> registries = new ArrayList<>();
+        List<TargetedRelpOutput> targets = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            registries.add(new MetricRegistry());
+            targets.add(target(i, 0, registries.get(i)));
+        }
+        RelpRouter router = new ConsistentHashRelpRouter(targets, 100, "subject", new MetricRegistry());
+        RelpConversion conversion = new RelpConversion(
+                router,
+                new SecurityConfig(),
+                new BasicAuthenticationFactory().create(),
+                key -> "host.example.com",
+                key -> "appname",
+                new Rfc5424Serializer()
+        );
+
+        for (int i = 0; i < 10; i++) {
+            Assertions
+                    .assertTrue(
+                            conversion
+                                    .copy()
+                                    .onNewPayload(
+                                            new SubjectImpl("ExampleUser"), new HashMap<>(),
+                                            new DefaultPayload("message")
+                                    )
+                    );
+        }
+        RelpOutput expected = router.output("ExampleUser", "host.example.com");
+        for (int i = 0; i < 3; i++) {
+            long sends = registries.get(i).timer(name(TargetedRelpOutput.class, "latency")).getCount();
+            Assertions.assertEquals(targets.get(i) == expected ? 10 : 0, sends);
+        }
+        close(targets);
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testRemappedKeysOnEjection() {
+        final int keys = 100000;
+        List<TargetedRelpOutput> targets = targets(4);
+        RelpRouter router = new ConsistentHashRelpRouter(targets, 100, "subject", new MetricRegistry());
+
+        // keys that would move if the fourth target was removed from modulo hashing instead of the ring
+        int moduloMoved = 0;
+        for (int i = 0; i < keys; i++) {
+            int hash = ("user-" + i).hashCode() & Integer.MAX_VALUE;
+            if (hash % 4 != hash % 3) {
+                moduloMoved++;
+            }
+        }
+        List<TargetedRelpOutput> remaining = targets.subList(0, 3);
+        RelpRouter smaller = new ConsistentHashRelpRouter(remaining, 100, "subject", new MetricRegistry());
+        int ringMoved = 0;
+        for (int i = 0; i < keys; i++) {
+            if (router.output("user-" + i, "host") != smaller.output("user-" + i, "host")) {
+                ringMoved++;
+            }
+        }
+
+        for (int i = 0; i < keys; i++) {
+            router.output("user-" + i, "host");
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < keys; i++) {
+            router.output("user-" + i, "host");
+        }
+        double lookupNanos = (System.nanoTime() - start) / (double) keys;
+
+        LOGGER
+                .info(
+                        "Removing one of 4 targets moved <{}>% of <{}> keys on the ring and <{}>% with modulo hashing, a lookup took <{}> ns",
+                        String.format("%.1f", ringMoved * 100d / keys), keys,
+                        String.format("%.1f", moduloMoved * 100d / keys), String.format("%.0f", lookupNanos)
+                );
+        Assertions.assertTrue(ringMoved < moduloMoved);
+        close(targets);
+    }
+
+    private Map<RelpOutput, Integer> count(RelpRouter router, int keys) {
+        Map<RelpOutput, Integer> counts = new HashMap<>();
+        for (int i = 0; i < keys; i++) {
+            counts.merge(router.output("user-" + i, "host"), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private List<TargetedRelpOutput> targets(int count) {
+        List<TargetedRelpOutput> targets = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            targets.add(target(i, 0, new MetricRegistry()));
+        }
+        return targets;
+    }
+
+    // a target over fake connections, ejected when an acknowledgement takes over 10 ms
+    private TargetedRelpOutput target(int index, int sendLatency, MetricRegistry registry) {
+        Pool<IManagedRelpConnection> pool = new Pool<>(
+                new RelpConnectionFactoryFake(sendLatency, 0, new RelpConfig(), registry),
+                new ManagedRelpConnectionStub()
+        );
+        return new TargetedRelpOutput(new RelpTarget("relay-" + index, 601), pool, 10, 60000, registry);
+    }
+
+    private void close(List<TargetedRelpOutput> targets) {
+        for (TargetedRelpOutput target : targets) {
+            target.close();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.teragrep.lsh_01.config.InternalEndpointUrlConfig;
+import com.teragrep.lsh_01.fakes.PendingMessageHandlerFake;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncMessageProcessorTest {
+
+    @Test
+    public void testResponseIsWrittenOnCompletion() throws InterruptedException {
+        CompletableFuture<Boolean> sent = new CompletableFuture<>();
+        EmbeddedChannel channel = request(sent);
+
+        // the executor thread is free while the messages are still being sent
+        channel.runPendingTasks();
+        Assertions.assertNull(channel.readOutbound());
+
+        sent.complete(true);
+        channel.runPendingTasks();
+        FullHttpResponse response = channel.readOutbound();
+        Assertions.assertEquals(HttpResponseStatus.OK, response.status());
+        response.release();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testFailedCompletion() throws InterruptedException {
+        CompletableFuture<Boolean> sent = new CompletableFuture<>();
+        EmbeddedChannel channel = request(sent);
+
+        sent.complete(false);
+        channel.runPendingTasks();
+        FullHttpResponse response = channel.readOutbound();
+        Assertions.assertEquals(HttpResponseStatus.INTERNAL_SERVER_ERROR, response.status());
+        response.release();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testExceptionalCompletion() throws InterruptedException {
+        CompletableFuture<Boolean> sent = new CompletableFuture<>();
+        EmbeddedChannel channel = request(sent);
+
+        sent.completeExceptionally(new IllegalStateException("connection lost"));
+        channel.runPendingTasks();
+        FullHttpResponse response = channel.readOutbound();
+        Assertions.assertEquals(HttpResponseStatus.INTERNAL_SERVER_ERROR, response.status());
+        response.release();
+        channel.finishAndReleaseAll();
+    }
+
+    /**
+     * Sends a request to a handler backed by a single executor thread and waits until the thread has returned.
+     */
+    private EmbeddedChannel request(CompletableFuture<Boolean> sent) throws InterruptedException {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new HttpServerHandler(
+                        new PendingMessageHandlerFake(sent),
+                        executor,
+                        HttpResponseStatus.OK,
+                        new InternalEndpointUrlConfig()
+                )
+        );
+        channel
+                .writeInbound(
+                        new DefaultFullHttpRequest(
+                                HttpVersion.HTTP_1_1,
+                                HttpMethod.POST,
+                                "/",
+                                Unpooled.copiedBuffer("message", StandardCharsets.UTF_8)
+                        )
+                );
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        return channel;
+    }
+}
@@ -0,0 +1,274 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.codahale.metrics.MetricRegistry;
+import com.teragrep.lsh_01.authentication.CachingAuthentication;
+import com.teragrep.lsh_01.authentication.ReloadingAuthentication;
+import com.teragrep.lsh_01.authentication.Subject;
+import com.teragrep.lsh_01.config.SecurityConfig;
+import com.teragrep.lsh_01.util.FileWatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+public class AuthenticationCacheTest {
+
+    private Path directory;
+    private Path file;
+    private MetricRegistry metricRegistry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("credentials");
+        file = directory.resolve("credentials.json");
+        write(file, "FirstPassword");
+        metricRegistry = new MetricRegistry();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(directory);
+        System.clearProperty("security.authCache.enabled");
+        System.clearProperty("security.authCache.maxEntries");
+        System.clearProperty("security.authCache.maxNegativeEntries");
+        System.clearProperty("security.authCache.negativeTtlMillis");
+    }
+
+    @Test
+    public void testCachesSubject() {
+        CachingAuthentication authentication = authentication(100, 60000, 60000);
+
+        Subject first = authentication.asSubject(token("ExampleUser", "FirstPassword"));
+        Subject second = authentication.asSubject(token("ExampleUser", "FirstPassword"));
+
+        Assertions.assertFalse(first.isStub());
+        Assertions.assertEquals("ExampleUser", first.subject());
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(1, hits());
+        Assertions.assertEquals(1, misses());
+    }
+
+    @Test
+    public void testCachesFailedCredentials() {
+        CachingAuthentication authentication = authentication(100, 60000, 60000);
+
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertTrue(authentication.asSubject(token("ExampleUser", "WrongPassword")).isStub());
+        }
+        Assertions.assertEquals(9, hits());
+        Assertions.assertEquals(1, misses());
+    }
+
+    @Test
+    public void testFailedCredentialsNotCachedWithoutNegativeTtl() {
+        CachingAuthentication authentication = authentication(100, 60000, 0);
+
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertTrue(authentication.asSubject(token("ExampleUser", "WrongPassword")).isStub());
+        }
+        Assertions.assertEquals(0, hits());
+        Assertions.assertEquals(10, misses());
+    }
+
+    @Test
+    public void testMalformedTokenNotCached() {
+        CachingAuthentication authentication = authentication(100, 60000, 60000);
+
+        for (int i = 0; i < 2; i++) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> authentication.asSubject("Bearer token"));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> authentication.asSubject(""));
+        }
+        Assertions.assertEquals(0, hits());
+    }
+
+    @Test
+    public void testExpiredEntry() throws InterruptedException {
+        CachingAuthentication authentication = authentication(100, 1, 1);
+
+        authentication.asSubject(token("ExampleUser", "FirstPassword"));
+        Thread.sleep(10);
+        authentication.asSubject(token("ExampleUser", "FirstPassword"));
+
+        Assertions.assertEquals(0, hits());
+        Assertions.assertEquals(2, misses());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        CachingAuthentication authentication = authentication(1, 2, 60000, 60000);
+
+        authentication.asSubject(token("ExampleUser", "WrongPassword"));
+        authentication.asSubject(token("ExampleUser", "OtherPassword"));
+        // uses the first entry so the second one is the least recently used
+        authentication.asSubject(token("ExampleUser", "WrongPassword"));
+        authentication.asSubject(token("OtherUser", "OtherPassword"));
+        Assertions.assertEquals(2, size());
+
+        authentication.asSubject(token("ExampleUser", "WrongPassword"));
+        Assertions.assertEquals(2, hits());
+        authentication.asSubject(token("ExampleUser", "OtherPassword"));
+        Assertions.assertEquals(2, hits());
+    }
+
+    @Test
+    public void testFailedCredentialsDoNotEvictSubjects() {
+        CachingAuthentication authentication = authentication(1, 2, 60000, 60000);
+
+        authentication.asSubject(token("ExampleUser", "FirstPassword"));
+        for (int i = 0; i < 10; i++) {
+            authentication.asSubject(token("ExampleUser", "WrongPassword" + i));
+        }
+        Assertions.assertEquals(3, size());
+
+        Subject subject = authentication.asSubject(token("ExampleUser", "FirstPassword"));
+        Assertions.assertFalse(subject.isStub());
+        Assertions.assertEquals(1, hits());
+    }
+
+    @Test
+    public void testReloadEmptiesCache() throws IOException {
+        CachingAuthentication authentication = authentication(100, 60000, 60000);
+        Assertions.assertFalse(authentication.asSubject(token("ExampleUser", "FirstPassword")).isStub());
+        Assertions.assertTrue(authentication.asSubject(token("ExampleUser", "SecondPassword")).isStub());
+
+        write(file, "SecondPassword");
+        authentication.reload();
+
+        Assertions.assertEquals(0, size());
+        Assertions.assertTrue(authentication.asSubject(token("ExampleUser", "FirstPassword")).isStub());
+        Assertions.assertFalse(authentication.asSubject(token("ExampleUser", "SecondPassword")).isStub());
+    }
+
+    @Test
+    public void testFailedReloadKeepsCredentials() throws IOException {
+        CachingAuthentication authentication = authentication(100, 60000, 60000);
+        Files.delete(file);
+
+        Assertions.assertDoesNotThrow(authentication::reload);
+        Assertions.assertFalse(authentication.asSubject(token("ExampleUser", "FirstPassword")).isStub());
+    }
+
+    @Test
+    public void testWatcherEmptiesCache() throws Exception {
+        CachingAuthentication authentication = authentication(100, 60000, 60000);
+        Assertions.assertFalse(authentication.asSubject(token("ExampleUser", "FirstPassword")).isStub());
+
+        FileWatcher watcher = new FileWatcher(Collections.singletonList(authentication));
+        try {
+            Path next = directory.resolve("credentials.json.tmp");
+            write(next, "SecondPassword");
+            Files.move(next, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            long deadline = System.currentTimeMillis() + 10000;
+            while (
+                authentication.asSubject(token("ExampleUser", "SecondPassword")).isStub()
+                        && System.currentTimeMillis() < deadline
+            ) {
+                Thread.sleep(10);
+            }
+            Assertions.assertFalse(authentication.asSubject(token("ExampleUser", "SecondPassword")).isStub());
+            Assertions.assertTrue(authentication.asSubject(token("ExampleUser", "FirstPassword")).isStub());
+        }
+        finally {
+            watcher.close();
+        }
+    }
+
+    @Test
+    public void testInvalidConfig() {
+        System.setProperty("security.authCache.enabled", "true");
+        System.setProperty("security.authCache.maxEntries", "0");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SecurityConfig().validate());
+
+        System.setProperty("security.authCache.maxEntries", "100");
+        System.setProperty("security.authCache.maxNegativeEntries", "0");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SecurityConfig().validate());
+
+        System.setProperty("security.authCache.maxNegativeEntries", "100");
+        System.setProperty("security.authCache.negativeTtlMillis", "-1");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SecurityConfig().validate());
+
+        System.setProperty("security.authCache.negativeTtlMillis", "0");
+        Assertions.assertDoesNotThrow(() -> new SecurityConfig().validate());
+    }
+
+    private CachingAuthentication authentication(int maxEntries, int ttlMillis, int negativeTtlMillis) {
+        return authentication(maxEntries, maxEntries, ttlMillis, negativeTtlMillis);
+    }
+
+    private CachingAuthentication authentication(
+            int maxEntries,
+            int maxNegativeEntries,
+            int ttlMillis,
+            int negativeTtlMillis
+    ) {
+        return new CachingAuthentication(
+                new ReloadingAuthentication(file.toString()),
+                maxEntries,
+                maxNegativeEntries,
+                ttlMillis,
+                negativeTtlMillis,
+                metricRegistry
+        );
+    }
+
+    private long hits() {
+        return metricRegistry.meter(MetricRegistry.name(CachingAuthentication.class, "hits")).getCount();
+    }
+
+    private long misses() {
+        return metricRegistry.meter(MetricRegistry.name(CachingAuthentication.class, "misses")).getCount();
+    }
+
+    private int size() {
+        return (Integer) metricRegistry
+                .getGauges()
+                .get(MetricRegistry.name(CachingAuthentication.class, "size"))
+                .getValue();
+    }
+
+    private String token(String username, String password) {
+        return "Basic " + Base64
+                .getEncoder()
+                .encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void write(Path path, String password) throws IOException {
+        String json = "[\n" + "  {\n" + "    \"identity\": \"ExampleUser\",\n" + "    \"credential\": \"" + password
+                + "\"\n" + "  }\n" + "]\n";
+        Files.write(path, json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,138 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.teragrep.lsh_01.config.NettyConfig;
+import com.teragrep.lsh_01.util.Backpressure;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class BackpressureTest {
+
+    @AfterEach
+    void reset() {
+        System.clearProperty("server.backpressure.enabled");
+        System.clearProperty("server.backpressure.highWaterMark");
+        System.clearProperty("server.backpressure.lowWaterMark");
+    }
+
+    @Test
+    public void testPausesAtHighWaterMark() {
+        Backpressure backpressure = new Backpressure(2, 0);
+        EmbeddedChannel first = new EmbeddedChannel(new BackpressureHandler(backpressure));
+        EmbeddedChannel second = new EmbeddedChannel(new BackpressureHandler(backpressure));
+
+        request(first);
+        Assertions.assertTrue(first.config().isAutoRead());
+        request(second);
+        Assertions.assertFalse(second.config().isAutoRead());
+        Assertions.assertTrue(first.config().isAutoRead());
+        Assertions.assertEquals(2, backpressure.outstanding());
+        Assertions.assertEquals(1, backpressure.paused());
+
+        first.finishAndReleaseAll();
+        second.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testResumesAtLowWaterMark() {
+        Backpressure backpressure = new Backpressure(2, 0);
+        EmbeddedChannel first = new EmbeddedChannel(new BackpressureHandler(backpressure));
+        EmbeddedChannel second = new EmbeddedChannel(new BackpressureHandler(backpressure));
+        request(first);
+        request(second);
+
+        respond(first);
+        Assertions.assertFalse(second.config().isAutoRead());
+        respond(second);
+        Assertions.assertTrue(second.config().isAutoRead());
+        Assertions.assertEquals(0, backpressure.outstanding());
+        Assertions.assertEquals(0, backpressure.paused());
+
+        first.finishAndReleaseAll();
+        second.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testUnrequestedResponseIsNotCounted() {
+        Backpressure backpressure = new Backpressure(2, 0);
+        EmbeddedChannel channel = new EmbeddedChannel(new BackpressureHandler(backpressure));
+        request(channel);
+
+        respond(channel);
+        // e.g. a response to an error raised before the request was aggregated
+        respond(channel);
+        Assertions.assertEquals(0, backpressure.outstanding());
+
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testClosedChannelIsReleased() {
+        Backpressure backpressure = new Backpressure(2, 0);
+        EmbeddedChannel first = new EmbeddedChannel(new BackpressureHandler(backpressure));
+        EmbeddedChannel second = new EmbeddedChannel(new BackpressureHandler(backpressure));
+        request(first);
+        request(second);
+
+        first.close();
+        second.close();
+        Assertions.assertEquals(0, backpressure.outstanding());
+        Assertions.assertEquals(0, backpressure.paused());
+
+        first.finishAndReleaseAll();
+        second.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testInvalidWaterMarks() {
+        System.setProperty("server.backpressure.enabled", "true");
+        System.setProperty("server.backpressure.highWaterMark", "10");
+        System.setProperty("server.backpressure.lowWaterMark", "10");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new NettyConfig().validate());
+    }
+
+    @Test
+    public void testNegativeLowWaterMark() {
+        System.setProperty("server.backpressure.enabled", "true");
+        System.setProperty("server.backpressure.lowWaterMark", "-1");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new NettyConfig().validate());
+    }
+
+    private void request(EmbeddedChannel channel) {
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/");
+        channel.writeInbound(request);
+        FullHttpRequest read = channel.readInbound();
+        read.release();
+    }
+
+    private void respond(EmbeddedChannel channel) {
+        channel.writeOutbound(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+        channel.releaseOutbound();
+    }
+}
@@ -0,0 +1,506 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.codahale.metrics.MetricRegistry;
+import com.teragrep.lsh_01.config.RelpConfig;
+import com.teragrep.lsh_01.fakes.RelpConnectionFactoryFake;
+import com.teragrep.lsh_01.fakes.RelpConnectionFake;
+import com.teragrep.lsh_01.fakes.SilentRelpConnectionFake;
+import com.teragrep.lsh_01.pool.Balancer;
+import com.teragrep.lsh_01.pool.BalancedRelpOutput;
+import com.teragrep.lsh_01.pool.IManagedRelpConnection;
+import com.teragrep.lsh_01.pool.LeastLatencyBalancer;
+import com.teragrep.lsh_01.pool.LeastOutstandingBalancer;
+import com.teragrep.lsh_01.pool.ManagedRelpConnection;
+import com.teragrep.lsh_01.pool.ManagedRelpConnectionStub;
+import com.teragrep.lsh_01.pool.Pool;
+import com.teragrep.lsh_01.pool.RebindableRelpConnection;
+import com.teragrep.lsh_01.pool.RelpTarget;
+import com.teragrep.lsh_01.pool.RelpTargets;
+import com.teragrep.lsh_01.pool.RoundRobinBalancer;
+import com.teragrep.lsh_01.pool.TargetedRelpOutput;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+public class BalancingTest {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(BalancingTest.class);
+
+    private final List<byte[]> records = Collections.singletonList("test".getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    public void testSingleTargetByDefault() {
+        RelpConfig relpConfig = new RelpConfig();
+        Assertions
+                .assertEquals(
+                        Collections.singletonList(new RelpTarget("127.0.0.1", 601)),
+                        new RelpTargets(relpConfig).asList()
+                );
+    }
+
+    @Test
+    public void testTargets() {
+        System.setProperty("relp.targets", "relay-1:601, relay-2:1601,10.0.0.3:601");
+        try {
+            RelpConfig relpConfig = new RelpConfig();
+            Assertions.assertDoesNotThrow(relpConfig::validate);
+            Assertions
+                    .assertEquals(
+                            Arrays
+                                    .asList(
+                                            new RelpTarget("relay-1", 601), new RelpTarget("relay-2", 1601),
+                                            new RelpTarget("10.0.0.3", 601)
+                                    ),
+                            new RelpTargets(relpConfig).asList()
+                    );
+        }
+        finally {
+            System.clearProperty("relp.targets");
+        }
+    }
+
+    @Test
+    public void testInvalidTargets() {
+        for (String targets : new String[] {
+                "relay-1", "relay-1:", ":601", "relay-1:port", "relay-1:70000", "relay-1:601,relay-1:601"
+        }) {
+            System.setProperty("relp.targets", targets);
+            try {
+                RelpConfig relpConfig = new RelpConfig();
+                Assertions.assertThrows(IllegalArgumentException.class, relpConfig::validate, targets);
+            }
+            finally {
+                System.clearProperty("relp.targets");
+            }
+        }
+    }
+
+    @Test
+    public void testSeveralTargetsRequireBlockingClient() {
+        System.setProperty("relp.targets", "relay-1:601,relay-2:601");
+        System.setProperty("relp.client", "netty");
+        try {
+            RelpConfig relpConfig = new RelpConfig();
+            IllegalArgumentException exception = Assertions
+                    .assertThrows(IllegalArgumentException.class, relpConfig::validate);
+            Assertions
+                    .assertEquals(
+                            "relp.targets with more than one target requires relp.client=blocking",
+                            exception.getMessage()
+                    );
+        }
+        finally {
+            System.clearProperty("relp.targets");
+            System.clearProperty("relp.client");
+        }
+    }
+
+    @Test
+    public void testInvalidSendTimeout() {
+        System.setProperty("relp.sendTimeoutMillis", "-1");
+        try {
+            RelpConfig relpConfig = new RelpConfig();
+            IllegalArgumentException exception = Assertions
+                    .assertThrows(IllegalArgumentException.class, relpConfig::validate);
+            Assertions.assertEquals("relp.sendTimeoutMillis can't be a negative number", exception.getMessage());
+        }
+        finally {
+            System.clearProperty("relp.sendTimeoutMillis");
+        }
+    }
+
+    @Test
+    public void testRoundRobin() {
+        List<MetricRegistry> registries = registries(3);
+        List<TargetedRelpOutput> targets = new ArrayList<>();
+        for (MetricRegistry registry : registries) {
+            targets.add(target(0, 1000, 1000, registry));
+        }
+        BalancedRelpOutput output = new BalancedRelpOutput(
+                targets,
+                new RoundRobinBalancer(),
+                1000,
+                new MetricRegistry()
+        );
+
+        for (int i = 0; i < 30; i++) {
+            output.send(records);
+        }
+        output.close();
+
+        for (MetricRegistry registry : registries) {
+            Assertions.assertEquals(10, registry.timer(name(TargetedRelpOutput.class, "latency")).getCount());
+        }
+    }
+
+    @Test
+    public void testLeastOutstandingAvoidsBusyTarget() throws Exception {
+        List<MetricRegistry> registries = registries(2);
+        // the latency threshold is high enough that the busy target is not ejected
+        List<TargetedRelpOutput> targets = Arrays
+                .asList(target(500, 10000, 1000, registries.get(0)), target(0, 10000, 1000, registries.get(1)));
+        BalancedRelpOutput output = new BalancedRelpOutput(
+                targets,
+                new LeastOutstandingBalancer(),
+                1000,
+                new MetricRegistry()
+        );
+
+        // half of the sends would wait for the busy target if the outstanding sends were not counted
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        Future<?> busy = executorService.submit(() -> targets.get(0).send(records));
+        while (targets.get(0).outstanding() == 0) {
+            Thread.sleep(1);
+        }
+        for (int i = 0; i < 10; i++) {
+            output.send(records);
+        }
+        busy.get();
+        executorService.shutdown();
+        output.close();
+
+        Assertions.assertEquals(1, registries.get(0).timer(name(TargetedRelpOutput.class, "latency")).getCount());
+        Assertions.assertEquals(10, registries.get(1).timer(name(TargetedRelpOutput.class, "latency")).getCount());
+    }
+
+    @Test
+    public void testLeastLatencyAvoidsSlowTarget() {
+        List<MetricRegistry> registries = registries(2);
+        List<TargetedRelpOutput> targets = Arrays
+                .asList(target(20, 10000, 1000, registries.get(0)), target(1, 10000, 1000, registries.get(1)));
+        BalancedRelpOutput output = new BalancedRelpOutput(
+                targets,
+                new LeastLatencyBalancer(),
+                1000,
+                new MetricRegistry()
+        );
+
+        for (int i = 0; i < 50; i++) {
+            output.send(records);
+        }
+        output.close();
+
+        // both are tried once, then the lower latency wins
+        Assertions.assertEquals(1, registries.get(0).timer(name(TargetedRelpOutput.class, "latency")).getCount());
+        Assertions.assertEquals(49, registries.get(1).timer(name(TargetedRelpOutput.class, "latency")).getCount());
+    }
+
+    @Test
+    public void testLatencyEjectionAndProbe() throws InterruptedException {
+        List<MetricRegistry> registries = registries(2);
+        List<TargetedRelpOutput> targets = Arrays
+                .asList(target(30, 10, 100, registries.get(0)), target(0, 10, 100, registries.get(1)));
+        BalancedRelpOutput output = new BalancedRelpOutput(
+                targets,
+                new RoundRobinBalancer(),
+                100,
+                new MetricRegistry()
+        );
+
+        for (int i = 0; i < 10; i++) {
+            output.send(records);
+        }
+        Assertions.assertEquals(1, registries.get(0).counter(name(TargetedRelpOutput.class, "ejections")).getCount());
+        Assertions
+                .assertEquals(
+                        1, registries.get(0).getGauges().get(name(TargetedRelpOutput.class, "ejected")).getValue()
+                );
+        Assertions.assertEquals(1, registries.get(0).timer(name(TargetedRelpOutput.class, "latency")).getCount());
+        Assertions.assertEquals(9, registries.get(1).timer(name(TargetedRelpOutput.class, "latency")).getCount());
+
+        // the probe by the check thread succeeds and brings the target back
+        Thread.sleep(500);
+        Assertions
+                .assertEquals(
+                        0, registries.get(0).getGauges().get(name(TargetedRelpOutput.class, "ejected")).getValue()
+                );
+        output.send(records);
+        output.send(records);
+        output.close();
+        Assertions.assertEquals(2, registries.get(0).timer(name(TargetedRelpOutput.class, "latency")).getCount());
+    }
+
+    @Test
+    public void testReinstatedTargetLatencyFromProbe() throws InterruptedException {
+        MetricRegistry registry = new MetricRegistry();
+        TargetedRelpOutput slow = target(30, 10, 1, registry);
+        slow.send(records);
+        Assertions.assertEquals(1, registry.getGauges().get(name(TargetedRelpOutput.class, "ejected")).getValue());
+
+        // the average from before the ejection is dropped, but the target doesn't come back as free either
+        Thread.sleep(10);
+        slow.check();
+        Assertions.assertEquals(0, registry.getGauges().get(name(TargetedRelpOutput.class, "ejected")).getValue());
+        Assertions.assertTrue(slow.latency() > 0);
+        Assertions.assertTrue(slow.latency() < TimeUnit.MILLISECONDS.toNanos(30));
+        slow.close();
+    }
+
+    @Test
+    public void testFailureEjection() throws InterruptedException {
+        MetricRegistry failingRegistry = new MetricRegistry();
+        // sends and probes of the failing target throw
+        TargetedRelpOutput failing = new TargetedRelpOutput(
+                new RelpTarget("failing", 601),
+                new Pool<>(
+                        () -> new RebindableRelpConnection(new ManagedRelpConnectionStub(), 1000),
+                        new ManagedRelpConnectionStub()
+                ),
+                1000,
+                1,
+                failingRegistry
+        );
+        MetricRegistry registry = new MetricRegistry();
+        BalancedRelpOutput output = new BalancedRelpOutput(
+                Arrays.asList(failing, target(0, 1000, 1, registry)),
+                new RoundRobinBalancer(),
+                1000,
+                new MetricRegistry()
+        );
+
+        // the batch that fails on the first target is sent again on the second one
+        for (int i = 0; i < 10; i++) {
+            output.send(records);
+        }
+        Assertions.assertEquals(1, failingRegistry.counter(name(TargetedRelpOutput.class, "failures")).getCount());
+        Assertions.assertEquals(10, registry.timer(name(TargetedRelpOutput.class, "latency")).getCount());
+
+        Thread.sleep(10);
+        failing.check();
+        Assertions
+                .assertEquals(1, failingRegistry.getGauges().get(name(TargetedRelpOutput.class, "ejected")).getValue());
+        output.close();
+    }
+
+    @Test
+    public void testAllTargetsFailing() {
+        BalancedRelpOutput output = new BalancedRelpOutput(
+                Arrays
+                        .asList(
+                                new TargetedRelpOutput(
+                                        new RelpTarget("failing-1", 601),
+                                        new Pool<>(ManagedRelpConnectionStub::new, new ManagedRelpConnectionStub()),
+                                        1000,
+                                        1000,
+                                        new MetricRegistry()
+                                ),
+                                new TargetedRelpOutput(
+                                        new RelpTarget("failing-2", 601),
+                                        new Pool<>(ManagedRelpConnectionStub::new, new ManagedRelpConnectionStub()),
+                                        1000,
+                                        1000,
+                                        new MetricRegistry()
+                                )
+                        ),
+                new RoundRobinBalancer(),
+                1000,
+                new MetricRegistry()
+        );
+
+        Assertions.assertThrows(IllegalStateException.class, () -> output.send(records));
+        output.close();
+    }
+
+    @Test
+    public void testSilentTargetEjectedMidSend() {
+        RelpConfig relpConfig = new RelpConfig();
+        MetricRegistry silentRegistry = new MetricRegistry();
+        List<SilentRelpConnectionFake> fakes = new ArrayList<>();
+        // the connections give up on a batch after 200 ms
+        TargetedRelpOutput silent = new TargetedRelpOutput(new RelpTarget("silent", 601), new Pool<>(() -> {
+            SilentRelpConnectionFake fake = new SilentRelpConnectionFake(new RelpConnectionFake(relpConfig), 20);
+            fakes.add(fake);
+            return new ManagedRelpConnection(fake, new RelpTarget("silent", 601), 200, silentRegistry);
+        }, new ManagedRelpConnectionStub()), 200, 60000, silentRegistry);
+        MetricRegistry registry = new MetricRegistry();
+        MetricRegistry outputRegistry = new MetricRegistry();
+        BalancedRelpOutput output = new BalancedRelpOutput(
+                Arrays.asList(silent, target(0, 1000, 60000, registry)),
+                new RoundRobinBalancer(),
+                60000,
+                outputRegistry
+        );
+        output.send(records);
+        output.send(records);
+        Assertions.assertEquals(1, silentRegistry.timer(name(TargetedRelpOutput.class, "latency")).getCount());
+
+        // the server stops answering, the next batch for it is given up on and sent to the other target
+        fakes.get(0).silence();
+        output.send(records);
+        Assertions.assertEquals(1, silentRegistry.counter(name(TargetedRelpOutput.class, "failures")).getCount());
+        Assertions
+                .assertEquals(1, silentRegistry.getGauges().get(name(TargetedRelpOutput.class, "ejected")).getValue());
+        Assertions.assertEquals(1, outputRegistry.counter(name(BalancedRelpOutput.class, "resends")).getCount());
+        Assertions.assertEquals(2, registry.timer(name(TargetedRelpOutput.class, "latency")).getCount());
+
+        // the ejected target is left out
+        output.send(records);
+        Assertions.assertEquals(3, registry.timer(name(TargetedRelpOutput.class, "latency")).getCount());
+        output.close();
+    }
+
+    @Test
+    public void testStalledTargetEjected() throws Exception {
+        List<MetricRegistry> registries = registries(2);
+        List<TargetedRelpOutput> targets = Arrays
+                .asList(target(500, 50, 1000, registries.get(0)), target(0, 50, 1000, registries.get(1)));
+        BalancedRelpOutput output = new BalancedRelpOutput(
+                targets,
+                new RoundRobinBalancer(),
+                1000,
+                new MetricRegistry()
+        );
+
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        Future<?> stalled = executorService.submit(() -> output.send(records));
+        Thread.sleep(100);
+        for (int i = 0; i < 10; i++) {
+            output.send(records);
+        }
+        stalled.get();
+        executorService.shutdown();
+        output.close();
+
+        Assertions.assertEquals(1, registries.get(0).counter(name(TargetedRelpOutput.class, "ejections")).getCount());
+        Assertions.assertEquals(10, registries.get(1).timer(name(TargetedRelpOutput.class, "latency")).getCount());
+    }
+
+    @Test
+    public void testAllEjectedStillSends() {
+        MetricRegistry registry = new MetricRegistry();
+        MetricRegistry targetRegistry = new MetricRegistry();
+        BalancedRelpOutput output = new BalancedRelpOutput(
+                Collections.singletonList(target(20, 1, 60000, targetRegistry)),
+                new RoundRobinBalancer(),
+                60000,
+                registry
+        );
+
+        for (int i = 0; i < 3; i++) {
+            output.send(records);
+        }
+        output.close();
+        Assertions.assertEquals(3, targetRegistry.timer(name(TargetedRelpOutput.class, "latency")).getCount());
+        Assertions.assertEquals(2, registry.counter(name(BalancedRelpOutput.class, "allEjected")).getCount());
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testSlowTargetThroughput() throws Exception {
+        final int threads = 8;
+        final int sends = 25;
+
+        for (String balancing : new String[] {
+                "roundRobin", "leastOutstanding", "leastLatency", "leastOutstanding with ejection"
+        }) {
+            List<MetricRegistry> registries = registries(2);
+            int threshold = balancing.endsWith("ejection") ? 20 : 10000;
+            // one relay acknowledges in 50 ms, the other in 2 ms
+            List<TargetedRelpOutput> targets = Arrays
+                    .asList(
+                            target(50, threshold, 10000, registries.get(0)),
+                            target(2, threshold, 10000, registries.get(1))
+                    );
+            Balancer balancer;
+            if ("roundRobin".equals(balancing)) {
+                balancer = new RoundRobinBalancer();
+            }
+            else if ("leastLatency".equals(balancing)) {
+                balancer = new LeastLatencyBalancer();
+            }
+            else {
+                balancer = new LeastOutstandingBalancer();
+            }
+            BalancedRelpOutput output = new BalancedRelpOutput(targets, balancer, 10000, new MetricRegistry());
+
+            long start = System.nanoTime();
+            send(output, threads, sends);
+            double millis = (System.nanoTime() - start) / 1_000_000d;
+            output.close();
+
+            LOGGER
+                    .info(
+                            "<{}>: <{}> sends from <{}> threads took <{}> ms, <{}> went to the slow relay",
+                            balancing, threads * sends, threads, String.format("%.0f", millis),
+                            registries.get(0).timer(name(TargetedRelpOutput.class, "latency")).getCount()
+                    );
+        }
+    }
+
+    private void send(BalancedRelpOutput output, int threads, int sends) throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executorService.submit(() -> {
+                for (int j = 0; j < sends; j++) {
+                    output.send(records);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+    }
+
+    private List<MetricRegistry> registries(int count) {
+        List<MetricRegistry> registries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            registries.add(new MetricRegistry());
+        }
+        return registries;
+    }
+
+    // a target over fake connections that take sendLatency to acknowledge
+    private TargetedRelpOutput target(
+            int sendLatency,
+            int latencyThresholdMillis,
+            int ejectionMillis,
+            MetricRegistry registry
+    ) {
+        Pool<IManagedRelpConnection> pool = new Pool<>(
+                new RelpConnectionFactoryFake(sendLatency, 0, new RelpConfig(), registry),
+                new ManagedRelpConnectionStub()
+        );
+        return new TargetedRelpOutput(
+                new RelpTarget("relay", 601),
+                pool,
+                latencyThresholdMillis,
+                ejectionMillis,
+                registry
+        );
+    }
+}
@@ -0,0 +1,83 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.teragrep.lsh_01.config.HeadersConfig;
+import com.teragrep.lsh_01.config.NettyConfig;
+import com.teragrep.lsh_01.config.RelpConfig;
+import com.teragrep.lsh_01.config.SecurityConfig;
+import com.teragrep.lsh_01.config.SpoolConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Configuration files written before the optional properties existed have to keep loading with the old behaviour.
+ */
+public class ConfigDefaultsTest {
+
+    @BeforeEach
+    public void setUp() {
+        System.setProperty("properties.file", "src/test/resources/properties/baselineTest.properties");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        System.clearProperty("properties.file");
+    }
+
+    @Test
+    public void testNettyConfigDefaults() {
+        NettyConfig nettyConfig = new NettyConfig();
+        Assertions.assertDoesNotThrow(nettyConfig::validate);
+        Assertions.assertEquals("nio", nettyConfig.transport);
+        Assertions.assertFalse(nettyConfig.streamingEnabled);
+        Assertions.assertEquals("platform", nettyConfig.executor);
+        Assertions.assertEquals("fixed", nettyConfig.admission);
+        Assertions.assertFalse(nettyConfig.backpressureEnabled);
+    }
+
+    @Test
+    public void testRelpConfigDefaults() {
+        RelpConfig relpConfig = new RelpConfig();
+        Assertions.assertDoesNotThrow(relpConfig::validate);
+        Assertions.assertEquals("blocking", relpConfig.client);
+        Assertions.assertFalse(relpConfig.groupCommitEnabled);
+        Assertions.assertEquals(0, relpConfig.poolMaxSize);
+        Assertions.assertEquals(0, relpConfig.poolMaintenanceIntervalMillis);
+        Assertions.assertEquals("", relpConfig.relpTargets);
+        Assertions.assertEquals("none", relpConfig.affinity);
+    }
+
+    @Test
+    public void testOtherConfigDefaults() {
+        SecurityConfig securityConfig = new SecurityConfig();
+        SpoolConfig spoolConfig = new SpoolConfig();
+        HeadersConfig headersConfig = new HeadersConfig();
+        Assertions.assertDoesNotThrow(securityConfig::validate);
+        Assertions.assertDoesNotThrow(spoolConfig::validate);
+        Assertions.assertFalse(securityConfig.authCacheEnabled);
+        Assertions.assertEquals("plain", securityConfig.credentialsHash);
+        Assertions.assertFalse(spoolConfig.enabled);
+        Assertions.assertEquals("", headersConfig.allow);
+        Assertions.assertEquals("", headersConfig.deny);
+    }
+}
@@ -22,9 +22,11 @@ package com.teragrep.lsh_01;
 import com.teragrep.lsh_01.authentication.BasicAuthentication;
 import com.teragrep.lsh_01.authentication.BasicAuthenticationFactory;
 import com.teragrep.lsh_01.config.*;
+import com.teragrep.lsh_01.lookup.ReloadingLookupTable;
 import com.teragrep.lsh_01.pool.IManagedRelpConnection;
 import com.teragrep.lsh_01.pool.ManagedRelpConnectionStub;
 import com.teragrep.lsh_01.pool.Pool;
+import com.teragrep.lsh_01.pool.PooledRelpOutput;
 import com.teragrep.lsh_01.pool.RelpConnectionFactory;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -77,6 +79,30 @@ public class ConversionFactoryTest {
         Assertions.assertDoesNotThrow(conversionFactory::conversion);
     }
 
+    @Test
+    public void testInvalidRegexEngine() {
+        ConversionFactory conversionFactory = regexConversionFactory("\\n", "re2");
+        IllegalArgumentException e = Assertions
+                .assertThrows(IllegalArgumentException.class, conversionFactory::conversion);
+
+        Assertions
+                .assertEquals(
+                        "Configuration has an invalid regex engine (payload.splitType.regex.engine): re2."
+                                + " Has to be 'java' or 'linear'.",
+                        e.getMessage()
+                );
+    }
+
+    @Test
+    public void testLinearRegexEngine() {
+        Assertions.assertDoesNotThrow(regexConversionFactory("\\r?\\n", "linear")::conversion);
+        // backreferences need backtracking
+        Assertions
+                .assertThrows(
+                        IllegalArgumentException.class, regexConversionFactory("(a)\\1", "linear")::conversion
+                );
+    }
+
     @Test
     public void testInvalidSplitType() {
         String splitType = "invalid";
@@ -99,7 +125,7 @@ public class ConversionFactoryTest {
         Assertions
                 .assertEquals(
                         "Configuration has an invalid splitType: " + splitType
-                                + ". Has to be 'regex', 'json_array' or 'none'.",
+                                + ". Has to be 'regex', 'json_array', 'json_array_raw' or 'none'.",
                         e.getMessage()
                 );
     }
@@ -249,4 +275,22 @@ public class ConversionFactoryTest {
         Assertions.assertEquals(conversionFactory1.hashCode(), conversionFactory2.hashCode());
         Assertions.assertNotEquals(conversionFactory1.hashCode(), conversionFactory3.hashCode());
     }
+
+    private ConversionFactory regexConversionFactory(String regexPattern, String regexEngine) {
+        RelpConnectionFactory relpConnectionFactory = new RelpConnectionFactory(new RelpConfig());
+        Pool<IManagedRelpConnection> pool = new Pool<>(relpConnectionFactory, new ManagedRelpConnectionStub());
+        LookupConfig lookupConfig = new LookupConfig();
+
+        return new ConversionFactory(
+                "regex",
+                regexPattern,
+                regexEngine,
+                1000,
+                new PooledRelpOutput(pool),
+                new SecurityConfig(),
+                new BasicAuthenticationFactory().create(),
+                new ReloadingLookupTable(lookupConfig.hostnamePath),
+                new ReloadingLookupTable(lookupConfig.appNamePath)
+        );
+    }
 }
@@ -31,7 +31,7 @@ public class DefaultPayloadTest {
         DefaultPayload payload2 = new DefaultPayload("payload");
 
         // calling functions shouldn't have effect on an immutable object
-        payload1.messages();
+        Assertions.assertTrue(payload1.messages().iterator().hasNext());
 
         Assertions.assertEquals(payload1, payload2);
     }
@@ -0,0 +1,262 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.teragrep.lsh_01.authentication.SubjectAnonymous;
+import com.teragrep.lsh_01.conversion.DefaultPayload;
+import com.teragrep.lsh_01.conversion.DelimiterMessageStream;
+import com.teragrep.lsh_01.conversion.DelimiterPayload;
+import com.teragrep.lsh_01.conversion.LiteralDelimiter;
+import com.teragrep.lsh_01.conversion.LiteralPattern;
+import com.teragrep.lsh_01.conversion.MessageStream;
+import com.teragrep.lsh_01.conversion.Payload;
+import com.teragrep.lsh_01.conversion.RegexMessageStream;
+import com.teragrep.lsh_01.conversion.RegexPayload;
+import com.teragrep.lsh_01.fakes.MessageHandlerFake;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.TooLongFrameException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+public class DelimiterSplittingTest {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(DelimiterSplittingTest.class);
+
+    @Test
+    public void testLiteralPatterns() {
+        Assertions.assertEquals("\n", new LiteralPattern("\\n").literal());
+        Assertions.assertEquals("\n", new LiteralPattern("\n").literal());
+        Assertions.assertEquals("\r\n", new LiteralPattern("\\r\\n").literal());
+        Assertions.assertEquals("|", new LiteralPattern("\\|").literal());
+        Assertions.assertEquals("a.b", new LiteralPattern("\\Qa.b\\E").literal());
+        Assertions.assertEquals("a.b*", new LiteralPattern("\\Qa.b\\E\\*").literal());
+        Assertions.assertEquals("--", new LiteralPattern("--").literal());
+        Assertions.assertEquals("\u00e4", new LiteralPattern("\u00e4").literal());
+
+        String[] regexes = {
+                "", "\\d", "\\s+", "\\n+", "a|b", "[,]", "(?=b)", "x*", ".", "^a", "\\", "\\1", "\\u000a"
+        };
+        for (String regex : regexes) {
+            Assertions.assertFalse(new LiteralPattern(regex).isLiteral(), "regex <" + regex + ">");
+        }
+    }
+
+    @Test
+    public void testSameAsPatternSplit() {
+        String[] bodies = {
+                "",
+                "\n",
+                "\n\nfoo",
+                "foo\n\n\nbar\n\n",
+                "foo",
+                "\nfoo\n",
+                "a\n\nb\n\n\nc",
+                "aaa",
+                "abab\r\nab\r\n\r\n",
+                "\u00e4\u00e4\n\u00f6\u20ac\u00e4x\u00e4",
+                "0123456789\n0123456789abcdef\n\n0123456789abcdef0123456789\n"
+        };
+        String[] delimiters = {
+                "\n", "\r\n", "ab", "aa", "\u00e4", "\u20ac\u00e4", "9\n0"
+        };
+        for (String delimiter : delimiters) {
+            for (String body : bodies) {
+                String context = "delimiter <" + delimiter + "> body <" + body + ">";
+                List<String> expected = Arrays.asList(Pattern.compile(Pattern.quote(delimiter)).split(body));
+
+                Assertions
+                        .assertEquals(
+                                expected, messages(new DelimiterPayload(new DefaultPayload(body), delimiter)), context
+                        );
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                for (int partLength = 1; partLength <= Math.max(bytes.length, 1); partLength++) {
+                    Assertions
+                            .assertEquals(
+                                    expected, stream(delimiter, 1024, bytes, partLength),
+                                    context + " part length <" + partLength + ">"
+                            );
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRandomBodies() {
+        Random random = new Random(4242);
+        char[] alphabet = {
+                'a', 'b', '\n', '\r', '\u00e4'
+        };
+        for (int round = 0; round < 200; round++) {
+            StringBuilder builder = new StringBuilder();
+            int length = random.nextInt(100);
+            for (int i = 0; i < length; i++) {
+                builder.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            String body = builder.toString();
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            for (String delimiter : Arrays.asList("\n", "\r\n", "b\u00e4")) {
+                List<String> expected = Arrays.asList(Pattern.compile(Pattern.quote(delimiter)).split(body));
+                String context = "delimiter <" + delimiter + "> body <" + body + ">";
+
+                Assertions
+                        .assertEquals(
+                                expected, messages(new DelimiterPayload(new DefaultPayload(body), delimiter)), context
+                        );
+                int partLength = 1 + random.nextInt(Math.max(bytes.length, 1));
+                Assertions
+                        .assertEquals(
+                                expected, stream(delimiter, 1024, bytes, partLength),
+                                context + " part length <" + partLength + ">"
+                        );
+            }
+        }
+    }
+
+    @Test
+    public void testTooLongMessage() {
+        List<String> received = new ArrayList<>();
+        MessageStream messageStream = new DelimiterMessageStream(
+                new MessageHandlerFake(received),
+                new LiteralDelimiter("\n"),
+                new SubjectAnonymous(),
+                new HashMap<>(),
+                4
+        );
+        messageStream.write(Unpooled.wrappedBuffer("foo\n".getBytes(StandardCharsets.UTF_8)));
+        Assertions
+                .assertThrows(
+                        TooLongFrameException.class,
+                        () -> messageStream.write(Unpooled.wrappedBuffer("foobar".getBytes(StandardCharsets.UTF_8)))
+                );
+        Assertions.assertEquals(Arrays.asList("foo"), received);
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testSplittingThroughput() {
+        final int requests = 2000;
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            builder.append("example log line number ").append(i).append(" with some content\n");
+        }
+        String body = builder.toString();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        Pattern pattern = Pattern.compile("\\n");
+        LiteralDelimiter delimiter = new LiteralDelimiter("\n");
+
+        long messages = 0;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                messages += count(new RegexPayload(new DefaultPayload(body), pattern));
+            }
+            long regexPayloadNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                messages += count(new DelimiterPayload(new DefaultPayload(body), "\n"));
+            }
+            long delimiterPayloadNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                List<String> received = new ArrayList<>();
+                MessageStream messageStream = new RegexMessageStream(
+                        new MessageHandlerFake(received),
+                        pattern,
+                        new SubjectAnonymous(),
+                        new HashMap<>(),
+                        1024
+                );
+                messageStream.write(Unpooled.wrappedBuffer(bytes));
+                messageStream.close();
+                messages += received.size();
+            }
+            long regexStreamNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                List<String> received = new ArrayList<>();
+                MessageStream messageStream = new DelimiterMessageStream(
+                        new MessageHandlerFake(received),
+                        delimiter,
+                        new SubjectAnonymous(),
+                        new HashMap<>(),
+                        1024
+                );
+                messageStream.write(Unpooled.wrappedBuffer(bytes));
+                messageStream.close();
+                messages += received.size();
+            }
+            long delimiterStreamNanos = System.nanoTime() - start;
+            LOGGER
+                    .info(
+                            "Requests per second, RegexPayload: <{}> DelimiterPayload: <{}> RegexMessageStream: <{}> "
+                                    + "DelimiterMessageStream: <{}>",
+                            requests / (regexPayloadNanos / 1_000_000_000.0),
+                            requests / (delimiterPayloadNanos / 1_000_000_000.0),
+                            requests / (regexStreamNanos / 1_000_000_000.0),
+                            requests / (delimiterStreamNanos / 1_000_000_000.0)
+                    );
+        }
+        Assertions.assertEquals(4 * 3 * requests * 100, messages);
+    }
+
+    private List<String> stream(String delimiter, int maxMessageLength, byte[] bytes, int partLength) {
+        List<String> received = new ArrayList<>();
+        MessageStream messageStream = new DelimiterMessageStream(
+                new MessageHandlerFake(received),
+                new LiteralDelimiter(delimiter),
+                new SubjectAnonymous(),
+                new HashMap<>(),
+                maxMessageLength
+        );
+        for (int i = 0; i < bytes.length; i += partLength) {
+            messageStream.write(Unpooled.wrappedBuffer(bytes, i, Math.min(partLength, bytes.length - i)));
+        }
+        Assertions.assertTrue(messageStream.close());
+        return received;
+    }
+
+    private long count(Payload payload) {
+        long count = 0;
+        for (CharSequence ignored : payload.messages()) {
+            count++;
+        }
+        return count;
+    }
+
+    private List<String> messages(Payload payload) {
+        List<String> messages = new ArrayList<>();
+        payload.messages().forEach(message -> messages.add(message.toString()));
+        return messages;
+    }
+}
@@ -0,0 +1,280 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.codahale.metrics.MetricRegistry;
+import com.teragrep.lsh_01.authentication.BasicAuthenticationFactory;
+import com.teragrep.lsh_01.config.InternalEndpointUrlConfig;
+import com.teragrep.lsh_01.config.LookupConfig;
+import com.teragrep.lsh_01.config.NettyConfig;
+import com.teragrep.lsh_01.config.SecurityConfig;
+import com.teragrep.lsh_01.conversion.RelpConversion;
+import com.teragrep.lsh_01.fakes.SlowRelpOutputFake;
+import com.teragrep.lsh_01.util.AdmittingExecutorService;
+import com.teragrep.lsh_01.util.AsyncRunnable;
+import com.teragrep.lsh_01.util.ExecutorFactory;
+import com.teragrep.lsh_01.util.RejectableRunnable;
+import com.teragrep.lsh_01.util.SemaphoreAdmission;
+import org.junit.jupiter.api.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ExecutorTest {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(ExecutorTest.class);
+
+    @BeforeAll
+    void setUp() {
+        System.setProperty("security.authRequired", "false");
+        System.setProperty("server.listenPort", "8083");
+        System.setProperty("server.threads", "4");
+    }
+
+    @AfterEach
+    void reset() {
+        System.clearProperty("server.executor");
+    }
+
+    @AfterAll
+    void tearDown() {
+        System.clearProperty("security.authRequired");
+        System.clearProperty("server.listenPort");
+        System.clearProperty("server.threads");
+    }
+
+    @Test
+    public void testInvalidExecutor() {
+        System.setProperty("server.executor", "invalid");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new NettyConfig().validate());
+    }
+
+    @Test
+    public void testUnavailableVirtualExecutor() {
+        Assumptions.assumeTrue(Runtime.version().feature() < 21);
+        ExecutorFactory executorFactory = new ExecutorFactory("virtual", 1, 1, "fixed", 1, 1000, new MetricRegistry());
+        Assertions.assertThrows(IllegalStateException.class, executorFactory::executor);
+    }
+
+    @Test
+    public void testAdmissionRejects() throws InterruptedException {
+        ExecutorService executorService = new AdmittingExecutorService(
+                Executors.newCachedThreadPool(),
+                new SemaphoreAdmission(1)
+        );
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        AtomicInteger rejections = new AtomicInteger();
+
+        executorService.execute(new Task(rejections, () -> {
+            running.countDown();
+            Assertions.assertDoesNotThrow(() -> finish.await());
+        }));
+        running.await();
+        executorService.execute(new Task(rejections, () -> Assertions.fail("Task should not be admitted")));
+        Assertions.assertEquals(1, rejections.get());
+
+        // the permit is returned once the first task is done
+        finish.countDown();
+        CountDownLatch admitted = new CountDownLatch(1);
+        Assertions.assertTrue(awaitAdmission(executorService, rejections, admitted));
+        executorService.shutdown();
+        Assertions.assertTrue(executorService.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAdmissionHeldUntilCompletion() throws InterruptedException {
+        ExecutorService executorService = new AdmittingExecutorService(
+                Executors.newCachedThreadPool(),
+                new SemaphoreAdmission(1)
+        );
+        CountDownLatch ran = new CountDownLatch(1);
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        AtomicInteger rejections = new AtomicInteger();
+
+        executorService.execute(new AsyncTask(rejections, ran::countDown, completion));
+        Assertions.assertTrue(ran.await(5, TimeUnit.SECONDS));
+        // run() has returned but the task is not complete, so the permit is still held
+        executorService.execute(new Task(rejections, () -> Assertions.fail("Task should not be admitted")));
+        Assertions.assertEquals(1, rejections.get());
+
+        completion.complete(null);
+        CountDownLatch admitted = new CountDownLatch(1);
+        Assertions.assertTrue(awaitAdmission(executorService, rejections, admitted));
+        executorService.shutdown();
+        Assertions.assertTrue(executorService.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testConcurrencyScaling() {
+        final int clients = 64;
+        final int messagesPerClient = 10;
+        final long delayMillis = 20;
+
+        double platformRate = throughput("platform", clients, messagesPerClient, delayMillis);
+        LOGGER.info("Platform executor: <{}> requests per second", platformRate);
+
+        if (Runtime.version().feature() >= 21) {
+            double virtualRate = throughput("virtual", clients, messagesPerClient, delayMillis);
+            LOGGER.info("Virtual executor: <{}> requests per second", virtualRate);
+        }
+    }
+
+    private boolean awaitAdmission(ExecutorService executorService, AtomicInteger rejections, CountDownLatch admitted)
+            throws InterruptedException {
+        // the permit is released right after the task has run, retry until it is available
+        for (int i = 0; i < 100 && admitted.getCount() > 0; i++) {
+            executorService.execute(new Task(new AtomicInteger(), admitted::countDown));
+            if (admitted.await(10, TimeUnit.MILLISECONDS)) {
+                break;
+            }
+        }
+        return admitted.getCount() == 0 && rejections.get() == 1;
+    }
+
+    /**
+     * Runs the HTTP server with the given executor against a RELP output that is slow to acknowledge.
+     *
+     * @return handled requests per second
+     */
+    private double throughput(String executor, int clients, int messagesPerClient, long delayMillis) {
+        System.setProperty("server.executor", executor);
+        NettyConfig nettyConfig = new NettyConfig();
+        AtomicInteger records = new AtomicInteger();
+        RelpConversion conversion = new RelpConversion(
+                new SlowRelpOutputFake(delayMillis, records),
+                new SecurityConfig(),
+                new BasicAuthenticationFactory().create(),
+                new LookupConfig()
+        );
+        NettyHttpServer server = new NettyHttpServer(
+                nettyConfig,
+                conversion,
+                null,
+                200,
+                new InternalEndpointUrlConfig()
+        );
+        Thread serverThread = new Thread(server);
+        serverThread.start();
+
+        HttpClient httpClient = HttpClient.newHttpClient();
+        URI uri = URI.create("http://" + nettyConfig.listenAddress + ":" + nettyConfig.listenPort);
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(clients);
+        long elapsedNanos;
+        try {
+            Thread.sleep(1000); // wait for netty to start up
+
+            List<Future<?>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < clients; i++) {
+                futures.add(clientExecutor.submit(() -> {
+                    for (int j = 0; j < messagesPerClient; j++) {
+                        HttpRequest request = HttpRequest
+                                .newBuilder(uri)
+                                .POST(HttpRequest.BodyPublishers.ofString(executor + " message " + j))
+                                .build();
+                        HttpResponse<String> response = Assertions
+                                .assertDoesNotThrow(
+                                        () -> httpClient.send(request, HttpResponse.BodyHandlers.ofString())
+                                );
+                        Assertions.assertEquals(200, response.statusCode());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                Assertions.assertDoesNotThrow(() -> future.get());
+            }
+            elapsedNanos = System.nanoTime() - start;
+        }
+        catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        finally {
+            clientExecutor.shutdown();
+            server.close();
+        }
+
+        Assertions.assertEquals(clients * messagesPerClient, records.get());
+        return (double) (clients * messagesPerClient) * 1_000_000_000L / elapsedNanos;
+    }
+
+    private static final class Task implements RejectableRunnable {
+
+        private final AtomicInteger rejections;
+        private final Runnable runnable;
+
+        private Task(AtomicInteger rejections, Runnable runnable) {
+            this.rejections = rejections;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void onRejection() {
+            rejections.incrementAndGet();
+        }
+
+        @Override
+        public void run() {
+            runnable.run();
+        }
+    }
+
+    private static final class AsyncTask implements RejectableRunnable, AsyncRunnable {
+
+        private final Task task;
+        private final CompletableFuture<Void> completion;
+
+        private AsyncTask(AtomicInteger rejections, Runnable runnable, CompletableFuture<Void> completion) {
+            this.task = new Task(rejections, runnable);
+            this.completion = completion;
+        }
+
+        @Override
+        public void onRejection() {
+            task.onRejection();
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public CompletionStage<Void> completion() {
+            return completion;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.codahale.metrics.MetricRegistry;
+import com.teragrep.lsh_01.fakes.RelpOutputFake;
+import com.teragrep.lsh_01.fakes.ThrowingRelpOutputFake;
+import com.teragrep.lsh_01.pool.GroupCommitRelpOutput;
+import com.teragrep.lsh_01.pool.RelpOutput;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class GroupCommitTest {
+
+    @Test
+    public void testConcurrentRecordsAreGrouped() throws Exception {
+        List<List<byte[]>> batches = new ArrayList<>();
+        RelpOutput relpOutput = new GroupCommitRelpOutput(
+                new RelpOutputFake(batches),
+                10,
+                1024 * 1024,
+                1000,
+                new MetricRegistry()
+        );
+
+        ExecutorService executorService = Executors.newFixedThreadPool(10);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final byte[] record = ("record " + i).getBytes(StandardCharsets.UTF_8);
+            futures.add(executorService.submit(() -> {
+                start.await();
+                relpOutput.send(Collections.singletonList(record));
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+
+        // maxRecords is reached long before lingerMillis, so all records are sent as one batch
+        Assertions.assertEquals(1, batches.size());
+        Assertions.assertEquals(10, batches.get(0).size());
+    }
+
+    @Test
+    public void testMaxRecordsSplitsGroups() throws Exception {
+        List<List<byte[]>> batches = new ArrayList<>();
+        RelpOutput relpOutput = new GroupCommitRelpOutput(
+                new RelpOutputFake(batches),
+                3,
+                1024 * 1024,
+                1000,
+                new MetricRegistry()
+        );
+
+        ExecutorService executorService = Executors.newFixedThreadPool(9);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            futures.add(executorService.submit(() -> relpOutput.send(Collections.singletonList(new byte[1]))));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+
+        int records = 0;
+        for (List<byte[]> batch : batches) {
+            Assertions.assertTrue(batch.size() <= 3);
+            records += batch.size();
+        }
+        Assertions.assertEquals(9, records);
+    }
+
+    @Test
+    public void testMaxBytesSendsImmediately() {
+        List<List<byte[]>> batches = new ArrayList<>();
+        RelpOutput relpOutput = new GroupCommitRelpOutput(
+                new RelpOutputFake(batches),
+                100,
+                10,
+                60000,
+                new MetricRegistry()
+        );
+
+        long start = System.nanoTime();
+        relpOutput.send(Collections.singletonList(new byte[10]));
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        Assertions.assertEquals(1, batches.size());
+        Assertions.assertTrue(elapsedMillis < 60000);
+    }
+
+    @Test
+    public void testLingerSendsPartialGroup() {
+        List<List<byte[]>> batches = new ArrayList<>();
+        RelpOutput relpOutput = new GroupCommitRelpOutput(
+                new RelpOutputFake(batches),
+                100,
+                1024 * 1024,
+                10,
+                new MetricRegistry()
+        );
+
+        relpOutput.send(Collections.singletonList(new byte[1]));
+        relpOutput.send(Collections.singletonList(new byte[1]));
+
+        Assertions.assertEquals(2, batches.size());
+    }
+
+    @Test
+    public void testFailureIsPropagatedToCaller() {
+        RelpOutput relpOutput = new GroupCommitRelpOutput(
+                new ThrowingRelpOutputFake(),
+                100,
+                1024 * 1024,
+                10,
+                new MetricRegistry()
+        );
+
+        CompletionException exception = Assertions
+                .assertThrows(CompletionException.class, () -> relpOutput.send(Collections.singletonList(new byte[1])));
+        Assertions.assertEquals("failed", exception.getCause().getMessage());
+    }
+}
@@ -0,0 +1,178 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.codahale.metrics.MetricRegistry;
+import com.teragrep.lsh_01.authentication.Authentication;
+import com.teragrep.lsh_01.authentication.BasicAuthenticationFactory;
+import com.teragrep.lsh_01.authentication.CachingAuthentication;
+import com.teragrep.lsh_01.authentication.Pbkdf2PasswordVerifier;
+import com.teragrep.lsh_01.authentication.PlainPasswordVerifier;
+import com.teragrep.lsh_01.authentication.ReloadingAuthentication;
+import com.teragrep.lsh_01.config.SecurityConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+
+public class HashedCredentialsTest {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(HashedCredentialsTest.class);
+
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempFile("credentials", ".json");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.delete(file);
+        System.clearProperty("credentials.hash");
+    }
+
+    @Test
+    public void testVerify() {
+        Pbkdf2PasswordVerifier verifier = new Pbkdf2PasswordVerifier();
+        String hash = verifier.hash("ExamplePassword", 1000);
+
+        Assertions.assertTrue(hash.startsWith("$pbkdf2-sha256$1000$"), hash);
+        Assertions.assertTrue(verifier.verify("ExamplePassword", hash));
+        Assertions.assertFalse(verifier.verify("ExamplePasswore", hash));
+        Assertions.assertFalse(verifier.verify("", hash));
+    }
+
+    @Test
+    public void testSaltedHashesDiffer() {
+        Pbkdf2PasswordVerifier verifier = new Pbkdf2PasswordVerifier();
+
+        Assertions.assertNotEquals(verifier.hash("ExamplePassword", 1000), verifier.hash("ExamplePassword", 1000));
+    }
+
+    @Test
+    public void testMalformedHash() {
+        Pbkdf2PasswordVerifier verifier = new Pbkdf2PasswordVerifier();
+
+        Assertions.assertFalse(verifier.verify("ExamplePassword", "ExamplePassword"));
+        Assertions.assertFalse(verifier.verify("ExamplePassword", "$pbkdf2-sha256$1000$c2FsdA"));
+        Assertions.assertFalse(verifier.verify("ExamplePassword", "$pbkdf2-sha256$many$c2FsdA$aGFzaA"));
+        Assertions.assertFalse(verifier.verify("ExamplePassword", "$pbkdf2-sha256$0$c2FsdA$aGFzaA"));
+        Assertions.assertFalse(verifier.verify("ExamplePassword", "$pbkdf2-sha256$1000$c2FsdA$!!!"));
+    }
+
+    @Test
+    public void testPlainVerify() {
+        PlainPasswordVerifier verifier = new PlainPasswordVerifier();
+
+        Assertions.assertTrue(verifier.verify("ExamplePassword", "ExamplePassword"));
+        Assertions.assertFalse(verifier.verify("ExamplePassword", "ExamplePassworD"));
+        Assertions.assertFalse(verifier.verify("ExamplePassword", "ExamplePassword2"));
+    }
+
+    @Test
+    public void testHashedCredentialsFile() throws IOException {
+        Pbkdf2PasswordVerifier verifier = new Pbkdf2PasswordVerifier();
+        write(verifier.hash("ExamplePassword", 1000));
+        Authentication authentication = new BasicAuthenticationFactory(verifier).create(file.toString());
+
+        Assertions
+                .assertEquals(
+                        "ExampleUser", authentication.asSubject(token("ExampleUser", "ExamplePassword")).subject()
+                );
+        Assertions.assertTrue(authentication.asSubject(token("ExampleUser", "WrongPassword")).isStub());
+        Assertions.assertTrue(authentication.asSubject(token("OtherUser", "ExamplePassword")).isStub());
+    }
+
+    @Test
+    public void testPlainModeDoesNotAcceptHash() throws IOException {
+        String hash = new Pbkdf2PasswordVerifier().hash("ExamplePassword", 1000);
+        write(hash);
+        Authentication authentication = new BasicAuthenticationFactory().create(file.toString());
+
+        Assertions.assertTrue(authentication.asSubject(token("ExampleUser", "ExamplePassword")).isStub());
+    }
+
+    @Test
+    public void testInvalidConfig() {
+        System.setProperty("credentials.hash", "bcrypt");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SecurityConfig().validate());
+        System.setProperty("credentials.hash", "pbkdf2");
+        Assertions.assertDoesNotThrow(() -> new SecurityConfig().validate());
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testCachedThroughput() throws IOException {
+        final int requests = 20;
+        Pbkdf2PasswordVerifier verifier = new Pbkdf2PasswordVerifier();
+        write(verifier.hash("ExamplePassword", 210000));
+        String token = token("ExampleUser", "ExamplePassword");
+
+        ReloadingAuthentication uncached = new ReloadingAuthentication(
+                file.toString(),
+                new BasicAuthenticationFactory(verifier)
+        );
+        double uncachedRate = throughput(uncached, token, requests);
+        LOGGER.info("Uncached PBKDF2 authentication: <{}> requests per second", uncachedRate);
+
+        MetricRegistry metricRegistry = new MetricRegistry();
+        CachingAuthentication cached = new CachingAuthentication(uncached, 100, 100, 60000, 5000, metricRegistry);
+        double cachedRate = throughput(cached, token, requests * 10000);
+        LOGGER.info("Cached PBKDF2 authentication: <{}> requests per second", cachedRate);
+
+        long misses = metricRegistry.meter(MetricRegistry.name(CachingAuthentication.class, "misses")).getCount();
+        Assertions.assertEquals(1, misses);
+        Assertions.assertTrue(cachedRate > uncachedRate, cachedRate + " <= " + uncachedRate);
+    }
+
+    /**
+     * @return authentications per second
+     */
+    private double throughput(Authentication authentication, String token, int requests) {
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            Assertions.assertFalse(authentication.asSubject(token).isStub());
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        return requests / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    private String token(String username, String password) {
+        return "Basic " + Base64
+                .getEncoder()
+                .encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void write(String credential) throws IOException {
+        String json = "[\n" + "  {\n" + "    \"identity\": \"ExampleUser\",\n" + "    \"credential\": \"" + credential
+                + "\"\n" + "  }\n" + "]\n";
+        Files.write(file, json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,144 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.teragrep.lsh_01.config.HeadersConfig;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+public class HeaderFilterTest {
+
+    private HttpRequest request() {
+        final HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/data");
+        request.headers().add("Host", "localhost:8080");
+        request.headers().add("User-Agent", "curl/8.0");
+        request.headers().add("Content-Type", "text/plain");
+        request.headers().add("X-Forwarded-For", "10.0.0.1");
+        return request;
+    }
+
+    @Test
+    public void testAllowsAll() {
+        final Map<String, String> expected = new HashMap<>();
+        expected.put("http_accept", null);
+        expected.put("http_host", "localhost:8080");
+        expected.put("http_user_agent", "curl/8.0");
+        expected.put("content_type", "text/plain");
+        expected.put("x_forwarded_for", "10.0.0.1");
+        expected.put("request_method", "POST");
+        expected.put("request_path", "/data");
+        expected.put("http_version", "HTTP/1.1");
+
+        Assertions.assertEquals(expected, new FormattedHeaders(request()).asMap());
+        Assertions.assertEquals(expected, new FormattedHeaders(request(), new HeaderFilter()).asMap());
+    }
+
+    @Test
+    public void testAllow() {
+        final HeaderFilter headerFilter = new HeaderFilter(
+                new HashSet<>(Arrays.asList("http_user_agent", "x_forwarded_for", "request_path")),
+                Collections.emptySet(),
+                new MetricRegistry()
+        );
+
+        final Map<String, String> expected = new HashMap<>();
+        expected.put("http_user_agent", "curl/8.0");
+        expected.put("x_forwarded_for", "10.0.0.1");
+        expected.put("request_path", "/data");
+
+        Assertions.assertEquals(expected, new FormattedHeaders(request(), headerFilter).asMap());
+    }
+
+    @Test
+    public void testDeny() {
+        final HeaderFilter headerFilter = new HeaderFilter(
+                Collections.emptySet(),
+                new HashSet<>(Arrays.asList("http_host", "content_type", "http_accept", "request_method")),
+                new MetricRegistry()
+        );
+        final HttpRequest request = request();
+        // must not take the place of the denied headers
+        request.headers().add("Http-Host", "spoofed");
+        request.headers().add("Request-Method", "spoofed");
+
+        final Map<String, String> expected = new HashMap<>();
+        expected.put("http_user_agent", "curl/8.0");
+        expected.put("x_forwarded_for", "10.0.0.1");
+        expected.put("request_path", "/data");
+        expected.put("http_version", "HTTP/1.1");
+
+        Assertions.assertEquals(expected, new FormattedHeaders(request, headerFilter).asMap());
+    }
+
+    @Test
+    public void testConfigNames() {
+        System.setProperty("properties.file", "src/test/resources/properties/defaultTest.properties");
+        System.setProperty("headers.allow", " User-Agent, X-Forwarded-For,HOST,,");
+        System.setProperty("headers.deny", "host");
+        try {
+            final HeaderFilter headerFilter = new HeaderFilter(new HeadersConfig(), new MetricRegistry());
+
+            final Map<String, String> expected = new HashMap<>();
+            expected.put("http_user_agent", "curl/8.0");
+            expected.put("x_forwarded_for", "10.0.0.1");
+
+            Assertions.assertEquals(expected, new FormattedHeaders(request(), headerFilter).asMap());
+        }
+        finally {
+            System.clearProperty("headers.allow");
+            System.clearProperty("headers.deny");
+            System.clearProperty("properties.file");
+        }
+    }
+
+    @Test
+    public void testMetrics() {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final HeaderFilter headerFilter = new HeaderFilter(
+                Collections.emptySet(),
+                new HashSet<>(Arrays.asList("content_type", "x_forwarded_for")),
+                metricRegistry
+        );
+
+        new FormattedHeaders(request(), headerFilter).asMap();
+        new FormattedHeaders(request(), headerFilter).asMap();
+
+        final Meter filteredHeaders = metricRegistry.meter(MetricRegistry.name(HeaderFilter.class, "filteredHeaders"));
+        final Histogram filteredBytes = metricRegistry
+                .histogram(MetricRegistry.name(HeaderFilter.class, "filteredBytesPerRecord"));
+        Assertions.assertEquals(4, filteredHeaders.getCount());
+        Assertions.assertEquals(2, filteredBytes.getCount());
+        // ' content_type="text/plain"' and ' x_forwarded_for="10.0.0.1"'
+        Assertions.assertEquals(26 + 27, filteredBytes.getSnapshot().getMax());
+    }
+}
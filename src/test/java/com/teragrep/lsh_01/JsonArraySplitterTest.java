@@ -0,0 +1,223 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.teragrep.lsh_01.authentication.SubjectAnonymous;
+import com.teragrep.lsh_01.conversion.DefaultPayload;
+import com.teragrep.lsh_01.conversion.JsonArrayMessageStream;
+import com.teragrep.lsh_01.conversion.JsonPayload;
+import com.teragrep.lsh_01.conversion.Payload;
+import com.teragrep.lsh_01.conversion.RawJsonPayload;
+import com.teragrep.lsh_01.fakes.MessageHandlerFake;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.TooLongFrameException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+public class JsonArraySplitterTest {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(JsonArraySplitterTest.class);
+
+    private final String[] objects = {
+            "{\"foo\": 1}",
+            "{ \"bar\" : [1, {\"a\": \"]}\"}], \"baz\": {} }",
+            "{\"quoted\": \"\\\"}{\\\\\", \"\\u00e4\u00e4\": \"\u20ac\"}",
+            "{}"
+    };
+
+    @Test
+    public void testPreservesObjects() {
+        String body = " [\n" + String.join(",\n  ", objects) + "\n]\n";
+
+        Assertions
+                .assertEquals(Arrays.asList(objects), messages(new RawJsonPayload(new DefaultPayload(body))));
+        Assertions.assertEquals(Arrays.asList(objects), stream(1024, split(body, body.length())));
+    }
+
+    @Test
+    public void testSameObjectsAsJsonPayload() {
+        String body = "[" + String.join(",", objects) + "]";
+
+        List<String> expected = messages(new JsonPayload(new DefaultPayload(body)));
+        List<String> messages = messages(new RawJsonPayload(new DefaultPayload(body)));
+
+        Assertions.assertEquals(expected.size(), messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            // compared after removing the whitespace the same way
+            List<String> reparsed = messages(new JsonPayload(new DefaultPayload("[" + messages.get(i) + "]")));
+            Assertions.assertEquals(expected.get(i), reparsed.get(0));
+        }
+    }
+
+    @Test
+    public void testEmptyArray() {
+        Assertions.assertEquals(Collections.emptyList(), messages(new RawJsonPayload(new DefaultPayload("[ ]"))));
+        Assertions.assertEquals(Collections.emptyList(), stream(1024, "[", "]"));
+    }
+
+    @Test
+    public void testSplitAcrossParts() {
+        String body = "[" + String.join(",", objects) + "]";
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        for (int partLength = 1; partLength <= bytes.length; partLength++) {
+            List<String> received = new ArrayList<>();
+            JsonArrayMessageStream messageStream = new JsonArrayMessageStream(
+                    new MessageHandlerFake(received),
+                    new SubjectAnonymous(),
+                    new HashMap<>(),
+                    1024
+            );
+            // multibyte characters are split between parts too
+            for (int i = 0; i < bytes.length; i += partLength) {
+                messageStream.write(Unpooled.wrappedBuffer(bytes, i, Math.min(partLength, bytes.length - i)));
+            }
+            Assertions.assertTrue(messageStream.close());
+            Assertions.assertEquals(Arrays.asList(objects), received, "part length <" + partLength + ">");
+        }
+    }
+
+    @Test
+    public void testMalformedArrays() {
+        String[] bodies = {
+                "",
+                "{\"foo\": 1}",
+                "[",
+                "[{\"foo\": 1}",
+                "[{\"foo\": 1},]",
+                "[,{\"foo\": 1}]",
+                "[{\"foo\": 1} {\"bar\": 2}]",
+                "[{\"foo\": 1]]",
+                "[{\"foo\": [1}}]",
+                "[{\"foo\": \"1}]",
+                "[{\"foo\": \"\n\"}]",
+                "[1]",
+                "[\"foo\"]",
+                "[{\"foo\": 1}] x",
+                "[{\"foo\": 1}][]"
+        };
+        for (String body : bodies) {
+            Assertions
+                    .assertThrows(
+                            IllegalArgumentException.class,
+                            () -> messages(new RawJsonPayload(new DefaultPayload(body))), "body <" + body + ">"
+                    );
+            Assertions
+                    .assertThrows(
+                            IllegalArgumentException.class, () -> stream(1024, split(body, 1)), "body <" + body + ">"
+                    );
+        }
+    }
+
+    @Test
+    public void testTooLongObject() {
+        Assertions.assertEquals(Arrays.asList("{\"a\":1}"), stream(7, "[{\"a\":1}]"));
+        Assertions.assertThrows(TooLongFrameException.class, () -> stream(7, "[{\"ab\":1}]"));
+        Assertions.assertThrows(TooLongFrameException.class, () -> stream(7, "[{\"a", "b\":1}]"));
+        Assertions.assertThrows(TooLongFrameException.class, () -> stream(7, "[{\"ab\":", "1}]"));
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testSplittingThroughput() {
+        final int requests = 2000;
+        StringBuilder builder = new StringBuilder("[\n");
+        for (int i = 0; i < 100; i++) {
+            if (i > 0) {
+                builder.append(",\n");
+            }
+            builder
+                    .append("  {\"message\": \"example log line number ")
+                    .append(i)
+                    .append(" with some content\", \"level\": \"info\", \"tags\": [\"a\", \"b\"], \"count\": ")
+                    .append(i)
+                    .append('}');
+        }
+        String body = builder.append("\n]").toString();
+
+        long messages = 0;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                messages += count(new JsonPayload(new DefaultPayload(body)));
+            }
+            long jsonPayloadNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                messages += count(new RawJsonPayload(new DefaultPayload(body)));
+            }
+            long rawJsonPayloadNanos = System.nanoTime() - start;
+            LOGGER
+                    .info(
+                            "JsonPayload: <{}> requests per second, RawJsonPayload: <{}> requests per second",
+                            requests / (jsonPayloadNanos / 1_000_000_000.0),
+                            requests / (rawJsonPayloadNanos / 1_000_000_000.0)
+                    );
+        }
+        Assertions.assertEquals(2 * 3 * requests * 100, messages);
+    }
+
+    private String[] split(String body, int partLength) {
+        List<String> parts = new ArrayList<>();
+        for (int i = 0; i < body.length(); i += partLength) {
+            parts.add(body.substring(i, Math.min(body.length(), i + partLength)));
+        }
+        return parts.toArray(new String[0]);
+    }
+
+    private List<String> stream(int maxMessageLength, String... parts) {
+        List<String> received = new ArrayList<>();
+        JsonArrayMessageStream messageStream = new JsonArrayMessageStream(
+                new MessageHandlerFake(received),
+                new SubjectAnonymous(),
+                new HashMap<>(),
+                maxMessageLength
+        );
+        for (String part : parts) {
+            messageStream.write(Unpooled.wrappedBuffer(part.getBytes(StandardCharsets.UTF_8)));
+        }
+        Assertions.assertTrue(messageStream.close());
+        return received;
+    }
+
+    private long count(Payload payload) {
+        long count = 0;
+        for (CharSequence ignored : payload.messages()) {
+            count++;
+        }
+        return count;
+    }
+
+    private List<String> messages(Payload payload) {
+        List<String> messages = new ArrayList<>();
+        payload.messages().forEach(message -> messages.add(message.toString()));
+        return messages;
+    }
+}
@@ -24,6 +24,7 @@ import com.teragrep.lsh_01.conversion.JsonPayload;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class JsonPayloadTest {
@@ -34,7 +35,8 @@ public class JsonPayloadTest {
         String requestBody = "[\n" + message + "\n]";
 
         JsonPayload payload = new JsonPayload(new DefaultPayload(requestBody));
-        List<String> messages = payload.messages();
+        List<String> messages = new ArrayList<>();
+        payload.messages().forEach(object -> messages.add(object.toString()));
 
         String expected = message.replaceAll("\\s", "");
 
@@ -48,7 +50,8 @@ public class JsonPayloadTest {
         String requestBody = "[\n" + message1 + ",\n" + message2 + "\n]";
 
         JsonPayload payload = new JsonPayload(new DefaultPayload(requestBody));
-        List<String> messages = payload.messages();
+        List<String> messages = new ArrayList<>();
+        payload.messages().forEach(object -> messages.add(object.toString()));
 
         String expected1 = message1.replaceAll("\\s", "");
         String expected2 = message2.replaceAll("\\s", "");
@@ -65,7 +68,7 @@ public class JsonPayloadTest {
         JsonPayload samePayload = new JsonPayload(new DefaultPayload(requestBody));
 
         // public methods of JsonPayload shouldn't affect an immutable object
-        payload.messages();
+        Assertions.assertTrue(payload.messages().iterator().hasNext());
 
         Assertions.assertEquals(payload, samePayload);
     }
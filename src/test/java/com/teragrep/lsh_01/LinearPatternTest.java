@@ -0,0 +1,221 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.teragrep.lsh_01.conversion.DefaultPayload;
+import com.teragrep.lsh_01.conversion.LinearPattern;
+import com.teragrep.lsh_01.conversion.LinearRegexPayload;
+import com.teragrep.lsh_01.conversion.Payload;
+import com.teragrep.lsh_01.conversion.RegexPayload;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+public class LinearPatternTest {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(LinearPatternTest.class);
+
+    private final String[] regexes = {
+            "\\n",
+            "\\r?\\n",
+            "\\n+",
+            ",\\s*",
+            "\\s*,\\s*",
+            "a|ab",
+            "ab|a",
+            "(a|ab)(c|bcd)",
+            "a*",
+            "a*?",
+            "a+?b",
+            "b?",
+            "(?:ab)+",
+            "[a-c]{2}",
+            "[^a]{1,2}",
+            "a{2,}",
+            "a{0,2}?",
+            "x*",
+            "(b|)",
+            "\\d+",
+            "\\W",
+            "[\\d\\s]+",
+            ".",
+            ".b",
+            "[-a]",
+            "\\.\\|",
+            "\\x61",
+            "\\u0062c",
+            "(a*)*",
+            "(a|b)*c",
+            "\u00e4|\ud83d\ude00"
+    };
+
+    private final String[] bodies = {
+            "",
+            "a",
+            "b",
+            "\n",
+            "ab\nabc\r\n\r\nb",
+            "aaa",
+            "abcbcd",
+            "a, b,c ,  d,",
+            "abababcab",
+            "1 2\t33 a",
+            "a.|b.|",
+            "x\u00e4y\ud83d\ude00zb\ud83d\ude00b",
+            "ccc",
+            "baab"
+    };
+
+    @Test
+    public void testSameAsPatternSplit() {
+        for (String regex : regexes) {
+            LinearPattern linearPattern = new LinearPattern(regex);
+            Pattern pattern = Pattern.compile(regex);
+            for (String body : bodies) {
+                Assertions
+                        .assertEquals(
+                                Arrays.asList(pattern.split(body)), Arrays.asList(linearPattern.split(body)),
+                                "regex <" + regex + "> body <" + body + ">"
+                        );
+                Assertions
+                        .assertEquals(
+                                Arrays.asList(pattern.split(body)),
+                                messages(new RegexPayload(new DefaultPayload(body), pattern)),
+                                "regex <" + regex + "> body <" + body + ">"
+                        );
+            }
+        }
+    }
+
+    @Test
+    public void testRandomBodies() {
+        Random random = new Random(1234);
+        char[] alphabet = {
+                'a', 'b', 'c', ',', ' ', '\n', '1'
+        };
+        for (int round = 0; round < 300; round++) {
+            StringBuilder builder = new StringBuilder();
+            int length = random.nextInt(30);
+            for (int i = 0; i < length; i++) {
+                builder.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            String body = builder.toString();
+            for (String regex : regexes) {
+                Assertions
+                        .assertEquals(
+                                Arrays.asList(Pattern.compile(regex).split(body)),
+                                Arrays.asList(new LinearPattern(regex).split(body)),
+                                "regex <" + regex + "> body <" + body + ">"
+                        );
+            }
+        }
+    }
+
+    @Test
+    public void testUnsupported() {
+        String[] unsupported = {
+                "(a)\\1", "(?=a)", "(?<!a)b", "^a", "a$", "\\bfoo", "(?i)a", "a++", "[a[b]]", "[a&&b]", "\\p{L}",
+                "a{2,1}", "(a", "a)", "*a", "a**", "[a", "\\"
+        };
+        for (String regex : unsupported) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> new LinearPattern(regex), regex);
+        }
+    }
+
+    @Test
+    public void testLinearTime() {
+        // java.util.regex backtracks exponentially on this, see SplitTimeoutTest
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            body.append('a');
+        }
+        long start = System.nanoTime();
+        String[] messages = new LinearPattern("(.*a){12}b").split(body);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        Assertions.assertEquals(1, messages.length);
+        Assertions.assertTrue(millis < 10000, "took " + millis + " ms");
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testSplittingThroughput() {
+        final int requests = 2000;
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            builder.append("example log line number ").append(i).append(" with some content\r\n");
+        }
+        String body = builder.toString();
+        String regex = "\\r?\\n";
+        Pattern pattern = Pattern.compile(regex);
+        LinearPattern linearPattern = new LinearPattern(regex);
+
+        long messages = 0;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                messages += count(new RegexPayload(new DefaultPayload(body), pattern));
+            }
+            long regexNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                messages += count(new RegexPayload(new DefaultPayload(body), pattern, 1000));
+            }
+            long timeoutNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                messages += count(new LinearRegexPayload(new DefaultPayload(body), linearPattern, 1000));
+            }
+            long linearNanos = System.nanoTime() - start;
+            LOGGER
+                    .info(
+                            "Requests per second, java: <{}> java with timeout: <{}> linear: <{}>",
+                            requests / (regexNanos / 1_000_000_000.0),
+                            requests / (timeoutNanos / 1_000_000_000.0),
+                            requests / (linearNanos / 1_000_000_000.0)
+                    );
+        }
+        Assertions.assertEquals(3 * 3 * requests * 100, messages);
+    }
+
+    private long count(Payload payload) {
+        long count = 0;
+        for (CharSequence ignored : payload.messages()) {
+            count++;
+        }
+        return count;
+    }
+
+    private List<String> messages(Payload payload) {
+        List<String> messages = new ArrayList<>();
+        payload.messages().forEach(message -> messages.add(message.toString()));
+        return messages;
+    }
+}
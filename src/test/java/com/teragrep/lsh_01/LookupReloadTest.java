@@ -0,0 +1,141 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.teragrep.lsh_01.authentication.BasicAuthenticationFactory;
+import com.teragrep.lsh_01.authentication.Subject;
+import com.teragrep.lsh_01.authentication.SubjectImpl;
+import com.teragrep.lsh_01.config.SecurityConfig;
+import com.teragrep.lsh_01.conversion.DefaultPayload;
+import com.teragrep.lsh_01.conversion.IMessageHandler;
+import com.teragrep.lsh_01.conversion.RelpConversion;
+import com.teragrep.lsh_01.fakes.RelpOutputFake;
+import com.teragrep.lsh_01.util.FileWatcher;
+import com.teragrep.lsh_01.lookup.ReloadingLookupTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class LookupReloadTest {
+
+    private Path directory;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("lookup");
+        file = directory.resolve("hostname.json");
+        write(file, "first.example.com");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testReload() throws IOException {
+        ReloadingLookupTable table = new ReloadingLookupTable(file.toString());
+        Assertions.assertEquals("first.example.com", table.lookup("ExampleUser"));
+        Assertions.assertEquals("fallback.example.com", table.lookup("UnknownUser"));
+
+        write(file, "second.example.com");
+        Assertions.assertEquals("first.example.com", table.lookup("ExampleUser"));
+        table.reload();
+        Assertions.assertEquals("second.example.com", table.lookup("ExampleUser"));
+    }
+
+    @Test
+    public void testFailedReloadKeepsTable() throws IOException {
+        ReloadingLookupTable table = new ReloadingLookupTable(file.toString());
+        Files.delete(file);
+
+        Assertions.assertDoesNotThrow(table::reload);
+        Assertions.assertEquals("first.example.com", table.lookup("ExampleUser"));
+    }
+
+    @Test
+    public void testCopiesShareTable() throws IOException {
+        ReloadingLookupTable table = new ReloadingLookupTable(file.toString());
+        List<List<byte[]>> batches = new ArrayList<>();
+        IMessageHandler conversion = new RelpConversion(
+                new RelpOutputFake(batches),
+                new SecurityConfig(),
+                new BasicAuthenticationFactory().create(),
+                table,
+                table
+        );
+        IMessageHandler copy = conversion.copy();
+
+        write(file, "second.example.com");
+        table.reload();
+        Subject subject = new SubjectImpl("ExampleUser");
+        Assertions.assertTrue(copy.onNewPayload(subject, new HashMap<>(), new DefaultPayload("message")));
+        Assertions.assertEquals(1, batches.size());
+        String record = new String(batches.get(0).get(0), StandardCharsets.UTF_8);
+        Assertions.assertTrue(record.contains(" second.example.com "), record);
+    }
+
+    @Test
+    public void testWatcherReloadsReplacedFile() throws Exception {
+        ReloadingLookupTable table = new ReloadingLookupTable(file.toString());
+        FileWatcher watcher = new FileWatcher(Collections.singletonList(table));
+        try {
+            // replace the file the way editors and configuration management do
+            Path next = directory.resolve("hostname.json.tmp");
+            write(next, "second.example.com");
+            Files.move(next, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!"second.example.com".equals(table.lookup("ExampleUser"))
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assertions.assertEquals("second.example.com", table.lookup("ExampleUser"));
+        }
+        finally {
+            watcher.close();
+        }
+    }
+
+    private void write(Path path, String hostname) throws IOException {
+        String json = "{\n" + "  \"nomatch\": \"fallback.example.com\",\n" + "  \"type\": \"array\",\n"
+                + "  \"table\": [\n" + "    {\n" + "      \"index\": \"ExampleUser\",\n" + "      \"value\": \""
+                + hostname + "\"\n" + "    }\n" + "  ]\n" + "}\n";
+        Files.write(path, json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -23,13 +23,17 @@ import com.codahale.metrics.Counter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import com.teragrep.lsh_01.authentication.BasicAuthenticationFactory;
+import com.teragrep.lsh_01.authentication.Subject;
 import com.teragrep.lsh_01.authentication.SubjectAnonymous;
 import com.teragrep.lsh_01.config.LookupConfig;
 import com.teragrep.lsh_01.config.RelpConfig;
 import com.teragrep.lsh_01.config.SecurityConfig;
+import com.teragrep.lsh_01.conversion.DefaultPayload;
 import com.teragrep.lsh_01.conversion.IMessageHandler;
 import com.teragrep.lsh_01.conversion.MetricRelpConversion;
+import com.teragrep.lsh_01.conversion.Payload;
 import com.teragrep.lsh_01.conversion.RelpConversion;
+import com.teragrep.lsh_01.fakes.MessageHandlerFake;
 import com.teragrep.lsh_01.fakes.RelpConnectionFactoryFake;
 import com.teragrep.lsh_01.fakes.RelpConnectionFake;
 import com.teragrep.lsh_01.fakes.ResendingRelpConnectionFake;
@@ -42,7 +46,11 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
 
 import static com.codahale.metrics.MetricRegistry.name;
 
@@ -253,4 +261,47 @@ public class MetricTest {
         Assertions.assertTrue(connectLatencyTimer.getMeanRate() >= 0); // rate exists
         Assertions.assertTrue(connectLatencyTimer.getMeanRate() <= (double) 1000 / connectLatency); // rate is lower or equal to the highest possible
     }
+
+    @Test
+    public void testSendLatencyStoppedOnThrow() {
+        MetricRegistry registry = new MetricRegistry();
+        IMessageHandler conversion = new MetricRelpConversion(new MessageHandlerFake(new ArrayList<>()) {
+
+            @Override
+            public CompletionStage<Boolean> onNewPayloadAsync(
+                    Subject subject,
+                    Map<String, String> headers,
+                    Payload payload
+            ) {
+                throw new IllegalStateException("split failed");
+            }
+        }, registry);
+
+        Assertions
+                .assertThrows(
+                        IllegalStateException.class,
+                        () -> conversion
+                                .onNewPayloadAsync(new SubjectAnonymous(), new HashMap<>(), new DefaultPayload("message"))
+                );
+        Assertions.assertEquals(1, registry.timer(name(MetricRelpConversion.class, "sendLatency")).getCount());
+    }
+
+    @Test
+    public void testSendLatencyObserved() {
+        MetricRegistry registry = new MetricRegistry();
+        List<Long> latencies = new ArrayList<>();
+        IMessageHandler conversion = new MetricRelpConversion(
+                new MessageHandlerFake(new ArrayList<>()),
+                registry,
+                latencies::add
+        );
+
+        conversion
+                .onNewPayloadAsync(new SubjectAnonymous(), new HashMap<>(), new DefaultPayload("message"))
+                .toCompletableFuture()
+                .join();
+        conversion.onNewMessage(new SubjectAnonymous(), new HashMap<>(), "message");
+        Assertions.assertEquals(2, latencies.size());
+        Assertions.assertEquals(2, registry.timer(name(MetricRelpConversion.class, "sendLatency")).getCount());
+    }
 }
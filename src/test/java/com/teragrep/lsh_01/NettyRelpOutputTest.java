@@ -0,0 +1,234 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.codahale.metrics.MetricRegistry;
+import com.teragrep.lsh_01.relp.NettyRelpOutput;
+import com.teragrep.lsh_01.util.HoldingRelpServer;
+import com.teragrep.lsh_01.util.RelpServer;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.junit.jupiter.api.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class NettyRelpOutputTest {
+
+    private final int relpPort = 1603;
+    private RelpServer relpServer;
+    private EventLoopGroup eventLoopGroup;
+
+    @BeforeAll
+    void setUp() {
+        System.setProperty("relp.port", Integer.toString(relpPort));
+        this.relpServer = new RelpServer();
+        this.relpServer.setUpDefault();
+        this.eventLoopGroup = new NioEventLoopGroup(1);
+    }
+
+    @AfterEach
+    void reset() {
+        this.relpServer.clear();
+    }
+
+    @AfterAll
+    void tearDown() {
+        System.clearProperty("relp.port");
+        this.relpServer.tearDown();
+        this.eventLoopGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testPipelinedRecordsAreAcknowledged() {
+        NettyRelpOutput relpOutput = relpOutput();
+
+        List<CompletableFuture<Void>> acks = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            acks.add(relpOutput.sendAsync(Collections.singletonList(("record " + i).getBytes(StandardCharsets.UTF_8))));
+        }
+        Assertions
+                .assertDoesNotThrow(
+                        () -> CompletableFuture.allOf(acks.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS)
+                );
+        relpOutput.close();
+
+        List<String> payloads = relpServer.payloads();
+        Assertions.assertEquals(1000, payloads.size());
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertEquals("record " + i, payloads.get(i));
+        }
+    }
+
+    @Test
+    public void testBlockingSend() {
+        NettyRelpOutput relpOutput = relpOutput();
+
+        relpOutput.send(Collections.singletonList("foo".getBytes(StandardCharsets.UTF_8)));
+        Assertions.assertEquals(1, relpServer.payloads().size());
+        relpOutput.close();
+    }
+
+    @Test
+    public void testSendAfterClose() {
+        NettyRelpOutput relpOutput = relpOutput();
+        relpOutput.close();
+
+        CompletableFuture<Void> ack = relpOutput.sendAsync(Collections.singletonList(new byte[1]));
+        Assertions.assertThrows(Exception.class, () -> ack.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testWindowLimitsUnacknowledgedRecords() {
+        HoldingRelpServer server = new HoldingRelpServer(eventLoopGroup, true, 0);
+        server.start();
+        NettyRelpOutput relpOutput = relpOutput(server.port(), 500, 10, 100);
+
+        List<CompletableFuture<Void>> acks = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            acks.add(relpOutput.sendAsync(Collections.singletonList(("record " + i).getBytes(StandardCharsets.UTF_8))));
+        }
+        Assertions.assertDoesNotThrow(() -> awaitArrivals(server, 10));
+        Assertions.assertDoesNotThrow(() -> Thread.sleep(200));
+        Assertions.assertEquals(10, server.arrivals().size());
+
+        server.release();
+        Assertions
+                .assertDoesNotThrow(
+                        () -> CompletableFuture.allOf(acks.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS)
+                );
+        Assertions.assertEquals(50, server.arrivals().size());
+        relpOutput.close();
+        server.stop();
+    }
+
+    @Test
+    public void testSendOverMaxQueuedFails() {
+        HoldingRelpServer server = new HoldingRelpServer(eventLoopGroup, true, 0);
+        server.start();
+        NettyRelpOutput relpOutput = relpOutput(server.port(), 500, 10, 20);
+
+        List<byte[]> records = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            records.add(("record " + i).getBytes(StandardCharsets.UTF_8));
+        }
+        CompletableFuture<Void> queued = relpOutput.sendAsync(records);
+        CompletableFuture<Void> overflow = relpOutput.sendAsync(Collections.singletonList(new byte[1]));
+        Assertions.assertTrue(overflow.isCompletedExceptionally());
+        Assertions.assertFalse(queued.isDone());
+
+        server.release();
+        Assertions.assertDoesNotThrow(() -> queued.get(10, TimeUnit.SECONDS));
+        // acknowledged records no longer count towards the maximum
+        Assertions
+                .assertDoesNotThrow(
+                        () -> relpOutput.sendAsync(Collections.singletonList(new byte[1])).get(10, TimeUnit.SECONDS)
+                );
+        relpOutput.close();
+        server.stop();
+    }
+
+    @Test
+    public void testRejectedRecordIsResentAfterReconnectInterval() {
+        HoldingRelpServer server = new HoldingRelpServer(eventLoopGroup, false, 1);
+        server.start();
+        NettyRelpOutput relpOutput = relpOutput(server.port(), 500, 10, 100);
+
+        Assertions
+                .assertDoesNotThrow(
+                        () -> relpOutput
+                                .sendAsync(Collections.singletonList("foo".getBytes(StandardCharsets.UTF_8)))
+                                .get(10, TimeUnit.SECONDS)
+                );
+        List<Long> arrivals = server.arrivals();
+        Assertions.assertEquals(2, arrivals.size());
+        Assertions.assertTrue(TimeUnit.NANOSECONDS.toMillis(arrivals.get(1) - arrivals.get(0)) >= 500);
+        relpOutput.close();
+        server.stop();
+    }
+
+    @Test
+    public void testSilentServerConnectionIsReplaced() {
+        // accepts the connection and the records but never acknowledges them
+        HoldingRelpServer server = new HoldingRelpServer(eventLoopGroup, true, 0);
+        server.start();
+        MetricRegistry metricRegistry = new MetricRegistry();
+        NettyRelpOutput relpOutput = relpOutput(server.port(), 100, 10, 100, 200, metricRegistry);
+
+        CompletableFuture<Void> ack = relpOutput
+                .sendAsync(Collections.singletonList("foo".getBytes(StandardCharsets.UTF_8)));
+        Assertions.assertDoesNotThrow(() -> awaitArrivals(server, 2));
+        Assertions.assertTrue(server.arrivals().size() >= 2);
+        Assertions.assertFalse(ack.isDone());
+        Assertions.assertTrue(metricRegistry.counter(name(NettyRelpOutput.class, "ackTimeouts")).getCount() >= 1);
+        Assertions.assertTrue(metricRegistry.counter(name(NettyRelpOutput.class, "resends")).getCount() >= 1);
+
+        // the record sent again on a new connection is acknowledged once the server answers
+        server.release();
+        Assertions.assertDoesNotThrow(() -> ack.get(10, TimeUnit.SECONDS));
+        relpOutput.close();
+        server.stop();
+    }
+
+    private void awaitArrivals(HoldingRelpServer server, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (server.arrivals().size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private NettyRelpOutput relpOutput() {
+        return relpOutput(relpPort, 500, 128, 10000);
+    }
+
+    private NettyRelpOutput relpOutput(int port, int reconnectInterval, int window, int maxQueued) {
+        return relpOutput(port, reconnectInterval, window, maxQueued, 30000, new MetricRegistry());
+    }
+
+    private NettyRelpOutput relpOutput(
+            int port,
+            int reconnectInterval,
+            int window,
+            int maxQueued,
+            int ackTimeoutMillis,
+            MetricRegistry metricRegistry
+    ) {
+        return new NettyRelpOutput(
+                new Bootstrap().channel(NioSocketChannel.class),
+                eventLoopGroup.next(),
+                "127.0.0.1",
+                port,
+                reconnectInterval,
+                window,
+                maxQueued,
+                ackTimeoutMillis,
+                metricRegistry
+        );
+    }
+}
@@ -0,0 +1,174 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.teragrep.lsh_01.authentication.BasicAuthenticationFactory;
+import com.teragrep.lsh_01.authentication.SubjectAnonymous;
+import com.teragrep.lsh_01.config.LookupConfig;
+import com.teragrep.lsh_01.config.SecurityConfig;
+import com.teragrep.lsh_01.conversion.DefaultPayload;
+import com.teragrep.lsh_01.conversion.IMessageHandler;
+import com.teragrep.lsh_01.conversion.JsonConversion;
+import com.teragrep.lsh_01.conversion.Payload;
+import com.teragrep.lsh_01.conversion.RegexConversion;
+import com.teragrep.lsh_01.conversion.RegexPayload;
+import com.teragrep.lsh_01.conversion.RelpConversion;
+import com.teragrep.lsh_01.fakes.RelpOutputFake;
+import com.teragrep.lsh_01.pool.RelpOutput;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+public class PayloadBatchingTest {
+
+    @Test
+    public void testRegexSplitMessagesInOneBatch() {
+        List<List<byte[]>> batches = new ArrayList<>();
+        IMessageHandler conversion = new RegexConversion(relpConversion(batches), "\\n");
+
+        Assertions.assertTrue(conversion.onNewMessage(new SubjectAnonymous(), new HashMap<>(), "foo\nbar\nfoobar"));
+        Assertions.assertEquals(1, batches.size());
+        Assertions.assertEquals(3, batches.get(0).size());
+    }
+
+    @Test
+    public void testJsonSplitMessagesInOneBatch() {
+        List<List<byte[]>> batches = new ArrayList<>();
+        IMessageHandler conversion = new JsonConversion(relpConversion(batches));
+
+        Assertions
+                .assertTrue(conversion.onNewMessage(new SubjectAnonymous(), new HashMap<>(), "[{\"a\":1},{\"b\":2}]"));
+        Assertions.assertEquals(1, batches.size());
+        Assertions.assertEquals(2, batches.get(0).size());
+    }
+
+    @Test
+    public void testEmptyJsonArraySendsNothing() {
+        List<List<byte[]>> batches = new ArrayList<>();
+        IMessageHandler conversion = new JsonConversion(relpConversion(batches));
+
+        Assertions.assertTrue(conversion.onNewMessage(new SubjectAnonymous(), new HashMap<>(), "[]"));
+        Assertions.assertEquals(0, batches.size());
+    }
+
+    @Test
+    public void testInvalidJsonFails() {
+        List<List<byte[]>> batches = new ArrayList<>();
+        IMessageHandler conversion = new JsonConversion(relpConversion(batches));
+
+        Assertions.assertFalse(conversion.onNewMessage(new SubjectAnonymous(), new HashMap<>(), "[{\"a\":"));
+        Assertions.assertEquals(0, batches.size());
+    }
+
+    @Test
+    public void testLargeRequestIsSentInChunks() {
+        List<List<byte[]>> batches = new ArrayList<>();
+        IMessageHandler conversion = new RegexConversion(relpConversion(batches), "\\n");
+
+        Assertions.assertTrue(conversion.onNewMessage(new SubjectAnonymous(), new HashMap<>(), body(1200)));
+        Assertions.assertEquals(3, batches.size());
+        Assertions.assertEquals(512, batches.get(0).size());
+        Assertions.assertEquals(512, batches.get(1).size());
+        Assertions.assertEquals(176, batches.get(2).size());
+        String last = new String(batches.get(2).get(175), StandardCharsets.UTF_8);
+        Assertions.assertTrue(last.endsWith("message 1199"), last);
+    }
+
+    @Test
+    public void testLargeInvalidJsonSendsNothing() {
+        List<List<byte[]>> batches = new ArrayList<>();
+        IMessageHandler conversion = new JsonConversion(relpConversion(batches));
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < 1200; i++) {
+            body.append("{\"a\":").append(i).append("},");
+        }
+        body.append("{\"a\":");
+
+        Assertions.assertFalse(conversion.onNewMessage(new SubjectAnonymous(), new HashMap<>(), body.toString()));
+        Assertions.assertEquals(0, batches.size());
+    }
+
+    @Test
+    public void testChunksAreChainedWithoutBlocking() {
+        List<List<byte[]>> batches = new ArrayList<>();
+        List<CompletableFuture<Void>> acks = new ArrayList<>();
+        // acknowledges a batch only when the test completes its future
+        RelpOutput holdingOutput = new RelpOutputFake(batches) {
+
+            @Override
+            public CompletableFuture<Void> sendAsync(List<byte[]> records) {
+                send(records);
+                CompletableFuture<Void> ack = new CompletableFuture<>();
+                acks.add(ack);
+                return ack;
+            }
+        };
+        // counts how many times the messages are split from the body
+        AtomicInteger iterations = new AtomicInteger();
+        Payload payload = () -> () -> {
+            iterations.incrementAndGet();
+            return new RegexPayload(new DefaultPayload(body(1200)), Pattern.compile("\\n")).messages().iterator();
+        };
+
+        CompletionStage<Boolean> sent = new RelpConversion(
+                holdingOutput,
+                new SecurityConfig(),
+                new BasicAuthenticationFactory().create(),
+                new LookupConfig()
+        ).onNewPayloadAsync(new SubjectAnonymous(), new HashMap<>(), payload);
+        // the body is split once, and the caller is not held while the chunks wait for their acks
+        Assertions.assertEquals(1, iterations.get());
+        Assertions.assertFalse(sent.toCompletableFuture().isDone());
+        Assertions.assertEquals(1, batches.size());
+
+        acks.get(0).complete(null);
+        Assertions.assertEquals(2, batches.size());
+        acks.get(1).complete(null);
+        Assertions.assertEquals(3, batches.size());
+        Assertions.assertFalse(sent.toCompletableFuture().isDone());
+        acks.get(2).complete(null);
+        Assertions.assertTrue(sent.toCompletableFuture().join());
+    }
+
+    private String body(int messages) {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < messages; i++) {
+            body.append("message ").append(i).append('\n');
+        }
+        return body.toString();
+    }
+
+    private RelpConversion relpConversion(List<List<byte[]>> batches) {
+        return new RelpConversion(
+                new RelpOutputFake(batches),
+                new SecurityConfig(),
+                new BasicAuthenticationFactory().create(),
+                new LookupConfig()
+        );
+    }
+}
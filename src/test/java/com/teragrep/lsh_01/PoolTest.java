@@ -0,0 +1,494 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.codahale.metrics.MetricRegistry;
+import com.teragrep.lsh_01.config.RelpConfig;
+import com.teragrep.lsh_01.fakes.DroppingRelpConnectionFake;
+import com.teragrep.lsh_01.fakes.RelpConnectionFake;
+import com.teragrep.lsh_01.fakes.ThrowingRelpConnectionFake;
+import com.teragrep.lsh_01.pool.IManagedRelpConnection;
+import com.teragrep.lsh_01.pool.ManagedRelpConnection;
+import com.teragrep.lsh_01.pool.ManagedRelpConnectionStub;
+import com.teragrep.lsh_01.pool.MetricRelpConnection;
+import com.teragrep.lsh_01.pool.Pool;
+import com.teragrep.lsh_01.pool.PooledRelpOutput;
+import com.teragrep.lsh_01.pool.RebindableRelpConnection;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+public class PoolTest {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(PoolTest.class);
+
+    private final List<byte[]> records = Collections.singletonList("test".getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    public void testUnboundedByDefault() {
+        RelpConfig relpConfig = new RelpConfig();
+        MetricRegistry registry = new MetricRegistry();
+        Pool<IManagedRelpConnection> pool = new Pool<>(
+                () -> new ManagedRelpConnection(new RelpConnectionFake(relpConfig), registry),
+                new ManagedRelpConnectionStub()
+        );
+
+        Set<IManagedRelpConnection> borrowed = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            borrowed.add(pool.get());
+        }
+        Assertions.assertEquals(100, borrowed.size());
+        pool.close();
+    }
+
+    @Test
+    public void testMaxSize() {
+        MetricRegistry registry = new MetricRegistry();
+        Pool<IManagedRelpConnection> pool = new Pool<>(
+                factory(0, 0, registry),
+                new ManagedRelpConnectionStub(),
+                2,
+                0,
+                50,
+                registry
+        );
+
+        IManagedRelpConnection first = pool.get();
+        IManagedRelpConnection second = pool.get();
+        Assertions.assertNotSame(first, second);
+
+        IllegalStateException exception = Assertions.assertThrows(IllegalStateException.class, pool::get);
+        Assertions.assertEquals("No pooled object became available in 50 ms, all 2 are in use", exception.getMessage());
+
+        Assertions.assertEquals(2, registry.counter(name(Pool.class, "created")).getCount());
+        Assertions.assertEquals(2, registry.getGauges().get(name(Pool.class, "active")).getValue());
+        Assertions.assertEquals(0, registry.getGauges().get(name(Pool.class, "idle")).getValue());
+
+        pool.offer(first);
+        Assertions.assertSame(first, pool.get());
+        Assertions.assertEquals(2, registry.counter(name(Pool.class, "created")).getCount());
+        pool.close();
+    }
+
+    @Test
+    public void testWaitsForOffer() throws Exception {
+        MetricRegistry registry = new MetricRegistry();
+        Pool<IManagedRelpConnection> pool = new Pool<>(
+                factory(0, 0, registry),
+                new ManagedRelpConnectionStub(),
+                1,
+                0,
+                5000,
+                registry
+        );
+
+        IManagedRelpConnection borrowed = pool.get();
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        executorService.submit(() -> {
+            Thread.sleep(100);
+            pool.offer(borrowed);
+            return null;
+        });
+
+        Assertions.assertSame(borrowed, pool.get());
+        executorService.shutdown();
+
+        Assertions.assertEquals(1, registry.counter(name(Pool.class, "created")).getCount());
+        // the second get waited for the offer
+        Assertions.assertEquals(2, registry.timer(name(Pool.class, "waitLatency")).getCount());
+        Assertions.assertTrue(registry.timer(name(Pool.class, "waitLatency")).getSnapshot().getMax() >= 50_000_000L);
+        pool.close();
+    }
+
+    @Test
+    public void testWarmUp() {
+        MetricRegistry registry = new MetricRegistry();
+        Pool<IManagedRelpConnection> pool = new Pool<>(
+                factory(0, 0, registry),
+                new ManagedRelpConnectionStub(),
+                4,
+                3,
+                5000,
+                registry
+        );
+
+        pool.warmUp();
+        Assertions.assertEquals(3, registry.counter(name(Pool.class, "created")).getCount());
+        Assertions.assertEquals(3, registry.getGauges().get(name(Pool.class, "idle")).getValue());
+        Assertions.assertEquals(0, registry.getGauges().get(name(Pool.class, "active")).getValue());
+        // connected before anything was sent
+        Assertions.assertEquals(3, registry.counter(name(MetricRelpConnection.class, "connects")).getCount());
+
+        PooledRelpOutput output = new PooledRelpOutput(pool);
+        for (int i = 0; i < 10; i++) {
+            output.send(records);
+        }
+        Assertions.assertEquals(3, registry.counter(name(Pool.class, "created")).getCount());
+        Assertions.assertEquals(3, registry.counter(name(MetricRelpConnection.class, "connects")).getCount());
+        Assertions.assertEquals(10, registry.counter(name(ManagedRelpConnection.class, "records")).getCount());
+        Assertions.assertEquals(0, registry.counter(name(ManagedRelpConnection.class, "resends")).getCount());
+        pool.close();
+    }
+
+    @Test
+    public void testFailedSendReturnsConnection() {
+        MetricRegistry registry = new MetricRegistry();
+        Pool<IManagedRelpConnection> pool = new Pool<>(
+                () -> new RebindableRelpConnection(new ManagedRelpConnectionStub(), 1000),
+                new ManagedRelpConnectionStub(),
+                1,
+                0,
+                50,
+                registry
+        );
+        PooledRelpOutput output = new PooledRelpOutput(pool);
+
+        for (int i = 0; i < 3; i++) {
+            IllegalStateException exception = Assertions
+                    .assertThrows(IllegalStateException.class, () -> output.send(records));
+            Assertions.assertEquals("ManagedRelpConnectionStub does not support this", exception.getMessage());
+        }
+        Assertions.assertEquals(1, registry.counter(name(Pool.class, "created")).getCount());
+        Assertions.assertEquals(1, registry.getGauges().get(name(Pool.class, "idle")).getValue());
+    }
+
+    @Test
+    public void testClosedPoolGivesStub() {
+        MetricRegistry registry = new MetricRegistry();
+        Pool<IManagedRelpConnection> pool = new Pool<>(
+                factory(0, 0, registry),
+                new ManagedRelpConnectionStub(),
+                1,
+                1,
+                50,
+                registry
+        );
+        pool.warmUp();
+        pool.close();
+
+        Assertions.assertTrue(pool.get().isStub());
+        Assertions.assertEquals(0, registry.getGauges().get(name(Pool.class, "idle")).getValue());
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testBurstConnections() throws Exception {
+        final int threads = 32;
+        final int sends = 20;
+        final int sendLatency = 2;
+        final int connectLatency = 20;
+
+        for (int maxSize : new int[] {
+                0, 4
+        }) {
+            MetricRegistry registry = new MetricRegistry();
+            Pool<IManagedRelpConnection> pool = new Pool<>(
+                    factory(sendLatency, connectLatency, registry),
+                    new ManagedRelpConnectionStub(),
+                    maxSize,
+                    maxSize,
+                    5000,
+                    registry
+            );
+            PooledRelpOutput output = new PooledRelpOutput(pool);
+            ExecutorService executorService = Executors.newFixedThreadPool(threads);
+
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executorService.submit(() -> {
+                    for (int j = 0; j < sends; j++) {
+                        output.send(records);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            double millis = (System.nanoTime() - start) / 1_000_000d;
+            executorService.shutdown();
+            pool.close();
+
+            long created = registry.counter(name(Pool.class, "created")).getCount();
+            Assertions
+                    .assertEquals(
+                            threads * sends, registry.counter(name(ManagedRelpConnection.class, "records")).getCount()
+                    );
+            if (maxSize > 0) {
+                Assertions.assertTrue(created <= maxSize);
+            }
+            LOGGER
+                    .info(
+                            "maxSize <{}>: <{}> sends from <{}> threads opened <{}> connections in <{}> ms", maxSize,
+                            threads * sends, threads, created, String.format("%.0f", millis)
+                    );
+        }
+    }
+
+    @Test
+    public void testLastOfferedFirst() {
+        MetricRegistry registry = new MetricRegistry();
+        Pool<IManagedRelpConnection> pool = new Pool<>(factory(0, 0, registry), new ManagedRelpConnectionStub());
+        IManagedRelpConnection first = pool.get();
+        IManagedRelpConnection second = pool.get();
+        pool.offer(first);
+        pool.offer(second);
+
+        Assertions.assertSame(second, pool.get());
+        Assertions.assertSame(first, pool.get());
+        pool.close();
+    }
+
+    @Test
+    public void testMaxIdleEviction() throws InterruptedException {
+        MetricRegistry registry = new MetricRegistry();
+        Pool<IManagedRelpConnection> pool = new Pool<>(
+                factory(0, 0, registry),
+                new ManagedRelpConnectionStub(),
+                0,
+                0,
+                0,
+                50,
+                0,
+                0,
+                registry
+        );
+        IManagedRelpConnection stale = pool.get();
+        IManagedRelpConnection fresh = pool.get();
+        pool.offer(stale);
+        Thread.sleep(100);
+        pool.offer(fresh);
+
+        pool.maintain();
+        Assertions.assertEquals(1, registry.counter(name(Pool.class, "evicted")).getCount());
+        Assertions.assertEquals(1, registry.getGauges().get(name(Pool.class, "idle")).getValue());
+        Assertions.assertSame(fresh, pool.get());
+        pool.close();
+    }
+
+    @Test
+    public void testMaxAgeEviction() throws InterruptedException {
+        MetricRegistry registry = new MetricRegistry();
+        Pool<IManagedRelpConnection> pool = new Pool<>(
+                factory(0, 0, registry),
+                new ManagedRelpConnectionStub(),
+                0,
+                0,
+                0,
+                0,
+                50,
+                0,
+                registry
+        );
+        IManagedRelpConnection old = pool.get();
+        Thread.sleep(100);
+        // idle only for a moment, but created too long ago
+        pool.offer(old);
+
+        pool.maintain();
+        Assertions.assertEquals(1, registry.counter(name(Pool.class, "evicted")).getCount());
+        Assertions.assertEquals(0, registry.getGauges().get(name(Pool.class, "idle")).getValue());
+        Assertions.assertNotSame(old, pool.get());
+        pool.close();
+    }
+
+    @Test
+    public void testFailedProbeEviction() {
+        RelpConfig relpConfig = new RelpConfig();
+        MetricRegistry registry = new MetricRegistry();
+        // the connection made in advance and the probe both fail
+        Pool<IManagedRelpConnection> pool = new Pool<>(() -> {
+            IManagedRelpConnection connection = new ManagedRelpConnection(
+                    new ThrowingRelpConnectionFake(new RelpConnectionFake(relpConfig), 2),
+                    registry
+            );
+            connection.preConnect();
+            return connection;
+        }, new ManagedRelpConnectionStub(), 0, 0, 0, registry);
+        IManagedRelpConnection failing = pool.get();
+        pool.offer(failing);
+
+        pool.maintain();
+        Assertions.assertEquals(1, registry.counter(name(Pool.class, "failedProbes")).getCount());
+        Assertions.assertEquals(1, registry.counter(name(Pool.class, "evicted")).getCount());
+        Assertions.assertNotSame(failing, pool.get());
+        pool.close();
+    }
+
+    @Test
+    public void testProbeReconnectsDroppedConnection() {
+        RelpConfig relpConfig = new RelpConfig();
+        MetricRegistry registry = new MetricRegistry();
+        List<DroppingRelpConnectionFake> fakes = new ArrayList<>();
+        Pool<IManagedRelpConnection> pool = new Pool<>(() -> {
+            DroppingRelpConnectionFake fake = new DroppingRelpConnectionFake(new RelpConnectionFake(relpConfig));
+            fakes.add(fake);
+            IManagedRelpConnection connection = new ManagedRelpConnection(
+                    new MetricRelpConnection(fake, registry),
+                    registry
+            );
+            connection.preConnect();
+            return connection;
+        }, new ManagedRelpConnectionStub(), 0, 0, 0, registry);
+        PooledRelpOutput output = new PooledRelpOutput(pool);
+        output.send(records);
+        fakes.get(0).drop();
+
+        pool.maintain();
+        Assertions.assertEquals(0, registry.counter(name(Pool.class, "evicted")).getCount());
+        Assertions.assertEquals(2, registry.counter(name(MetricRelpConnection.class, "connects")).getCount());
+
+        // the request gets a live connection and doesn't have to resend
+        output.send(records);
+        Assertions.assertEquals(1, fakes.size());
+        Assertions.assertEquals(0, registry.counter(name(ManagedRelpConnection.class, "resends")).getCount());
+        Assertions.assertEquals(2, registry.counter(name(ManagedRelpConnection.class, "records")).getCount());
+        pool.close();
+    }
+
+    @Test
+    public void testRecentlyCheckedConnectionIsNotProbed() throws InterruptedException {
+        RelpConfig relpConfig = new RelpConfig();
+        MetricRegistry registry = new MetricRegistry();
+        Pool<IManagedRelpConnection> pool = new Pool<>(() -> {
+            IManagedRelpConnection connection = new ManagedRelpConnection(
+                    new MetricRelpConnection(new RelpConnectionFake(relpConfig), registry),
+                    registry
+            );
+            connection.preConnect();
+            return connection;
+        }, new ManagedRelpConnectionStub(), 0, 0, 0, 0, 0, 50, 0, registry);
+        PooledRelpOutput output = new PooledRelpOutput(pool);
+        output.send(records);
+
+        // just used, the session is kept as it is
+        pool.maintain();
+        Assertions.assertEquals(1, registry.counter(name(MetricRelpConnection.class, "connects")).getCount());
+
+        Thread.sleep(100);
+        pool.maintain();
+        Assertions.assertEquals(2, registry.counter(name(MetricRelpConnection.class, "connects")).getCount());
+
+        // just probed
+        pool.maintain();
+        Assertions.assertEquals(2, registry.counter(name(MetricRelpConnection.class, "connects")).getCount());
+        Assertions.assertEquals(0, registry.counter(name(Pool.class, "evicted")).getCount());
+        pool.close();
+    }
+
+    @Test
+    public void testMaintenanceThread() throws InterruptedException {
+        MetricRegistry registry = new MetricRegistry();
+        Pool<IManagedRelpConnection> pool = new Pool<>(
+                factory(0, 0, registry),
+                new ManagedRelpConnectionStub(),
+                4,
+                2,
+                5000,
+                20,
+                0,
+                10,
+                registry
+        );
+
+        Thread.sleep(300);
+        pool.close();
+        // idle ones were evicted and replaced to keep two idle
+        Assertions.assertTrue(registry.counter(name(Pool.class, "evicted")).getCount() > 0);
+        Assertions.assertTrue(registry.counter(name(Pool.class, "created")).getCount() > 2);
+        Assertions.assertEquals(0, registry.getGauges().get(name(Pool.class, "idle")).getValue());
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testDroppedConnectionLatency() {
+        final int connectLatency = 20;
+        final int rounds = 20;
+        RelpConfig relpConfig = new RelpConfig();
+
+        for (boolean probed : new boolean[] {
+                false, true
+        }) {
+            MetricRegistry registry = new MetricRegistry();
+            List<DroppingRelpConnectionFake> fakes = new ArrayList<>();
+            Pool<IManagedRelpConnection> pool = new Pool<>(() -> {
+                DroppingRelpConnectionFake fake = new DroppingRelpConnectionFake(
+                        new RelpConnectionFake(relpConfig, 0, connectLatency)
+                );
+                fakes.add(fake);
+                IManagedRelpConnection connection = new ManagedRelpConnection(fake, registry);
+                connection.preConnect();
+                return connection;
+            }, new ManagedRelpConnectionStub(), 0, 0, 0, registry);
+            PooledRelpOutput output = new PooledRelpOutput(pool);
+            output.send(records);
+
+            long nanos = 0;
+            for (int i = 0; i < rounds; i++) {
+                fakes.get(0).drop();
+                if (probed) {
+                    pool.maintain();
+                }
+                long start = System.nanoTime();
+                output.send(records);
+                nanos += System.nanoTime() - start;
+            }
+            pool.close();
+
+            Assertions
+                    .assertEquals(
+                            probed ? 0 : rounds, registry.counter(name(ManagedRelpConnection.class, "resends")).getCount()
+                    );
+            LOGGER
+                    .info(
+                            "probed <{}>: first send on a dropped connection took <{}> ms on average", probed,
+                            String.format("%.2f", nanos / 1_000_000d / rounds)
+                    );
+        }
+    }
+
+    // connects like RelpConnectionFactory does, over a fake with the given latencies
+    private Supplier<IManagedRelpConnection> factory(int sendLatency, int connectLatency, MetricRegistry registry) {
+        RelpConfig relpConfig = new RelpConfig();
+        return () -> {
+            IManagedRelpConnection connection = new ManagedRelpConnection(
+                    new MetricRelpConnection(new RelpConnectionFake(relpConfig, sendLatency, connectLatency), registry),
+                    registry
+            );
+            connection.preConnect();
+            return connection;
+        };
+    }
+}
@@ -0,0 +1,136 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.teragrep.lsh_01.authentication.SubjectAnonymous;
+import com.teragrep.lsh_01.conversion.RegexMessageStream;
+import com.teragrep.lsh_01.fakes.MessageHandlerFake;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.TooLongFrameException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.regex.Pattern;
+
+public class RegexMessageStreamTest {
+
+    @Test
+    public void testSplitAcrossParts() {
+        List<String> messages = stream("\\n", 1024, "fo", "o\nb", "ar\n", "foobar");
+
+        Assertions.assertEquals(Arrays.asList("foo", "bar", "foobar"), messages);
+    }
+
+    @Test
+    public void testDelimiterAcrossParts() {
+        List<String> messages = stream("\\r\\n", 1024, "foo\r", "\nbar\r", "\n");
+
+        Assertions.assertEquals(Arrays.asList("foo", "bar"), messages);
+    }
+
+    @Test
+    public void testMultiByteCharacterAcrossParts() {
+        byte[] bytes = "\u00e4\n\u00f6".getBytes(StandardCharsets.UTF_8);
+        List<String> received = new ArrayList<>();
+        RegexMessageStream messageStream = new RegexMessageStream(
+                new MessageHandlerFake(received),
+                Pattern.compile("\\n"),
+                new SubjectAnonymous(),
+                new HashMap<>(),
+                1024
+        );
+        for (byte b : bytes) {
+            messageStream.write(Unpooled.wrappedBuffer(new byte[] {
+                    b
+            }));
+        }
+
+        Assertions.assertTrue(messageStream.close());
+        Assertions.assertEquals(Arrays.asList("\u00e4", "\u00f6"), received);
+    }
+
+    @Test
+    public void testSameAsPatternSplit() {
+        String[] bodies = {
+                "", "\n", "\n\nfoo", "foo\n\n\nbar\n\n", "foo", "\nfoo\n", "a\n\nb\n\n\nc"
+        };
+        String[] regexes = {
+                "\\n", "\\n+", "(?=b)", "x*"
+        };
+        for (String regex : regexes) {
+            for (String body : bodies) {
+                List<String> expected = Arrays.asList(Pattern.compile(regex).split(body));
+                for (int partLength = 1; partLength <= Math.max(body.length(), 1); partLength++) {
+                    List<String> parts = new ArrayList<>();
+                    for (int i = 0; i < body.length(); i += partLength) {
+                        parts.add(body.substring(i, Math.min(body.length(), i + partLength)));
+                    }
+                    List<String> messages = stream(regex, 1024, parts.toArray(new String[0]));
+                    Assertions
+                            .assertEquals(
+                                    expected, messages, "regex <" + regex + "> body <" + body + "> part length <"
+                                            + partLength + ">"
+                            );
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTooLongMessage() {
+        List<String> received = new ArrayList<>();
+        RegexMessageStream messageStream = new RegexMessageStream(
+                new MessageHandlerFake(received),
+                Pattern.compile("\\n"),
+                new SubjectAnonymous(),
+                new HashMap<>(),
+                4
+        );
+        messageStream.write(buffer("foo\n"));
+        Assertions.assertThrows(TooLongFrameException.class, () -> messageStream.write(buffer("foobar")));
+        Assertions.assertEquals(Arrays.asList("foo"), received);
+    }
+
+    private List<String> stream(String regex, int maxMessageLength, String... parts) {
+        List<String> received = new ArrayList<>();
+        RegexMessageStream messageStream = new RegexMessageStream(
+                new MessageHandlerFake(received),
+                Pattern.compile(regex),
+                new SubjectAnonymous(),
+                new HashMap<>(),
+                maxMessageLength
+        );
+        for (String part : parts) {
+            messageStream.write(buffer(part));
+        }
+        Assertions.assertTrue(messageStream.close());
+        return received;
+    }
+
+    private ByteBuf buffer(String part) {
+        return Unpooled.wrappedBuffer(part.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -21,9 +21,12 @@ package com.teragrep.lsh_01;
 
 import com.teragrep.lsh_01.conversion.DefaultPayload;
 import com.teragrep.lsh_01.conversion.RegexPayload;
+import com.teragrep.lsh_01.conversion.SplitTimeoutException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -34,7 +37,8 @@ public class RegexPayloadTest {
         String body = "foo\nbar\nfoobar";
         Pattern splitPattern = Pattern.compile("\\n");
         RegexPayload payload = new RegexPayload(new DefaultPayload(body), splitPattern);
-        List<String> messages = payload.messages();
+        List<String> messages = new ArrayList<>();
+        payload.messages().forEach(message -> messages.add(message.toString()));
 
         Assertions.assertEquals(3, messages.size());
         Assertions.assertEquals("foo", messages.get(0));
@@ -47,7 +51,8 @@ public class RegexPayloadTest {
         String body = "foo,bar,foobar";
         Pattern splitPattern = Pattern.compile(",");
         RegexPayload payload = new RegexPayload(new DefaultPayload(body), splitPattern);
-        List<String> messages = payload.messages();
+        List<String> messages = new ArrayList<>();
+        payload.messages().forEach(message -> messages.add(message.toString()));
 
         Assertions.assertEquals(3, messages.size());
         Assertions.assertEquals("foo", messages.get(0));
@@ -60,12 +65,26 @@ public class RegexPayloadTest {
         String body = "foobar";
         Pattern splitPattern = Pattern.compile("\\n");
         RegexPayload payload = new RegexPayload(new DefaultPayload(body), splitPattern);
-        List<String> messages = payload.messages();
+        List<String> messages = new ArrayList<>();
+        payload.messages().forEach(message -> messages.add(message.toString()));
 
         Assertions.assertEquals(1, messages.size());
         Assertions.assertEquals("foobar", messages.get(0));
     }
 
+    @Test
+    public void testLazySplitting() {
+        // finding the second delimiter backtracks for a long time
+        String body = "foo\naaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaac";
+        Pattern splitPattern = Pattern.compile("\\n|(.*a){12}b");
+        Iterator<CharSequence> messages = new RegexPayload(new DefaultPayload(body), splitPattern, 100)
+                .messages()
+                .iterator();
+
+        Assertions.assertEquals("foo", messages.next());
+        Assertions.assertThrows(SplitTimeoutException.class, messages::next);
+    }
+
     @Test
     public void testObjectEquals() {
         Pattern splitPattern = Pattern.compile("\\n");
@@ -74,7 +93,7 @@ public class RegexPayloadTest {
         RegexPayload samePayload = new RegexPayload(new DefaultPayload(requestBody), splitPattern);
 
         // public methods of JsonPayload shouldn't affect an immutable object
-        payload.messages();
+        Assertions.assertTrue(payload.messages().iterator().hasNext());
 
         Assertions.assertEquals(payload, samePayload);
     }
@@ -0,0 +1,89 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.teragrep.lsh_01.relp.RelpFrame;
+import com.teragrep.lsh_01.relp.RelpFrameDecoder;
+import com.teragrep.lsh_01.relp.RelpFrameEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class RelpFrameDecoderTest {
+
+    @Test
+    public void testDecodeResponses() {
+        EmbeddedChannel channel = new EmbeddedChannel(new RelpFrameDecoder());
+        channel.writeInbound(buffer("1 rsp 6 200 OK\n2 rsp 0\n"));
+
+        RelpFrame first = channel.readInbound();
+        Assertions.assertEquals(new RelpFrame(1, "rsp", bytes("200 OK")), first);
+        Assertions.assertTrue(first.isOk());
+        RelpFrame second = channel.readInbound();
+        Assertions.assertEquals(new RelpFrame(2, "rsp", new byte[0]), second);
+        Assertions.assertFalse(second.isOk());
+        Assertions.assertNull(channel.readInbound());
+    }
+
+    @Test
+    public void testDecodeAcrossReads() {
+        EmbeddedChannel channel = new EmbeddedChannel(new RelpFrameDecoder());
+        String frame = "12 rsp 14 500 Not Ok\nabc\n0 serverclose 0\n";
+        for (int i = 0; i < frame.length(); i++) {
+            channel.writeInbound(buffer(frame.substring(i, i + 1)));
+        }
+
+        Assertions.assertEquals(new RelpFrame(12, "rsp", bytes("500 Not Ok\nabc")), channel.readInbound());
+        Assertions.assertEquals(new RelpFrame(0, "serverclose", new byte[0]), channel.readInbound());
+        Assertions.assertNull(channel.readInbound());
+    }
+
+    @Test
+    public void testMissingTrailer() {
+        EmbeddedChannel channel = new EmbeddedChannel(new RelpFrameDecoder());
+        Assertions.assertThrows(DecoderException.class, () -> channel.writeInbound(buffer("1 rsp 2 OKX")));
+    }
+
+    @Test
+    public void testEncodeFrames() {
+        EmbeddedChannel channel = new EmbeddedChannel(new RelpFrameEncoder());
+        channel.writeOutbound(new RelpFrame(1, "syslog", bytes("foo")), new RelpFrame(2, "close", new byte[0]));
+
+        ByteBuf first = channel.readOutbound();
+        Assertions.assertEquals("1 syslog 3 foo\n", first.toString(StandardCharsets.US_ASCII));
+        first.release();
+        ByteBuf second = channel.readOutbound();
+        Assertions.assertEquals("2 close 0\n", second.toString(StandardCharsets.US_ASCII));
+        second.release();
+    }
+
+    private ByteBuf buffer(String frame) {
+        return Unpooled.copiedBuffer(frame, StandardCharsets.UTF_8);
+    }
+
+    private byte[] bytes(String data) {
+        return data.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,342 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.teragrep.lsh_01.syslog.Rfc5424Serializer;
+import com.teragrep.lsh_01.syslog.Rfc5424Template;
+import com.teragrep.rlo_14.Facility;
+import com.teragrep.rlo_14.SDElement;
+import com.teragrep.rlo_14.SDParam;
+import com.teragrep.rlo_14.Severity;
+import com.teragrep.rlo_14.SyslogMessage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class Rfc5424SerializerTest {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(Rfc5424SerializerTest.class);
+
+    private final long time = 1718000000123L;
+
+    @Test
+    public void testIdenticalToSyslogMessage() {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Content-Type", "application/json");
+        headers.put("X-Escaped", "quote\" backslash\\ bracket] [open");
+        headers.put("X-Null", null);
+        assertIdentical(time, "host.example.com", "exampleApp", headers, "ExampleUser", "message");
+    }
+
+    @Test
+    public void testNoHeaders() {
+        assertIdentical(time, "host.example.com", "exampleApp", new HashMap<>(), "ExampleUser", "message");
+    }
+
+    @Test
+    public void testNullFields() {
+        assertIdentical(time, null, null, new HashMap<>(), "", null);
+    }
+
+    @Test
+    public void testEscapedSubject() {
+        assertIdentical(time, "host", "app", new HashMap<>(), "user]\"\\", "message \"]\\ unescaped");
+    }
+
+    @Test
+    public void testUnicode() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("X-Unicode", "\u00E5\u00E4\u00F6 \u20AC \uD83D\uDE00 \uD800 lone \uDC00 surrogates");
+        assertIdentical(
+                time,
+                "h\u014Dst",
+                "\u00E4pp",
+                headers,
+                "\u00FCser",
+                "m\u00E5ssage \u20AC \uD83D\uDE00 \uDBFF\uDFFF \uD83D end with high surrogate \uD83D"
+        );
+    }
+
+    @Test
+    public void testTimestamps() {
+        long[] times = new long[] {
+                0L,
+                1L,
+                10L,
+                999L,
+                1000L,
+                1718000000000L,
+                1718000000001L,
+                1718000000010L,
+                1718000000100L,
+                -1L,
+                -1000L,
+                -62135596800000L,
+                253402300799999L,
+                253402300800000L
+        };
+        for (long t : times) {
+            assertIdentical(t, "host", "app", new HashMap<>(), "user", "message");
+        }
+        // timestamps of the same second reuse the formatted second
+        Rfc5424Serializer serializer = new Rfc5424Serializer();
+        for (long t = time; t < time + 2500; t += 7) {
+            Assertions
+                    .assertEquals(
+                            expected(t, "host", "app", new HashMap<>(), "user", "message"),
+                            new String(
+                                    serializer.serialize(t, "host", "app", new HashMap<>(), "user", "message"),
+                                    StandardCharsets.UTF_8
+                            )
+                    );
+        }
+    }
+
+    @Test
+    public void testInvalidHeaderName() {
+        Rfc5424Serializer serializer = new Rfc5424Serializer();
+        String[] names = new String[] {
+                "", "has space", "has=equals", "has]bracket", "has\"quote", "123456789012345678901234567890123"
+        };
+        for (String name : names) {
+            Map<String, String> headers = new HashMap<>();
+            headers.put(name, "value");
+            Assertions
+                    .assertThrows(
+                            IllegalArgumentException.class,
+                            () -> serializer.serialize(time, "host", "app", headers, "user", "message"), name
+                    );
+            Assertions
+                    .assertThrows(
+                            IllegalArgumentException.class,
+                            () -> expected(time, "host", "app", headers, "user", "message"), name
+                    );
+        }
+        Map<String, String> headers = new HashMap<>();
+        headers.put("12345678901234567890123456789012", "value");
+        assertIdentical(time, "host", "app", headers, "user", "message");
+    }
+
+    @Test
+    public void testRandomStrings() {
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            Map<String, String> headers = new HashMap<>();
+            int headerCount = random.nextInt(5);
+            for (int j = 0; j < headerCount; j++) {
+                headers.put("X-Header-" + j, randomString(random));
+            }
+            assertIdentical(
+                    random.nextLong() % 253402300799999L, randomString(random), randomString(random), headers,
+                    randomString(random), randomString(random)
+            );
+        }
+    }
+
+    @Test
+    public void testTemplate() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("content_type", "application/json");
+        headers.put("x_escaped", "quote\" bracket]");
+        Rfc5424Serializer serializer = new Rfc5424Serializer();
+        Rfc5424Template template = serializer.template("host", "app", headers, "user");
+
+        for (int i = 0; i < 10; i++) {
+            byte[] expected = expected(time + i, "host", "app", headers, "user", "message " + i)
+                    .getBytes(StandardCharsets.UTF_8);
+            Assertions.assertArrayEquals(expected, serializer.serialize(time + i, template, "message " + i));
+        }
+        Assertions
+                .assertArrayEquals(
+                        expected(time, "host", "app", headers, "user", null).getBytes(StandardCharsets.UTF_8),
+                        serializer.serialize(time, template, null)
+                );
+    }
+
+    @Test
+    public void testTemplateIsRenderedFrom() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("content_type", "application/json");
+        Rfc5424Template template = new Rfc5424Serializer().template("host", "app", headers, "user");
+
+        Assertions.assertTrue(template.isRenderedFrom("host", "app", headers, "user"));
+        Assertions.assertFalse(template.isRenderedFrom("host", "app", new HashMap<>(headers), "user"));
+        Assertions.assertFalse(template.isRenderedFrom("other", "app", headers, "user"));
+        Assertions.assertFalse(template.isRenderedFrom("host", "other", headers, "user"));
+        Assertions.assertFalse(template.isRenderedFrom("host", "app", headers, "other"));
+        Rfc5424Template nullTemplate = new Rfc5424Serializer().template(null, null, headers, "");
+        Assertions.assertTrue(nullTemplate.isRenderedFrom(null, null, headers, ""));
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testTemplateThroughput() {
+        final int requests = 500;
+        final int messagesPerRequest = 200;
+        Map<String, String> headers = new HashMap<>();
+        for (int i = 0; i < 20; i++) {
+            headers.put("x_header_" + i, "value of header number " + i);
+        }
+        String message = "{\"message\": \"example log line with some content\", \"level\": \"info\"}";
+
+        String hostname = "host.example.com";
+        String appName = "exampleApp";
+        Rfc5424Serializer serializer = new Rfc5424Serializer();
+        long bytes = 0;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                for (int j = 0; j < messagesPerRequest; j++) {
+                    bytes += serializer.serialize(time + j, hostname, appName, headers, "ExampleUser", message).length;
+                }
+            }
+            long perMessageNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                Rfc5424Template template = serializer.template(hostname, appName, headers, "ExampleUser");
+                for (int j = 0; j < messagesPerRequest; j++) {
+                    bytes += serializer.serialize(time + j, template, message).length;
+                }
+            }
+            long perRequestNanos = System.nanoTime() - start;
+            LOGGER
+                    .info(
+                            "Headers rendered per message: <{}> messages per second, per request: <{}> messages per "
+                                    + "second",
+                            requests * messagesPerRequest / (perMessageNanos / 1_000_000_000.0),
+                            requests * messagesPerRequest / (perRequestNanos / 1_000_000_000.0)
+                    );
+        }
+        Assertions.assertTrue(bytes > 0);
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testSerializationThroughput() {
+        final int messages = 200000;
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Content-Type", "application/json");
+        headers.put("User-Agent", "ExampleAgent/1.0");
+        headers.put("X-Request-Id", "0123456789abcdef");
+        String message = "{\"message\": \"example log line with some content\", \"level\": \"info\"}";
+
+        Rfc5424Serializer serializer = new Rfc5424Serializer();
+        long bytes = 0;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < messages; i++) {
+                bytes += expected(time + i, "host.example.com", "exampleApp", headers, "ExampleUser", message)
+                        .getBytes(StandardCharsets.UTF_8).length;
+            }
+            long syslogMessageNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < messages; i++) {
+                bytes += serializer
+                        .serialize(time + i, "host.example.com", "exampleApp", headers, "ExampleUser", message).length;
+            }
+            long serializerNanos = System.nanoTime() - start;
+            LOGGER
+                    .info(
+                            "SyslogMessage: <{}> messages per second, Rfc5424Serializer: <{}> messages per second",
+                            messages / (syslogMessageNanos / 1_000_000_000.0),
+                            messages / (serializerNanos / 1_000_000_000.0)
+                    );
+        }
+        Assertions.assertTrue(bytes > 0);
+    }
+
+    private String randomString(Random random) {
+        StringBuilder builder = new StringBuilder();
+        int length = random.nextInt(20);
+        for (int i = 0; i < length; i++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    builder.append((char) (0x20 + random.nextInt(0x5F)));
+                    break;
+                case 1:
+                    builder.append("\"]\\".charAt(random.nextInt(3)));
+                    break;
+                case 2:
+                    builder.append((char) (0x80 + random.nextInt(0xFF80)));
+                    break;
+                default:
+                    builder.appendCodePoint(0x10000 + random.nextInt(0xFFFFF));
+            }
+        }
+        return builder.toString();
+    }
+
+    private void assertIdentical(
+            long epochMillis,
+            String hostname,
+            String appName,
+            Map<String, String> headers,
+            String subject,
+            String message
+    ) {
+        byte[] expected = expected(epochMillis, hostname, appName, headers, subject, message)
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] actual = new Rfc5424Serializer().serialize(epochMillis, hostname, appName, headers, subject, message);
+        Assertions.assertArrayEquals(expected, actual, new String(expected, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Syslog message as RelpConversion built it with rlo_14.
+     */
+    private String expected(
+            long epochMillis,
+            String hostname,
+            String appName,
+            Map<String, String> headers,
+            String subject,
+            String message
+    ) {
+        SDElement headerSDElement = new SDElement("lsh_01_headers@48577");
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            String headerValue = header.getValue();
+            if (headerValue == null) {
+                headerValue = "";
+            }
+            headerSDElement.addSDParam(new SDParam(header.getKey(), headerValue));
+        }
+        SDElement sdElement = new SDElement("lsh_01@48577");
+        sdElement.addSDParam("subject", subject);
+        return new SyslogMessage()
+                .withTimestamp(epochMillis)
+                .withAppName(appName)
+                .withHostname(hostname)
+                .withFacility(Facility.USER)
+                .withSeverity(Severity.INFORMATIONAL)
+                .withMsg(message)
+                .withSDElement(headerSDElement)
+                .withSDElement(sdElement)
+                .toRfc5424SyslogMessage();
+    }
+}
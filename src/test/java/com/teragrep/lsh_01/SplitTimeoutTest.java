@@ -0,0 +1,138 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.teragrep.lsh_01.authentication.SubjectAnonymous;
+import com.teragrep.lsh_01.config.InternalEndpointUrlConfig;
+import com.teragrep.lsh_01.conversion.DefaultPayload;
+import com.teragrep.lsh_01.conversion.IMessageHandler;
+import com.teragrep.lsh_01.conversion.LinearPattern;
+import com.teragrep.lsh_01.conversion.LinearRegexConversion;
+import com.teragrep.lsh_01.conversion.RegexConversion;
+import com.teragrep.lsh_01.conversion.RegexMessageStream;
+import com.teragrep.lsh_01.conversion.RegexPayload;
+import com.teragrep.lsh_01.conversion.SplitTimeoutException;
+import com.teragrep.lsh_01.fakes.MessageHandlerFake;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+public class SplitTimeoutTest {
+
+    // backtracks polynomially with a high degree when there is no "b" after the a's
+    private final String catastrophic = "(.*a){12}b";
+    private final String body = "foo\naaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaac";
+
+    @Test
+    public void testPayloadTimeout() {
+        RegexPayload payload = new RegexPayload(new DefaultPayload(body), Pattern.compile(catastrophic), 100);
+
+        long start = System.nanoTime();
+        Assertions.assertThrows(SplitTimeoutException.class, () -> payload.messages().iterator().next());
+        Assertions.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+    }
+
+    @Test
+    public void testPayloadWithinTimeout() {
+        RegexPayload payload = new RegexPayload(new DefaultPayload("foo\nbar"), Pattern.compile("\n"), 100);
+
+        Assertions.assertIterableEquals(Arrays.asList("foo", "bar"), payload.messages());
+    }
+
+    @Test
+    public void testStreamTimeout() {
+        List<String> received = new ArrayList<>();
+        RegexMessageStream messageStream = new RegexMessageStream(
+                new MessageHandlerFake(received),
+                Pattern.compile(catastrophic),
+                new SubjectAnonymous(),
+                new HashMap<>(),
+                1024,
+                100
+        );
+
+        Assertions.assertThrows(SplitTimeoutException.class, () -> {
+            messageStream.write(Unpooled.copiedBuffer(body, StandardCharsets.UTF_8));
+            messageStream.close();
+        });
+    }
+
+    @Test
+    public void testTimeoutResponse() throws InterruptedException {
+        List<String> received = new ArrayList<>();
+        FullHttpResponse response = request(
+                new RegexConversion(new MessageHandlerFake(received), Pattern.compile(catastrophic), 100)
+        );
+
+        Assertions.assertEquals(HttpResponseStatus.UNPROCESSABLE_ENTITY, response.status());
+        Assertions.assertTrue(received.isEmpty());
+        response.release();
+    }
+
+    @Test
+    public void testLinearEngine() throws InterruptedException {
+        List<String> received = new ArrayList<>();
+        FullHttpResponse response = request(
+                new LinearRegexConversion(new MessageHandlerFake(received), new LinearPattern(catastrophic), 100)
+        );
+
+        Assertions.assertEquals(HttpResponseStatus.OK, response.status());
+        Assertions.assertEquals(Arrays.asList(body), received);
+        response.release();
+    }
+
+    private FullHttpResponse request(IMessageHandler conversion) throws InterruptedException {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new HttpServerHandler(conversion, executor, HttpResponseStatus.OK, new InternalEndpointUrlConfig())
+        );
+        channel
+                .writeInbound(
+                        new DefaultFullHttpRequest(
+                                HttpVersion.HTTP_1_1,
+                                HttpMethod.POST,
+                                "/",
+                                Unpooled.copiedBuffer(body, StandardCharsets.UTF_8)
+                        )
+                );
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        channel.runPendingTasks();
+        FullHttpResponse response = channel.readOutbound();
+        channel.finishAndReleaseAll();
+        return response;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.codahale.metrics.MetricRegistry;
+import com.teragrep.lsh_01.fakes.RelpOutputFake;
+import com.teragrep.lsh_01.spool.Spool;
+import com.teragrep.lsh_01.spool.SpoolingRelpOutput;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class SpoolTest {
+
+    private Path directory;
+
+    @BeforeEach
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("lsh_01-spool");
+    }
+
+    @AfterEach
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testRecordsAreReadInOrder() throws IOException {
+        Spool spool = new Spool(directory, 1024, 4, false);
+        spool.append(records("first", "second"));
+        spool.append(records("third"));
+
+        Assertions.assertEquals(Arrays.asList("first", "second", "third"), strings(spool.peek(10)));
+        Assertions.assertEquals(Arrays.asList("first", "second"), strings(spool.peek(2)));
+
+        spool.commit(2);
+        Assertions.assertEquals(Arrays.asList("third"), strings(spool.peek(10)));
+        Assertions.assertEquals(1, spool.pendingRecords());
+        spool.close();
+    }
+
+    @Test
+    public void testRecoveryContinuesFromCheckpoint() throws IOException {
+        Spool spool = new Spool(directory, 1024, 4, true);
+        spool.append(records("first", "second", "third"));
+        spool.commit(1);
+        spool.close();
+
+        Spool recovered = new Spool(directory, 1024, 4, true);
+        Assertions.assertEquals(2, recovered.pendingRecords());
+        recovered.append(records("fourth"));
+        Assertions.assertEquals(Arrays.asList("second", "third", "fourth"), strings(recovered.peek(10)));
+        recovered.close();
+    }
+
+    @Test
+    public void testReplayedSegmentsAreDeleted() throws IOException {
+        // each record takes 8 + 100 bytes, so a segment holds two of them
+        Spool spool = new Spool(directory, 256, 4, false);
+        for (int i = 0; i < 6; i++) {
+            spool.append(records(new String(new char[100]).replace('\0', (char) ('a' + i))));
+        }
+        Assertions.assertEquals(3, spool.segments());
+        Assertions.assertEquals(6, spool.peek(10).size());
+
+        spool.commit(4);
+        Assertions.assertEquals(1, spool.segments());
+        Assertions.assertEquals(2, spool.pendingRecords());
+        spool.close();
+
+        Spool recovered = new Spool(directory, 256, 4, false);
+        Assertions.assertEquals(2, recovered.pendingRecords());
+        Assertions.assertEquals('e', strings(recovered.peek(1)).get(0).charAt(0));
+        recovered.close();
+    }
+
+    @Test
+    public void testFullSpoolRejectsWholeAppend() throws IOException {
+        Spool spool = new Spool(directory, 256, 2, false);
+        String record = new String(new char[100]).replace('\0', 'a');
+        spool.append(records(record, record, record));
+
+        Assertions.assertThrows(IllegalStateException.class, () -> spool.append(records(record, record)));
+        Assertions.assertEquals(3, spool.pendingRecords());
+        spool.close();
+    }
+
+    @Test
+    public void testSpooledRecordsAreReplayed() throws Exception {
+        List<List<byte[]>> batches = new ArrayList<>();
+        Spool spool = new Spool(directory, 1024, 4, false);
+        SpoolingRelpOutput relpOutput = new SpoolingRelpOutput(
+                new RelpOutputFake(batches),
+                spool,
+                10,
+                0,
+                new MetricRegistry()
+        );
+        relpOutput.send(records("first", "second"));
+        relpOutput.send(records("third"));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (spool.pendingRecords() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        relpOutput.close();
+
+        List<String> replayed = new ArrayList<>();
+        synchronized (batches) {
+            for (List<byte[]> batch : batches) {
+                replayed.addAll(strings(batch));
+            }
+        }
+        Assertions.assertEquals(Arrays.asList("first", "second", "third"), replayed);
+        Assertions.assertEquals(0, spool.pendingRecords());
+    }
+
+    @Test
+    public void testTornRecordIsNotReplayed() throws IOException {
+        Spool spool = new Spool(directory, 1024, 4, true);
+        spool.append(records("first", "second"));
+        spool.close();
+
+        // a crash wrote the length of the second record but not all of its bytes
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(path -> path.toString().endsWith(".segment")).findFirst().get();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {
+                    0
+            }), 8 + 5 + 8 + 5);
+        }
+
+        Spool recovered = new Spool(directory, 1024, 4, true);
+        Assertions.assertEquals(1, recovered.pendingRecords());
+        Assertions.assertEquals(Arrays.asList("first"), strings(recovered.peek(10)));
+
+        // appending continues after the last complete record
+        recovered.append(records("third"));
+        Assertions.assertEquals(Arrays.asList("first", "third"), strings(recovered.peek(10)));
+        recovered.close();
+
+        Spool reopened = new Spool(directory, 1024, 4, true);
+        Assertions.assertEquals(Arrays.asList("first", "third"), strings(reopened.peek(10)));
+        reopened.close();
+    }
+
+    private List<byte[]> records(String... records) {
+        List<byte[]> bytes = new ArrayList<>();
+        for (String record : records) {
+            bytes.add(record.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes;
+    }
+
+    private List<String> strings(List<byte[]> records) {
+        List<String> strings = new ArrayList<>();
+        for (byte[] record : records) {
+            strings.add(new String(record, StandardCharsets.UTF_8));
+        }
+        return strings;
+    }
+}
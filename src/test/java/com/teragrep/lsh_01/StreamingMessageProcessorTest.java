@@ -0,0 +1,192 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.teragrep.lsh_01.config.InternalEndpointUrlConfig;
+import com.teragrep.lsh_01.conversion.IMessageHandler;
+import com.teragrep.lsh_01.fakes.MessageStreamFake;
+import com.teragrep.lsh_01.fakes.StreamingMessageHandlerFake;
+import com.teragrep.lsh_01.util.RejectableRunnable;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+public class StreamingMessageProcessorTest {
+
+    @Test
+    public void testStreamIsClosed() {
+        List<String> calls = new ArrayList<>();
+        EmbeddedChannel channel = channel(
+                new StreamingMessageHandlerFake(() -> new MessageStreamFake(calls, false)),
+                Integer.MAX_VALUE
+        );
+
+        List<HttpContent> parts = body(channel);
+        Assertions.assertEquals(HttpResponseStatus.OK, response(channel));
+        Assertions.assertEquals(Arrays.asList("write", "write", "write", "close"), calls);
+        assertReleased(parts);
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testFailedOpenIsAnswered() {
+        EmbeddedChannel channel = channel(new StreamingMessageHandlerFake(() -> {
+            throw new IllegalStateException("can't open");
+        }), Integer.MAX_VALUE);
+
+        List<HttpContent> parts = body(channel);
+        Assertions.assertEquals(HttpResponseStatus.INTERNAL_SERVER_ERROR, response(channel));
+        // the rest of the body is discarded without a second response
+        Assertions.assertNull(channel.readOutbound());
+        assertReleased(parts);
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testFailedWriteAbortsStream() {
+        List<String> calls = new ArrayList<>();
+        EmbeddedChannel channel = channel(
+                new StreamingMessageHandlerFake(() -> new MessageStreamFake(calls, true)),
+                Integer.MAX_VALUE
+        );
+
+        List<HttpContent> parts = body(channel);
+        Assertions.assertEquals(HttpResponseStatus.INTERNAL_SERVER_ERROR, response(channel));
+        Assertions.assertEquals(Arrays.asList("write", "abort"), calls);
+        assertReleased(parts);
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testRejectedRequest() {
+        List<String> calls = new ArrayList<>();
+        EmbeddedChannel channel = channel(
+                new StreamingMessageHandlerFake(() -> new MessageStreamFake(calls, false)),
+                0
+        );
+
+        List<HttpContent> parts = body(channel);
+        Assertions.assertEquals(HttpResponseStatus.TOO_MANY_REQUESTS, response(channel));
+        Assertions.assertNull(channel.readOutbound());
+        Assertions.assertEquals(Collections.emptyList(), calls);
+        assertReleased(parts);
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testRejectionAfterFirstPart() {
+        List<String> calls = new ArrayList<>();
+        EmbeddedChannel channel = channel(
+                new StreamingMessageHandlerFake(() -> new MessageStreamFake(calls, false)),
+                1
+        );
+
+        List<HttpContent> parts = body(channel);
+        // the first part may have been sent already, so the request must not be retried as a whole
+        Assertions.assertEquals(HttpResponseStatus.INTERNAL_SERVER_ERROR, response(channel));
+        Assertions.assertNull(channel.readOutbound());
+        Assertions.assertEquals(Arrays.asList("write", "abort"), calls);
+        assertReleased(parts);
+        channel.finishAndReleaseAll();
+    }
+
+    /**
+     * @param accepted how many drains the executor runs before it rejects the rest
+     */
+    private EmbeddedChannel channel(IMessageHandler messageHandler, int accepted) {
+        return new EmbeddedChannel(
+                new StreamingHttpServerHandler(
+                        messageHandler,
+                        new RejectingExecutor(accepted),
+                        HttpResponseStatus.OK,
+                        new InternalEndpointUrlConfig(),
+                        new HeaderFilter(),
+                        1024
+                )
+        );
+    }
+
+    private List<HttpContent> body(EmbeddedChannel channel) {
+        List<HttpContent> parts = Arrays
+                .asList(
+                        new DefaultHttpContent(Unpooled.copiedBuffer("first\n", StandardCharsets.UTF_8)),
+                        new DefaultHttpContent(Unpooled.copiedBuffer("second\n", StandardCharsets.UTF_8)),
+                        new DefaultLastHttpContent(Unpooled.copiedBuffer("third", StandardCharsets.UTF_8))
+                );
+        channel.writeInbound(new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/"));
+        for (HttpContent part : parts) {
+            channel.writeInbound(part);
+        }
+        return parts;
+    }
+
+    private HttpResponseStatus response(EmbeddedChannel channel) {
+        FullHttpResponse response = channel.readOutbound();
+        Assertions.assertNotNull(response);
+        HttpResponseStatus status = response.status();
+        response.release();
+        return status;
+    }
+
+    private void assertReleased(List<HttpContent> parts) {
+        for (HttpContent part : parts) {
+            Assertions.assertEquals(0, part.refCnt());
+        }
+    }
+
+    /**
+     * Runs the given number of tasks on the calling thread and rejects the rest the way the admission executor does.
+     */
+    private static final class RejectingExecutor implements Executor {
+
+        private int accepted;
+
+        private RejectingExecutor(int accepted) {
+            this.accepted = accepted;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (accepted > 0) {
+                accepted--;
+                command.run();
+            }
+            else {
+                ((RejectableRunnable) command).onRejection();
+            }
+        }
+    }
+}
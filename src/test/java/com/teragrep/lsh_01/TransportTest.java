@@ -0,0 +1,204 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.codahale.metrics.MetricRegistry;
+import com.teragrep.lsh_01.authentication.BasicAuthenticationFactory;
+import com.teragrep.lsh_01.config.*;
+import com.teragrep.lsh_01.conversion.RelpConversion;
+import com.teragrep.lsh_01.pool.IManagedRelpConnection;
+import com.teragrep.lsh_01.pool.ManagedRelpConnectionStub;
+import com.teragrep.lsh_01.pool.Pool;
+import com.teragrep.lsh_01.pool.RelpConnectionFactory;
+import com.teragrep.lsh_01.transport.EpollTransport;
+import com.teragrep.lsh_01.transport.NioTransport;
+import com.teragrep.lsh_01.transport.Transport;
+import com.teragrep.lsh_01.transport.TransportFactory;
+import com.teragrep.lsh_01.util.RelpServer;
+import io.netty.channel.epoll.Epoll;
+import org.junit.jupiter.api.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class TransportTest {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(TransportTest.class);
+
+    private RelpServer relpServer;
+
+    @BeforeAll
+    void setUp() {
+        System.setProperty("security.authRequired", "false");
+        System.setProperty("relp.port", "1602");
+        System.setProperty("server.listenPort", "8082");
+        System.setProperty("server.threads", "4");
+
+        relpServer = new RelpServer();
+        relpServer.setUpDefault();
+    }
+
+    @AfterEach
+    void reset() {
+        System.clearProperty("server.transport");
+        System.clearProperty("server.tcpFastOpenBacklog");
+        relpServer.clear();
+    }
+
+    @AfterAll
+    void tearDown() {
+        System.clearProperty("security.authRequired");
+        System.clearProperty("relp.port");
+        System.clearProperty("server.listenPort");
+        System.clearProperty("server.threads");
+        relpServer.tearDown();
+    }
+
+    @Test
+    public void testNioTransport() {
+        Transport transport = new TransportFactory("nio", 0).transport();
+        Assertions.assertEquals(NioTransport.class, transport.getClass());
+    }
+
+    @Test
+    public void testAutoTransport() {
+        Transport transport = new TransportFactory("auto", 0).transport();
+        if (Epoll.isAvailable()) {
+            Assertions.assertEquals(EpollTransport.class, transport.getClass());
+        }
+        else {
+            Assertions.assertEquals(NioTransport.class, transport.getClass());
+        }
+    }
+
+    @Test
+    public void testUnavailableEpollTransport() {
+        Assumptions.assumeFalse(Epoll.isAvailable());
+        Assertions.assertThrows(IllegalStateException.class, () -> new TransportFactory("epoll", 0).transport());
+    }
+
+    @Test
+    public void testInvalidTransport() {
+        System.setProperty("server.transport", "invalid");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new NettyConfig().validate());
+    }
+
+    @Test
+    public void testInvalidTcpFastOpenBacklog() {
+        System.setProperty("server.tcpFastOpenBacklog", "-1");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new NettyConfig().validate());
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testThroughputComparison() {
+        final int clients = 10;
+        final int messagesPerClient = 200;
+
+        double nioRate = throughput("nio", clients, messagesPerClient);
+        LOGGER.info("NIO transport: <{}> requests per second", nioRate);
+
+        if (Epoll.isAvailable()) {
+            double epollRate = throughput("epoll", clients, messagesPerClient);
+            LOGGER.info("Epoll transport: <{}> requests per second", epollRate);
+        }
+    }
+
+    /**
+     * Runs the HTTP server with the given transport against the RELP server stand-in.
+     *
+     * @return handled requests per second
+     */
+    private double throughput(String transport, int clients, int messagesPerClient) {
+        System.setProperty("server.transport", transport);
+        NettyConfig nettyConfig = new NettyConfig();
+        Pool<IManagedRelpConnection> pool = new Pool<>(
+                new RelpConnectionFactory(new RelpConfig(), new MetricRegistry()),
+                new ManagedRelpConnectionStub()
+        );
+        RelpConversion conversion = new RelpConversion(
+                pool,
+                new SecurityConfig(),
+                new BasicAuthenticationFactory().create(),
+                new LookupConfig()
+        );
+        NettyHttpServer server = new NettyHttpServer(
+                nettyConfig,
+                conversion,
+                null,
+                200,
+                new InternalEndpointUrlConfig()
+        );
+        Thread serverThread = new Thread(server);
+        serverThread.start();
+
+        HttpClient httpClient = HttpClient.newHttpClient();
+        URI uri = URI.create("http://" + nettyConfig.listenAddress + ":" + nettyConfig.listenPort);
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        long elapsedNanos;
+        try {
+            Thread.sleep(1000); // wait for netty to start up
+
+            List<Future<?>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < clients; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < messagesPerClient; j++) {
+                        HttpRequest request = HttpRequest
+                                .newBuilder(uri)
+                                .POST(HttpRequest.BodyPublishers.ofString(transport + " message " + j))
+                                .build();
+                        HttpResponse<String> response = Assertions
+                                .assertDoesNotThrow(
+                                        () -> httpClient.send(request, HttpResponse.BodyHandlers.ofString())
+                                );
+                        Assertions.assertEquals(200, response.statusCode());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                Assertions.assertDoesNotThrow(() -> future.get());
+            }
+            elapsedNanos = System.nanoTime() - start;
+        }
+        catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        finally {
+            executor.shutdown();
+            server.close();
+            pool.close();
+        }
+
+        Assertions.assertEquals(clients * messagesPerClient, relpServer.payloads().size());
+        relpServer.clear();
+        return (double) (clients * messagesPerClient) * 1_000_000_000L / elapsedNanos;
+    }
+}
@@ -0,0 +1,294 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01;
+
+import com.teragrep.lsh_01.conversion.DefaultPayload;
+import com.teragrep.lsh_01.conversion.DelimiterPayload;
+import com.teragrep.lsh_01.conversion.JsonPayload;
+import com.teragrep.lsh_01.conversion.LinearPattern;
+import com.teragrep.lsh_01.conversion.LinearRegexPayload;
+import com.teragrep.lsh_01.conversion.Payload;
+import com.teragrep.lsh_01.conversion.RawJsonPayload;
+import com.teragrep.lsh_01.conversion.RegexPayload;
+import com.teragrep.lsh_01.conversion.Utf8Bytes;
+import com.teragrep.lsh_01.conversion.Utf8Text;
+import com.teragrep.lsh_01.syslog.Rfc5424Serializer;
+import com.teragrep.lsh_01.syslog.Rfc5424Template;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.AsciiString;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+public class Utf8TextTest {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(Utf8TextTest.class);
+
+    @Test
+    public void testValidIsKeptAsBytes() {
+        // longer than eight bytes with the non-ASCII char at each position
+        String ascii = "0123456789abcdefghij";
+        CharSequence text = new Utf8Text(Unpooled.copiedBuffer(ascii, StandardCharsets.US_ASCII)).text();
+
+        Assertions.assertTrue(text instanceof AsciiString);
+        Assertions.assertEquals(ascii, text.toString());
+        for (String nonAscii : new String[] {
+                "\u00e4", "\u20ac", "\ud83d\ude00"
+        }) {
+            for (int i = 0; i < ascii.length(); i++) {
+                String body = ascii.substring(0, i) + nonAscii + ascii.substring(i);
+                CharSequence utf8 = new Utf8Text(Unpooled.copiedBuffer(body, StandardCharsets.UTF_8)).text();
+
+                Assertions.assertTrue(utf8 instanceof Utf8Bytes, body);
+                Assertions.assertEquals(body, utf8.toString());
+                Assertions.assertEquals(body.length(), utf8.length());
+            }
+        }
+    }
+
+    @Test
+    public void testMalformedIsReplaced() {
+        byte[][] malformed = {
+                {
+                        'a', (byte) 0xC3, 'b', (byte) 0xFF
+                }, {
+                        (byte) 0xC0, (byte) 0x80
+                }, {
+                        (byte) 0xE0, (byte) 0x80, (byte) 0x80
+                }, {
+                        (byte) 0xED, (byte) 0xA0, (byte) 0x80
+                }, {
+                        (byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80
+                }, {
+                        'a', (byte) 0xE2, (byte) 0x82
+                }
+        };
+        for (byte[] bytes : malformed) {
+            ByteBuf content = Unpooled.wrappedBuffer(bytes);
+            CharSequence text = new Utf8Text(content).text();
+
+            Assertions.assertTrue(text instanceof String);
+            Assertions.assertEquals(content.toString(StandardCharsets.UTF_8), text);
+        }
+    }
+
+    @Test
+    public void testViewIsNotCopied() {
+        ByteBuf heap = Unpooled.copiedBuffer("ascii text", StandardCharsets.US_ASCII);
+        ByteBuf direct = Unpooled.directBuffer().writeBytes("ascii text".getBytes(StandardCharsets.US_ASCII));
+        ByteBuf utf8 = Unpooled.copiedBuffer("\u00e4 text", StandardCharsets.UTF_8);
+        CharSequence heapView = new Utf8Text(heap).view();
+        CharSequence directView = new Utf8Text(direct).view();
+        CharSequence utf8View = new Utf8Text(utf8).view();
+        CharSequence copy = new Utf8Text(heap).text();
+        heap.setByte(0, 'A');
+        direct.setByte(0, 'A');
+        utf8.setByte(utf8.writerIndex() - 1, 'T');
+
+        Assertions.assertTrue(heapView instanceof AsciiString);
+        Assertions.assertEquals("Ascii text", heapView.toString());
+        Assertions.assertTrue(directView instanceof Utf8Bytes);
+        Assertions.assertEquals("Ascii text", directView.toString());
+        Assertions.assertEquals("\u00e4 texT", utf8View.toString());
+        Assertions.assertEquals("ascii text", copy.toString());
+        direct.release();
+    }
+
+    @Test
+    public void testUtf8BytesChars() {
+        String body = "a\u00e4\u20ac\ud83d\ude00b\ud83d\ude01";
+        CharSequence text = new Utf8Text(Unpooled.copiedBuffer(body, StandardCharsets.UTF_8)).view();
+
+        // backwards and forwards, the chars are found from where the previous one was read
+        for (int i = body.length() - 1; i >= 0; i--) {
+            Assertions.assertEquals(body.charAt(i), text.charAt(i));
+        }
+        for (int start = 0; start <= body.length(); start++) {
+            for (int end = start; end <= body.length(); end++) {
+                CharSequence sub = text.subSequence(start, end);
+
+                Assertions.assertEquals(body.substring(start, end), sub.toString());
+                for (int i = 0; i < sub.length(); i++) {
+                    Assertions.assertEquals(body.charAt(start + i), sub.charAt(i));
+                }
+            }
+        }
+        // between the chars of a surrogate pair
+        Assertions.assertTrue(text.subSequence(4, 6) instanceof String);
+        Assertions.assertTrue(text.subSequence(3, 5) instanceof Utf8Bytes);
+        Assertions.assertTrue(text.subSequence(1, 3) instanceof Utf8Bytes);
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> text.charAt(body.length()));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> text.subSequence(2, 1));
+    }
+
+    @Test
+    public void testSplitMessagesAreViews() {
+        AsciiString ascii = new AsciiString("foo\nbar\nbaz");
+        for (CharSequence message : new DelimiterPayload(new DefaultPayload(ascii), "\n").messages()) {
+            Assertions.assertSame(ascii.array(), ((AsciiString) message).array());
+        }
+        for (CharSequence message : new RegexPayload(new DefaultPayload(ascii), Pattern.compile("\n"), 1000)
+                .messages()) {
+            Assertions.assertSame(ascii.array(), ((AsciiString) message).array());
+        }
+        for (CharSequence message : new RawJsonPayload(new DefaultPayload(new AsciiString("[{}, {}]"))).messages()) {
+            Assertions.assertTrue(message instanceof AsciiString);
+        }
+        CharSequence utf8 = new Utf8Text(Unpooled.copiedBuffer("f\u00f6\u00f6\nbar", StandardCharsets.UTF_8)).view();
+        for (CharSequence message : new DelimiterPayload(new DefaultPayload(utf8), "\n").messages()) {
+            Assertions.assertTrue(message instanceof Utf8Bytes);
+        }
+    }
+
+    @Test
+    public void testReadableBytesOnly() {
+        ByteBuf content = Unpooled.copiedBuffer("skipped\u00e4 text", StandardCharsets.UTF_8);
+        content.readerIndex(content.readerIndex() + "skipped\u00e4 ".getBytes(StandardCharsets.UTF_8).length);
+
+        Assertions.assertEquals(new AsciiString("text"), new Utf8Text(content).text());
+    }
+
+    @Test
+    public void testSameRecords() {
+        Rfc5424Serializer serializer = new Rfc5424Serializer();
+        Rfc5424Template template = serializer.template("host", "app", Collections.emptyMap(), "user");
+        String message = "a message with \"quotes\" \\ and ]";
+
+        Assertions
+                .assertArrayEquals(
+                        serializer.serialize(1000L, template, message),
+                        serializer.serialize(1000L, template, new AsciiString(message))
+                );
+        Assertions
+                .assertArrayEquals(
+                        serializer.serialize(1000L, template, ""),
+                        serializer.serialize(1000L, template, new AsciiString(""))
+                );
+        String utf8 = "\u00e4 message \ud83d\ude00";
+        Assertions
+                .assertArrayEquals(
+                        serializer.serialize(1000L, template, utf8),
+                        serializer.serialize(1000L, template, bytes(utf8))
+                );
+    }
+
+    @Test
+    public void testSameMessages() {
+        String lines = "foo\nbar\r\n\nbaz,qux\n\n";
+        String objects = " [{\"foo\": 1}, {\"bar\": [\"baz\"]}]";
+        List<Function<CharSequence, Payload>> payloads = new ArrayList<>();
+        payloads.add(DefaultPayload::new);
+        payloads.add(body -> new RegexPayload(new DefaultPayload(body), Pattern.compile("\\r?\\n|,")));
+        payloads.add(body -> new RegexPayload(new DefaultPayload(body), Pattern.compile("\\n"), 1000));
+        payloads.add(body -> new LinearRegexPayload(new DefaultPayload(body), new LinearPattern("\\r?\\n|,"), 0));
+        payloads.add(body -> new DelimiterPayload(new DefaultPayload(body), "\n"));
+        payloads.add(body -> new DelimiterPayload(new DefaultPayload(body), "\u00e4"));
+        String utf8Lines = "f\u00f6\u00f6\nb\u00e4r\r\n\n\ud83d\ude00,qux\n\n";
+        String utf8Objects = " [{\"f\u00f6\u00f6\": 1}, {\"bar\": [\"\ud83d\ude00\"]}]";
+        for (Function<CharSequence, Payload> payload : payloads) {
+            Assertions
+                    .assertEquals(messages(payload.apply(lines)), messages(payload.apply(new AsciiString(lines))));
+            Assertions.assertEquals(messages(payload.apply(utf8Lines)), messages(payload.apply(bytes(utf8Lines))));
+        }
+        Assertions
+                .assertEquals(
+                        messages(new JsonPayload(new DefaultPayload(objects))),
+                        messages(new JsonPayload(new DefaultPayload(new AsciiString(objects))))
+                );
+        Assertions
+                .assertEquals(
+                        messages(new RawJsonPayload(new DefaultPayload(objects))),
+                        messages(new RawJsonPayload(new DefaultPayload(new AsciiString(objects))))
+                );
+        Assertions
+                .assertEquals(
+                        messages(new JsonPayload(new DefaultPayload(utf8Objects))),
+                        messages(new JsonPayload(new DefaultPayload(bytes(utf8Objects))))
+                );
+        Assertions
+                .assertEquals(
+                        messages(new RawJsonPayload(new DefaultPayload(utf8Objects))),
+                        messages(new RawJsonPayload(new DefaultPayload(bytes(utf8Objects))))
+                );
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testSerializingThroughput() {
+        final int requests = 200;
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            builder.append("example log line number ").append(i).append(" with some content\n");
+        }
+        ByteBuf content = Unpooled.copiedBuffer(builder, StandardCharsets.UTF_8);
+        long bytes = (long) requests * content.readableBytes();
+        Rfc5424Serializer serializer = new Rfc5424Serializer();
+        Rfc5424Template template = serializer.template("host", "app", Collections.emptyMap(), "user");
+
+        long records = 0;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                String body = content.toString(StandardCharsets.UTF_8);
+                for (CharSequence message : new DelimiterPayload(new DefaultPayload(body), "\n").messages()) {
+                    records += serializer.serialize(1000L, template, message).length > 0 ? 1 : 0;
+                }
+            }
+            long stringNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                CharSequence body = new Utf8Text(content).view();
+                for (CharSequence message : new DelimiterPayload(new DefaultPayload(body), "\n").messages()) {
+                    records += serializer.serialize(1000L, template, message).length > 0 ? 1 : 0;
+                }
+            }
+            long bytesNanos = System.nanoTime() - start;
+            LOGGER
+                    .info(
+                            "Body megabytes per second, decoded to String: <{}> kept as bytes: <{}>",
+                            bytes / (stringNanos / 1000.0), bytes / (bytesNanos / 1000.0)
+                    );
+        }
+        Assertions.assertEquals(2 * 3 * requests * 1000, records);
+    }
+
+    private CharSequence bytes(String text) {
+        CharSequence bytes = new Utf8Text(Unpooled.copiedBuffer(text, StandardCharsets.UTF_8)).view();
+        Assertions.assertTrue(bytes instanceof Utf8Bytes);
+        return bytes;
+    }
+
+    private List<String> messages(Payload payload) {
+        List<String> messages = new ArrayList<>();
+        payload.messages().forEach(message -> messages.add(message.toString()));
+        return messages;
+    }
+}
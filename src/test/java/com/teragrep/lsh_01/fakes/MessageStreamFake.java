@@ -0,0 +1,58 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.fakes;
+
+import com.teragrep.lsh_01.conversion.MessageStream;
+import io.netty.buffer.ByteBuf;
+
+import java.util.List;
+
+/**
+ * Records the calls made to it, writes throw if so configured.
+ */
+public class MessageStreamFake implements MessageStream {
+
+    private final List<String> calls;
+    private final boolean throwing;
+
+    public MessageStreamFake(List<String> calls, boolean throwing) {
+        this.calls = calls;
+        this.throwing = throwing;
+    }
+
+    @Override
+    public void write(ByteBuf content) {
+        calls.add("write");
+        if (throwing) {
+            throw new IllegalStateException("write failed");
+        }
+    }
+
+    @Override
+    public boolean close() {
+        calls.add("close");
+        return true;
+    }
+
+    @Override
+    public void abort() {
+        calls.add("abort");
+    }
+}
@@ -0,0 +1,84 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.fakes;
+
+import com.teragrep.lsh_01.authentication.Subject;
+import com.teragrep.lsh_01.authentication.SubjectAnonymous;
+import com.teragrep.lsh_01.conversion.BufferedMessageStream;
+import com.teragrep.lsh_01.conversion.IMessageHandler;
+import com.teragrep.lsh_01.conversion.MessageStream;
+import com.teragrep.lsh_01.conversion.Payload;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Completes every payload with the given future, so the test decides when the messages are sent.
+ */
+public class PendingMessageHandlerFake implements IMessageHandler {
+
+    private final CompletableFuture<Boolean> sent;
+
+    public PendingMessageHandlerFake(CompletableFuture<Boolean> sent) {
+        this.sent = sent;
+    }
+
+    @Override
+    public boolean onNewMessage(Subject subject, Map<String, String> headers, String body) {
+        return sent.join();
+    }
+
+    @Override
+    public boolean onNewPayload(Subject subject, Map<String, String> headers, Payload payload) {
+        return sent.join();
+    }
+
+    @Override
+    public CompletionStage<Boolean> onNewPayloadAsync(Subject subject, Map<String, String> headers, Payload payload) {
+        return sent;
+    }
+
+    @Override
+    public MessageStream stream(Subject subject, Map<String, String> headers, int maxMessageLength) {
+        return new BufferedMessageStream(this, subject, headers, maxMessageLength);
+    }
+
+    @Override
+    public Subject asSubject(String token) {
+        return new SubjectAnonymous();
+    }
+
+    @Override
+    public boolean requiresToken() {
+        return false;
+    }
+
+    @Override
+    public IMessageHandler copy() {
+        return new PendingMessageHandlerFake(sent);
+    }
+
+    @Override
+    public Map<String, String> responseHeaders() {
+        return new HashMap<>();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.fakes;
+
+import com.teragrep.lsh_01.pool.RelpOutput;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Records every batch it is asked to send.
+ */
+public class RelpOutputFake implements RelpOutput {
+
+    private final List<List<byte[]>> batches;
+
+    public RelpOutputFake(List<List<byte[]>> batches) {
+        this.batches = batches;
+    }
+
+    @Override
+    public void send(List<byte[]> records) {
+        synchronized (batches) {
+            batches.add(new ArrayList<>(records));
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> sendAsync(List<byte[]> records) {
+        send(records);
+        return CompletableFuture.completedFuture(null);
+    }
+}
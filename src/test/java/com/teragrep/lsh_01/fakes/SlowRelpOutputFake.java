@@ -0,0 +1,59 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.fakes;
+
+import com.teragrep.lsh_01.pool.RelpOutput;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stands in for a slow RELP server. Blocks the caller for the given time before acknowledging the records, like a
+ * blocking RELP connection would.
+ */
+public class SlowRelpOutputFake implements RelpOutput {
+
+    private final long delayMillis;
+    private final AtomicInteger records;
+
+    public SlowRelpOutputFake(long delayMillis, AtomicInteger records) {
+        this.delayMillis = delayMillis;
+        this.records = records;
+    }
+
+    @Override
+    public void send(List<byte[]> records) {
+        try {
+            Thread.sleep(delayMillis);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        this.records.addAndGet(records.size());
+    }
+
+    @Override
+    public CompletableFuture<Void> sendAsync(List<byte[]> records) {
+        send(records);
+        return CompletableFuture.completedFuture(null);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+  logstash-http-input to syslog bridge
+  Copyright 2024 Suomen Kanuuna Oy
+
+  Derivative Work of Elasticsearch
+  Copyright 2012-2015 Elasticsearch
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package com.teragrep.lsh_01.util;
+
+import com.teragrep.lsh_01.relp.RelpFrame;
+import com.teragrep.lsh_01.relp.RelpFrameDecoder;
+import com.teragrep.lsh_01.relp.RelpFrameEncoder;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RELP server that holds the answers to syslog frames until released when holding is set. The first syslog frames are
+ * answered with 500 as many times as there are rejections.
+ */
+public final class HoldingRelpServer {
+
+    private final EventLoopGroup eventLoopGroup;
+    private final List<Long> arrivals; // System.nanoTime of each syslog frame
+    private final List<RelpFrame> held;
+    private Channel heldChannel;
+    private boolean holding;
+    private int rejections;
+    private Channel serverChannel;
+
+    public HoldingRelpServer(EventLoopGroup eventLoopGroup, boolean holding, int rejections) {
+        this.eventLoopGroup = eventLoopGroup;
+        this.arrivals = new ArrayList<>();
+        this.held = new ArrayList<>();
+        this.heldChannel = null;
+        this.holding = holding;
+        this.rejections = rejections;
+        this.serverChannel = null;
+    }
+
+    public void start() {
+        serverChannel = new ServerBootstrap()
+                .group(eventLoopGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<Channel>() {
+
+                    @Override
+                    protected void initChannel(Channel channel) {
+                        channel
+                                .pipeline()
+                                .addLast(new RelpFrameDecoder(), new RelpFrameEncoder(), new FrameHandler());
+                    }
+                })
+                .bind(0)
+                .syncUninterruptibly()
+                .channel();
+    }
+
+    /**
+     * @return port the server was bound to
+     */
+    public int port() {
+        return ((InetSocketAddress) serverChannel.localAddress()).getPort();
+    }
+
+    public void stop() {
+        serverChannel.close().syncUninterruptibly();
+    }
+
+    /**
+     * Acknowledges the held syslog frames and every syslog frame after them.
+     */
+    public synchronized void release() {
+        for (RelpFrame frame : held) {
+            heldChannel.writeAndFlush(ok(frame));
+        }
+        held.clear();
+        heldChannel = null;
+        holding = false;
+    }
+
+    public synchronized List<Long> arrivals() {
+        return new ArrayList<>(arrivals);
+    }
+
+    private static RelpFrame ok(RelpFrame frame) {
+        return new RelpFrame(frame.txnr(), "rsp", "200 OK".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private synchronized void onFrame(Channel channel, RelpFrame frame) {
+        if ("open".equals(frame.command())) {
+            channel
+                    .writeAndFlush(
+                            new RelpFrame(frame.txnr(), "rsp", "200 OK\ncommands=syslog".getBytes(StandardCharsets.US_ASCII))
+                    );
+        }
+        else if ("close".equals(frame.command())) {
+            channel.writeAndFlush(ok(frame));
+            channel.close();
+        }
+        else {
+            arrivals.add(System.nanoTime());
+            if (rejections > 0) {
+                rejections--;
+                channel
+                        .writeAndFlush(
+                                new RelpFrame(frame.txnr(), "rsp", "500 rejected".getBytes(StandardCharsets.US_ASCII))
+                        );
+            }
+            else if (holding) {
+                heldChannel = channel;
+                held.add(frame);
+            }
+            else {
+                channel.writeAndFlush(ok(frame));
+            }
+        }
+    }
+
+    private final class FrameHandler extends SimpleChannelInboundHandler<RelpFrame> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, RelpFrame frame) {
+            onFrame(ctx.channel(), frame);
+        }
+    }
+}